@@ -20,11 +20,18 @@
 package org.matsim.contrib.accessibility;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -58,6 +65,9 @@ public final class AccessibilityCalculator {
 	private final AccessibilityConfigGroup acg;
 	private final Network network;
 	private final double walkSpeed_m_h;
+	private final int numberOfThreads;
+	
+	private static final int ORIGIN_NODES_PER_BATCH = 10000;
 
 	private final ArrayList<FacilityDataExchangeInterface> zoneDataExchangeListeners = new ArrayList<>();
 	
@@ -82,84 +92,164 @@ public final class AccessibilityCalculator {
 		}
 
 		this.walkSpeed_m_h = scenario.getConfig().plansCalcRoute().getTeleportedModeSpeeds().get(TransportMode.walk) * 3600.;
+		this.numberOfThreads = this.acg.getNumberOfThreads();
 	}
 	
 	public final void computeAccessibilities(Double departureTime, ActivityFacilities opportunities) {
 		AggregationObject[] aggregatedOpportunities = aggregateOpportunities(opportunities, network);
 
-		Map<String,Double> expSums = new HashMap<>();
-		for (String mode : calculators.keySet()) {
-			expSums.put(mode, 0.);
-		}
-
 		// Condense measuring points (origins) that have the same nearest node on the network
 		Map<Id<Node>, ArrayList<ActivityFacility>> aggregatedOrigins = aggregateMeasurePointsWithSameNearestNode();
+		List<Id<Node>> originNodeIds = new ArrayList<>(aggregatedOrigins.keySet());
 
-		LOG.info("Iterating over all aggregated measuring points...");
-		ProgressBar progressBar = new ProgressBar(aggregatedOrigins.size());
-		
-		// Go through all nodes (keys) that have a measuring point (origin) assigned
-		for (Id<Node> nodeId : aggregatedOrigins.keySet()) {
-			progressBar.update();
-
-			Node fromNode = network.getNodes().get(nodeId);
+		String[] modes = calculators.keySet().toArray(new String[calculators.size()]);
+		List<AccessibilityContributionCalculator[]> workerCalculators = createWorkerCalculators(modes);
+		int numberOfWorkers = workerCalculators.size();
 
-			for (AccessibilityContributionCalculator calculator : calculators.values()) {
-				Gbl.assertNotNull(calculator);
-				calculator.notifyNewOriginNode(fromNode, departureTime);
-			}
+		LOG.info("Iterating over all aggregated measuring points using " + numberOfWorkers + " thread(s)...");
+		ProgressBar progressBar = new ProgressBar(aggregatedOrigins.size());
 
-			// Get list with measuring points that are assigned to "fromNode"
-			// Go through all measuring points assigned to current node
-			for (ActivityFacility origin : aggregatedOrigins.get(nodeId)) {
-				assert(origin.getCoord() != null);
+		ExecutorService executor = numberOfWorkers > 1 ? Executors.newFixedThreadPool(numberOfWorkers) : null;
+		try {
+			// Origin nodes are processed in batches: the accessibilities of a batch are computed in parallel, and then
+			// handed to the listeners in the original (sequential) order.
+			for (int batchStart = 0; batchStart < originNodeIds.size(); batchStart += ORIGIN_NODES_PER_BATCH) {
+				final List<Id<Node>> batch = originNodeIds.subList(batchStart, Math.min(batchStart + ORIGIN_NODES_PER_BATCH, originNodeIds.size()));
+				final double[][][] accessibilitiesPerOrigin = new double[batch.size()][][];
+				final AtomicInteger nextNode = new AtomicInteger(0);
 
-				for (String key : expSums.keySet()) { // Is it really necessary to reset here?
-					expSums.put(key, 0.);
+				List<Callable<Void>> tasks = new ArrayList<>(numberOfWorkers);
+				for (final AccessibilityContributionCalculator[] calculatorsOfWorker : workerCalculators) {
+					tasks.add(() -> {
+						double[] expSums = new double[modes.length];
+						int i;
+						while ((i = nextNode.getAndIncrement()) < batch.size()) {
+							Node fromNode = network.getNodes().get(batch.get(i));
+							accessibilitiesPerOrigin[i] = computeAccessibilitiesForOriginNode(fromNode, aggregatedOrigins.get(fromNode.getId()),
+									aggregatedOpportunities, calculatorsOfWorker, expSums, departureTime);
+						}
+						return null;
+					});
 				}
-				
-				// Gbl.assertIf(aggregatedOpportunities.length > 0);
-				// yyyyyy a test fails when this line is made active; cannot say why an execution path where there are now opportunities can make sense for a test.  kai, mar'17
-				
-				// Go through all aggregated facilities (i.e. network nodes to which at least one facility is assigned)
-				for (final AggregationObject aggregatedFacility : aggregatedOpportunities) {
-					// Go through all calculators
-					for (String mode : calculators.keySet()) {
-						final double expVhk = calculators.get(mode).computeContributionOfOpportunity(origin, aggregatedFacility, departureTime);
-						expSums.put(mode, expSums.get(mode) + expVhk);
+				if (executor == null) {
+					tasks.get(0).call();
+				} else {
+					for (Future<Void> future : executor.invokeAll(tasks)) {
+						future.get();
 					}
 				}
-				// What does the aggregation of the starting locations save if we do the just ended loop for all starting
-				// points separately anyways? Answer: The trees need to be computed only once. (But one could save more.) kai, feb'14
-
-				// aggregated value
-				Map<String, Double> accessibilities  = new LinkedHashMap<>();
-
-				for (String mode : calculators.keySet()) {
-					if (acg.getAccessibilityMeasureType() == AccessibilityMeasureType.logSum) {
-						accessibilities.put(mode, (1/this.cnScoringGroup.getBrainExpBeta()) * Math.log(expSums.get(mode)));
-					} else if (acg.getAccessibilityMeasureType() == AccessibilityMeasureType.rawSum) {
-						// this was used by IVT within SustainCity. Not sure if we should maintain this; they could, after all, just exp the log results. kai, may'15
-						// The above comment is from the time when the switch "isUsingRawSumsWithoutLn" was a "special case". I think the question is
-						// now resolved as "rawSum" has become one of the "AccessibilityMeasureType" options aiming to provide a means to use
-						// other potentially useful measure types. dz, july'17
-						accessibilities.put(mode, expSums.get(mode));
-					} else if (acg.getAccessibilityMeasureType() == AccessibilityMeasureType.gravity) {
-						throw new IllegalArgumentException("This accessibility measure is not yet implemented.");
-					} else {
-						throw new IllegalArgumentException("No valid accessibility measure type chosen.");
+
+				for (int i = 0; i < batch.size(); i++) {
+					progressBar.update();
+					ArrayList<ActivityFacility> origins = aggregatedOrigins.get(batch.get(i));
+					for (int o = 0; o < origins.size(); o++) {
+						// aggregated value
+						Map<String, Double> accessibilities  = new LinkedHashMap<>();
+						for (int m = 0; m < modes.length; m++) {
+							accessibilities.put(modes[m], accessibilitiesPerOrigin[i][o][m]);
+						}
+						for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
+							zoneDataExchangeInterface.setFacilityAccessibilities(origins.get(o), departureTime, accessibilities);
+						}
 					}
 				}
-				
-				for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
-					zoneDataExchangeInterface.setFacilityAccessibilities(origin, departureTime, accessibilities);
-				}
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		} finally {
+			if (executor != null) {
+				executor.shutdown();
 			}
 		}
 		for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
 			zoneDataExchangeInterface.finish();
 		}
 	}
+
+	/**
+	 * The calculators of the first worker are the ones that were added to this class; the other workers get duplicates.
+	 * If one of the calculators cannot be duplicated, only one worker is used.
+	 */
+	private List<AccessibilityContributionCalculator[]> createWorkerCalculators(String[] modes) {
+		List<AccessibilityContributionCalculator[]> workerCalculators = new ArrayList<>();
+		AccessibilityContributionCalculator[] first = new AccessibilityContributionCalculator[modes.length];
+		for (int m = 0; m < modes.length; m++) {
+			first[m] = calculators.get(modes[m]);
+			Gbl.assertNotNull(first[m]);
+		}
+		workerCalculators.add(first);
+
+		for (int worker = 1; worker < this.numberOfThreads; worker++) {
+			AccessibilityContributionCalculator[] duplicates = new AccessibilityContributionCalculator[modes.length];
+			for (int m = 0; m < modes.length; m++) {
+				duplicates[m] = first[m].duplicate();
+				if (duplicates[m] == null) {
+					LOG.warn("Accessibility contribution calculator for mode " + modes[m] + " cannot be duplicated. Computing accessibilities single-threaded.");
+					return workerCalculators.subList(0, 1);
+				}
+			}
+			workerCalculators.add(duplicates);
+		}
+		return workerCalculators;
+	}
+
+	/**
+	 * @return the accessibilities per measuring point (in the order of <code>origins</code>) and mode (in the order of <code>calculatorsOfWorker</code>)
+	 */
+	private double[][] computeAccessibilitiesForOriginNode(Node fromNode, List<ActivityFacility> origins, AggregationObject[] aggregatedOpportunities,
+			AccessibilityContributionCalculator[] calculatorsOfWorker, double[] expSums, Double departureTime) {
+
+		for (AccessibilityContributionCalculator calculator : calculatorsOfWorker) {
+			calculator.notifyNewOriginNode(fromNode, departureTime);
+		}
+
+		double[][] accessibilities = new double[origins.size()][];
+
+		// Go through all measuring points assigned to current node
+		for (int o = 0; o < origins.size(); o++) {
+			ActivityFacility origin = origins.get(o);
+			assert(origin.getCoord() != null);
+
+			Arrays.fill(expSums, 0.);
+
+			// Gbl.assertIf(aggregatedOpportunities.length > 0);
+			// yyyyyy a test fails when this line is made active; cannot say why an execution path where there are now opportunities can make sense for a test.  kai, mar'17
+
+			// Go through all aggregated facilities (i.e. network nodes to which at least one facility is assigned)
+			for (final AggregationObject aggregatedFacility : aggregatedOpportunities) {
+				// Go through all calculators
+				for (int m = 0; m < calculatorsOfWorker.length; m++) {
+					expSums[m] += calculatorsOfWorker[m].computeContributionOfOpportunity(origin, aggregatedFacility, departureTime);
+				}
+			}
+			// What does the aggregation of the starting locations save if we do the just ended loop for all starting
+			// points separately anyways? Answer: The trees need to be computed only once. (But one could save more.) kai, feb'14
+
+			accessibilities[o] = new double[calculatorsOfWorker.length];
+			for (int m = 0; m < calculatorsOfWorker.length; m++) {
+				if (acg.getAccessibilityMeasureType() == AccessibilityMeasureType.logSum) {
+					accessibilities[o][m] = (1/this.cnScoringGroup.getBrainExpBeta()) * Math.log(expSums[m]);
+				} else if (acg.getAccessibilityMeasureType() == AccessibilityMeasureType.rawSum) {
+					// this was used by IVT within SustainCity. Not sure if we should maintain this; they could, after all, just exp the log results. kai, may'15
+					// The above comment is from the time when the switch "isUsingRawSumsWithoutLn" was a "special case". I think the question is
+					// now resolved as "rawSum" has become one of the "AccessibilityMeasureType" options aiming to provide a means to use
+					// other potentially useful measure types. dz, july'17
+					accessibilities[o][m] = expSums[m];
+				} else if (acg.getAccessibilityMeasureType() == AccessibilityMeasureType.gravity) {
+					throw new IllegalArgumentException("This accessibility measure is not yet implemented.");
+				} else {
+					throw new IllegalArgumentException("No valid accessibility measure type chosen.");
+				}
+			}
+		}
+		return accessibilities;
+	}
 	
 	/**
 	 * Aggregates disutilities Vjk to get from node j to all k that are attached to j and assign sum(Vjk) is to node j.
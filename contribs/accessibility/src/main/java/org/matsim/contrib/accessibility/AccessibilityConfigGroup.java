@@ -55,6 +55,12 @@ public final class AccessibilityConfigGroup extends ReflectiveConfigGroup{
 	
 	private static final String ACCESSIBILITY_DESTINATION_SAMPLING_RATE = "accessibilityDestinationSamplingRate";
 	private Double accessibilityDestinationSamplingRate;
+	
+	private static final String CONTRIBUTION_CUTOFF = "contributionCutoff";
+	private double contributionCutoff = 0.;
+	
+	private static final String NUMBER_OF_THREADS = "numberOfThreads";
+	private int numberOfThreads = 1;
 
 	private double boundingBoxTop;
 	private double boundingBoxLeft;
@@ -114,6 +120,13 @@ public final class AccessibilityConfigGroup extends ReflectiveConfigGroup{
 		
 		map.put(ACCESSIBILITY_MEASURE_TYPE, "defines type of measure for accessibility computation.");
 		
+		map.put(CONTRIBUTION_CUTOFF, "opportunities whose network-based exp-contribution factor (i.e. exp(beta * utility of the network part of the trip)) "
+				+ "is below this value are neglected; the least-cost path trees are not expanded beyond the corresponding cost. "
+				+ "Speeds up the computation considerably for large networks. 0 (default) means no cutoff.");
+		
+		map.put(NUMBER_OF_THREADS, "number of threads over which the aggregated measuring points are distributed. "
+				+ "Only used if all contribution calculators can be duplicated; 1 (default) computes the accessibilities single-threaded.");
+		
 		map.put(USING_CUSTOM_BOUNDING_BOX, "true if custom bounding box should be used for accessibility computation (otherwise e.g. extent of network will be used)");
 		map.put(BOUNDING_BOX_BOTTOM,"custom bounding box parameters for accessibility computation (if enabled)");
 		
@@ -197,6 +210,28 @@ public final class AccessibilityConfigGroup extends ReflectiveConfigGroup{
 	public void setAccessibilityDestinationSamplingRate(Double sampleRate){
 		this.accessibilityDestinationSamplingRate = sampleRate;
 	}
+	@StringGetter(CONTRIBUTION_CUTOFF)
+	public double getContributionCutoff() {
+		return this.contributionCutoff;
+	}
+	@StringSetter(CONTRIBUTION_CUTOFF)
+	public void setContributionCutoff(double contributionCutoff) {
+		if (contributionCutoff < 0. || contributionCutoff >= 1.) {
+			throw new IllegalArgumentException(CONTRIBUTION_CUTOFF + " must be in [0,1).");
+		}
+		this.contributionCutoff = contributionCutoff;
+	}
+	@StringGetter(NUMBER_OF_THREADS)
+	public int getNumberOfThreads() {
+		return this.numberOfThreads;
+	}
+	@StringSetter(NUMBER_OF_THREADS)
+	public void setNumberOfThreads(int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException(NUMBER_OF_THREADS + " must be at least 1.");
+		}
+		this.numberOfThreads = numberOfThreads;
+	}
     @StringGetter(ACCESSIBILITY_MEASURE_TYPE)
     public AccessibilityMeasureType getAccessibilityMeasureType() {
         return this.accessibilityMeasureType;
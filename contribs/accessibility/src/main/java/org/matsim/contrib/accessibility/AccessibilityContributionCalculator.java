@@ -42,4 +42,16 @@ public interface AccessibilityContributionCalculator {
 	double computeContributionOfOpportunity(ActivityFacility origin, AggregationObject destination, Double departureTime);
 	// yyyy I am somewhat sceptic if we tryly need both "fromNode" (above) and origin.
 	// yyyy And I am quite confident that we do not need the departure time twice.
+
+	/**
+	 * Provided for parallel computation.
+	 * The {@link AccessibilityCalculator} splits the origin nodes across several threads; each thread
+	 * needs its own calculator since {@link #notifyNewOriginNode(Node, Double)} is stateful.
+	 *
+	 * @return a new calculator with the same parameters that does not share any mutable state with this one,
+	 * or <code>null</code> if this is not possible. In the latter case, accessibilities are computed single-threaded.
+	 */
+	default AccessibilityContributionCalculator duplicate() {
+		return null;
+	}
 }
\ No newline at end of file
@@ -89,7 +89,7 @@ public final class AccessibilityModule extends AbstractModule {
 			@Inject private Map<String,TravelDisutilityFactory> travelDisutilityFactories ;
 			@Inject private Map<String,TravelTime> travelTimes ;
 			
-			@Inject TripRouter tripRouter ;
+			@Inject Provider<TripRouter> tripRouterProvider ;
 			
 			@Override
 			public ControlerListener get() {
@@ -158,14 +158,13 @@ public final class AccessibilityModule extends AbstractModule {
 						calculator = new ConstantSpeedAccessibilityExpContributionCalculator(mode.name(), config, network);
 						break;
 					case matrixBasedPt:
-						calculator = new LeastCostPathCalculatorAccessibilityContributionCalculator(
-								config.planCalcScore(),	ptMatrix.asPathCalculator(config.planCalcScore()));
+						calculator = PtMatrixAccessibilityUtils.createPtMatrixAccessibilityCalculator(ptMatrix, config);
 						break;
 						//$CASES-OMITTED$
 					default:
 //						TravelTime timeCalculator = this.travelTimes.get( mode.toString() ) ;
 //						TravelDisutility travelDisutility = this.travelDisutilityFactories.get(mode.toString()).createTravelDisutility(timeCalculator) ;
-						calculator = new TripRouterAccessibilityContributionCalculator(mode.toString(), tripRouter, config.planCalcScore());
+						calculator = new TripRouterAccessibilityContributionCalculator(mode.toString(), tripRouterProvider, config.planCalcScore());
 					}
 					accessibilityCalculator.putAccessibilityContributionCalculator(mode.name(), calculator);
 				}
@@ -28,11 +28,13 @@ import org.matsim.contrib.accessibility.utils.AggregationObject;
 import org.matsim.contrib.accessibility.utils.Distances;
 import org.matsim.contrib.accessibility.utils.NetworkUtil;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
 import org.matsim.facilities.ActivityFacility;
 import org.matsim.utils.leastcostpathtree.LeastCostPathTree;
+import org.matsim.utils.leastcostpathtree.LeastCostPathTree.NodeData;
 
 /**
  * @author thibautd, dziemke
@@ -44,6 +46,8 @@ public final class ConstantSpeedAccessibilityExpContributionCalculator implement
 	// to be realistic in South Africa, but less elsewhere)
 	private final LeastCostPathTree lcptTravelDistance = new LeastCostPathTree(new FreeSpeedTravelTime(), new LinkLengthTravelDisutility());
 
+	private final String mode;
+	private final Config config;
 	private final Network network;
 	
 	private double logitScaleParameter;
@@ -61,6 +65,8 @@ public final class ConstantSpeedAccessibilityExpContributionCalculator implement
 
 
 	public ConstantSpeedAccessibilityExpContributionCalculator(final String mode, Config config, Network network) {
+		this.mode = mode;
+		this.config = config;
 		this.network = network;
 		final PlanCalcScoreConfigGroup planCalcScoreConfigGroup = config.planCalcScore() ;
 
@@ -83,6 +89,13 @@ public final class ConstantSpeedAccessibilityExpContributionCalculator implement
 		betaWalkTT = planCalcScoreConfigGroup.getModes().get(TransportMode.walk).getMarginalUtilityOfTraveling() - planCalcScoreConfigGroup.getPerforming_utils_hr();
 		betaWalkTD = planCalcScoreConfigGroup.getModes().get(TransportMode.walk).getMarginalUtilityOfDistance();
 		this.walkSpeed_m_h = config.plansCalcRoute().getTeleportedModeSpeeds().get(TransportMode.walk) * 3600;
+
+		double contributionCutoff = ConfigUtils.addOrGetModule(config, AccessibilityConfigGroup.class).getContributionCutoff();
+		double utilityPerMeter = betaModeTT / modeSpeed_m_h + betaModeTD;
+		if (contributionCutoff > 0. && utilityPerMeter < 0.) {
+			// the tree cost is the travel distance: exp(beta * distance * utilityPerMeter) < cutoff  <=>  distance > ln(cutoff) / (beta * utilityPerMeter)
+			this.lcptTravelDistance.setCostCutoff(Math.log(contributionCutoff) / (logitScaleParameter * utilityPerMeter));
+		}
 	}
 
 	
@@ -96,6 +109,12 @@ public final class ConstantSpeedAccessibilityExpContributionCalculator implement
 	@Override
 	public double computeContributionOfOpportunity(ActivityFacility origin, AggregationObject destination, Double departureTime) {
 		// TODO departure time is not used, dz, apr'17
+		NodeData destinationNodeData = lcptTravelDistance.getTree().get(destination.getNearestNode().getId());
+		if (destinationNodeData == null || destinationNodeData.getCost() > lcptTravelDistance.getCostCutoff()) {
+			// beyond the cost cutoff of the tree, i.e. negligible; reached, but not expanded nodes only have an upper bound of their cost
+			return 0.;
+		}
+
 		Link nearestLinkToOrigin = NetworkUtils.getNearestLinkExactly(network, origin.getCoord());
 
 		// Captures the distance between the origin via the link to the node:
@@ -115,7 +134,7 @@ public final class ConstantSpeedAccessibilityExpContributionCalculator implement
 		double utilityRoad2Node = (distanceIntersection2Node_m / modeSpeed_m_h * betaModeTT)	+ (distanceIntersection2Node_m * betaModeTD); // toll or money ???
 	
 		// Uutility on the network from first node to destination node
-		double travelDistance_m = lcptTravelDistance.getTree().get(destination.getNearestNode().getId()).getCost(); // travel link distances on road network for bicycle and walk
+		double travelDistance_m = destinationNodeData.getCost(); // travel link distances on road network for bicycle and walk
 		double utility = ((travelDistance_m / modeSpeed_m_h * betaModeTT) + (travelDistance_m * betaModeTD)); // toll or money ???
 
 		// Utility based on opportunities that are attached to destination node
@@ -124,4 +143,10 @@ public final class ConstantSpeedAccessibilityExpContributionCalculator implement
 		// exp(beta * a) * exp(beta * b) = exp(beta * (a+b))
 		return Math.exp(logitScaleParameter * (constMode + utilityMeasuringPoint2Road + utilityRoad2Node + utility)) * sumExpVjkWalk;
 	}
-}
\ No newline at end of file
+
+
+	@Override
+	public ConstantSpeedAccessibilityExpContributionCalculator duplicate() {
+		return new ConstantSpeedAccessibilityExpContributionCalculator(this.mode, this.config, this.network);
+	}
+}
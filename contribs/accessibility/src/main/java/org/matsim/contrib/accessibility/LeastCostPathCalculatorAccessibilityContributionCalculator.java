@@ -1,5 +1,7 @@
 package org.matsim.contrib.accessibility;
 
+import javax.inject.Provider;
+
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.contrib.accessibility.utils.AggregationObject;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
@@ -12,6 +14,7 @@ import org.matsim.facilities.ActivityFacility;
  */
 public final class LeastCostPathCalculatorAccessibilityContributionCalculator implements AccessibilityContributionCalculator {
 	private final LeastCostPathCalculator leastCostPathCalculator;
+	private final Provider<LeastCostPathCalculator> leastCostPathCalculatorProvider;
 	private final PlanCalcScoreConfigGroup planCalcScoreConfigGroup;
 	private Node fromNode;
 	private Double departureTime;
@@ -19,6 +22,16 @@ public final class LeastCostPathCalculatorAccessibilityContributionCalculator im
 	public LeastCostPathCalculatorAccessibilityContributionCalculator(PlanCalcScoreConfigGroup planCalcScoreConfigGroup, LeastCostPathCalculator leastCostPathCalculator) {
 		this.planCalcScoreConfigGroup = planCalcScoreConfigGroup;
 		this.leastCostPathCalculator = leastCostPathCalculator;
+		this.leastCostPathCalculatorProvider = null;
+	}
+
+	/**
+	 * Use this constructor if accessibilities should be computed in parallel; each duplicate gets its own {@link LeastCostPathCalculator}.
+	 */
+	public LeastCostPathCalculatorAccessibilityContributionCalculator(PlanCalcScoreConfigGroup planCalcScoreConfigGroup, Provider<LeastCostPathCalculator> leastCostPathCalculatorProvider) {
+		this.planCalcScoreConfigGroup = planCalcScoreConfigGroup;
+		this.leastCostPathCalculator = leastCostPathCalculatorProvider.get();
+		this.leastCostPathCalculatorProvider = leastCostPathCalculatorProvider;
 	}
 
 	@Override
@@ -32,4 +45,13 @@ public final class LeastCostPathCalculatorAccessibilityContributionCalculator im
 		LeastCostPathCalculator.Path path = leastCostPathCalculator.calcLeastCostPath(fromNode, destination.getNearestNode(), departureTime, null, null);
 		return destination.getSum() * Math.exp(planCalcScoreConfigGroup.getBrainExpBeta() * path.travelCost);
 	}
+
+	@Override
+	public AccessibilityContributionCalculator duplicate() {
+		if (this.leastCostPathCalculatorProvider == null) {
+			// a least cost path calculator is, in general, not thread-safe
+			return null;
+		}
+		return new LeastCostPathCalculatorAccessibilityContributionCalculator(this.planCalcScoreConfigGroup, this.leastCostPathCalculatorProvider);
+	}
 }
@@ -9,6 +9,7 @@ import org.matsim.contrib.accessibility.utils.AggregationObject;
 import org.matsim.contrib.accessibility.utils.Distances;
 import org.matsim.contrib.accessibility.utils.LeastCostPathTreeExtended;
 import org.matsim.contrib.accessibility.utils.NetworkUtil;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.network.NetworkUtils;
@@ -18,6 +19,7 @@ import org.matsim.core.router.util.TravelTime;
 import org.matsim.facilities.ActivityFacility;
 import org.matsim.roadpricing.RoadPricingScheme;
 import org.matsim.roadpricing.RoadPricingSchemeImpl;
+import org.matsim.utils.leastcostpathtree.LeastCostPathTree.NodeData;
 
 /**
  * @author thibautd
@@ -41,6 +43,7 @@ import org.matsim.roadpricing.RoadPricingSchemeImpl;
 
 	private final Scenario scenario;
 	private final TravelTime travelTime;
+	private final TravelDisutilityFactory travelDisutilityFactory;
 
 	private final double betaWalkTT;
 	private final double betaWalkTD;
@@ -60,6 +63,7 @@ import org.matsim.roadpricing.RoadPricingSchemeImpl;
 		final PlanCalcScoreConfigGroup planCalcScoreConfigGroup = scenario.getConfig().planCalcScore();
 		this.scheme = (RoadPricingScheme) scenario.getScenarioElement( RoadPricingScheme.ELEMENT_NAME );
 		this.travelTime = travelTime;		
+		this.travelDisutilityFactory = travelDisutilityFactory;
 
 		Gbl.assertNotNull(travelDisutilityFactory);
 		TravelDisutility travelDisutility = travelDisutilityFactory.createTravelDisutility(travelTime);
@@ -72,6 +76,12 @@ import org.matsim.roadpricing.RoadPricingSchemeImpl;
 
 		logitScaleParameter = planCalcScoreConfigGroup.getBrainExpBeta() ;
 
+		double contributionCutoff = ConfigUtils.addOrGetModule(scenario.getConfig(), AccessibilityConfigGroup.class).getContributionCutoff();
+		if (contributionCutoff > 0.) {
+			// exp(- beta * cost) < cutoff  <=>  cost > - ln(cutoff) / beta
+			this.lcpt.setCostCutoff(- Math.log(contributionCutoff) / logitScaleParameter);
+		}
+
 		betaCarTT 	   	= planCalcScoreConfigGroup.getModes().get(TransportMode.car).getMarginalUtilityOfTraveling() - planCalcScoreConfigGroup.getPerforming_utils_hr();
 		betaCarTD		= planCalcScoreConfigGroup.getMarginalUtilityOfMoney() * planCalcScoreConfigGroup.getModes().get(TransportMode.car).getMonetaryDistanceRate();
 		betaCarTMC		= - planCalcScoreConfigGroup.getMarginalUtilityOfMoney() ;
@@ -95,6 +105,12 @@ import org.matsim.roadpricing.RoadPricingSchemeImpl;
 	@Override
 	public double computeContributionOfOpportunity(ActivityFacility origin, AggregationObject destination, Double departureTime) {
 
+		NodeData destinationNodeData = lcpt.getTree().get(destination.getNearestNode().getId());
+		if (destinationNodeData == null || destinationNodeData.getCost() > lcpt.getCostCutoff()) {
+			// beyond the cost cutoff of the tree, i.e. negligible; reached, but not expanded nodes only have an upper bound of their cost
+			return 0.;
+		}
+
 		Link nearestLink = NetworkUtils.getNearestLinkExactly(scenario.getNetwork(), origin.getCoord());
 
 		// === (1) ORIGIN to LINK to NODE (captures the distance (as walk time) between the origin via the link to the node):
@@ -119,7 +135,7 @@ import org.matsim.roadpricing.RoadPricingSchemeImpl;
 //		// yyyyyy dzdzdz: replace the above by link disutility multiplied by fraction of link that is used according to the entry point.  (toll should be in there automatically??)
 
 		// === (2) REMAINING TRAVEL ON NETWORK:
-		double congestedCarDisutility = - lcpt.getTree().get(destination.getNearestNode().getId()).getCost();
+		double congestedCarDisutility = - destinationNodeData.getCost();
 		// travel disutility congested car on road network (including toll)
 		
 		// === (3) Pre-computed effect of all opportunities reachable from destination network node:
@@ -133,6 +149,12 @@ import org.matsim.roadpricing.RoadPricingSchemeImpl;
 	}
 
 
+	@Override
+	public NetworkModeAccessibilityExpContributionCalculator duplicate() {
+		return new NetworkModeAccessibilityExpContributionCalculator(this.travelTime, this.travelDisutilityFactory, this.scenario);
+	}
+
+
 	@Deprecated // yyyy should be possible to get this from car travel disutility
 	private double getTollMoney(Double departureTime, Link nearestLink, Distances distance) {
 		// yy there should be a way of doing this that is closer to the mobsim (and thus more general/automatic).  kai, jun'16
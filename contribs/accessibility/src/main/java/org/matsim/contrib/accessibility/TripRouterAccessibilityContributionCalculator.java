@@ -20,6 +20,8 @@ package org.matsim.contrib.accessibility;
 
 import java.util.List;
 
+import javax.inject.Provider;
+
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
@@ -39,9 +41,18 @@ import org.matsim.facilities.ActivityFacility;
 public class TripRouterAccessibilityContributionCalculator implements AccessibilityContributionCalculator {
 	
 	private TripRouter tripRouter ;
+	private Provider<TripRouter> tripRouterProvider = null;
 	private String mode;
 	private PlanCalcScoreConfigGroup planCalcScoreConfigGroup;
 	
+	/**
+	 * Use this constructor if accessibilities should be computed in parallel; each duplicate gets its own {@link TripRouter}.
+	 */
+	public TripRouterAccessibilityContributionCalculator( String mode, Provider<TripRouter> tripRouterProvider, PlanCalcScoreConfigGroup planCalcScoreConfigGroup) {
+		this(mode, tripRouterProvider.get(), planCalcScoreConfigGroup);
+		this.tripRouterProvider = tripRouterProvider;
+	}
+	
 	public TripRouterAccessibilityContributionCalculator( String mode, TripRouter tripRouter, PlanCalcScoreConfigGroup planCalcScoreConfigGroup) {
 		this.mode = mode ;
 		this.tripRouter = tripRouter;
@@ -82,4 +93,13 @@ public class TripRouterAccessibilityContributionCalculator implements Accessibil
 		// exp(beta * a) * exp(beta * b) = exp(beta * (a+b))
 		return Math.exp(this.planCalcScoreConfigGroup.getBrainExpBeta() * utility) * sumExpVjkWalk;
 	}
-}
\ No newline at end of file
+
+	@Override
+	public AccessibilityContributionCalculator duplicate() {
+		if (this.tripRouterProvider == null) {
+			// the trip router cannot be shared between threads
+			return null;
+		}
+		return new TripRouterAccessibilityContributionCalculator(this.mode, this.tripRouterProvider, this.planCalcScoreConfigGroup);
+	}
+}
@@ -0,0 +1,219 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AccessibilityCalculatorTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.accessibility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.accessibility.gis.GridUtils;
+import org.matsim.contrib.accessibility.interfaces.FacilityDataExchangeInterface;
+import org.matsim.contrib.accessibility.utils.AggregationObject;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutilityFactory;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacilitiesImpl;
+import org.matsim.facilities.ActivityFacility;
+
+public class AccessibilityCalculatorTest {
+
+	private static final int GRID_SIZE = 15;
+	private static final double LINK_LENGTH = 100.;
+	private static final int NUMBER_OF_OPPORTUNITIES = 20;
+
+	@Test
+	public void testSequentialAndParallelResultsAreEqual() {
+		Map<Id<ActivityFacility>, Map<String, Double>> sequential = computeAccessibilities(1, 0.);
+		Map<Id<ActivityFacility>, Map<String, Double>> parallel = computeAccessibilities(4, 0.);
+
+		Assert.assertEquals(GRID_SIZE * GRID_SIZE, sequential.size());
+		Assert.assertEquals(new ArrayList<>(sequential.keySet()), new ArrayList<>(parallel.keySet()));
+		for (Map.Entry<Id<ActivityFacility>, Map<String, Double>> e : sequential.entrySet()) {
+			Assert.assertEquals("accessibilities of " + e.getKey(), e.getValue(), parallel.get(e.getKey()));
+		}
+	}
+
+	/**
+	 * Each opportunity contributes at most 1 to the sum of its destination node, and all utilities besides the one of
+	 * the network part are negative. A cutoff thus reduces the exp-sum of a measuring point by at most
+	 * cutoff * number of opportunities.
+	 */
+	@Test
+	public void testContributionCutoffWithinTolerance() {
+		Map<Id<ActivityFacility>, Map<String, Double>> full = computeAccessibilities(1, 0.);
+		double beta = ConfigUtils.createConfig().planCalcScore().getBrainExpBeta();
+		// the first cutoff truncates the walk trees, the second one only the freespeed trees
+		for (double contributionCutoff : new double[] {Math.exp(-4.), Math.exp(-200.)}) {
+			Map<Id<ActivityFacility>, Map<String, Double>> cut = computeAccessibilities(1, contributionCutoff);
+			Assert.assertEquals(full.keySet(), cut.keySet());
+			for (Map.Entry<Id<ActivityFacility>, Map<String, Double>> e : full.entrySet()) {
+				for (Map.Entry<String, Double> mode : e.getValue().entrySet()) {
+					double fullAccessibility = mode.getValue();
+					double cutAccessibility = cut.get(e.getKey()).get(mode.getKey());
+					String message = mode.getKey() + " accessibility of " + e.getKey() + " with cutoff " + contributionCutoff;
+					Assert.assertTrue(message, cutAccessibility <= fullAccessibility);
+					double tolerance = Math.log(1. + contributionCutoff * NUMBER_OF_OPPORTUNITIES / Math.exp(beta * cutAccessibility)) / beta;
+					Assert.assertTrue(message, fullAccessibility - cutAccessibility <= tolerance + 1e-9);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Destinations beyond the cutoff, i.e. either not reached or not expanded by the least-cost path tree, contribute 0.
+	 */
+	@Test
+	public void testDestinationsBeyondCutoffContributeZero() {
+		Set<Integer> truncatedCalculators = new HashSet<>();
+		for (double contributionCutoff : new double[] {Math.exp(-4.), Math.exp(-200.)}) {
+			Config config = ConfigUtils.createConfig();
+			Scenario scenario = ScenarioUtils.createScenario(config);
+			createGridNetwork(scenario.getNetwork());
+			Config cutConfig = ConfigUtils.createConfig();
+			ConfigUtils.addOrGetModule(cutConfig, AccessibilityConfigGroup.class).setContributionCutoff(contributionCutoff);
+			Scenario cutScenario = ScenarioUtils.createScenario(cutConfig);
+			createGridNetwork(cutScenario.getNetwork());
+
+			List<AccessibilityContributionCalculator> fullCalculators = Arrays.<AccessibilityContributionCalculator>asList(
+					new ConstantSpeedAccessibilityExpContributionCalculator(TransportMode.walk, config, scenario.getNetwork()),
+					new NetworkModeAccessibilityExpContributionCalculator(new FreeSpeedTravelTime(), new OnlyTimeDependentTravelDisutilityFactory(), scenario));
+			List<AccessibilityContributionCalculator> cutCalculators = Arrays.<AccessibilityContributionCalculator>asList(
+					new ConstantSpeedAccessibilityExpContributionCalculator(TransportMode.walk, cutConfig, cutScenario.getNetwork()),
+					new NetworkModeAccessibilityExpContributionCalculator(new FreeSpeedTravelTime(), new OnlyTimeDependentTravelDisutilityFactory(), cutScenario));
+
+			ActivityFacilitiesImpl origins = new ActivityFacilitiesImpl("origins");
+			ActivityFacility origin = origins.createAndAddFacility(Id.create("origin", ActivityFacility.class), new Coord(10., 30.));
+			Node originNode = NetworkUtils.getNearestNode(scenario.getNetwork(), origin.getCoord());
+			Node cutOriginNode = cutScenario.getNetwork().getNodes().get(originNode.getId());
+
+			for (int m = 0; m < fullCalculators.size(); m++) {
+				AccessibilityContributionCalculator fullCalculator = fullCalculators.get(m);
+				AccessibilityContributionCalculator cutCalculator = cutCalculators.get(m);
+				fullCalculator.notifyNewOriginNode(originNode, 8. * 3600);
+				cutCalculator.notifyNewOriginNode(cutOriginNode, 8. * 3600);
+
+				int numberOfZeros = 0;
+				int numberOfNonZeros = 0;
+				for (Node node : cutScenario.getNetwork().getNodes().values()) {
+					AggregationObject fullDestination = new AggregationObject(node.getId(), null, null, scenario.getNetwork().getNodes().get(node.getId()), 1.);
+					AggregationObject cutDestination = new AggregationObject(node.getId(), null, null, node, 1.);
+					double fullContribution = fullCalculator.computeContributionOfOpportunity(origin, fullDestination, 8. * 3600);
+					double cutContribution = cutCalculator.computeContributionOfOpportunity(origin, cutDestination, 8. * 3600);
+					String message = "contribution of " + node.getId() + " with calculator " + m + " and cutoff " + contributionCutoff;
+					if (cutContribution == 0.) {
+						numberOfZeros++;
+						Assert.assertTrue(message, fullContribution <= contributionCutoff);
+					} else {
+						numberOfNonZeros++;
+						Assert.assertEquals(message, fullContribution, cutContribution, 0.);
+					}
+				}
+				Assert.assertTrue(numberOfNonZeros > 0);
+				if (numberOfZeros > 0) {
+					truncatedCalculators.add(m);
+				}
+			}
+		}
+		Assert.assertEquals("both calculators should have been truncated by one of the cutoffs", 2, truncatedCalculators.size());
+	}
+
+	private static Map<Id<ActivityFacility>, Map<String, Double>> computeAccessibilities(int numberOfThreads, double contributionCutoff) {
+		Config config = ConfigUtils.createConfig();
+		ConfigUtils.addOrGetModule(config, AccessibilityConfigGroup.class).setNumberOfThreads(numberOfThreads);
+		ConfigUtils.addOrGetModule(config, AccessibilityConfigGroup.class).setContributionCutoff(contributionCutoff);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		createGridNetwork(scenario.getNetwork());
+
+		double max = (GRID_SIZE - 1) * LINK_LENGTH;
+		ActivityFacilities measuringPoints = GridUtils.createGridLayerByGridSizeByBoundingBoxV2(-LINK_LENGTH / 2, -LINK_LENGTH / 2,
+				max + LINK_LENGTH / 2, max + LINK_LENGTH / 2, LINK_LENGTH);
+
+		ActivityFacilitiesImpl opportunities = new ActivityFacilitiesImpl("opportunities");
+		for (int i = 0; i < NUMBER_OF_OPPORTUNITIES; i++) {
+			opportunities.createAndAddFacility(Id.create("opp" + i, ActivityFacility.class),
+					new Coord((i * 337) % (int) max + 10., (i * 571) % (int) max + 30.));
+		}
+
+		AccessibilityCalculator accessibilityCalculator = new AccessibilityCalculator(scenario, measuringPoints);
+		accessibilityCalculator.putAccessibilityContributionCalculator(Modes4Accessibility.walk.name(),
+				new ConstantSpeedAccessibilityExpContributionCalculator(TransportMode.walk, config, scenario.getNetwork()));
+		accessibilityCalculator.putAccessibilityContributionCalculator(Modes4Accessibility.freespeed.name(),
+				new NetworkModeAccessibilityExpContributionCalculator(new FreeSpeedTravelTime(), new OnlyTimeDependentTravelDisutilityFactory(), scenario));
+
+		final Map<Id<ActivityFacility>, Map<String, Double>> results = new LinkedHashMap<>();
+		accessibilityCalculator.addFacilityDataExchangeListener(new FacilityDataExchangeInterface() {
+			@Override
+			public void setFacilityAccessibilities(ActivityFacility measurePoint, Double timeOfDay, Map<String, Double> accessibilities) {
+				results.put(measurePoint.getId(), new LinkedHashMap<>(accessibilities));
+			}
+			@Override
+			public void finish() {
+			}
+		});
+		accessibilityCalculator.computeAccessibilities(8. * 3600, opportunities);
+		return results;
+	}
+
+	private static void createGridNetwork(Network network) {
+		List<Node> nodes = new ArrayList<>();
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes.add(NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * LINK_LENGTH, y * LINK_LENGTH)));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				Node node = nodes.get(x * GRID_SIZE + y);
+				// vary the speeds so that the least-cost paths do not simply follow the link lengths
+				double freespeed = 5. + (x + y) % 4;
+				if (x + 1 < GRID_SIZE) {
+					Node other = nodes.get((x + 1) * GRID_SIZE + y);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), node, other, LINK_LENGTH, freespeed, 1000., 1.);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), other, node, LINK_LENGTH, freespeed, 1000., 1.);
+				}
+				if (y + 1 < GRID_SIZE) {
+					Node other = nodes.get(x * GRID_SIZE + y + 1);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), node, other, LINK_LENGTH, freespeed, 1000., 1.);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), other, node, LINK_LENGTH, freespeed, 1000., 1.);
+				}
+			}
+		}
+	}
+
+}
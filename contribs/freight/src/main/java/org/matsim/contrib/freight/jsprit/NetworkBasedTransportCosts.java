@@ -515,6 +515,11 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts{
 	private Collection<InternalLeastCostPathCalculatorListener> listeners = new ArrayList<InternalLeastCostPathCalculatorListener>();
 
 	private String defaultTypeId;
+
+	/**
+	 * precomputed transport-times and transport-costs, looked up before the cost-cache (see {@link TransportCostMatrix})
+	 */
+	private volatile TransportCostMatrix transportCostMatrix = null;
 	
 	private NetworkBasedTransportCosts(Builder builder) {
 		super();
@@ -548,6 +553,11 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts{
 		}
 		String typeId = vehicle.getType().getTypeId();
 		int timeSlice = getTimeSlice(departureTime);
+		TransportCostMatrix matrix = transportCostMatrix;
+		if(matrix != null){
+			double matrixTime = matrix.getTransportTime(fromId.getId(), toId.getId(), timeSlice, typeId);
+			if(!Double.isNaN(matrixTime)) return matrixTime;
+		}
 		TransportDataKey transportDataKey = makeKey(fromId.getId(),toId.getId(),timeSlice,typeId);
 		TransportData data = costCache.get(transportDataKey);
 		double transportTime;
@@ -611,6 +621,11 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts{
 		if(vehicle == null) {
 			vehicle = getDefaultVehicle(fromId);
 		}
+		TransportCostMatrix matrix = transportCostMatrix;
+		if(matrix != null){
+			double matrixCost = matrix.getTransportCost(fromId.getId(), toId.getId(), getTimeSlice(departureTime), vehicle.getType().getTypeId());
+			if(!Double.isNaN(matrixCost)) return matrixCost;
+		}
 		Id<Link> fromLinkId = Id.create(fromId.getId(), Link.class);
 		Id<Link> toLinkId = Id.create(toId.getId(), Link.class);
 		Link fromLink = network.getLinks().get(fromLinkId);
@@ -653,6 +668,42 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts{
 		return listeners;
 	}
 
+	/**
+	 * Precomputes the transport-times and transport-costs between all pairs of the given locations (link-ids) for the vehicle-types of
+	 * the given vehicles and the first <code>numberOfTimeSlices</code> time-slices, with <code>numberOfThreads</code> threads.
+	 * 
+	 * <p>The resulting matrix is not set, see {@link #setTransportCostMatrix(TransportCostMatrix)}. The departure time of each time-slice
+	 * is its start, i.e. <code>timeSlice*timeSliceWidth</code>.
+	 * 
+	 * @return the matrix
+	 */
+	public TransportCostMatrix calculateMatrix(Collection<String> locationIds, Collection<Vehicle> vehicles, int numberOfTimeSlices, int numberOfThreads){
+		Map<String, org.matsim.vehicles.Vehicle> vehiclesPerType = new LinkedHashMap<String, org.matsim.vehicles.Vehicle>();
+		for(Vehicle vehicle : vehicles){
+			vehiclesPerType.put(vehicle.getType().getTypeId(), getMatsimVehicle(vehicle));
+		}
+		return TransportCostMatrix.calculate(network, travelTime, travelDisutility, new ArrayList<String>(new LinkedHashSet<String>(locationIds)),
+				vehiclesPerType, timeSliceWidth, numberOfTimeSlices, numberOfThreads);
+	}
+
+	/**
+	 * Sets precomputed transport-times and transport-costs, which are looked up before the cost-cache. Pairs, time-slices and vehicle-types
+	 * that are not part of the matrix are still computed on demand. A matrix can be shared by several instances, e.g. of several carriers on the same network,
+	 * or be read from a file (see {@link TransportCostMatrix#readFile(String)}).
+	 * 
+	 * @Throws {@link IllegalArgumentException} if the time-slice width of the matrix differs from the one of this
+	 */
+	public void setTransportCostMatrix(TransportCostMatrix transportCostMatrix){
+		if(transportCostMatrix != null && transportCostMatrix.getTimeSliceWidth() != timeSliceWidth){
+			throw new IllegalArgumentException("time-slice width of matrix (" + transportCostMatrix.getTimeSliceWidth() + ") differs from " + timeSliceWidth);
+		}
+		this.transportCostMatrix = transportCostMatrix;
+	}
+
+	public TransportCostMatrix getTransportCostMatrix(){
+		return transportCostMatrix;
+	}
+
 	/**
 	 * Backward transport-costs are approximated by calculating <code>getTransportCost(fromId, toId, arrivalTime, driver, vehicle);</code>.
 	 * 
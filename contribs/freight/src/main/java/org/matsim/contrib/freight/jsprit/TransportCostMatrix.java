@@ -0,0 +1,456 @@
+package org.matsim.contrib.freight.jsprit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Transport-times and transport-costs between all pairs of a set of locations (link-ids), for each time-slice and vehicle-type,
+ * as calculated by {@link NetworkBasedTransportCosts}, but precomputed and stored in flat float-matrices instead of a cache of
+ * single pairs.
+ *
+ * <p>The matrix is calculated with one one-to-many search per from-location, time-slice and vehicle-type, which runs in parallel
+ * (see {@link NetworkBasedTransportCosts#calculateMatrix(java.util.Collection, java.util.Collection, int, int)}). The departure time of
+ * all searches of a time-slice is the start of the time-slice.
+ *
+ * <p>A matrix can be shared by several {@link NetworkBasedTransportCosts} (e.g. of several carriers), see
+ * {@link NetworkBasedTransportCosts#setTransportCostMatrix(TransportCostMatrix)}. It can be written to a file and read again
+ * in later runs. A read matrix is memory-mapped, i.e. it is not loaded into the heap, and the operating system shares its pages
+ * between all processes that read the same file.
+ */
+public final class TransportCostMatrix {
+
+	private static final Logger log = Logger.getLogger(TransportCostMatrix.class);
+
+	private static final int MAGIC = 0x4d545843;
+
+	private static final int VERSION = 1;
+
+	private final String[] locationIds;
+
+	private final Map<String, Integer> locationIndices = new HashMap<String, Integer>();
+
+	private final String[] vehicleTypeIds;
+
+	private final Map<String, Integer> vehicleTypeIndices = new HashMap<String, Integer>();
+
+	private final int timeSliceWidth;
+
+	private final int numberOfTimeSlices;
+
+	private final FloatBuffer transportTimes;
+
+	private final FloatBuffer transportCosts;
+
+	private TransportCostMatrix(String[] locationIds, String[] vehicleTypeIds, int timeSliceWidth, int numberOfTimeSlices, FloatBuffer transportTimes, FloatBuffer transportCosts) {
+		this.locationIds = locationIds;
+		for (int i = 0; i < locationIds.length; i++) {
+			locationIndices.put(locationIds[i], i);
+		}
+		this.vehicleTypeIds = vehicleTypeIds;
+		for (int i = 0; i < vehicleTypeIds.length; i++) {
+			vehicleTypeIndices.put(vehicleTypeIds[i], i);
+		}
+		this.timeSliceWidth = timeSliceWidth;
+		this.numberOfTimeSlices = numberOfTimeSlices;
+		this.transportTimes = transportTimes;
+		this.transportCosts = transportCosts;
+	}
+
+	private static int getSize(int numberOfLocations, int numberOfVehicleTypes, int numberOfTimeSlices) {
+		long size = (long) numberOfVehicleTypes * numberOfTimeSlices * numberOfLocations * numberOfLocations;
+		if (size > Integer.MAX_VALUE / 4) {
+			throw new IllegalArgumentException("matrix with " + numberOfLocations + " locations, " + numberOfVehicleTypes + " vehicle-types and "
+					+ numberOfTimeSlices + " time-slices is too large.");
+		}
+		return (int) size;
+	}
+
+	private int getIndex(String fromId, String toId, int timeSlice, String vehicleTypeId) {
+		Integer from = locationIndices.get(fromId);
+		Integer to = locationIndices.get(toId);
+		Integer type = vehicleTypeIndices.get(vehicleTypeId);
+		if (from == null || to == null || type == null || timeSlice < 0 || timeSlice >= numberOfTimeSlices) {
+			return -1;
+		}
+		int n = locationIds.length;
+		return ((type * numberOfTimeSlices + timeSlice) * n + from) * n + to;
+	}
+
+	/**
+	 * @return the transport-time, or <code>Double.NaN</code> if the pair, time-slice or vehicle-type is not part of this matrix
+	 */
+	public double getTransportTime(String fromId, String toId, int timeSlice, String vehicleTypeId) {
+		int index = getIndex(fromId, toId, timeSlice, vehicleTypeId);
+		return index < 0 ? Double.NaN : transportTimes.get(index);
+	}
+
+	/**
+	 * @return the transport-costs, or <code>Double.NaN</code> if the pair, time-slice or vehicle-type is not part of this matrix
+	 */
+	public double getTransportCost(String fromId, String toId, int timeSlice, String vehicleTypeId) {
+		int index = getIndex(fromId, toId, timeSlice, vehicleTypeId);
+		return index < 0 ? Double.NaN : transportCosts.get(index);
+	}
+
+	public int getTimeSliceWidth() {
+		return timeSliceWidth;
+	}
+
+	public int getNumberOfTimeSlices() {
+		return numberOfTimeSlices;
+	}
+
+	public List<String> getLocationIds() {
+		return Arrays.asList(locationIds.clone());
+	}
+
+	public List<String> getVehicleTypeIds() {
+		return Arrays.asList(vehicleTypeIds.clone());
+	}
+
+	/**
+	 * Calculates the matrix.
+	 *
+	 * @param vehicles one (matsim-)vehicle per vehicle-type, as passed to travelTime and travelDisutility
+	 */
+	static TransportCostMatrix calculate(final Network network, final TravelTime travelTime, final TravelDisutility travelDisutility,
+			List<String> locationIds, Map<String, org.matsim.vehicles.Vehicle> vehicles, final int timeSliceWidth, final int numberOfTimeSlices,
+			int numberOfThreads) {
+		final String[] locations = locationIds.toArray(new String[locationIds.size()]);
+		final String[] vehicleTypeIds = vehicles.keySet().toArray(new String[vehicles.size()]);
+		final int n = locations.length;
+		final float[] times = new float[getSize(n, vehicleTypeIds.length, numberOfTimeSlices)];
+		final float[] costs = new float[times.length];
+
+		final RoutingNetwork routingNetwork = new RoutingNetwork(network);
+		final Link[] links = new Link[n];
+		final int[] fromNodes = new int[n];
+		final int[] toNodes = new int[n];
+		for (int i = 0; i < n; i++) {
+			links[i] = network.getLinks().get(Id.create(locations[i], Link.class));
+			if (links[i] == null) throw new IllegalStateException("link " + locations[i] + " is not part of the network.");
+			fromNodes[i] = routingNetwork.getIndex(links[i].getFromNode());
+			toNodes[i] = routingNetwork.getIndex(links[i].getToNode());
+		}
+
+		log.info("calculating transport-cost matrix with " + n + " locations, " + vehicleTypeIds.length + " vehicle-types and "
+				+ numberOfTimeSlices + " time-slices with " + numberOfThreads + " threads.");
+		int numberOfChunks = Math.max(1, Math.min(n, numberOfThreads * 4));
+		final int chunkSize = (n + numberOfChunks - 1) / numberOfChunks;
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int type = 0; type < vehicleTypeIds.length; type++) {
+			final int typeIndex = type;
+			final org.matsim.vehicles.Vehicle vehicle = vehicles.get(vehicleTypeIds[type]);
+			for (int slice = 0; slice < numberOfTimeSlices; slice++) {
+				final int timeSlice = slice;
+				final double departureTime = (double) slice * timeSliceWidth;
+				for (int start = 0; start < n; start += chunkSize) {
+					final int firstFrom = start;
+					final int lastFrom = Math.min(n, start + chunkSize);
+					tasks.add(new Callable<Void>() {
+						@Override
+						public Void call() {
+							OneToManySearch search = new OneToManySearch(routingNetwork, travelTime, travelDisutility);
+							for (int from = firstFrom; from < lastFrom; from++) {
+								search.search(toNodes[from], departureTime, vehicle, fromNodes);
+								int offset = ((typeIndex * numberOfTimeSlices + timeSlice) * n + from) * n;
+								for (int to = 0; to < n; to++) {
+									if (from == to) {
+										continue;
+									}
+									double pathTime = search.getTime(fromNodes[to]);
+									if (Double.isInfinite(pathTime)) {
+										times[offset + to] = Float.POSITIVE_INFINITY;
+										costs[offset + to] = Float.POSITIVE_INFINITY;
+										continue;
+									}
+									// same as in NetworkBasedTransportCosts: the path ends at the from-node of the to-link, add the to-link
+									double arrivalTime = departureTime + pathTime;
+									times[offset + to] = (float) (pathTime + travelTime.getLinkTravelTime(links[to], arrivalTime, null, vehicle));
+									costs[offset + to] = (float) (search.getCost(fromNodes[to]) + travelDisutility.getLinkTravelDisutility(links[to], arrivalTime, null, vehicle));
+								}
+							}
+							return null;
+						}
+					});
+				}
+			}
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, numberOfThreads));
+		try {
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		} finally {
+			executor.shutdown();
+		}
+		return new TransportCostMatrix(locations, vehicleTypeIds, timeSliceWidth, numberOfTimeSlices, FloatBuffer.wrap(times), FloatBuffer.wrap(costs));
+	}
+
+	/**
+	 * Writes the matrix to a (binary) file, see {@link #readFile(String)}.
+	 */
+	public void writeFile(String filename) {
+		try (RandomAccessFile file = new RandomAccessFile(filename, "rw")) {
+			ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+			DataOutputStream header = new DataOutputStream(headerBytes);
+			header.writeInt(MAGIC);
+			header.writeInt(VERSION);
+			header.writeInt(timeSliceWidth);
+			header.writeInt(numberOfTimeSlices);
+			header.writeInt(locationIds.length);
+			for (String id : locationIds) header.writeUTF(id);
+			header.writeInt(vehicleTypeIds.length);
+			for (String id : vehicleTypeIds) header.writeUTF(id);
+			header.close();
+
+			int size = transportTimes.capacity();
+			file.setLength(0);
+			file.write(headerBytes.toByteArray());
+			FileChannel channel = file.getChannel();
+			long offset = headerBytes.size();
+			MappedByteBuffer timesBuffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, 4L * size);
+			timesBuffer.asFloatBuffer().put(transportTimes.duplicate());
+			timesBuffer.force();
+			MappedByteBuffer costsBuffer = channel.map(FileChannel.MapMode.READ_WRITE, offset + 4L * size, 4L * size);
+			costsBuffer.asFloatBuffer().put(transportCosts.duplicate());
+			costsBuffer.force();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads a matrix written with {@link #writeFile(String)}. The matrix values are memory-mapped, not loaded into the heap.
+	 */
+	public static TransportCostMatrix readFile(String filename) {
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+			FileChannel channel = file.getChannel();
+			DataInputStream header = new DataInputStream(Channels.newInputStream(channel));
+			if (header.readInt() != MAGIC) throw new IllegalStateException(filename + " is not a transport-cost matrix file.");
+			int version = header.readInt();
+			if (version != VERSION) throw new IllegalStateException("unsupported version " + version + " of transport-cost matrix file " + filename);
+			int timeSliceWidth = header.readInt();
+			int numberOfTimeSlices = header.readInt();
+			String[] locationIds = new String[header.readInt()];
+			for (int i = 0; i < locationIds.length; i++) locationIds[i] = header.readUTF();
+			String[] vehicleTypeIds = new String[header.readInt()];
+			for (int i = 0; i < vehicleTypeIds.length; i++) vehicleTypeIds[i] = header.readUTF();
+
+			// the stream reads unbuffered from the channel, so the position of the channel is the end of the header
+			long offset = channel.position();
+			int size = getSize(locationIds.length, vehicleTypeIds.length, numberOfTimeSlices);
+			ByteBuffer times = channel.map(FileChannel.MapMode.READ_ONLY, offset, 4L * size);
+			ByteBuffer costs = channel.map(FileChannel.MapMode.READ_ONLY, offset + 4L * size, 4L * size);
+			// the mappings stay valid after the channel is closed
+			return new TransportCostMatrix(locationIds, vehicleTypeIds, timeSliceWidth, numberOfTimeSlices, times.asFloatBuffer(), costs.asFloatBuffer());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * The network as arrays of node indices, shared by all searches.
+	 */
+	private static final class RoutingNetwork {
+		private final Map<Id<Node>, Integer> nodeIndices = new HashMap<Id<Node>, Integer>();
+		private final Link[][] outLinks;
+		private final int[][] outLinkToNodes;
+
+		RoutingNetwork(Network network) {
+			int numberOfNodes = network.getNodes().size();
+			outLinks = new Link[numberOfNodes][];
+			outLinkToNodes = new int[numberOfNodes][];
+			for (Node node : network.getNodes().values()) {
+				nodeIndices.put(node.getId(), nodeIndices.size());
+			}
+			for (Node node : network.getNodes().values()) {
+				int index = getIndex(node);
+				Link[] links = node.getOutLinks().values().toArray(new Link[node.getOutLinks().size()]);
+				outLinks[index] = links;
+				outLinkToNodes[index] = new int[links.length];
+				for (int i = 0; i < links.length; i++) {
+					outLinkToNodes[index][i] = getIndex(links[i].getToNode());
+				}
+			}
+		}
+
+		int getIndex(Node node) {
+			return nodeIndices.get(node.getId());
+		}
+
+		int getNumberOfNodes() {
+			return outLinks.length;
+		}
+	}
+
+	/**
+	 * A time-dependent Dijkstra from one node to all target nodes. Not thread-safe, each thread needs its own instance.
+	 */
+	private static final class OneToManySearch {
+		private final RoutingNetwork network;
+		private final TravelTime travelTime;
+		private final TravelDisutility travelDisutility;
+		private final double[] costs;
+		private final double[] times;
+		private final boolean[] settled;
+		private final boolean[] isTarget;
+		private final int[] touched;
+		private int numberOfTouched = 0;
+
+		// binary heap with lazy deletion
+		private int[] heapNodes = new int[64];
+		private double[] heapCosts = new double[64];
+		private int heapSize = 0;
+
+		OneToManySearch(RoutingNetwork network, TravelTime travelTime, TravelDisutility travelDisutility) {
+			this.network = network;
+			this.travelTime = travelTime;
+			this.travelDisutility = travelDisutility;
+			int numberOfNodes = network.getNumberOfNodes();
+			costs = new double[numberOfNodes];
+			times = new double[numberOfNodes];
+			settled = new boolean[numberOfNodes];
+			isTarget = new boolean[numberOfNodes];
+			touched = new int[numberOfNodes];
+			Arrays.fill(costs, Double.POSITIVE_INFINITY);
+			Arrays.fill(times, Double.POSITIVE_INFINITY);
+		}
+
+		void search(int origin, double departureTime, org.matsim.vehicles.Vehicle vehicle, int[] targets) {
+			// reset only what the last search touched
+			for (int i = 0; i < numberOfTouched; i++) {
+				int node = touched[i];
+				costs[node] = Double.POSITIVE_INFINITY;
+				times[node] = Double.POSITIVE_INFINITY;
+				settled[node] = false;
+			}
+			numberOfTouched = 0;
+			heapSize = 0;
+
+			int remainingTargets = 0;
+			for (int target : targets) {
+				if (!isTarget[target]) {
+					isTarget[target] = true;
+					remainingTargets++;
+				}
+			}
+
+			costs[origin] = 0.0;
+			times[origin] = 0.0;
+			touched[numberOfTouched++] = origin;
+			push(origin, 0.0);
+			while (heapSize > 0 && remainingTargets > 0) {
+				int node = pop();
+				if (settled[node]) {
+					continue;
+				}
+				settled[node] = true;
+				if (isTarget[node]) {
+					remainingTargets--;
+				}
+				double time = departureTime + times[node];
+				Link[] links = network.outLinks[node];
+				int[] toNodes = network.outLinkToNodes[node];
+				for (int i = 0; i < links.length; i++) {
+					int toNode = toNodes[i];
+					if (settled[toNode]) {
+						continue;
+					}
+					double cost = costs[node] + travelDisutility.getLinkTravelDisutility(links[i], time, null, vehicle);
+					if (cost < costs[toNode]) {
+						if (Double.isInfinite(costs[toNode])) {
+							touched[numberOfTouched++] = toNode;
+						}
+						costs[toNode] = cost;
+						times[toNode] = times[node] + travelTime.getLinkTravelTime(links[i], time, null, vehicle);
+						push(toNode, cost);
+					}
+				}
+			}
+
+			for (int target : targets) {
+				isTarget[target] = false;
+			}
+		}
+
+		/**
+		 * @return the travel-time to the node, or infinity if the node is not reachable
+		 */
+		double getTime(int node) {
+			return settled[node] ? times[node] : Double.POSITIVE_INFINITY;
+		}
+
+		double getCost(int node) {
+			return settled[node] ? costs[node] : Double.POSITIVE_INFINITY;
+		}
+
+		private void push(int node, double cost) {
+			if (heapSize == heapNodes.length) {
+				heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+				heapCosts = Arrays.copyOf(heapCosts, heapSize * 2);
+			}
+			int i = heapSize++;
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (heapCosts[parent] <= cost) break;
+				heapNodes[i] = heapNodes[parent];
+				heapCosts[i] = heapCosts[parent];
+				i = parent;
+			}
+			heapNodes[i] = node;
+			heapCosts[i] = cost;
+		}
+
+		private int pop() {
+			int result = heapNodes[0];
+			heapSize--;
+			int node = heapNodes[heapSize];
+			double cost = heapCosts[heapSize];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= heapSize) break;
+				if (child + 1 < heapSize && heapCosts[child + 1] < heapCosts[child]) child++;
+				if (cost <= heapCosts[child]) break;
+				heapNodes[i] = heapNodes[child];
+				heapCosts[i] = heapCosts[child];
+				i = child;
+			}
+			heapNodes[i] = node;
+			heapCosts[i] = cost;
+			return result;
+		}
+	}
+
+}
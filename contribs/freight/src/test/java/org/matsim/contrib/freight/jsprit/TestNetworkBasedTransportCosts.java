@@ -129,4 +129,51 @@ public class TestNetworkBasedTransportCosts extends MatsimTestCase{
 
 	}
 
+	@Test
+	public void test_whenUsingPrecomputedMatrix_itMustReturnSameValuesAsOnDemand(){
+		Config config = new Config();
+		config.addCoreModules();
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		String NETWORK_FILENAME = getClassInputDirectory() + "network.xml";
+		new NetworkReaderMatsimV1(scenario.getNetwork()).readFile(NETWORK_FILENAME);
+		
+		Network network = scenario.getNetwork();
+		NetworkBasedTransportCosts.Builder builder = NetworkBasedTransportCosts.Builder.newInstance(network);
+		builder.addVehicleTypeSpecificCosts("type1", 10.0, 0.0, 2.0);
+		builder.addVehicleTypeSpecificCosts("type2", 20.0, 0.0, 4.0);	
+		NetworkBasedTransportCosts onDemand = builder.build();
+		NetworkBasedTransportCosts precomputed = builder.build();
+		
+		Vehicle vehicle1 = mock(Vehicle.class);
+		VehicleType type1 = mock(VehicleType.class);
+		when(type1.getMaxVelocity()).thenReturn(5.0);
+		when(type1.getTypeId()).thenReturn("type1");
+		when(vehicle1.getType()).thenReturn(type1);
+		when(vehicle1.getId()).thenReturn("vehicle1");
+		
+		Vehicle vehicle2 = mock(Vehicle.class);
+		VehicleType type2 = mock(VehicleType.class);
+		when(type2.getMaxVelocity()).thenReturn(5.0);
+		when(type2.getTypeId()).thenReturn("type2");
+		when(vehicle2.getType()).thenReturn(type2);
+		when(vehicle2.getId()).thenReturn("vehicle2");
+		
+		TransportCostMatrix matrix = precomputed.calculateMatrix(Arrays.asList("20", "21"), Arrays.asList(vehicle1, vehicle2), 1, 2);
+		String filename = getOutputDirectory() + "matrix.bin";
+		matrix.writeFile(filename);
+		precomputed.setTransportCostMatrix(TransportCostMatrix.readFile(filename));
+		
+		for(Vehicle vehicle : Arrays.asList(vehicle1, vehicle2)){
+			for(String[] pair : new String[][]{{"20", "21"}, {"21", "20"}}){
+				Location from = Location.newInstance(pair[0]);
+				Location to = Location.newInstance(pair[1]);
+				assertEquals(onDemand.getTransportCost(from, to, 0.0, mock(Driver.class), vehicle), precomputed.getTransportCost(from, to, 0.0, mock(Driver.class), vehicle), 0.01);
+				assertEquals(onDemand.getTransportTime(from, to, 0.0, mock(Driver.class), vehicle), precomputed.getTransportTime(from, to, 0.0, mock(Driver.class), vehicle), 0.01);
+			}
+		}
+		assertEquals(20000.0, matrix.getTransportCost("20", "21", 0, "type1"), 0.01);
+		assertTrue(Double.isNaN(matrix.getTransportCost("20", "22", 0, "type1")));
+		assertEquals(0, precomputed.ttMemorizedCounter.getCounter());
+	}
+
 }
@@ -25,27 +25,18 @@ import com.google.inject.Inject;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
-import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.locationchoice.bestresponse.BestResponseLocationMutator;
 import org.matsim.contrib.locationchoice.bestresponse.DestinationChoiceBestResponseContext;
 import org.matsim.contrib.locationchoice.bestresponse.DestinationChoiceBestResponseContext.ActivityFacilityWithIndex;
 import org.matsim.contrib.locationchoice.bestresponse.DestinationSampler;
-import org.matsim.contrib.locationchoice.router.BackwardFastMultiNodeDijkstra;
-import org.matsim.contrib.locationchoice.router.BackwardFastMultiNodeDijkstraFactory;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.replanning.modules.AbstractMultithreadedModule;
-import org.matsim.core.router.FastMultiNodeDijkstraFactory;
-import org.matsim.core.router.MultiNodeDijkstra;
 import org.matsim.core.router.TripRouter;
-import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
-import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
-import org.matsim.core.router.util.TravelDisutility;
-import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.scoring.ScoringFunctionFactory;
 import org.matsim.core.utils.collections.QuadTree;
 import org.matsim.core.utils.collections.Tuple;
@@ -69,21 +60,15 @@ public class BestReplyDestinationChoice extends AbstractMultithreadedModule {
 	private final Scenario scenario;
 	private DestinationChoiceBestResponseContext lcContext;
 	private HashSet<String> flexibleTypes;
-	private final LeastCostPathCalculatorFactory forwardMultiNodeDijsktaFactory;
-	private final LeastCostPathCalculatorFactory backwardMultiNodeDijsktaFactory;
 	private final Map<Id<ActivityFacility>, Id<Link>> nearestLinks;
 
 	public static double useScaleEpsilonFromConfig = -99.0;
 	private ScoringFunctionFactory scoringFunctionFactory;
-	private Map<String, TravelTime> travelTimes;
-	private Map<String, TravelDisutilityFactory> travelDisutilities;
 
-	public BestReplyDestinationChoice(Provider<TripRouter> tripRouterProvider, DestinationChoiceBestResponseContext lcContext, ObjectAttributes personsMaxDCScoreUnscaled, ScoringFunctionFactory scoringFunctionFactory, Map<String, TravelTime> travelTimes, Map<String, TravelDisutilityFactory> travelDisutilities) {
+	public BestReplyDestinationChoice(Provider<TripRouter> tripRouterProvider, DestinationChoiceBestResponseContext lcContext, ObjectAttributes personsMaxDCScoreUnscaled, ScoringFunctionFactory scoringFunctionFactory) {
 		super(lcContext.getScenario().getConfig().global());
 		this.tripRouterProvider = tripRouterProvider;
 		this.scoringFunctionFactory = scoringFunctionFactory;
-		this.travelTimes = travelTimes;
-		this.travelDisutilities = travelDisutilities;
 
 		this.dccg = (DestinationChoiceConfigGroup) lcContext.getScenario().getConfig().getModule(DestinationChoiceConfigGroup.GROUP_NAME);
 		if (!DestinationChoiceConfigGroup.Algotype.bestResponse.equals(this.dccg.getAlgorithm())) {
@@ -92,8 +77,6 @@ public class BestReplyDestinationChoice extends AbstractMultithreadedModule {
 		this.lcContext = lcContext;
 		this.scenario = lcContext.getScenario();
 		this.personsMaxEpsUnscaled = personsMaxDCScoreUnscaled;
-		this.forwardMultiNodeDijsktaFactory = new FastMultiNodeDijkstraFactory(true);
-		this.backwardMultiNodeDijsktaFactory = new BackwardFastMultiNodeDijkstraFactory(true);
 		
 		// create cache which is used in ChoiceSet
 		// instead of just the nearest link we probably should check whether the facility is attached to a link? cdobler, oct'14
@@ -142,12 +125,6 @@ public class BestReplyDestinationChoice extends AbstractMultithreadedModule {
 		
 		ReplanningContext replanningContext = this.getReplanningContext();
 		
-		MultiNodeDijkstra forwardMultiNodeDijkstra = (MultiNodeDijkstra) this.forwardMultiNodeDijsktaFactory.createPathCalculator(this.scenario.getNetwork(), 
-				travelDisutilities.get(TransportMode.car).createTravelDisutility(travelTimes.get(TransportMode.car)), travelTimes.get(TransportMode.car));
-
-		BackwardFastMultiNodeDijkstra backwardMultiNodeDijkstra = (BackwardFastMultiNodeDijkstra) this.backwardMultiNodeDijsktaFactory.createPathCalculator(
-				this.scenario.getNetwork(), travelDisutilities.get(TransportMode.car).createTravelDisutility(travelTimes.get(TransportMode.car)), travelTimes.get(TransportMode.car));
-		
 		// this one corresponds to the "frozen epsilon" paper(s)
 		// the random number generators are re-seeded anyway in the dc module. So we do not need a MatsimRandom instance here
 
@@ -155,6 +132,6 @@ public class BestReplyDestinationChoice extends AbstractMultithreadedModule {
 		int iteration = replanningContext.getIteration();
 		
 		return new BestResponseLocationMutator(this.quadTreesOfType, this.facilitiesOfType, this.personsMaxEpsUnscaled, 
-				this.lcContext, this.sampler, tripRouter, forwardMultiNodeDijkstra, backwardMultiNodeDijkstra, scoringFunctionFactory, iteration, this.nearestLinks);
+				this.lcContext, this.sampler, tripRouter, scoringFunctionFactory, iteration, this.nearestLinks);
 	}
 }
\ No newline at end of file
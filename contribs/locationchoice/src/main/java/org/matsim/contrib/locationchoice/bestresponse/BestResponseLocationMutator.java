@@ -39,12 +39,10 @@ import org.matsim.contrib.locationchoice.bestresponse.DestinationChoiceBestRespo
 import org.matsim.contrib.locationchoice.DestinationChoiceConfigGroup.ApproximationLevel;
 import org.matsim.contrib.locationchoice.bestresponse.scoring.ScaleEpsilon;
 import org.matsim.contrib.locationchoice.population.LCPlan;
-import org.matsim.contrib.locationchoice.router.BackwardFastMultiNodeDijkstra;
 import org.matsim.contrib.locationchoice.timegeography.RecursiveLocationMutator;
 import org.matsim.contrib.locationchoice.utils.ActTypeConverter;
 import org.matsim.contrib.locationchoice.utils.PlanUtils;
 import org.matsim.core.population.PopulationUtils;
-import org.matsim.core.router.MultiNodeDijkstra;
 import org.matsim.core.router.TripRouter;
 import org.matsim.core.scoring.ScoringFunctionFactory;
 import org.matsim.core.utils.collections.QuadTree;
@@ -62,8 +60,6 @@ public final class BestResponseLocationMutator extends RecursiveLocationMutator
 	private final ActTypeConverter actTypeConverter;
 	private final DestinationSampler sampler;
 	private final DestinationChoiceBestResponseContext lcContext;
-	private final MultiNodeDijkstra forwardMultiNodeDijkstra;
-	private final BackwardFastMultiNodeDijkstra backwardMultiNodeDijkstra;
 	private final ScoringFunctionFactory scoringFunctionFactory;
 	private final int iteration;
 	private final Map<Id<ActivityFacility>, Id<Link>> nearestLinks;
@@ -81,8 +77,7 @@ public final class BestResponseLocationMutator extends RecursiveLocationMutator
 			TreeMap<String, QuadTree<ActivityFacilityWithIndex>> quad_trees,
 			TreeMap<String, ActivityFacilityImpl []> facilities_of_type,
 			ObjectAttributes personsMaxDCScoreUnscaled, DestinationChoiceBestResponseContext lcContext,
-			DestinationSampler sampler, TripRouter tripRouter, MultiNodeDijkstra forwardMultiNodeDijkstra,
-			BackwardFastMultiNodeDijkstra backwardMultiNodeDijkstra, ScoringFunctionFactory scoringFunctionFactory,
+			DestinationSampler sampler, TripRouter tripRouter, ScoringFunctionFactory scoringFunctionFactory,
 			int iteration, Map<Id<ActivityFacility>, Id<Link>> nearestLinks) {
 		// TODO: first null argument should be quad_trees...
 		super(lcContext.getScenario(), tripRouter, null, facilities_of_type, null);
@@ -92,8 +87,6 @@ public final class BestResponseLocationMutator extends RecursiveLocationMutator
 		this.actTypeConverter = lcContext.getConverter();
 		this.sampler = sampler;
 		this.lcContext = lcContext;
-		this.forwardMultiNodeDijkstra = forwardMultiNodeDijkstra;
-		this.backwardMultiNodeDijkstra = backwardMultiNodeDijkstra;
 		this.scoringFunctionFactory = scoringFunctionFactory;
 		this.iteration = iteration;
 		this.nearestLinks = nearestLinks;
@@ -190,7 +183,7 @@ public final class BestResponseLocationMutator extends RecursiveLocationMutator
 
 					final Id<ActivityFacility> choice = cs.getWeightedRandomChoice(
 							actlegIndex, this.scoringFunctionFactory, plan, this.getTripRouter(), this.lcContext.getPersonsKValuesArray()[personIndex],
-							this.forwardMultiNodeDijkstra, this.backwardMultiNodeDijkstra, this.iteration);
+							this.iteration);
 
 					this.setLocation(actToMove, choice);
 					
@@ -217,14 +210,25 @@ public final class BestResponseLocationMutator extends RecursiveLocationMutator
 		final String convertedType = this.actTypeConverter.convertType(actToMove.getType());
 		Collection<ActivityFacilityWithIndex> list = this.quadTreesOfType.get(convertedType).getDisk(center.getX(), center.getY(), maxRadius);
 		
+		// the mode is the same for all destinations
+		Leg previousLeg = PlanUtils.getPreviousLeg(plan, actToMove);
+		String mode = previousLeg.getMode();
+		// TODO: solve this generic. for that we need info from the config, which modes are actually teleported.
+		boolean isTeleportedMode = mode.equals(TransportMode.bike) || 
+				mode.equals(TransportMode.walk) ||
+				mode.equals(TransportMode.transit_walk) ||
+				mode.equals(TransportMode.other);
+		
 		for (ActivityFacilityWithIndex facility : list) {
 //			int facilityIndex = this.lcContext.getFacilityIndex(facility.getId());
 			int facilityIndex = facility.getArrayIndex();
 			if (this.sampler.sample(facilityIndex, personIndex)) { 
 				
 				// only add destination if it can be reached with the chosen mode
-				Leg previousLeg = PlanUtils.getPreviousLeg(plan, actToMove);
-				String mode = previousLeg.getMode();	
+				if (isTeleportedMode) {
+					cs.addDestination(facility.getId());
+					continue;
+				}
 				
 				Id<Link> linkId = null;
 				// try to get linkId from facility, else get it from act. other options not allowed!
@@ -234,12 +238,7 @@ public final class BestResponseLocationMutator extends RecursiveLocationMutator
 				else {
 					linkId = actToMove.getLinkId();
 				}
-				// TODO: solve this generic. for that we need info from the config, which modes are actually teleported.
-				if (this.lcContext.getScenario().getNetwork().getLinks().get(linkId).getAllowedModes().contains(mode) || 
-						mode.equals(TransportMode.bike) || 
-						mode.equals(TransportMode.walk) ||
-						mode.equals(TransportMode.transit_walk) ||
-						mode.equals(TransportMode.other)) {
+				if (this.lcContext.getScenario().getNetwork().getLinks().get(linkId).getAllowedModes().contains(mode)) {
 					cs.addDestination(facility.getId());
 				}	
 			}
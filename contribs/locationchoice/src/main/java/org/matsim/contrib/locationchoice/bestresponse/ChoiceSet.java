@@ -31,19 +31,11 @@ import java.util.TreeMap;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Link;
-import org.matsim.api.core.v01.network.Network;
-import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Activity;
-import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.contrib.locationchoice.DestinationChoiceConfigGroup;
 import org.matsim.contrib.locationchoice.DestinationChoiceConfigGroup.ApproximationLevel;
-import org.matsim.contrib.locationchoice.router.BackwardFastMultiNodeDijkstra;
 import org.matsim.contrib.locationchoice.utils.PlanUtils;
-import org.matsim.core.network.NetworkUtils;
-import org.matsim.core.router.ImaginaryNode;
-import org.matsim.core.router.InitialNode;
-import org.matsim.core.router.MultiNodeDijkstra;
 import org.matsim.core.router.TripRouter;
 import org.matsim.core.scoring.ScoringFunctionFactory;
 import org.matsim.facilities.ActivityFacilities;
@@ -55,7 +47,6 @@ public class ChoiceSet {
 	private ApproximationLevel approximationLevel;		
 	private List<Id<ActivityFacility>> destinations = new LinkedList<Id<ActivityFacility>>();
 	private List<Id<ActivityFacility>> notYetVisited = new LinkedList<Id<ActivityFacility>>();
-	private final Network network;
 	private final ActivityFacilities facilities;
 	private final Scenario scenario;
 	private final Map<String, Double> teleportedModeSpeeds;
@@ -82,7 +73,6 @@ public class ChoiceSet {
 	ChoiceSet(ApproximationLevel approximationLevel, Scenario scenario, Map<Id<ActivityFacility>, Id<Link>> nearestLinks, 
 			Map<String, Double> teleportedModeSpeeds, Map<String, Double> beelineDistanceFactors) {
 		this.approximationLevel = approximationLevel;
-		this.network = scenario.getNetwork();
 		this.facilities = scenario.getActivityFacilities();
 		this.scenario = scenario;
 		this.nearestLinks = nearestLinks;
@@ -139,15 +129,13 @@ public class ChoiceSet {
 	
 	public Id<ActivityFacility> getWeightedRandomChoice(int actlegIndex,
 			ScoringFunctionFactory scoringFunction, Plan plan, TripRouter tripRouter, double pKVal,
-			MultiNodeDijkstra forwardMultiNodeDijkstra, BackwardFastMultiNodeDijkstra backwardMultiNodeDijkstra,
 			int interation) {
 				
 		TreeMap<Double, Id<ActivityFacility>> map;
 		
 		// if we have no destinations defined so far, we can shorten this
 		if (this.destinations.size() > 0) {
-			map = this.createReducedChoiceSetWithScores(actlegIndex, this.facilities, scoringFunction, plan, 
-					tripRouter, forwardMultiNodeDijkstra, backwardMultiNodeDijkstra);		
+			map = this.createReducedChoiceSetWithScores(actlegIndex, this.facilities, scoringFunction, plan, tripRouter);		
 		} else {
 			// currently handled activity which should be re-located
 			Activity act = (Activity) plan.getPlanElements().get(actlegIndex);
@@ -219,79 +207,16 @@ public class ChoiceSet {
 			ActivityFacilities facilities,
 			ScoringFunctionFactory scoringFunction,
 			Plan plan,
-			TripRouter router,
-			MultiNodeDijkstra forwardMultiNodeDijkstra,
-			BackwardFastMultiNodeDijkstra backwardMultiNodeDijkstra) {
+			TripRouter router) {
 
 		// currently handled activity which should be re-located
 		Activity act = (Activity) plan.getPlanElements().get(actlegIndex);
 		
-		// We need to calculate the multi node dijkstra stuff only in case localRouting is used.
-		if (this.approximationLevel == DestinationChoiceConfigGroup.ApproximationLevel.localRouting ) {
-			Node fromNode;
-			/*
-			 * Assuming that both, forward and backward Dijkstra, route to the end nodes of links where
-			 * potential activities are located. Is this correct??
-			 * Otherwise, an ImaginaryNode for each routing direction has to be created.
-			 * cdobler, oct'13 
-			 */
-			List<InitialNode> destinationNodes = new ArrayList<InitialNode>();
-			for (Id<ActivityFacility> destinationId : this.destinations) {
-				ActivityFacility destinationFacility = this.scenario.getActivityFacilities().getFacilities().get(destinationId);
-				Id<Link> linkId = destinationFacility.getLinkId();
-				Link destinationLink;
-				if (linkId != null) {
-					destinationLink = this.network.getLinks().get(linkId);				
-				} else destinationLink = NetworkUtils.getNearestLink(((Network) this.network), destinationFacility.getCoord());
-				
-				Node toNode = destinationLink.getToNode();
-				InitialNode initialToNode = new InitialNode(toNode, 0.0, 0.0);
-				destinationNodes.add(initialToNode);
-			}
-			ImaginaryNode destinationNode = forwardMultiNodeDijkstra.createImaginaryNode(destinationNodes);
-			
-			// ---
-			
-//			Activity previousActivity = ((PlanImpl)plan).getPreviousActivity(((PlanImpl)plan).getPreviousLeg(act));
-			Leg previousLeg = PlanUtils.getPreviousLeg(plan, act);
-			Activity previousActivity = PlanUtils.getPreviousActivity(plan, previousLeg);
-			fromNode = this.network.getLinks().get(previousActivity.getLinkId()).getToNode();
-
-			forwardMultiNodeDijkstra.calcLeastCostPath(fromNode, destinationNode, previousActivity.getEndTime(), plan.getPerson(), null);			
-			
-//		ForwardDijkstraMultipleDestinations leastCostPathCalculatorForward = new ForwardDijkstraMultipleDestinations(network, travelCost, travelTime);
-//		leastCostPathCalculatorForward.calcLeastCostTree(fromNode, previousActivity.getEndTime());
-			
-			// ---
-			
-//			Activity nextActivity = ((PlanImpl)plan).getNextActivity(((PlanImpl)plan).getNextLeg(act));
-			Leg nextLeg = PlanUtils.getNextLeg(plan, act);
-			Activity nextActivity = PlanUtils.getPreviousActivity(plan, nextLeg);
-			fromNode = this.network.getLinks().get(nextActivity.getLinkId()).getToNode();
-			
-			/*
-			 * The original code below uses the relocated activities end time as start time. Does this make sense?
-			 * Probably yes, since the trip to the next destination is short??
-			 * BUT: if we use that activities end time, we could also use another ForwardMultiNodeDijsktra...
-			 * Switched to nextActivity.startTime() since this time is also available in PlanTimesAdapter.computeTravelTimeFromLocalRouting()
-			 * where the path's created by the Dijkstra are used. So far (I think), the estimated start times
-			 * where used there (leastCostPathCalculatorBackward.setEstimatedStartTime(act.getEndTime())).
-			 * 
-			 * cdobler oct'13
-			 */
-			backwardMultiNodeDijkstra.calcLeastCostPath(fromNode, destinationNode, act.getEndTime(), plan.getPerson(), null);
-			
-//		BackwardDijkstraMultipleDestinations leastCostPathCalculatorBackward = new BackwardDijkstraMultipleDestinations(network, travelCost, travelTime);
-//		leastCostPathCalculatorBackward.setEstimatedStartTime(act.getEndTime());
-//		// the backwards Dijkstra will expand from the _next_ activity location backwards to all locations in the system.  This is the time
-//		// at which this is anchored.  (Clearly too early, but probably not that bad as an approximation.)
-//
-//		leastCostPathCalculatorBackward.calcLeastCostTree(fromNode, -1.0);
-//		// "-1.0" is ignored.  It is not clear to me why we first set the (approximated) start time separately, and then ignore the startTime.
-//		// (The Dijkstra algo does not care if the start time is approximated or exact.)  kai, jan'13
-			
-			// ---	
-		}
+		/*
+		 * There used to be a forward and a backward multi node Dijkstra run here in case localRouting is used.
+		 * Their results were never read: PlanTimesAdapter estimates the travel times for localRouting from the
+		 * beeline distance (see PlanTimesAdapter.getTravelTimeApproximation()), so they were dropped.
+		 */
 		
 		// Handling duplicates. This was may the source for (small) random fluctuations
 		// yyyy which duplicates?  and how are they handled?  kai, jan'13
@@ -28,6 +28,8 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.contrib.locationchoice.DestinationChoiceConfigGroup;
 import org.matsim.contrib.locationchoice.DestinationChoiceConfigGroup.EpsilonDistributionTypes;
 import org.matsim.contrib.locationchoice.bestresponse.DestinationChoiceBestResponseContext;
+import org.matsim.contrib.locationchoice.bestresponse.DestinationChoiceBestResponseContext.ActivityFacilityWithIndex;
+import org.matsim.contrib.locationchoice.bestresponse.DestinationSampler;
 import org.matsim.core.config.Config;
 import org.matsim.facilities.ActivityFacility;
 import org.matsim.utils.objectattributes.ObjectAttributesUtils;
@@ -67,6 +69,48 @@ public class DestinationScoring {
 		return score;
 	}
 	
+	/**
+	 * Gets the maximum of the unscaled destination scores (see {@link #getDestinationScore(Activity, double, int, Id)} with a factor of 1.0)
+	 * of the facilities sampled for the person, or <code>Double.NEGATIVE_INFINITY</code> if no facility is sampled.
+	 * <p></p>
+	 * Gives the same result as calling getDestinationScore(...) for each facility, but the person and activity parts of the random 
+	 * seed are only computed once, and the facility parts are read from the k values array by the index of the facility. 
+	 */
+	public double getMaxDestinationScore(String type, ActivityFacilityWithIndex[] facilities, DestinationSampler sampler,
+			int activityIndex, Id<Person> personId) {
+		int personIndex = this.lcContext.getPersonIndex(personId);
+		boolean isFlexible = this.scaleEpsilon.isFlexibleType(type);
+		double kp = this.personsKValuesArray[personIndex];
+		double ka = this.getActivityKValue(2 * activityIndex);
+		// the betas of the person are the same for all facilities
+		String[] attributeNames = new String[0];
+		double[] betas = new double[0];
+		if (this.lcContext.getPersonsBetas() != null && this.lcContext.getFacilitiesAttributes() != null) {
+			attributeNames = ObjectAttributesUtils.getAllAttributeNames(this.lcContext.getPersonsBetas(), personId.toString()).toArray(attributeNames);
+			betas = new double[attributeNames.length];
+			for (int i = 0; i < attributeNames.length; i++) {
+				betas[i] = (Double) this.lcContext.getPersonsBetas().getAttribute(personId.toString(), attributeNames[i]);
+			}
+		}
+
+		double maxScore = Double.NEGATIVE_INFINITY;
+		for (ActivityFacilityWithIndex facility : facilities) {
+			int facilityIndex = facility.getArrayIndex();
+			if (!sampler.sample(facilityIndex, personIndex)) continue;
+			double score = 0.0;
+			if (isFlexible) {
+				score += this.getEpsilon(this.facilitiesKValuesArray[facilityIndex], kp, ka);
+				double attributesScore = 0.0;
+				for (int i = 0; i < attributeNames.length; i++) {
+					attributesScore += betas[i] * (Double) this.lcContext.getFacilitiesAttributes().getAttribute(facility.getId().toString(), attributeNames[i]);
+				}
+				score += attributesScore;
+			}
+			if (score > maxScore) maxScore = score;
+		}
+		return maxScore;
+	}
+
 	/*
 	 * linear at the moment
 	 */
@@ -94,13 +138,18 @@ public class DestinationScoring {
 		 */		
 		double kf = this.facilitiesKValuesArray[this.lcContext.getFacilityIndex(facilityId)];
 		double kp = this.personsKValuesArray[this.lcContext.getPersonIndex(personId)]; 
-		
+		return this.getEpsilon(kf, kp, this.getActivityKValue(actIndex));
+	}
+
+	private double getActivityKValue(int actIndex) {
 		/* generate another stable random number for the activity
 		 * TODO: check if there is enough randomness with this seed
 		 */
 		rnd.setSeed(actIndex);
-		double ka = rnd.nextDouble();
-		
+		return rnd.nextDouble();
+	}
+
+	private double getEpsilon(double kf, double kp, double ka) {
 		/*
 		 * generates a uniform rnd seed in [0,1[ 
 		 */
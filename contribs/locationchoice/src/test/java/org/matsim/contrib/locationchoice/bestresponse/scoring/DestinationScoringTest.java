@@ -0,0 +1,147 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DestinationScoringTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.locationchoice.bestresponse.scoring;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.contrib.locationchoice.DestinationChoiceConfigGroup;
+import org.matsim.contrib.locationchoice.DestinationChoiceConfigGroup.EpsilonDistributionTypes;
+import org.matsim.contrib.locationchoice.bestresponse.DestinationChoiceBestResponseContext;
+import org.matsim.contrib.locationchoice.bestresponse.DestinationChoiceBestResponseContext.ActivityFacilityWithIndex;
+import org.matsim.contrib.locationchoice.bestresponse.DestinationSampler;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class DestinationScoringTest {
+
+	private static final int NUMBER_OF_FACILITIES = 40;
+	private static final int NUMBER_OF_PERSONS = 10;
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testMaxDestinationScore_gumbel() {
+		assertMaxDestinationScores(EpsilonDistributionTypes.gumbel, 100.0, false);
+	}
+
+	@Test
+	public void testMaxDestinationScore_gaussian() {
+		assertMaxDestinationScores(EpsilonDistributionTypes.gaussian, 100.0, false);
+	}
+
+	@Test
+	public void testMaxDestinationScore_sampled() {
+		assertMaxDestinationScores(EpsilonDistributionTypes.gumbel, 25.0, false);
+	}
+
+	@Test
+	public void testMaxDestinationScore_withAttributes() {
+		assertMaxDestinationScores(EpsilonDistributionTypes.gumbel, 50.0, true);
+	}
+
+	/**
+	 * Compares {@link DestinationScoring#getMaxDestinationScore} with the maximum of
+	 * {@link DestinationScoring#getDestinationScore} over the sampled facilities.
+	 */
+	private void assertMaxDestinationScores(EpsilonDistributionTypes distribution, double samplePercent, boolean withAttributes) {
+		Config config = ConfigUtils.createConfig(new DestinationChoiceConfigGroup());
+		config.controler().setOutputDirectory(this.utils.getOutputDirectory());
+		DestinationChoiceConfigGroup dccg = (DestinationChoiceConfigGroup) config.getModule(DestinationChoiceConfigGroup.GROUP_NAME);
+		dccg.setFlexibleTypes("shop");
+		dccg.setEpsilonScaleFactors("1.0");
+		dccg.setEpsilonDistribution(distribution);
+		dccg.setDestinationSamplePercent(samplePercent);
+		for (String type : new String[] {"home", "shop"}) {
+			ActivityParams params = new ActivityParams(type);
+			params.setTypicalDuration(type.equals("home") ? 12 * 3600. : 3600.);
+			config.planCalcScore().addActivityParams(params);
+		}
+
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		ActivityFacilities facilities = scenario.getActivityFacilities();
+		for (int i = 0; i < NUMBER_OF_FACILITIES; i++) {
+			ActivityFacility facility = facilities.getFactory().createActivityFacility(Id.create(i, ActivityFacility.class), new Coord(100. * i, 50. * (i % 7)));
+			facility.addActivityOption(facilities.getFactory().createActivityOption("shop"));
+			facilities.addActivityFacility(facility);
+		}
+		Population population = scenario.getPopulation();
+		for (int i = 0; i < NUMBER_OF_PERSONS; i++) {
+			population.addPerson(population.getFactory().createPerson(Id.create(i, Person.class)));
+		}
+
+		DestinationChoiceBestResponseContext context = new DestinationChoiceBestResponseContext(scenario);
+		context.init();
+		if (withAttributes) {
+			for (int i = 0; i < NUMBER_OF_FACILITIES; i++) {
+				context.getFacilitiesAttributes().putAttribute(Integer.toString(i), "size", (double) (i % 5));
+				context.getFacilitiesAttributes().putAttribute(Integer.toString(i), "price", (double) (i % 3));
+			}
+			// person 0 has no betas
+			for (int i = 1; i < NUMBER_OF_PERSONS; i++) {
+				context.getPersonsBetas().putAttribute(Integer.toString(i), "size", 0.1 * i);
+				context.getPersonsBetas().putAttribute(Integer.toString(i), "price", -0.2);
+			}
+		}
+
+		ActivityFacilityWithIndex[] facilitiesWithIndex = new ActivityFacilityWithIndex[NUMBER_OF_FACILITIES];
+		int f = 0;
+		for (ActivityFacility facility : facilities.getFacilities().values()) {
+			facilitiesWithIndex[f++] = new ActivityFacilityWithIndex(facility, context.getFacilityIndex(facility.getId()));
+		}
+		DestinationSampler sampler = new DestinationSampler(context.getPersonsKValuesArray(), context.getFacilitiesKValuesArray(), dccg);
+		DestinationScoring scoring = new DestinationScoring(context);
+
+		int numberOfSampledMaxima = 0;
+		for (Id<Person> personId : population.getPersons().keySet()) {
+			int personIndex = context.getPersonIndex(personId);
+			for (int activityIndex = 1; activityIndex < 4; activityIndex++) {
+				double expected = Double.NEGATIVE_INFINITY;
+				for (ActivityFacilityWithIndex facility : facilitiesWithIndex) {
+					if (!sampler.sample(facility.getArrayIndex(), personIndex)) continue;
+					Activity activity = PopulationUtils.createActivityFromCoord("shop", facility.getCoord());
+					activity.setFacilityId(facility.getId());
+					expected = Math.max(expected, scoring.getDestinationScore(activity, 1.0, activityIndex, personId));
+				}
+				double actual = scoring.getMaxDestinationScore("shop", facilitiesWithIndex, sampler, activityIndex, personId);
+				Assert.assertEquals("person " + personId + ", activity " + activityIndex, expected, actual, 0.0);
+				if (expected != Double.NEGATIVE_INFINITY) {
+					numberOfSampledMaxima++;
+				}
+			}
+		}
+		Assert.assertTrue(numberOfSampledMaxima > 0);
+	}
+
+}
@@ -11,7 +11,7 @@ import org.matsim.contrib.matrixbasedptrouter.utils.BoundingBox;
 import org.matsim.contrib.matrixbasedptrouter.utils.HeaderParser;
 import org.matsim.core.utils.collections.QuadTree;
 import org.matsim.core.utils.io.IOUtils;
-import org.matsim.matrices.Matrix;
+import org.matsim.matrices.NumericMatrix;
 
 final class FileUtils {
 
@@ -86,8 +86,7 @@ final class FileUtils {
 		return qTree;
 	}
 
-	static void fillODMatrix(Matrix odMatrix, Map<Id<PtStop>, PtStop> ptStopHashMap,
-			BufferedReader br, boolean isTravelTimes) {
+	static void fillODMatrix(NumericMatrix odMatrix, BufferedReader br, boolean isTravelTimes) {
 
 		long wrnCnt = 0;
 		long wrnCntParam = 0;
@@ -140,11 +139,12 @@ final class FileUtils {
 					Id<PtStop> destinationPtStopID 		= Id.create(parts[destinationPtStopIDX], PtStop.class);
 
 					// check if a pt stop with the given id exists
-					if( ptStopHashMap.containsKey(originPtStopID) && 
-							ptStopHashMap.containsKey(destinationPtStopID)){
+					int originPtStopIndex		= odMatrix.getZoneIndex(originPtStopID.toString());
+					int destinationPtStopIndex	= odMatrix.getZoneIndex(destinationPtStopID.toString());
+					if( originPtStopIndex >= 0 && destinationPtStopIndex >= 0 ){
 
 						// add to od matrix
-						odMatrix.createAndAddEntry(originPtStopID.toString(), destinationPtStopID.toString(), value);
+						odMatrix.set(originPtStopIndex, destinationPtStopIndex, value);
 					}
 					else{
 						// Print the warn count after reading is finished. We want to know exactly how many stops are missing. Daniel, may '13
@@ -152,9 +152,9 @@ final class FileUtils {
 						//						log.error( "Found " + wrnCntId + " warnings of type 'pt stop id not found'. There is probably something seriously wrong. Please check. Reasons for this error may be:");
 						//						log.error( "The list of pt stops is incomplete or the stop ids of the VISUM files do not match the ids from the pt stop file.");
 						//					} else 
-						if(! ptStopHashMap.containsKey(originPtStopID) && wrnCntId < 20)
+						if(originPtStopIndex < 0 && wrnCntId < 20)
 							log.warn("Could not find an item in QuadTree (i.e. pt station has no coordinates) with pt stop id:" + originPtStopID);
-						else if(! ptStopHashMap.containsKey(destinationPtStopID) && wrnCntId < 20)
+						else if(destinationPtStopIndex < 0 && wrnCntId < 20)
 							log.warn("Could not find an item in QuadTree (i.e. pt station has no coordinates) with pt stop id:" + destinationPtStopID);
 
 						wrnCntId++;
@@ -20,15 +20,13 @@
 package org.matsim.contrib.matrixbasedptrouter;
 
 import java.io.BufferedReader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
-import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Node;
@@ -40,8 +38,7 @@ import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.utils.collections.QuadTree;
 import org.matsim.core.utils.geometry.CoordUtils;
 import org.matsim.core.utils.io.IOUtils;
-import org.matsim.matrices.Entry;
-import org.matsim.matrices.Matrix;
+import org.matsim.matrices.NumericMatrix;
 import org.matsim.vehicles.Vehicle;
 
 /**
@@ -77,21 +74,29 @@ public final class PtMatrix {
 		String ptStopInputFile = ippcm.getPtStopsInputFile();
 		QuadTree<PtStop> ptStops = FileUtils.readPtStops(ptStopInputFile, bb);
 
+		// both matrices use the same zone indices, namely the order of the pt stops in the quad tree
+		List<String> ptStopIds = new ArrayList<>(ptStops.size());
+		for (PtStop ptStop : ptStops.values()) {
+			ptStopIds.add(ptStop.getId().toString());
+		}
+
 		if(ippcm.isUsingTravelTimesAndDistances()) {
-			Matrix originDestinationTravelTimeMatrix = new Matrix("PtStopTravelTimeMatrix", "Stop to stop origin destination travel time matrix");
-			Matrix originDestinationTravelDistanceMatrix = new Matrix("PtStopTravelDistanceMatrix", "Stop to stop origin destination travel distance matrix");
+			// the files may contain only some pairs of stops, so the matrices are read as sparse ones and only made dense if that needs less memory
+			NumericMatrix originDestinationTravelTimeMatrix = NumericMatrix.createSparse("PtStopTravelTimeMatrix", ptStopIds);
+			NumericMatrix originDestinationTravelDistanceMatrix = NumericMatrix.createSparse("PtStopTravelDistanceMatrix", ptStopIds);
 			String ptTravelTimeInputFile = ippcm.getPtTravelTimesInputFile();
 			String ptTravelDistanceInputFile = ippcm.getPtTravelDistancesInputFile();
 
 			BufferedReader brTravelTimes = IOUtils.getBufferedReader(ptTravelTimeInputFile);
 			log.info("Creating travel time OD matrix from VISUM pt stop 2 pt stop travel times file: " + ptTravelTimeInputFile);
-			final Map<Id<PtStop>, PtStop> ptStopsMap = PtMatrix.convertQuadTree2HashMap(ptStops);
-			FileUtils.fillODMatrix(originDestinationTravelTimeMatrix, ptStopsMap, brTravelTimes, true);
+			FileUtils.fillODMatrix(originDestinationTravelTimeMatrix, brTravelTimes, true);
+			originDestinationTravelTimeMatrix = originDestinationTravelTimeMatrix.optimizeStorage();
 			log.info("Done creating travel time OD matrix. " + originDestinationTravelTimeMatrix.toString());
 
 			log.info("Creating travel distance OD matrix from VISUM pt stop 2 pt stop travel distance file: " + ptTravelDistanceInputFile);
 			BufferedReader brTravelDistances = IOUtils.getBufferedReader(ptTravelDistanceInputFile);
-			FileUtils.fillODMatrix(originDestinationTravelDistanceMatrix, ptStopsMap, brTravelDistances, false);
+			FileUtils.fillODMatrix(originDestinationTravelDistanceMatrix, brTravelDistances, false);
+			originDestinationTravelDistanceMatrix = originDestinationTravelDistanceMatrix.optimizeStorage();
 			log.info("Done creating travel distance OD matrix. " + originDestinationTravelDistanceMatrix.toString());
 
 			log.info("Done creating OD matrices with pt stop to pt stop travel times and distances.");
@@ -99,19 +104,20 @@ public final class PtMatrix {
 			return new PtMatrix(plansCalcRoute, ptStops, originDestinationTravelTimeMatrix, originDestinationTravelDistanceMatrix);
 		} else {
 			// if travel times and distances are not provided by external files ...
-			Matrix originDestinationTravelTimeMatrix = new Matrix("PtStopTravelTimeMatrix", "Stop to stop origin destination travel time matrix");
-			Matrix originDestinationTravelDistanceMatrix = new Matrix("PtStopTravelDistanceMatrix", "Stop to stop origin destination travel distance matrix");
+			// ... all pairs of stops are set, so the matrices are dense unless there are too many stops
+			long numberOfEntries = (long) ptStopIds.size() * ptStopIds.size();
+			NumericMatrix originDestinationTravelTimeMatrix = NumericMatrix.create("PtStopTravelTimeMatrix", ptStopIds, numberOfEntries);
+			NumericMatrix originDestinationTravelDistanceMatrix = NumericMatrix.create("PtStopTravelDistanceMatrix", ptStopIds, numberOfEntries);
+			PtStop ptStopArray[] = ptStops.values().toArray( new PtStop[0] );
 
-			PtStop ptStopIds[] = ptStops.values().toArray( new PtStop[0] );
+			for(int origin = 0; origin < ptStopArray.length; origin++) {
 
-			for(int origin = 0; origin < ptStopIds.length; origin++) {
-
-				PtStop originStop = ptStopIds[origin];
+				PtStop originStop = ptStopArray[origin];
 				Coord originCoord = originStop.getCoord();
 
-				for(int destination = 0; destination < ptStopIds.length; destination++) {
+				for(int destination = 0; destination < ptStopArray.length; destination++) {
 
-					PtStop destinationStop = ptStopIds[destination];
+					PtStop destinationStop = ptStopArray[destination];
 					Coord destinationCoord = destinationStop.getCoord();
 					double distance = CoordUtils.calcEuclideanDistance(originCoord, destinationCoord)
 							* plansCalcRoute.getModeRoutingParams().get( TransportMode.walk ).getBeelineDistanceFactor() ;
@@ -120,9 +126,9 @@ public final class PtMatrix {
 					double travelTime = distance / plansCalcRoute.getTeleportedModeSpeeds().get(TransportMode.pt);
 
 					// create entry - travel times in seconds
-					originDestinationTravelTimeMatrix.createAndAddEntry(originStop.getId().toString(), destinationStop.getId().toString(), travelTime);
+					originDestinationTravelTimeMatrix.set(origin, destination, travelTime);
 					// create entry - travel distances in meter
-					originDestinationTravelDistanceMatrix.createAndAddEntry(originStop.getId().toString(), destinationStop.getId().toString(), distance);
+					originDestinationTravelDistanceMatrix.set(origin, destination, distance);
 				}
 			}
 			log.info("Done creating OD matrices with pt stop to pt stop travel times and distances.");
@@ -132,12 +138,12 @@ public final class PtMatrix {
 
 	}
 
-	private final Matrix originDestinationTravelTimeMatrix;
-	private final Matrix originDestinationTravelDistanceMatrix;
+	private final NumericMatrix originDestinationTravelTimeMatrix;
+	private final NumericMatrix originDestinationTravelDistanceMatrix;
 	private final QuadTree<PtStop> ptStops;
 	private final double meterPerSecWalkSpeed;
 
-	private PtMatrix(PlansCalcRouteConfigGroup plansCalcRoute, QuadTree<PtStop> ptStops, Matrix originDestinationTravelTimeMatrix, Matrix originDestinationTravelDistanceMatrix){
+	private PtMatrix(PlansCalcRouteConfigGroup plansCalcRoute, QuadTree<PtStop> ptStops, NumericMatrix originDestinationTravelTimeMatrix, NumericMatrix originDestinationTravelDistanceMatrix){
 		this.meterPerSecWalkSpeed = plansCalcRoute.getTeleportedModeSpeeds().get(TransportMode.walk) ;
 		this.ptStops = ptStops;		
 		this.originDestinationTravelTimeMatrix = originDestinationTravelTimeMatrix;
@@ -199,11 +205,8 @@ public final class PtMatrix {
 		PtStop fromPtStop = this.ptStops.getClosest(fromFacilityCoord.getX(), fromFacilityCoord.getY());
 		PtStop toPtStop   = this.ptStops.getClosest(toFacilityCoord.getX(), toFacilityCoord.getY());
 
-		Entry entry = originDestinationTravelTimeMatrix.getEntry(fromPtStop.getId().toString(), toPtStop.getId().toString());
-		double ptTravelTime = Double.MAX_VALUE;
-		if(entry != null)
-			ptTravelTime = entry.getValue();
-		else{
+		double ptTravelTime = originDestinationTravelTimeMatrix.get(getPtStopIndex(fromPtStop), getPtStopIndex(toPtStop));
+		if(Double.isNaN(ptTravelTime)){
 			// log.warn("No entry found in od travel times matrix for pt stops: " + fromPtStop.getId() + " " + toPtStop.getId());
 			if(fromPtStop == toPtStop) {
 				ptTravelTime = 0.;
@@ -262,29 +265,23 @@ public final class PtMatrix {
 		PtStop fromPtStop = this.ptStops.getClosest(fromCoord.getX(), fromCoord.getY());
 		PtStop toPtStop   = this.ptStops.getClosest(toCoord.getX(), toCoord.getY());
 
-		Entry entry = originDestinationTravelDistanceMatrix.getEntry(fromPtStop.getId().toString(), toPtStop.getId().toString());
-		double ptTravelDistance = Double.MAX_VALUE;
-		if(entry != null)
-			ptTravelDistance = entry.getValue();
-		else{
+		double ptTravelDistance = originDestinationTravelDistanceMatrix.get(getPtStopIndex(fromPtStop), getPtStopIndex(toPtStop));
+		if(Double.isNaN(ptTravelDistance)){
 			// log.warn("No entry found in od travel distances matrix for pt stops: " + fromPtStop.getId() + " " + toPtStop.getId());
 			if(fromPtStop == toPtStop)
 				ptTravelDistance = 0.;
+			else
+				ptTravelDistance = Double.MAX_VALUE;
 		}
 
 		return ptTravelDistance;
 	}
 
-	private static Map<Id<PtStop>, PtStop> convertQuadTree2HashMap(QuadTree<PtStop> qTree){
-
-		Iterator<PtStop> ptStopIterator = qTree.values().iterator();
-		Map<Id<PtStop>, PtStop> ptStopHashMap = new ConcurrentHashMap<>();
-
-		while(ptStopIterator.hasNext()){
-			PtStop ptStop = ptStopIterator.next();
-			ptStopHashMap.put(ptStop.getId(), ptStop);
-		}
-		return ptStopHashMap;
+	/**
+	 * the index of the pt stop in both od matrices
+	 */
+	private int getPtStopIndex(PtStop ptStop){
+		return originDestinationTravelTimeMatrix.getZoneIndex(ptStop.getId().toString());
 	}
 
 	public LeastCostPathCalculator asPathCalculator(PlanCalcScoreConfigGroup planCalcScoreConfigGroup) {
@@ -27,6 +27,7 @@ import org.apache.log4j.Logger;
 import org.matsim.contrib.minibus.PConfigGroup;
 import org.matsim.contrib.minibus.performance.raptor.Raptor;
 import org.matsim.contrib.minibus.performance.raptor.RaptorDisutility;
+import org.matsim.contrib.minibus.performance.raptor.TransitRouterQuadTree;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.gbl.Gbl;
@@ -59,6 +60,8 @@ class PTransitRouterFactory implements Provider<TransitRouter> {
 	private Provider<TransitRouter> routerFactory = null;
 	@Inject private TransitSchedule schedule;
 	private RaptorDisutility raptorDisutility;
+	private TransitRouterQuadTree raptorSearchData = null;
+	private boolean needToUpdateRaptorSearchData = true;
 
 	public PTransitRouterFactory(Config config){
 		PConfigGroup pConfig = ConfigUtils.addOrGetModule(config, PConfigGroup.class) ;
@@ -81,6 +84,7 @@ class PTransitRouterFactory implements Provider<TransitRouter> {
 		if (this.ptRouter.equalsIgnoreCase("raptor")) {
 			// this could also hold updated prices
 			this.raptorDisutility = new RaptorDisutility(this.transitRouterConfig, this.costPerBoarding, this.costPerMeterTraveled);
+			this.needToUpdateRaptorSearchData = true;
 		}
 	}
 
@@ -117,11 +121,21 @@ class PTransitRouterFactory implements Provider<TransitRouter> {
 		}
 	}
 	
-	private TransitRouter createRaptorRouter() {
+	private synchronized TransitRouter createRaptorRouter() {
 		if ( this.raptorDisutility == null) {
 			updateTransitSchedule();
 		}
-        return new Raptor(this.transitRouterConfig, this.schedule, this.raptorDisutility);
+		if (this.needToUpdateRaptorSearchData) {
+			// build the search data once for all routers, and only search the transfers around changed stops again
+			if (this.raptorSearchData == null) {
+				this.raptorSearchData = new TransitRouterQuadTree(this.raptorDisutility);
+				this.raptorSearchData.initializeFromSchedule(this.schedule, this.transitRouterConfig.getBeelineWalkConnectionDistance());
+			} else {
+				this.raptorSearchData = this.raptorSearchData.createUpdated(this.schedule, this.raptorDisutility);
+			}
+			this.needToUpdateRaptorSearchData = false;
+		}
+        return new Raptor(this.transitRouterConfig, this.raptorSearchData, this.raptorDisutility);
 	}
 
 	private Provider<TransitRouter> createSpeedyRouter() {
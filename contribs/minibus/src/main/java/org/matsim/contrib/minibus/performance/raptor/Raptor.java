@@ -53,11 +53,17 @@ public class Raptor extends AbstractTransitRouter implements TransitRouter {
 	// END MAGIC NUMBERS
 
 	public Raptor(TransitRouterConfig transitRouterConfig, TransitSchedule transitSchedule, TransitTravelDisutility raptorDisutility) {
+		// casting to raptorDisutility is necessary here. At the moment, I dont know if there is a better way. Amit Oct'17
+		this(transitRouterConfig, createQuadTree(transitRouterConfig, transitSchedule, (RaptorDisutility) raptorDisutility), raptorDisutility);
+	}
+
+	/**
+	 * Uses search data prepared before, e.g. shared by all routers of an iteration. The search data is not modified by the router.
+	 */
+	public Raptor(TransitRouterConfig transitRouterConfig, TransitRouterQuadTree transitRouterQuadTree, TransitTravelDisutility raptorDisutility) {
 		super (transitRouterConfig, raptorDisutility);
 		this.config = transitRouterConfig;
-		// casting to raptorDisutility is necessary here. At the moment, I dont know if there is a better way. Amit Oct'17
-		this.transitRouterQuadTree = new TransitRouterQuadTree( (RaptorDisutility) raptorDisutility);
-		this.transitRouterQuadTree.initializeFromSchedule(transitSchedule, config.getBeelineWalkConnectionDistance());
+		this.transitRouterQuadTree = transitRouterQuadTree;
 		this.raptorDisutility = (RaptorDisutility) raptorDisutility;
 		this.raptorWalker = new RaptorWalker(this.transitRouterQuadTree.getSearchData(), raptorDisutility, this.maxTransfers, this.graceRuns);
 	}
@@ -67,6 +73,12 @@ public class Raptor extends AbstractTransitRouter implements TransitRouter {
 		this(transitRouterConfig, transitSchedule, new RaptorDisutility(transitRouterConfig, 0., 0.));
 	}
 
+	private static TransitRouterQuadTree createQuadTree(TransitRouterConfig transitRouterConfig, TransitSchedule transitSchedule, RaptorDisutility raptorDisutility) {
+		TransitRouterQuadTree transitRouterQuadTree = new TransitRouterQuadTree(raptorDisutility);
+		transitRouterQuadTree.initializeFromSchedule(transitSchedule, transitRouterConfig.getBeelineWalkConnectionDistance());
+		return transitRouterQuadTree;
+	}
+
 	private Map<TransitStopFacility, InitialNode> locateWrappedNearestTransitStops(Person person, Coord coord, double departureTime) {
 		Collection<TransitStopFacility> nearestTransitStops = this.transitRouterQuadTree.getNearestTransitStopFacilities(coord, this.config.getSearchRadius());
 		if (nearestTransitStops.size() < 2) {
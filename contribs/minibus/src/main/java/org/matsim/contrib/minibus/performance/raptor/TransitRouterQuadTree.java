@@ -63,6 +63,11 @@ public final class TransitRouterQuadTree {
 	// All stops serving at least one route with links to their transfers (transfers) and routes served (stopRoutes).
 	private TransitStopEntry[] transitStops;
 	
+	// Kept to create an updated instance for a changed schedule, see createUpdated(...)
+	private double maxBeelineWalkConnectionDistance;
+	private Map<TransitStopFacility, Set<String>> routeStopHashesAtFacility = new HashMap<>();
+	private Map<TransitStopFacility, List<CachedTransfer>> unfilteredTransfersBySourceStop = new HashMap<>();
+	
 
 	public TransitRouterQuadTree(RaptorDisutility raptorDisutility) {
 		this.raptorDisutility = raptorDisutility;
@@ -81,8 +86,23 @@ public final class TransitRouterQuadTree {
 	}
 
 	public void initializeFromSchedule(final TransitSchedule transitSchedule, final double maxBeelineWalkConnectionDistance) {
-		
-		this.fillArrays(transitSchedule, maxBeelineWalkConnectionDistance);
+		this.initializeFromSchedule(transitSchedule, maxBeelineWalkConnectionDistance, null);
+	}
+
+	/**
+	 * Creates the search data for a changed schedule, e.g. after the paratransit operators changed their lines. Only the transfers
+	 * of stops within walking distance of a stop whose route stops changed are searched again, all others are taken from this instance.
+	 * This instance is not modified, so routers still using it are not affected.
+	 */
+	public TransitRouterQuadTree createUpdated(final TransitSchedule transitSchedule, final RaptorDisutility raptorDisutility) {
+		TransitRouterQuadTree updated = new TransitRouterQuadTree(raptorDisutility);
+		updated.initializeFromSchedule(transitSchedule, this.maxBeelineWalkConnectionDistance, this);
+		return updated;
+	}
+
+	private void initializeFromSchedule(final TransitSchedule transitSchedule, final double maxBeelineWalkConnectionDistance, final TransitRouterQuadTree previous) {
+		this.maxBeelineWalkConnectionDistance = maxBeelineWalkConnectionDistance;
+		this.fillArrays(transitSchedule, maxBeelineWalkConnectionDistance, previous);
 		
 		log.info("transit router network statistics:");
 		log.info(" # stops:           " + this.transitStops.length);
@@ -90,7 +110,7 @@ public final class TransitRouterQuadTree {
 		log.info(" # transfer links:  " + this.transfers.length);
 	}
 
-	private void fillArrays(TransitSchedule transitSchedule, double maxBeelineWalkConnectionDistance) {
+	private void fillArrays(TransitSchedule transitSchedule, double maxBeelineWalkConnectionDistance, TransitRouterQuadTree previous) {
 		
 		// arrays that need to be converted in the end
 		ArrayList<Double> departureTimesList = new ArrayList<Double>();
@@ -112,9 +132,16 @@ public final class TransitRouterQuadTree {
 				for (TransitRouteStop routeStop : route.getStops()) {
 					
 					String routeStopHash = this.getHash(line, route, routeStop, position);
-					WrappedTransitRouteStop wrappedRouteStop = new WrappedTransitRouteStop(routeStop);
+					WrappedTransitRouteStop wrappedRouteStop = new WrappedTransitRouteStop(routeStop, routeStopHash);
 					hash2routeStop.put(routeStopHash, wrappedRouteStop);
 					
+					Set<String> routeStopHashes = this.routeStopHashesAtFacility.get(routeStop.getStopFacility());
+					if (routeStopHashes == null) {
+						routeStopHashes = new HashSet<>();
+						this.routeStopHashesAtFacility.put(routeStop.getStopFacility(), routeStopHashes);
+					}
+					routeStopHashes.add(routeStopHash);
+					
 					position++;
 					
 					routeStop2routeId.put(wrappedRouteStop, route.getId());
@@ -128,7 +155,7 @@ public final class TransitRouterQuadTree {
 		}
 		
 		this.quadTree = this.createTransitStopFacilityQuadTree(transitStopFacilities2RouteIdsServed.keySet());
-		Map<TransitStopFacility, HashMap<WrappedTransitRouteStop, TransferEntryPointer>> stop2TransitRouteStop2Transfers = this.createTransfers(transitStopFacilities2RouteIdsServed, routeStop2routeId, maxBeelineWalkConnectionDistance);
+		Map<TransitStopFacility, HashMap<WrappedTransitRouteStop, TransferEntryPointer>> stop2TransitRouteStop2Transfers = this.createTransfers(transitStopFacilities2RouteIdsServed, routeStop2routeId, hash2routeStop, maxBeelineWalkConnectionDistance, previous);
 		stop2TransitRouteStop2Transfers = filterTransfers(transitSchedule, stop2TransitRouteStop2Transfers, routeStop2routeId);
 
 		for (TransitStopFacility transitStopFacility : stop2TransitRouteStop2Transfers.keySet()) {
@@ -230,26 +257,43 @@ public final class TransitRouterQuadTree {
 		stopsList.toArray(this.transitStops);
 	}
 
-	private Map<TransitStopFacility, HashMap<WrappedTransitRouteStop, TransferEntryPointer>> createTransfers(Map<TransitStopFacility, Set<Id<TransitRoute>>> transitStopFacilities2RouteIdsServed, Map<WrappedTransitRouteStop, Id<TransitRoute>> routeStop2routeId, double maxBeelineWalkConnectionDistance) {
+	private Map<TransitStopFacility, HashMap<WrappedTransitRouteStop, TransferEntryPointer>> createTransfers(Map<TransitStopFacility, Set<Id<TransitRoute>>> transitStopFacilities2RouteIdsServed, Map<WrappedTransitRouteStop, Id<TransitRoute>> routeStop2routeId, Map<String, WrappedTransitRouteStop> hash2routeStop, double maxBeelineWalkConnectionDistance, TransitRouterQuadTree previous) {
 		Map<TransitStopFacility, HashMap<WrappedTransitRouteStop, TransferEntryPointer>> stop2TransitRouteStop2Transfers = new HashMap<>();
 		
-		QuadTree<WrappedTransitRouteStop> transitRouteStopQuadTree = this.createTransitRouteStopQuadTree(routeStop2routeId.keySet());
+		Set<TransitStopFacility> sourceStopsToSearch = this.getSourceStopsToSearch(transitStopFacilities2RouteIdsServed.keySet(), maxBeelineWalkConnectionDistance, previous);
+		QuadTree<WrappedTransitRouteStop> transitRouteStopQuadTree = null;
+		if (!sourceStopsToSearch.isEmpty()) {
+			transitRouteStopQuadTree = this.createTransitRouteStopQuadTree(routeStop2routeId.keySet());
+		}
 		
 		// create transfers for all transit route stops if they're located less than beelineWalkConnectionDistance from each other
 		for (TransitStopFacility sourceStop : transitStopFacilities2RouteIdsServed.keySet()) {
 			// (just goes through all stops)
 
 			HashMap<WrappedTransitRouteStop, TransferEntryPointer> transfersFromThis = new HashMap<WrappedTransitRouteStop, TransferEntryPointer>();
+			List<CachedTransfer> cachedTransfers;
 			
-			for (WrappedTransitRouteStop destinationStop : transitRouteStopQuadTree.getDisk(sourceStop.getCoord().getX(), sourceStop.getCoord().getY(), maxBeelineWalkConnectionDistance)) {
-				// (goes through all stops within walkConnectionDistance)
+			if (sourceStopsToSearch.contains(sourceStop)) {
+				cachedTransfers = new ArrayList<>();
+				for (WrappedTransitRouteStop destinationStop : transitRouteStopQuadTree.getDisk(sourceStop.getCoord().getX(), sourceStop.getCoord().getY(), maxBeelineWalkConnectionDistance)) {
+					// (goes through all stops within walkConnectionDistance)
 
-				double transferTime = this.raptorDisutility.getTransferTime(sourceStop.getCoord(), destinationStop.transitRouteStop.getStopFacility().getCoord());
-				transfersFromThis.put(destinationStop, new TransferEntryPointer(-1, transferTime, destinationStop, routeStop2routeId.get(destinationStop)));
-				// (memorize: (1) which stop the walk goes to; (2) route id associated with that stop (presumably one stop per route even at same location)
+					double transferTime = this.raptorDisutility.getTransferTime(sourceStop.getCoord(), destinationStop.transitRouteStop.getStopFacility().getCoord());
+					transfersFromThis.put(destinationStop, new TransferEntryPointer(-1, transferTime, destinationStop, routeStop2routeId.get(destinationStop)));
+					// (memorize: (1) which stop the walk goes to; (2) route id associated with that stop (presumably one stop per route even at same location)
+					cachedTransfers.add(new CachedTransfer(destinationStop.routeStopHash, transferTime));
+				}
+			} else {
+				// nothing changed within walking distance, the destinations are the same route stops as before
+				cachedTransfers = previous.unfilteredTransfersBySourceStop.get(sourceStop);
+				for (CachedTransfer cachedTransfer : cachedTransfers) {
+					WrappedTransitRouteStop destinationStop = hash2routeStop.get(cachedTransfer.routeStopHash);
+					transfersFromThis.put(destinationStop, new TransferEntryPointer(-1, cachedTransfer.transferTime, destinationStop, routeStop2routeId.get(destinationStop)));
+				}
 			}
 			
 			stop2TransitRouteStop2Transfers.put(sourceStop, transfersFromThis);
+			this.unfilteredTransfersBySourceStop.put(sourceStop, cachedTransfers);
 		}
 		
 		int transfersAdded = 0;
@@ -257,9 +301,46 @@ public final class TransitRouterQuadTree {
 			transfersAdded += routeStop2Transfers.size();
 		}
 		log.info("Added " + transfersAdded + " transfers (from each transit stop facility to each other transit route stop within " + maxBeelineWalkConnectionDistance + "m beeline distance.");
+		if (previous != null) {
+			log.info("Searched transfers of " + sourceStopsToSearch.size() + " out of " + transitStopFacilities2RouteIdsServed.size() + " transit stop facilities, kept the others.");
+		}
 		
 		return stop2TransitRouteStop2Transfers;
 	}
+	
+	/**
+	 * @return all stops if there is no previous instance, otherwise only new stops and those within walking distance of a stop
+	 * that is served by different route stops than before
+	 */
+	private Set<TransitStopFacility> getSourceStopsToSearch(Set<TransitStopFacility> sourceStops, double maxBeelineWalkConnectionDistance, TransitRouterQuadTree previous) {
+		if (previous == null) {
+			return sourceStops;
+		}
+		
+		Set<TransitStopFacility> changedStops = new HashSet<>();
+		for (Map.Entry<TransitStopFacility, Set<String>> e : this.routeStopHashesAtFacility.entrySet()) {
+			if (!e.getValue().equals(previous.routeStopHashesAtFacility.get(e.getKey()))) {
+				changedStops.add(e.getKey());
+			}
+		}
+		for (TransitStopFacility stop : previous.routeStopHashesAtFacility.keySet()) {
+			if (!this.routeStopHashesAtFacility.containsKey(stop)) {
+				changedStops.add(stop);
+			}
+		}
+		
+		Set<TransitStopFacility> sourceStopsToSearch = new HashSet<>();
+		for (TransitStopFacility sourceStop : sourceStops) {
+			if (!previous.unfilteredTransfersBySourceStop.containsKey(sourceStop)) {
+				sourceStopsToSearch.add(sourceStop);
+			}
+		}
+		for (TransitStopFacility changedStop : changedStops) {
+			sourceStopsToSearch.addAll(this.quadTree.getDisk(changedStop.getCoord().getX(), changedStop.getCoord().getY(), maxBeelineWalkConnectionDistance));
+		}
+		log.info(changedStops.size() + " transit stop facilities are served by changed routes.");
+		return sourceStopsToSearch;
+	}
 
 	private Map<TransitStopFacility, HashMap<WrappedTransitRouteStop, TransferEntryPointer>> filterTransfers(TransitSchedule transitSchedule, Map<TransitStopFacility, HashMap<WrappedTransitRouteStop, TransferEntryPointer>> stop2TransitRouteStop2Transfers, Map<WrappedTransitRouteStop, Id<TransitRoute>> routeStop2routeId) {
 		Map<TransitStopFacility, Set<Id<TransitRoute>>> transitStopFacilities2RouteIdsThatCanBeTransferedTo = new HashMap<TransitStopFacility, Set<Id<TransitRoute>>>();
@@ -391,6 +472,16 @@ public final class TransitRouterQuadTree {
 	    return array;
 	}
 	
+	private static final class CachedTransfer {
+		final String routeStopHash;
+		final double transferTime;
+		
+		CachedTransfer(String routeStopHash, double transferTime) {
+			this.routeStopHash = routeStopHash;
+			this.transferTime = transferTime;
+		}
+	}
+	
 	private static String getHash(TransitLine transitLine, TransitRoute transitRoute, TransitRouteStop transitRouteStop, int position){
 		return transitLine.getId().toString() + "-" + transitRoute.getId().toString() + "-" + transitRouteStop.getStopFacility().getId().toString() + "-" + position;
 	}
@@ -29,9 +29,15 @@ import org.matsim.pt.transitSchedule.api.TransitRouteStop;
 public class WrappedTransitRouteStop {
 	
 	final TransitRouteStop transitRouteStop;
+	final String routeStopHash;
 	
 	public WrappedTransitRouteStop(TransitRouteStop transitRouteStop) {
+		this(transitRouteStop, null);
+	}
+	
+	WrappedTransitRouteStop(TransitRouteStop transitRouteStop, String routeStopHash) {
 		this.transitRouteStop = transitRouteStop;
+		this.routeStopHash = routeStopHash;
 	}
 
 }
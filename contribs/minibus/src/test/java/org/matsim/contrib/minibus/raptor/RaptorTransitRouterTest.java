@@ -24,10 +24,13 @@ import java.util.Collection;
 import org.apache.log4j.Logger;
 import org.junit.runners.Parameterized.Parameters;
 import org.matsim.contrib.minibus.performance.raptor.Raptor;
+import org.matsim.contrib.minibus.performance.raptor.RaptorDisutility;
+import org.matsim.contrib.minibus.performance.raptor.TransitRouterQuadTree;
 import org.matsim.pt.router.TransitRouter;
 import org.matsim.pt.router.TransitRouterConfig;
 import org.matsim.pt.router.TransitRouterImpl;
 import org.matsim.pt.router.TransitRouterImplTest;
+import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitSchedule;
 
 /**
@@ -49,6 +52,7 @@ public class RaptorTransitRouterTest extends TransitRouterImplTest {
 		Object[] router = new Object [] { 
 				"standard",
                 "raptor",
+                "raptorUpdated",
 //                "connectionScan",
 //                "otp"
 		};
@@ -77,6 +81,24 @@ public class RaptorTransitRouterTest extends TransitRouterImplTest {
 //                router = new Raptor(transitRouterQuadTree, raptorDisutility, trConfig) ;
                 router = new Raptor( trConfig, schedule) ;
                 break;
+            case "raptorUpdated":
+                // search data of a schedule without the last line, updated after adding it again
+                RaptorDisutility raptorDisutility = new RaptorDisutility(trConfig, 0., 0.);
+                TransitLine lastLine = null;
+                for (TransitLine line : schedule.getTransitLines().values()) {
+                    lastLine = line;
+                }
+                boolean removeLine = schedule.getTransitLines().size() > 1;
+                if (removeLine) {
+                    schedule.removeTransitLine(lastLine);
+                }
+                TransitRouterQuadTree transitRouterQuadTree = new TransitRouterQuadTree(raptorDisutility);
+                transitRouterQuadTree.initializeFromSchedule(schedule, trConfig.getBeelineWalkConnectionDistance());
+                if (removeLine) {
+                    schedule.addTransitLine(lastLine);
+                }
+                router = new Raptor(trConfig, transitRouterQuadTree.createUpdated(schedule, raptorDisutility), raptorDisutility);
+                break;
             case "connectionScan":
                 throw new RuntimeException("not implemented yet.");
             default:
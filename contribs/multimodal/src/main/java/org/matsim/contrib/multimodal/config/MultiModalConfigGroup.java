@@ -123,7 +123,8 @@ public class MultiModalConfigGroup extends ConfigGroup {
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(MULTI_MODAL_SIMULATION_ENABLED, "Set this parameter to true if multi modal simulation should be used, false if not.");
-		map.put(NUMBER_OF_THREADS, "Use number of threads > 1 for parallel version using the specified number of threads.");
+		map.put(NUMBER_OF_THREADS, "Use number of threads > 1 for parallel version using the specified number of threads. " +
+				"Only used if there is no QNetsimEngine, otherwise its threads (qsim.numberOfThreads) also move the multi-modal nodes and links.");
 		map.put(SIMULATED_MODES, "List the modes that should be simulated by the multi modal simulation (supported so far: bike, walk).");
 		map.put(INPUT_SLOPE_INFORMATION_FILE, "Path to a file containing slope information for the network's links (required file format: ObjectAttributes).");
 		map.put(CREATE_MULTI_MODAL_NETWORK, "Use this if your network is not multi modal. Links with free speeds that are lower than " +
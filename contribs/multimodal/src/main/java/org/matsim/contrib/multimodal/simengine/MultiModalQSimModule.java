@@ -24,10 +24,15 @@ package org.matsim.contrib.multimodal.simengine;
 
 import java.util.Map;
 
+import com.google.inject.Binding;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+
 import org.matsim.contrib.multimodal.config.MultiModalConfigGroup;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngine;
 import org.matsim.core.router.util.TravelTime;
 
 public class MultiModalQSimModule {
@@ -42,8 +47,18 @@ public class MultiModalQSimModule {
 
     public void configure(QSim qSim) {
         MultiModalConfigGroup multiModalConfigGroup = ConfigUtils.addOrGetModule(this.config, MultiModalConfigGroup.GROUP_NAME, MultiModalConfigGroup.class);
-        MultiModalSimEngine multiModalEngine = new MultiModalSimEngine(this.multiModalTravelTimes, multiModalConfigGroup);
+        MultiModalSimEngine multiModalEngine = new MultiModalSimEngine(this.multiModalTravelTimes, multiModalConfigGroup, getQNetsimEngine(qSim));
         qSim.addMobsimEngine(multiModalEngine);
         qSim.addDepartureHandler(new MultiModalDepartureHandler(multiModalEngine, multiModalConfigGroup));
     }
+
+    /*
+     * Only use an explicitly bound engine, otherwise guice would create a new one that is not part of the qsim.
+     */
+    private static QNetsimEngine getQNetsimEngine(QSim qSim) {
+        Injector injector = qSim.getChildInjector();
+        if (injector == null) return null;
+        Binding<QNetsimEngine> binding = injector.getExistingBinding(Key.get(QNetsimEngine.class));
+        return binding == null ? null : binding.getProvider().get();
+    }
 }
\ No newline at end of file
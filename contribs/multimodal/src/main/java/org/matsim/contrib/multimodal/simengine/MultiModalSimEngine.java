@@ -30,14 +30,26 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngine;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.CollectionUtils;
 import org.matsim.core.utils.misc.Time;
 
 import java.util.*;
 import java.util.Map.Entry;
-import java.util.concurrent.Phaser;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+/**
+ * Moves the agents of the multi-modal modes (e.g. walk and bike) over the network.
+ * <p></p>
+ * If the qsim has a {@link QNetsimEngine}, the multi-modal nodes and links are moved by its runners, i.e. during the
+ * time step of the QNetsimEngine and with qsim.numberOfThreads threads. An agent that departs later in the same time
+ * step, e.g. from an engine that is called after the QNetsimEngine, is thus first moved in the next time step, just like
+ * a car departing at that time.
+ */
 class MultiModalSimEngine implements MobsimEngine {
 
 	private static final Logger log = Logger.getLogger(MultiModalSimEngine.class);
@@ -55,15 +67,26 @@ class MultiModalSimEngine implements MobsimEngine {
 
 	private final int numOfThreads;
 	
+	/*
+	 * If available, the nodes and links are moved by the runners of the QNetsimEngine, together with the QNodes and QLinks.
+	 * Otherwise, this engine moves them itself.
+	 */
+	private final QNetsimEngine qNetsimEngine;
+	
 	private MultiModalSimEngineRunner[] runners;
-	private Phaser startBarrier;
-    private Phaser endBarrier;
+	private ExecutorService pool = null;
 	    
-    /*package*/ MultiModalSimEngine(Map<String, TravelTime> multiModalTravelTimes, MultiModalConfigGroup multiModalConfigGroup) {		
+    /*package*/ MultiModalSimEngine(Map<String, TravelTime> multiModalTravelTimes, MultiModalConfigGroup multiModalConfigGroup) {
+    	this(multiModalTravelTimes, multiModalConfigGroup, null);
+    }
+    
+    /*package*/ MultiModalSimEngine(Map<String, TravelTime> multiModalTravelTimes, MultiModalConfigGroup multiModalConfigGroup, QNetsimEngine qNetsimEngine) {		
     	this.multiModalTravelTimes = multiModalTravelTimes;
     	this.numOfThreads = multiModalConfigGroup.getNumberOfThreads();
+    	this.qNetsimEngine = qNetsimEngine;
     	
-    	if (this.numOfThreads > 1) log.info("Using " + multiModalConfigGroup.getNumberOfThreads() + " threads for MultiModalSimEngine.");
+    	if (this.qNetsimEngine != null) log.info("Using the threads of the QNetsimEngine for MultiModalSimEngine.");
+    	else if (this.numOfThreads > 1) log.info("Using " + multiModalConfigGroup.getNumberOfThreads() + " threads for MultiModalSimEngine.");
     }
     
 	@Override
@@ -149,26 +172,42 @@ class MultiModalSimEngine implements MobsimEngine {
 	}
 
 	/*
-	 * The threads are waiting at the startBarrier. We trigger them by reaching this barrier. Now the threads will start 
-	 * moving the nodes and links. We wait until all of them reach the endBarrier to move on. We should not have any 
-	 * problems with race conditions since even if the threads would be faster than this thread, means they reach the 
-	 * endBarrier before this Method does, it should work anyway.
+	 * If the runners of the QNetsimEngine move the nodes and links, they have already done so in this time step.
+	 * Otherwise, all nodes are moved first, then all links, as in the QNetsimEngine.
 	 */
 	@Override
 	public void doSimStep(double time) {
-		// set current Time
-		for (MultiModalSimEngineRunner runner : this.runners) {
-			runner.setTime(time);
+		if (this.qNetsimEngine == null) {
+			if (this.pool == null) {
+				for (MultiModalSimEngineRunner runner : this.runners) {
+					runner.moveNodes(time);
+				}
+				for (MultiModalSimEngineRunner runner : this.runners) {
+					runner.moveLinks(time);
+				}
+			} else {
+				List<MultiModalSimEngineRunner> tasks = Arrays.asList(this.runners);
+				try {
+					for (MultiModalSimEngineRunner runner : this.runners) {
+						runner.setTime(time);
+						runner.setMovingNodes(true);
+					}
+					for (Future<Boolean> future : this.pool.invokeAll(tasks)) {
+						future.get();
+					}
+					for (MultiModalSimEngineRunner runner : this.runners) {
+						runner.setMovingNodes(false);
+					}
+					for (Future<Boolean> future : this.pool.invokeAll(tasks)) {
+						future.get();
+					}
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				} catch (ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+			}
 		}
-		
-		/*
-		 * Triggering the barrier will cause calls to moveLinks and moveNodes
-		 * in the threads.
-		 */
-		this.startBarrier.arriveAndAwaitAdvance();
-		
-		this.endBarrier.arriveAndAwaitAdvance();
-
         this.printSimLog(time);
 	}
 
@@ -184,16 +223,10 @@ class MultiModalSimEngine implements MobsimEngine {
 
 	@Override
 	public void afterSim() {
-		// Calling the afterSim Method of the MultiModalSimEngineRunners will set their simulationRunning flag to false.
-		for (MultiModalSimEngineRunner engine : this.runners) {
-			engine.afterSim();
+		if (this.pool != null) {
+			this.pool.shutdown();
+			this.pool = null;
 		}
-
-		/*
-		 * Triggering the startBarrier of the MultiModalSimEngineRunners. They will check whether the Simulation is 
-		 * still running. It is not, so the Threads will stop running.
-		 */
-		this.startBarrier.arriveAndAwaitAdvance();
 		
 		/* Reset vehicles on ALL links. We cannot iterate only over the active links (this.simLinksArray), because there 
 		 * may be links that have vehicles only in the buffer (such links are *not* active, as the buffer gets emptied
@@ -233,29 +266,22 @@ class MultiModalSimEngine implements MobsimEngine {
 	}
 	
 	private void initMultiModalSimEngineRunners() {
-
-		this.runners = new MultiModalSimEngineRunner[numOfThreads];
-
-		this.startBarrier = new Phaser(numOfThreads + 1);
-        Phaser separationBarrier = new Phaser(numOfThreads); // separates moveNodes and moveLinks
-		this.endBarrier = new Phaser(numOfThreads + 1);
-
-		// setup runners
-		for (int i = 0; i < numOfThreads; i++) {
-			MultiModalSimEngineRunner engine = new MultiModalSimEngineRunner(this.startBarrier, 
-					separationBarrier, this.endBarrier);
-			
-			Thread thread = new Thread(engine);
-			thread.setName("MultiModalSimEngineRunner_" + i);
-
-			thread.setDaemon(true);	// make the Thread Daemons so they will terminate automatically
-			this.runners[i] = engine;
-
-			thread.start();
+		int numOfRunners = this.qNetsimEngine != null ? this.qNetsimEngine.getNumberOfRunners() : this.numOfThreads;
+		this.runners = new MultiModalSimEngineRunner[numOfRunners];
+		for (int i = 0; i < numOfRunners; i++) {
+			this.runners[i] = new MultiModalSimEngineRunner();
 		}
 		
 		// assign the Links and Nodes to the SimEngines
 		assignSimEngines();
+		
+		if (this.qNetsimEngine != null) {
+			for (int i = 0; i < numOfRunners; i++) {
+				this.qNetsimEngine.addRunnerExtension(i, this.runners[i]);
+			}
+		} else if (numOfRunners > 1) {
+			this.pool = Executors.newFixedThreadPool(numOfRunners);
+		}
 	}
 
 	private void assignSimEngines() {
@@ -272,7 +298,9 @@ class MultiModalSimEngine implements MobsimEngine {
 			
 			// if the node is simulated by the MultiModalSimulation
 			if (multiModalQNodeExtension != null) {
-				int i = roundRobin % this.numOfThreads;
+				// use the runner of the QNetsimEngine that moves the QNode, so everything happening at a node is handled by one thread
+				int i = this.qNetsimEngine != null ? this.qNetsimEngine.getRunnerIndex(node.getId()) : -1;
+				if (i < 0) i = roundRobin % this.runners.length;
 				MultiModalSimEngineRunner simEngineRunner = this.runners[i];
 				multiModalQNodeExtension.setNetworkElementActivator(simEngineRunner);
 				nodes[i]++;
@@ -25,19 +25,19 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Queue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Phaser;
 
-import org.matsim.core.gbl.Gbl;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngine;
 
-class MultiModalSimEngineRunner extends NetworkElementActivator implements Runnable {
+/**
+ * Moves a partition of the multi-modal nodes and links. If a {@link QNetsimEngine} is available, each partition is 
+ * moved by the QNetsimEngine runner that also handles the QNodes with the same ids, otherwise by the {@link MultiModalSimEngine}.
+ */
+class MultiModalSimEngineRunner extends NetworkElementActivator implements QNetsimEngine.RunnerExtension, Callable<Boolean> {
 
 	private double time = 0.0;
-	private volatile boolean simulationRunning = true;
-
-	private final Phaser startBarrier;
-	private final Phaser separationBarrier;
-	private final Phaser endBarrier;
+	private boolean movingNodes;
 	
 	/*
 	 * This needs to be thread-safe since QNodes could be activated concurrently
@@ -48,7 +48,7 @@ class MultiModalSimEngineRunner extends NetworkElementActivator implements Runna
 	 * cdobler, sep'14
 	 */
 	private final Queue<MultiModalQNodeExtension> nodesQueue = new ConcurrentLinkedQueue<MultiModalQNodeExtension>();
-
+	
 	/*
 	 * Needs not to be thread-safe since links are only activated from nodes which
 	 * are handled (by design) from links handled by the same thread. Therefore,
@@ -69,87 +69,54 @@ class MultiModalSimEngineRunner extends NetworkElementActivator implements Runna
 	private boolean lockNodes = false;
 	private boolean lockLinks = false;
 	
-	/*package*/ MultiModalSimEngineRunner(Phaser startBarrier, Phaser separationBarrier, Phaser endBarrier) {
-		this.startBarrier = startBarrier;
-		this.separationBarrier = separationBarrier;
-		this.endBarrier = endBarrier;
-	}
-			
 	/*package*/ void setTime(final double t) {
 		time = t;
 	}
 
-	@Override
-	public void run() {
-		/*
-		 * The method is ended when the simulationRunning Flag is
-		 * set to false.
-		 */
-		while(true) {
-			/*
-			 * The Threads wait at the startBarrier until they are
-			 * triggered in the next TimeStep by the run() method in
-			 * the ParallelQSimEngine.
-			 */
-			this.startBarrier.arriveAndAwaitAdvance();
-			
-			/*
-			 * Check if Simulation is still running.
-			 * Otherwise print CPU usage and end Thread.
-			 */
-			if (!simulationRunning) {
-				Gbl.printCurrentThreadCpuTime();
-				return;
-			}
-			
-			boolean remainsActive;
-			
-			/* Move Nodes */
-			this.lockNodes = true;
-			
-			MultiModalQNodeExtension node;
-			Iterator<MultiModalQNodeExtension> simNodes = this.nodesQueue.iterator();
-			while (simNodes.hasNext()) {
-				node = simNodes.next();
-				remainsActive = node.moveNode(time);
-				if (!remainsActive) simNodes.remove();
-			}		
-			this.lockNodes = false;
-			
-			/*
-			 * After moving the Nodes all we use a CyclicBarrier to synchronize
-			 * the Threads.
-			 */
-			this.separationBarrier.arriveAndAwaitAdvance();
-			
-			/* Move Links */
-			this.lockLinks = true;
-			MultiModalQLinkExtension link;
-			ListIterator<MultiModalQLinkExtension> simLinks = this.linksList.listIterator();
-			while (simLinks.hasNext()) {
-				link = simLinks.next();
-				remainsActive = link.moveLink(time);
-				if (!remainsActive) simLinks.remove();
-			}			
-			this.lockLinks = false;
-			
-			/*
-			 * The End of the Moving is synchronized with
-			 * the endBarrier. If all Threads reach this Barrier
-			 * the main Thread can go on.
-			 */
-			this.endBarrier.arriveAndAwaitAdvance();
-        }
+	/*package*/ void setMovingNodes(boolean movingNodes) {
+		this.movingNodes = movingNodes;
 	}
-	
+
 	/*
-	 * Is called from ParallelMultiModalSimEngine - therefore no call to
-	 * super.afterSim() is necessary.
+	 * Is used by the MultiModalSimEngine if there is no QNetsimEngine.
 	 */
-	public void afterSim() {
-		this.simulationRunning = false;
+	@Override
+	public Boolean call() {
+		if (this.movingNodes) {
+			moveNodes(this.time);
+		} else {
+			moveLinks(this.time);
+		}
+		return true;
+	}
+
+	@Override
+	public void moveNodes(double time) {
+		boolean remainsActive;
+		this.lockNodes = true;
+		MultiModalQNodeExtension node;
+		Iterator<MultiModalQNodeExtension> simNodes = this.nodesQueue.iterator();
+		while (simNodes.hasNext()) {
+			node = simNodes.next();
+			remainsActive = node.moveNode(time);
+			if (!remainsActive) simNodes.remove();
+		}
+		this.lockNodes = false;
 	}
 
+	@Override
+	public void moveLinks(double time) {
+		boolean remainsActive;
+		this.lockLinks = true;
+		MultiModalQLinkExtension link;
+		ListIterator<MultiModalQLinkExtension> simLinks = this.linksList.listIterator();
+		while (simLinks.hasNext()) {
+			link = simLinks.next();
+			remainsActive = link.moveLink(time);
+			if (!remainsActive) simLinks.remove();
+		}
+		this.lockLinks = false;
+	}
 
 	/*
 	 * This method is only called while links are NOT "moved", i.e. their
@@ -188,4 +155,4 @@ class MultiModalSimEngineRunner extends NetworkElementActivator implements Runna
 	/*package*/ int getNumberOfSimulatedNodes() {
 		return this.nodesQueue.size();
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,242 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MultiModalSimEngineTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.multimodal.simengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.contrib.multimodal.ControlerDefaultsWithMultiModalModule;
+import org.matsim.contrib.multimodal.config.MultiModalConfigGroup;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.collections.CollectionUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+/**
+ * Tests that the multi-modal simulation produces the same events no matter how many threads the QNetsimEngine
+ * (whose runners also move the multi-modal nodes and links) uses.
+ */
+public class MultiModalSimEngineTest {
+
+	private static final int GRID_SIZE = 6;
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameEventsWithDifferentNumbersOfQSimThreads() {
+		List<TimedEvent> expected = runGridScenario(1);
+		int numberOfMultiModalLinkLeaves = 0;
+		for (TimedEvent event : expected) {
+			if (event.isMultiModalLinkLeave) numberOfMultiModalLinkLeaves++;
+		}
+		Assert.assertTrue("no walk or bike agent moved over the network", numberOfMultiModalLinkLeaves > 0);
+
+		for (int numberOfThreads : new int[] {2, 4}) {
+			List<TimedEvent> actual = runGridScenario(numberOfThreads);
+			Assert.assertEquals("number of events with " + numberOfThreads + " threads", expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				Assert.assertEquals("event " + i + " with " + numberOfThreads + " threads", expected.get(i).toString(), actual.get(i).toString());
+			}
+		}
+	}
+
+	/**
+	 * @return the events of the mobsim, sorted by time and, within each time step, by their attributes, as the order
+	 * of the events of one time step depends on the threads
+	 */
+	private List<TimedEvent> runGridScenario(int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.controler().setOutputDirectory(this.utils.getOutputDirectory() + numberOfThreads + "threads/");
+		config.controler().setLastIteration(0);
+		config.controler().setCreateGraphs(false);
+		config.controler().setDumpDataAtEnd(false);
+		config.controler().setWriteEventsInterval(0);
+		config.controler().setOverwriteFileSetting(OutputDirectoryHierarchy.OverwriteFileSetting.overwriteExistingFiles);
+		// see MultiModalControlerListenerTest
+		config.controler().setMobsim("myMobsim");
+		config.qsim().setEndTime(24 * 3600);
+		config.qsim().setNumberOfThreads(numberOfThreads);
+
+		MultiModalConfigGroup multiModalConfigGroup = new MultiModalConfigGroup();
+		multiModalConfigGroup.setMultiModalSimulationEnabled(true);
+		multiModalConfigGroup.setSimulatedModes("walk,bike");
+		config.addModule(multiModalConfigGroup);
+
+		ActivityParams homeParams = new ActivityParams("home");
+		homeParams.setTypicalDuration(16 * 3600);
+		config.planCalcScore().addActivityParams(homeParams);
+		ActivityParams workParams = new ActivityParams("work");
+		workParams.setTypicalDuration(8 * 3600);
+		config.planCalcScore().addActivityParams(workParams);
+		config.plansCalcRoute().setTeleportedModeSpeed(TransportMode.walk, 1.34);
+		config.plansCalcRoute().setTeleportedModeSpeed(TransportMode.bike, 6.01);
+		config.travelTimeCalculator().setFilterModes(true);
+
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		List<Id<Link>> linkIds = createGridNetwork(scenario.getNetwork());
+		String[] modes = {TransportMode.walk, TransportMode.bike, TransportMode.car};
+		for (int i = 0; i < 90; i++) {
+			Id<Link> homeLinkId = linkIds.get((i * 7) % linkIds.size());
+			Id<Link> workLinkId = linkIds.get((i * 13 + 5) % linkIds.size());
+			// many agents depart at the same time, so that the nodes and links of several runners are busy
+			scenario.getPopulation().addPerson(createPerson(scenario, i, modes[i % modes.length], homeLinkId, workLinkId, 7 * 3600 + (i % 10) * 30));
+		}
+
+		Controler controler = new Controler(scenario);
+		controler.setModules(new ControlerDefaultsWithMultiModalModule());
+		final List<TimedEvent> events = new ArrayList<>();
+		final Map<Id<Person>, String> legModes = new HashMap<>();
+		controler.getEvents().addHandler(new BasicEventHandler() {
+			@Override
+			public synchronized void handleEvent(Event event) {
+				if (event instanceof PersonDepartureEvent) {
+					legModes.put(((PersonDepartureEvent) event).getPersonId(), ((PersonDepartureEvent) event).getLegMode());
+				}
+				boolean isMultiModalLinkLeave = event instanceof LinkLeaveEvent
+						&& !TransportMode.car.equals(legModes.get(((LinkLeaveEvent) event).getDriverId()));
+				events.add(new TimedEvent(event, isMultiModalLinkLeave));
+			}
+			@Override
+			public synchronized void reset(int iteration) {
+				events.clear();
+				legModes.clear();
+			}
+		});
+		controler.run();
+
+		Collections.sort(events, new Comparator<TimedEvent>() {
+			@Override
+			public int compare(TimedEvent e1, TimedEvent e2) {
+				int cmp = Double.compare(e1.time, e2.time);
+				return cmp != 0 ? cmp : e1.attributes.compareTo(e2.attributes);
+			}
+		});
+		return events;
+	}
+
+	private static List<Id<Link>> createGridNetwork(Network network) {
+		NetworkFactory nf = network.getFactory();
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = nf.createNode(Id.create(x + "_" + y, Node.class), new Coord(x * 200.0, y * 200.0));
+				network.addNode(nodes[x][y]);
+			}
+		}
+		List<Id<Link>> linkIds = new ArrayList<>();
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				if (x + 1 < GRID_SIZE) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y], linkIds);
+				}
+				if (y + 1 < GRID_SIZE) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1], linkIds);
+				}
+			}
+		}
+		return linkIds;
+	}
+
+	private static void addLinks(Network network, Node node1, Node node2, List<Id<Link>> linkIds) {
+		for (Node[] fromTo : new Node[][] {{node1, node2}, {node2, node1}}) {
+			Id<Link> linkId = Id.create(fromTo[0].getId() + "-" + fromTo[1].getId(), Link.class);
+			Link link = network.getFactory().createLink(linkId, fromTo[0], fromTo[1]);
+			link.setLength(200.0);
+			link.setFreespeed(10.0);
+			// a low capacity, so that some cars have to wait at the nodes
+			link.setCapacity(300.0);
+			link.setNumberOfLanes(1.0);
+			link.setAllowedModes(CollectionUtils.stringToSet("car,bike,walk"));
+			network.addLink(link);
+			linkIds.add(linkId);
+		}
+	}
+
+	private static Person createPerson(Scenario scenario, int id, String mode, Id<Link> homeLinkId, Id<Link> workLinkId, double departureTime) {
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		Person person = pf.createPerson(Id.create(id, Person.class));
+		Plan plan = pf.createPlan();
+
+		Activity home = pf.createActivityFromLinkId("home", homeLinkId);
+		home.setEndTime(departureTime);
+		plan.addActivity(home);
+		Leg toWork = pf.createLeg(mode);
+		toWork.setDepartureTime(departureTime);
+		plan.addLeg(toWork);
+		Activity work = pf.createActivityFromLinkId("work", workLinkId);
+		work.setEndTime(departureTime + 3600);
+		plan.addActivity(work);
+		Leg toHome = pf.createLeg(mode);
+		toHome.setDepartureTime(departureTime + 3600);
+		plan.addLeg(toHome);
+		plan.addActivity(pf.createActivityFromLinkId("home", homeLinkId));
+
+		person.addPlan(plan);
+		return person;
+	}
+
+	private static final class TimedEvent {
+		final double time;
+		final String attributes;
+		final boolean isMultiModalLinkLeave;
+
+		TimedEvent(Event event, boolean isMultiModalLinkLeave) {
+			this.time = event.getTime();
+			this.attributes = event.getAttributes().toString();
+			this.isMultiModalLinkLeave = isMultiModalLinkLeave;
+		}
+
+		@Override
+		public String toString() {
+			return this.attributes;
+		}
+	}
+
+}
@@ -82,6 +82,7 @@ public class NoiseContext {
 	private double eventTime = Double.MIN_VALUE;
 
 	private final Map<Id<ReceiverPoint>, NoiseReceiverPoint> noiseReceiverPoints;
+	private NoiseReceiverPointLinkTable receiverPointLinkTable = null;
 	
 	// ############################################
 	
@@ -452,6 +453,17 @@ public class NoiseContext {
 		return noiseReceiverPoints;
 	}
 	
+	/**
+	 * @return the relevant links and correction terms of all receiver points in a compact, read-only layout;
+	 * the table is built on the first call, i.e. after all receiver points are known.
+	 */
+	public final NoiseReceiverPointLinkTable getReceiverPointLinkTable() {
+		if (this.receiverPointLinkTable == null) {
+			this.receiverPointLinkTable = new NoiseReceiverPointLinkTable(this.scenario.getNetwork(), this.noiseReceiverPoints, this.noiseParams.getTunnelLinkIDsSet());
+		}
+		return receiverPointLinkTable;
+	}
+	
 	public final NoiseConfigGroup getNoiseParams() {
 		return noiseParams;
 	}
@@ -0,0 +1,184 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+/**
+ *
+ */
+package org.matsim.contrib.noise.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+/**
+ *
+ * Compact (compressed sparse row) representation of the relevant links of all receiver points.
+ * For each receiver point <i>r</i>, the entries <code>getFirstEntry(r) ... getFirstEntry(r+1)-1</code>
+ * hold the index of a relevant link together with the distance and angle correction terms.
+ * The reverse direction (link to entries) is stored as well, ordered by receiver point index.
+ *
+ * The table is built once and is read-only afterwards, i.e. it may be shared between threads.
+ *
+ */
+public final class NoiseReceiverPointLinkTable {
+
+	private final NoiseReceiverPoint[] receiverPoints;
+
+	private final Id<Link>[] linkIds;
+	private final Map<Id<Link>, Integer> linkId2index;
+	private final boolean[] tunnelLinks;
+
+	// receiver point -> entries
+	private final int[] receiverPointOffsets;
+	private final int[] entryLinkIndices;
+	private final double[] entryDistanceCorrections;
+	private final double[] entryAngleCorrections;
+
+	// link -> entries
+	private final int[] linkOffsets;
+	private final int[] linkEntries;
+
+	@SuppressWarnings("unchecked")
+	NoiseReceiverPointLinkTable(Network network, Map<Id<ReceiverPoint>, NoiseReceiverPoint> noiseReceiverPoints, Set<Id<Link>> tunnelLinkIds) {
+
+		int nLinks = network.getLinks().size();
+		this.linkIds = new Id[nLinks];
+		this.linkId2index = new HashMap<>(nLinks * 2);
+		this.tunnelLinks = new boolean[nLinks];
+		int linkIndex = 0;
+		for (Id<Link> linkId : network.getLinks().keySet()) {
+			this.linkIds[linkIndex] = linkId;
+			this.linkId2index.put(linkId, linkIndex);
+			this.tunnelLinks[linkIndex] = tunnelLinkIds.contains(linkId);
+			linkIndex++;
+		}
+
+		// the receiver points are stored in the iteration order of the map; all computations follow this order
+		int nReceiverPoints = noiseReceiverPoints.size();
+		this.receiverPoints = noiseReceiverPoints.values().toArray(new NoiseReceiverPoint[nReceiverPoints]);
+
+		this.receiverPointOffsets = new int[nReceiverPoints + 1];
+		int nEntries = 0;
+		for (int rp = 0; rp < nReceiverPoints; rp++) {
+			this.receiverPointOffsets[rp] = nEntries;
+			nEntries += this.receiverPoints[rp].getLinkId2distanceCorrection().size();
+		}
+		this.receiverPointOffsets[nReceiverPoints] = nEntries;
+
+		this.entryLinkIndices = new int[nEntries];
+		this.entryDistanceCorrections = new double[nEntries];
+		this.entryAngleCorrections = new double[nEntries];
+
+		int[] entriesPerLink = new int[nLinks];
+		int entry = 0;
+		for (NoiseReceiverPoint rp : this.receiverPoints) {
+			Map<Id<Link>, Double> angleCorrections = rp.getLinkId2angleCorrection();
+			for (Map.Entry<Id<Link>, Double> e : rp.getLinkId2distanceCorrection().entrySet()) {
+				int link = this.linkId2index.get(e.getKey());
+				this.entryLinkIndices[entry] = link;
+				this.entryDistanceCorrections[entry] = e.getValue();
+				this.entryAngleCorrections[entry] = angleCorrections.get(e.getKey());
+				entriesPerLink[link]++;
+				entry++;
+			}
+		}
+
+		this.linkOffsets = new int[nLinks + 1];
+		for (int link = 0; link < nLinks; link++) {
+			this.linkOffsets[link + 1] = this.linkOffsets[link] + entriesPerLink[link];
+		}
+		this.linkEntries = new int[nEntries];
+		int[] position = new int[nLinks];
+		System.arraycopy(this.linkOffsets, 0, position, 0, nLinks);
+		// entries are visited in receiver point order, i.e. the reverse lists are sorted by receiver point
+		for (int e = 0; e < nEntries; e++) {
+			int link = this.entryLinkIndices[e];
+			this.linkEntries[position[link]++] = e;
+		}
+	}
+
+	public int getNumberOfReceiverPoints() {
+		return this.receiverPoints.length;
+	}
+
+	public NoiseReceiverPoint getReceiverPoint(int receiverPointIndex) {
+		return this.receiverPoints[receiverPointIndex];
+	}
+
+	public int getNumberOfLinks() {
+		return this.linkIds.length;
+	}
+
+	public Id<Link> getLinkId(int linkIndex) {
+		return this.linkIds[linkIndex];
+	}
+
+	/**
+	 * @return the link index or <code>-1</code> if the link is not part of the network
+	 */
+	public int getLinkIndex(Id<Link> linkId) {
+		Integer index = this.linkId2index.get(linkId);
+		return index == null ? -1 : index;
+	}
+
+	public boolean isTunnelLink(int linkIndex) {
+		return this.tunnelLinks[linkIndex];
+	}
+
+	public int getNumberOfEntries() {
+		return this.entryLinkIndices.length;
+	}
+
+	/**
+	 * @return the first entry of the receiver point; <code>getFirstEntry(rp + 1)</code> is the (exclusive) end.
+	 */
+	public int getFirstEntry(int receiverPointIndex) {
+		return this.receiverPointOffsets[receiverPointIndex];
+	}
+
+	public int getEntryLinkIndex(int entry) {
+		return this.entryLinkIndices[entry];
+	}
+
+	public double getEntryDistanceCorrection(int entry) {
+		return this.entryDistanceCorrections[entry];
+	}
+
+	public double getEntryAngleCorrection(int entry) {
+		return this.entryAngleCorrections[entry];
+	}
+
+	/**
+	 * @return the first position in the link's reverse entry list; <code>getFirstLinkEntry(link + 1)</code> is the (exclusive) end.
+	 */
+	public int getFirstLinkEntry(int linkIndex) {
+		return this.linkOffsets[linkIndex];
+	}
+
+	/**
+	 * @return the entry stored at the given position of the reverse (link-based) entry lists
+	 */
+	public int getLinkEntry(int position) {
+		return this.linkEntries[position];
+	}
+}
@@ -76,11 +76,25 @@ public class NoiseEquations {
 			
 	public static double calculateResultingNoiseImmission (Collection<Double> collection){
 		
+		double[] immissions = new double[collection.size()];
+		int i = 0;
+		for (double noiseImmission : collection) {
+			immissions[i++] = noiseImmission;
+		}
+		return calculateResultingNoiseImmission(immissions, 0, immissions.length);
+	}
+
+	/**
+	 * Same as {@link #calculateResultingNoiseImmission(Collection)} for the isolated immissions <code>immissions[from ... to - 1]</code>.
+	 */
+	public static double calculateResultingNoiseImmission (double[] immissions, int from, int to){
+		
 		double resultingNoiseImmission = 0.;
 		
-		if (collection.size() > 0) {
+		if (to > from) {
 			double sumTmp = 0.;
-			for (double noiseImmission : collection) {
+			for (int i = from; i < to; i++) {
+				double noiseImmission = immissions[i];
 				if (noiseImmission > 0.) {
 					sumTmp = sumTmp + (Math.pow(10, (0.1 * noiseImmission)));
 				}
@@ -0,0 +1,361 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+/**
+ *
+ */
+package org.matsim.contrib.noise.handler;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.contrib.noise.NoiseConfigGroup;
+import org.matsim.contrib.noise.data.NoiseContext;
+import org.matsim.contrib.noise.data.NoiseLink;
+import org.matsim.contrib.noise.data.NoiseReceiverPoint;
+import org.matsim.contrib.noise.data.NoiseReceiverPointLinkTable;
+import org.matsim.contrib.noise.data.PersonActivityInfo;
+
+/**
+ *
+ * Computes noise immissions, affected agent units, damages and the link-based cost shares (average and marginal cost approach)
+ * for all receiver points of one time interval.
+ *
+ * The receiver points are processed in parallel. Each receiver point only writes into its own range of the
+ * {@link NoiseReceiverPointLinkTable} entries; the link-based sums are computed afterwards in parallel over the links,
+ * adding up the entries in receiver point order. The results thus do not depend on the number of threads.
+ *
+ * Isolated and resulting immissions are kept from one time interval to the next one and are only recomputed for receiver points
+ * for which at least one relevant link has a different noise emission than in the previous time interval.
+ *
+ * A thread pool is only held during {@link #computeReceiverPoints()}, so a calculator that is no longer used
+ * does not need to be closed.
+ *
+ */
+final class NoiseReceiverPointCalculator {
+
+	private static final Logger log = Logger.getLogger(NoiseReceiverPointCalculator.class);
+
+	private final NoiseContext noiseContext;
+	private final NoiseReceiverPointLinkTable table;
+	private final int numberOfThreads;
+
+	// link-based emissions of the current and the previous time interval
+	private final double[] emission;
+	private final double[] emissionPlusOneCar;
+	private final double[] emissionPlusOneHGV;
+	private final boolean[] emissionChanged;
+	private final NoiseLink[] noiseLinks;
+
+	// entry-based (receiver point x relevant link) information
+	private final double[] isolatedImmission;
+	private final double[] isolatedImmissionPlusOneCar;
+	private final double[] isolatedImmissionPlusOneHGV;
+	private final double[] damageCostShare;
+	private final double[] marginalDamageCostCar;
+	private final double[] marginalDamageCostHGV;
+
+	// receiver point based information
+	private final double[] finalImmission;
+
+	private boolean initialized = false;
+
+	NoiseReceiverPointCalculator(NoiseContext noiseContext, int numberOfThreads) {
+		this.noiseContext = noiseContext;
+		this.table = noiseContext.getReceiverPointLinkTable();
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+
+		int nLinks = this.table.getNumberOfLinks();
+		this.emission = new double[nLinks];
+		this.emissionPlusOneCar = new double[nLinks];
+		this.emissionPlusOneHGV = new double[nLinks];
+		this.emissionChanged = new boolean[nLinks];
+		this.noiseLinks = new NoiseLink[nLinks];
+
+		int nEntries = this.table.getNumberOfEntries();
+		this.isolatedImmission = new double[nEntries];
+		this.isolatedImmissionPlusOneCar = new double[nEntries];
+		this.isolatedImmissionPlusOneHGV = new double[nEntries];
+		this.damageCostShare = new double[nEntries];
+		this.marginalDamageCostCar = new double[nEntries];
+		this.marginalDamageCostHGV = new double[nEntries];
+
+		this.finalImmission = new double[this.table.getNumberOfReceiverPoints()];
+
+		log.info("Noise computation for " + this.table.getNumberOfReceiverPoints() + " receiver points and " + nEntries
+				+ " receiver point-link relations using " + this.numberOfThreads + " thread(s).");
+	}
+
+	/**
+	 * Forces the recomputation of all receiver points in the next time interval, e.g. at the beginning of a new iteration.
+	 */
+	void reset() {
+		this.initialized = false;
+	}
+
+	/**
+	 * Requires the noise emissions of the current time interval, i.e. a {@link NoiseLink} for each link of the network.
+	 */
+	void computeReceiverPoints() {
+
+		updateEmissions();
+
+		ForkJoinPool forkJoinPool = new ForkJoinPool(this.numberOfThreads);
+		try {
+			forkJoinPool.submit(() -> IntStream.range(0, this.table.getNumberOfReceiverPoints()).parallel().forEach(this::processReceiverPoint)).join();
+
+			NoiseConfigGroup noiseParams = this.noiseContext.getNoiseParams();
+			if (noiseParams.isComputePopulationUnits() && noiseParams.isComputeCausingAgents()) {
+				forkJoinPool.submit(() -> IntStream.range(0, this.table.getNumberOfLinks()).parallel().forEach(this::sumUpLinkCosts)).join();
+			}
+		} finally {
+			forkJoinPool.shutdown();
+		}
+
+		this.initialized = true;
+	}
+
+	private void updateEmissions() {
+		Map<Id<Link>, NoiseLink> linkId2noiseLink = this.noiseContext.getNoiseLinks();
+
+		for (int link = 0; link < this.table.getNumberOfLinks(); link++) {
+			NoiseLink noiseLink = linkId2noiseLink.get(this.table.getLinkId(link));
+			this.noiseLinks[link] = noiseLink;
+
+			double emissionThisLink = 0.;
+			double emissionPlusOneCarThisLink = 0.;
+			double emissionPlusOneHGVThisLink = 0.;
+			if (noiseLink != null) {
+				emissionThisLink = noiseLink.getEmission();
+				emissionPlusOneCarThisLink = noiseLink.getEmissionPlusOneCar();
+				emissionPlusOneHGVThisLink = noiseLink.getEmissionPlusOneHGV();
+			}
+
+			this.emissionChanged[link] = !this.initialized
+					|| emissionThisLink != this.emission[link]
+					|| emissionPlusOneCarThisLink != this.emissionPlusOneCar[link]
+					|| emissionPlusOneHGVThisLink != this.emissionPlusOneHGV[link];
+
+			this.emission[link] = emissionThisLink;
+			this.emissionPlusOneCar[link] = emissionPlusOneCarThisLink;
+			this.emissionPlusOneHGV[link] = emissionPlusOneHGVThisLink;
+		}
+	}
+
+	private void processReceiverPoint(int rpIndex) {
+		NoiseConfigGroup noiseParams = this.noiseContext.getNoiseParams();
+		NoiseReceiverPoint rp = this.table.getReceiverPoint(rpIndex);
+		int firstEntry = this.table.getFirstEntry(rpIndex);
+		int lastEntry = this.table.getFirstEntry(rpIndex + 1);
+
+		if (isAffectedByEmissionChange(firstEntry, lastEntry)) {
+			calculateNoiseImmission(rpIndex, firstEntry, lastEntry);
+		}
+		rp.setFinalImmission(this.finalImmission[rpIndex]);
+
+		boolean computeCosts = noiseParams.isComputePopulationUnits() && noiseParams.isComputeCausingAgents();
+		if (noiseParams.isComputePopulationUnits()) {
+			calculateAffectedAgentUnits(rp);
+			if (noiseParams.isComputeNoiseDamages()) {
+				calculateDamagePerReceiverPoint(rp);
+			}
+		}
+		if (computeCosts) {
+			calculateCostSharesPerLink(rp, firstEntry, lastEntry);
+			calculateMarginalDamageCost(rp, firstEntry, lastEntry);
+		}
+	}
+
+	private boolean isAffectedByEmissionChange(int firstEntry, int lastEntry) {
+		for (int entry = firstEntry; entry < lastEntry; entry++) {
+			if (this.emissionChanged[this.table.getEntryLinkIndex(entry)]) {
+				return true;
+			}
+		}
+		return !this.initialized;
+	}
+
+	/*
+	 * Immission
+	 */
+	private void calculateNoiseImmission(int rpIndex, int firstEntry, int lastEntry) {
+
+		for (int entry = firstEntry; entry < lastEntry; entry++) {
+			int link = this.table.getEntryLinkIndex(entry);
+
+			double noiseImmission = 0.;
+			double noiseImmissionPlusOneCar = 0.;
+			double noiseImmissionPlusOneHGV = 0.;
+
+			if (!this.table.isTunnelLink(link)) {
+				double distanceCorrection = this.table.getEntryDistanceCorrection(entry);
+				double angleCorrection = this.table.getEntryAngleCorrection(entry);
+
+				if (!(this.emission[link] == 0.)) {
+					noiseImmission = Math.max(0., this.emission[link] + distanceCorrection + angleCorrection);
+				}
+				if (!(this.emissionPlusOneCar[link] == 0.)) {
+					noiseImmissionPlusOneCar = Math.max(0., this.emissionPlusOneCar[link] + distanceCorrection + angleCorrection);
+				}
+				if (!(this.emissionPlusOneHGV[link] == 0.)) {
+					noiseImmissionPlusOneHGV = Math.max(0., this.emissionPlusOneHGV[link] + distanceCorrection + angleCorrection);
+				}
+
+				if (noiseImmissionPlusOneCar < noiseImmission || noiseImmissionPlusOneHGV < noiseImmission) {
+					throw new RuntimeException("noise immission: " + noiseImmission + " - noise immission plus one car: " + noiseImmissionPlusOneCar + " - noise immission plus one hgv: " + noiseImmissionPlusOneHGV + ". This should not happen. Aborting...");
+				}
+			}
+
+			this.isolatedImmission[entry] = noiseImmission;
+			this.isolatedImmissionPlusOneCar[entry] = noiseImmissionPlusOneCar;
+			this.isolatedImmissionPlusOneHGV[entry] = noiseImmissionPlusOneHGV;
+		}
+
+		this.finalImmission[rpIndex] = NoiseEquations.calculateResultingNoiseImmission(this.isolatedImmission, firstEntry, lastEntry);
+	}
+
+	private void calculateAffectedAgentUnits(NoiseReceiverPoint rp) {
+		double currentTimeBinEndTime = this.noiseContext.getCurrentTimeBinEndTime();
+		double timeBinSize = this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation();
+		double scaleFactor = this.noiseContext.getNoiseParams().getScaleFactor();
+
+		double affectedAgentUnits = 0.;
+		if (!(rp.getPersonId2actInfos().isEmpty())) {
+			for (Id<Person> personId : rp.getPersonId2actInfos().keySet()) {
+				for (PersonActivityInfo actInfo : rp.getPersonId2actInfos().get(personId)) {
+					double unitsThisPersonActivityInfo = actInfo.getDurationWithinInterval(currentTimeBinEndTime, timeBinSize) / timeBinSize;
+					affectedAgentUnits = affectedAgentUnits + ( unitsThisPersonActivityInfo * scaleFactor );
+				}
+			}
+		}
+		rp.setAffectedAgentUnits(affectedAgentUnits);
+	}
+
+	/*
+	 * Damage cost for each receiver point
+	 */
+	private void calculateDamagePerReceiverPoint(NoiseReceiverPoint rp) {
+		double currentTimeBinEndTime = this.noiseContext.getCurrentTimeBinEndTime();
+		double annualCostRate = this.noiseContext.getNoiseParams().getAnnualCostRate();
+		double timeBinSize = this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation();
+
+		double noiseImmission = rp.getFinalImmission();
+		double affectedAgentUnits = rp.getAffectedAgentUnits();
+
+		double damageCost = NoiseEquations.calculateDamageCosts(noiseImmission, affectedAgentUnits, currentTimeBinEndTime, annualCostRate, timeBinSize);
+		double damageCostPerAffectedAgentUnit = NoiseEquations.calculateDamageCosts(noiseImmission, 1., currentTimeBinEndTime, annualCostRate, timeBinSize);
+
+		rp.setDamageCosts(damageCost);
+		rp.setDamageCostsPerAffectedAgentUnit(damageCostPerAffectedAgentUnit);
+	}
+
+	/*
+	 * Noise allocation approach: AverageCost
+	 */
+	private void calculateCostSharesPerLink(NoiseReceiverPoint rp, int firstEntry, int lastEntry) {
+		for (int entry = firstEntry; entry < lastEntry; entry++) {
+			double costs = 0.;
+			if (rp.getDamageCosts() != 0. && this.isolatedImmission[entry] != 0.) {
+				double costShare = NoiseEquations.calculateShareOfResultingNoiseImmission(this.isolatedImmission[entry], rp.getFinalImmission());
+				costs = costShare * rp.getDamageCosts();
+			}
+			this.damageCostShare[entry] = costs;
+		}
+	}
+
+	/*
+	 * Noise allocation approach: MarginalCost
+	 */
+	private void calculateMarginalDamageCost(NoiseReceiverPoint rp, int firstEntry, int lastEntry) {
+		NoiseConfigGroup noiseParams = this.noiseContext.getNoiseParams();
+		double currentTimeBinEndTime = this.noiseContext.getCurrentTimeBinEndTime();
+
+		for (int entry = firstEntry; entry < lastEntry; entry++) {
+			double marginalDamageCostCarThisLink = 0.;
+			double marginalDamageCostHGVThisLink = 0.;
+
+			if (rp.getAffectedAgentUnits() != 0.) {
+				Id<Link> thisLink = this.table.getLinkId(this.table.getEntryLinkIndex(entry));
+
+				double noiseImmissionPlusOneCarThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), this.isolatedImmission[entry], this.isolatedImmissionPlusOneCar[entry]);
+				double noiseImmissionPlusOneHGVThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), this.isolatedImmission[entry], this.isolatedImmissionPlusOneHGV[entry]);
+
+				double damageCostsPlusOneCarThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneCarThisLink, rp.getAffectedAgentUnits(), currentTimeBinEndTime, noiseParams.getAnnualCostRate(), noiseParams.getTimeBinSizeNoiseComputation());
+				marginalDamageCostCarThisLink = (damageCostsPlusOneCarThisLink - rp.getDamageCosts()) / noiseParams.getScaleFactor();
+
+				if (marginalDamageCostCarThisLink < 0.0) {
+					if (Math.abs(marginalDamageCostCarThisLink) < 0.0000000001) {
+						marginalDamageCostCarThisLink = 0.;
+					} else {
+						log.warn("The marginal damage cost per car on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostCarThisLink + ".");
+						log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostCarThisLink);
+						log.warn("Setting the marginal damage cost per car to 0.");
+						marginalDamageCostCarThisLink = 0.;
+					}
+				}
+
+				double damageCostsPlusOneHGVThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneHGVThisLink, rp.getAffectedAgentUnits(), currentTimeBinEndTime, noiseParams.getAnnualCostRate(), noiseParams.getTimeBinSizeNoiseComputation());
+				marginalDamageCostHGVThisLink = (damageCostsPlusOneHGVThisLink - rp.getDamageCosts()) / noiseParams.getScaleFactor();
+
+				if (marginalDamageCostHGVThisLink < 0.0) {
+					if (Math.abs(marginalDamageCostHGVThisLink) < 0.0000000001) {
+						marginalDamageCostHGVThisLink = 0.;
+					} else {
+						log.warn("The marginal damage cost per HGV on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostHGVThisLink + ".");
+						log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostHGVThisLink);
+						log.warn("Setting the marginal damage cost per HGV to 0.");
+						marginalDamageCostHGVThisLink = 0.;
+					}
+				}
+			}
+			this.marginalDamageCostCar[entry] = marginalDamageCostCarThisLink;
+			this.marginalDamageCostHGV[entry] = marginalDamageCostHGVThisLink;
+		}
+	}
+
+	/*
+	 * Sums up the receiver point based cost shares for one link (in receiver point order).
+	 */
+	private void sumUpLinkCosts(int link) {
+		int firstPosition = this.table.getFirstLinkEntry(link);
+		int lastPosition = this.table.getFirstLinkEntry(link + 1);
+		NoiseLink noiseLink = this.noiseLinks[link];
+		if (noiseLink == null || firstPosition == lastPosition) {
+			return;
+		}
+
+		double damageCost = noiseLink.getDamageCost();
+		double marginalDamageCostCar = noiseLink.getMarginalDamageCostPerCar();
+		double marginalDamageCostHGV = noiseLink.getMarginalDamageCostPerHgv();
+		for (int position = firstPosition; position < lastPosition; position++) {
+			int entry = this.table.getLinkEntry(position);
+			damageCost = damageCost + this.damageCostShare[entry];
+			marginalDamageCostCar = marginalDamageCostCar + this.marginalDamageCostCar[entry];
+			marginalDamageCostHGV = marginalDamageCostHGV + this.marginalDamageCostHGV[entry];
+		}
+		noiseLink.setDamageCost(damageCost);
+		noiseLink.setMarginalDamageCostPerCar(marginalDamageCostCar);
+		noiseLink.setMarginalDamageCostPerHgv(marginalDamageCostHGV);
+	}
+}
@@ -87,6 +87,8 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 	
 	private boolean useCompression = false ;
 	
+	private NoiseReceiverPointCalculator receiverPointCalculator = null;
+	
 	private int cWarn1 = 0;
 	private int cWarn2 = 0;
 
@@ -153,6 +155,9 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 			rp.reset();
 		}
 		
+		if (this.receiverPointCalculator != null) {
+			this.receiverPointCalculator.reset();
+		}
 	}
 	
 	private void resetCurrentTimeIntervalInfo() {
@@ -214,25 +219,15 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 		 * The basic idea is to calculate the immisions, damages etc per receiver-point.
 		 * Doing it that way we we can save a lot of memory since we do not store informations 
 		 * for every RP for the complete timestep. //DR20180216 
+		 * The receiver points are processed in parallel; immissions are only recomputed
+		 * if the emission of at least one relevant link has changed, see NoiseReceiverPointCalculator.
 		 */
 		
 		if (printLog) log.info("Calculating noise immissions...");
 		if (printLog) log.info("Calculating the number of affected agent units...");
 		if (printLog) log.info("Calculating noise damage costs...");
 
-		for(NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-			NoiseReceiverPointImmision immisions = calculateNoiseImmission(rp);
-			if (this.noiseContext.getNoiseParams().isComputePopulationUnits()) {
-				calculateAffectedAgentUnits(rp);
-				if (this.noiseContext.getNoiseParams().isComputeNoiseDamages()) {
-					calculateDamagePerReceiverPoint(rp);
-				}
-				if (this.noiseContext.getNoiseParams().isComputeCausingAgents()) {
-					computeAverageDamageCost(rp, immisions);
-					calculateMarginalDamageCost(rp, immisions);
-				}
-			}
-		}
+		getReceiverPointCalculator().computeReceiverPoints();
 		calculateCostsPerVehiclePerLinkPerTimeInterval();
 		
 		finishNoiseDamageCosts();
@@ -253,6 +248,13 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 			
 	}
 		
+	private NoiseReceiverPointCalculator getReceiverPointCalculator() {
+		if (this.receiverPointCalculator == null) {
+			this.receiverPointCalculator = new NoiseReceiverPointCalculator(this.noiseContext, this.noiseContext.getScenario().getConfig().global().getNumberOfThreads());
+		}
+		return this.receiverPointCalculator;
+	}
+	
 	private boolean writeOutput() {
 		if (this.noiseContext.getNoiseParams().getWriteOutputIteration() == 0) {
 			return false;
@@ -263,25 +265,6 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 		}
 	}
 
-	private void calculateAffectedAgentUnits(NoiseReceiverPoint rp) {
-		
-//		for (NoiseReceiverPoint rp : noiseContext.getReceiverPoints().values()) {
-			
-			double affectedAgentUnits = 0.;
-			if (!(rp.getPersonId2actInfos().isEmpty())) {
-				
-				for (Id<Person> personId : rp.getPersonId2actInfos().keySet()) {
-					
-					for (PersonActivityInfo actInfo : rp.getPersonId2actInfos().get(personId)) {
-						double unitsThisPersonActivityInfo = actInfo.getDurationWithinInterval(noiseContext.getCurrentTimeBinEndTime(), noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation()) / noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation();
-						affectedAgentUnits = affectedAgentUnits + ( unitsThisPersonActivityInfo * noiseContext.getNoiseParams().getScaleFactor() );
-					}
-				}
-			}
-			rp.setAffectedAgentUnits(affectedAgentUnits);
-//		}
-	}
-
 	private void updateCurrentTimeInterval() {
 		double newTimeInterval = this.noiseContext.getCurrentTimeBinEndTime() + this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation();
 		this.noiseContext.setCurrentTimeBinEndTime(newTimeInterval);
@@ -372,27 +355,6 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 		}	
 	}
 
-	/*
-	 * Damage cost for each receiver point
-	 */
-	private void calculateDamagePerReceiverPoint(NoiseReceiverPoint rp) {
-		double currentTimeBinEndTime = this.noiseContext.getCurrentTimeBinEndTime();
-		double annualCostRate = this.noiseContext.getNoiseParams().getAnnualCostRate();
-		double timeBinsSize = this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation();
-		
-//		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-				
-			double noiseImmission = rp.getFinalImmission();
-			double affectedAgentUnits = rp.getAffectedAgentUnits();
-			
-			double damageCost = NoiseEquations.calculateDamageCosts(noiseImmission, affectedAgentUnits, currentTimeBinEndTime, annualCostRate, timeBinsSize);
-			double damageCostPerAffectedAgentUnit = NoiseEquations.calculateDamageCosts(noiseImmission, 1., currentTimeBinEndTime, annualCostRate, timeBinsSize);
-				
-			rp.setDamageCosts(damageCost);
-			rp.setDamageCostsPerAffectedAgentUnit(damageCostPerAffectedAgentUnit);
-//		}
-	}
-
 	private void throwNoiseEventsAffected() {
 		double currentTimeBinEndTime = this.noiseContext.getCurrentTimeBinEndTime();
 		double eventTime = this.noiseContext.getEventTime();
@@ -425,56 +387,6 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 		}
 	}
 
-	/*
-	 * Noise allocation approach: AverageCost
-	 */
-	private void computeAverageDamageCost(NoiseReceiverPoint rp, NoiseReceiverPointImmision immisions) {
-		calculateCostSharesPerLinkPerTimeInterval(rp, immisions);
-//		calculateCostsPerVehiclePerLinkPerTimeInterval();
-	}
-
-	/*
-	 * Noise allocation approach: AverageCost
-	 */
-	private void calculateCostSharesPerLinkPerTimeInterval(NoiseReceiverPoint rp, NoiseReceiverPointImmision immisions) {
-		
-		Map<Id<Link>, Double> linkId2costShare = new HashMap<Id<Link>, Double>();
-
-//		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-										
-							
-			if (rp.getDamageCosts() != 0.) {
-				for (Id<Link> linkId : immisions.getLinkId2IsolatedImmission().keySet()) {
-										
-					double noiseImmission = immisions.getLinkId2IsolatedImmission().get(linkId);
-					double costs = 0.;
-						
-					if (!(noiseImmission == 0.)) {
-						double costShare = NoiseEquations.calculateShareOfResultingNoiseImmission(noiseImmission, rp.getFinalImmission());
-						costs = costShare * rp.getDamageCosts();	
-					}
-					linkId2costShare.put(linkId, costs);
-				}
-			}
-			
-//		}
-		
-		// summing up the link-based costs
-//		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-
-			if (rp.getDamageCosts() != 0.) {
-				
-				for (Id<Link> linkId : rp.getLinkId2distanceCorrection().keySet()) {
-					NoiseLink noiseLink = this.noiseContext.getNoiseLinks().get(linkId); 
-					if ( noiseLink != null) {
-						double sum = noiseLink.getDamageCost() + linkId2costShare.get(linkId);
-						noiseLink.setDamageCost(sum);
-					}		
-				}
-			}
-//		}
-	}
-
 	/*
 	 * Noise allocation approach: AverageCost
 	 */
@@ -562,56 +474,6 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 //		if (printLog) log.info("Computing the marginal damage cost for each link and receiver point... Done.");
 //	}
 	
-	/*
-	 * Noise allocation approach: MarginalCost
-	 */
-	private void calculateMarginalDamageCost(NoiseReceiverPoint rp, NoiseReceiverPointImmision immision) {
-//		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-
-			if (rp.getAffectedAgentUnits() != 0.) {
-				for (Id<Link> thisLink : immision.getLinkId2IsolatedImmission().keySet()) {
-										
-					double noiseImmissionPlusOneCarThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), immision.getLinkId2IsolatedImmission().get(thisLink), immision.getLinkId2IsolatedImmissionPlusOneCar().get(thisLink));
-					double noiseImmissionPlusOneHGVThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), immision.getLinkId2IsolatedImmission().get(thisLink), immision.getLinkId2IsolatedImmissionPlusOneHGV().get(thisLink));
-					
-					double damageCostsPlusOneCarThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneCarThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
-					double marginalDamageCostCarThisLink = (damageCostsPlusOneCarThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
-					
-					if (marginalDamageCostCarThisLink < 0.0) {
-						if (Math.abs(marginalDamageCostCarThisLink) < 0.0000000001) {
-							marginalDamageCostCarThisLink = 0.;
-						} else {
-							log.warn("The marginal damage cost per car on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostCarThisLink + ".");
-							log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostCarThisLink);
-							log.warn("Setting the marginal damage cost per car to 0.");
-							marginalDamageCostCarThisLink = 0.;
-						}
-					}
-					
-					double damageCostsPlusOneHGVThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneHGVThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
-					double marginalDamageCostHGVThisLink = (damageCostsPlusOneHGVThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
-					
-					if (marginalDamageCostHGVThisLink < 0.0) {
-						if (Math.abs(marginalDamageCostHGVThisLink) < 0.0000000001) {
-							marginalDamageCostHGVThisLink = 0.;
-						} else {
-							log.warn("The marginal damage cost per HGV on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostHGVThisLink + ".");
-							log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostHGVThisLink);
-							log.warn("Setting the marginal damage cost per HGV to 0.");
-							marginalDamageCostHGVThisLink = 0.;
-						}
-					}
-					NoiseLink noiseLink = this.noiseContext.getNoiseLinks().get(thisLink);
-					double marginalDamageCostCarSum = noiseLink.getMarginalDamageCostPerCar() + marginalDamageCostCarThisLink;
-					noiseLink.setMarginalDamageCostPerCar(marginalDamageCostCarSum);
-					
-					double marginalDamageCostHGVSum = noiseLink.getMarginalDamageCostPerHgv() + marginalDamageCostHGVThisLink;
-					noiseLink.setMarginalDamageCostPerHgv(marginalDamageCostHGVSum);
-				}			
-			}	
-//		}
-	}
-
 	private void throwNoiseEventsCaused() {
 		String[] hgvPrefixes = this.noiseContext.getNoiseParams().getHgvIdPrefixesArray();
 		Set<Id<Vehicle>> busVehicleIds = this.noiseContext.getBusVehicleIDs();
@@ -677,87 +539,6 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 		}
 	}
 	
-	/*
-	 * Immission
-	 */
-	private NoiseReceiverPointImmision calculateNoiseImmission(NoiseReceiverPoint rp) {
-		NoiseConfigGroup noiseParams = this.noiseContext.getNoiseParams();
-		NoiseReceiverPointImmision immision = new NoiseReceiverPointImmision();
-		
-//		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-					
-//			Map<Id<Link>, Double> linkId2isolatedImmission = new HashMap<Id<Link>, Double>();
-			Map<Id<Link>, Double> linkId2isolatedImmissionPlusOneCar = new HashMap<Id<Link>, Double>();
-			Map<Id<Link>, Double> linkId2isolatedImmissionPlusOneHGV = new HashMap<Id<Link>, Double>();
-			
-			for(Id<Link> linkId : rp.getLinkId2distanceCorrection().keySet()) {
-				double distanceCorrection = rp.getLinkId2distanceCorrection().get(linkId);
-				double angleCorrection = rp.getLinkId2angleCorrection().get(linkId);
-				
-				if (noiseParams.getTunnelLinkIDsSet().contains(linkId)) {
-					immision.setLinkId2IsolatedImmission(linkId, 0.);
-					linkId2isolatedImmissionPlusOneCar.put(linkId, 0.);
-					linkId2isolatedImmissionPlusOneHGV.put(linkId, 0.);
-								 			
-			 	} else {
-				
-			 		double noiseImmission = 0.;
-			 		double noiseImmissionPlusOneCar = 0.;
-			 		double noiseImmissionPlusOneHGV = 0.;
-			 		NoiseLink noiseLink = this.noiseContext.getNoiseLinks().get(linkId);
-			 		if (noiseLink != null) {
-						if (!(noiseLink.getEmission() == 0.)) {
-							noiseImmission = noiseLink.getEmission()
-									+ distanceCorrection + angleCorrection;
-							
-							if (noiseImmission < 0.) {
-								noiseImmission = 0.;
-							}
-						}
-						
-						if (!(noiseLink.getEmissionPlusOneCar() == 0.)) {
-							noiseImmissionPlusOneCar = noiseLink.getEmissionPlusOneCar()
-									+ distanceCorrection + angleCorrection;
-							
-							if (noiseImmissionPlusOneCar < 0.) {
-								noiseImmissionPlusOneCar = 0.;
-							}
-						}
-						
-						if (!(noiseLink.getEmissionPlusOneHGV() == 0.)) {
-							noiseImmissionPlusOneHGV = noiseLink.getEmissionPlusOneHGV()
-									+ distanceCorrection + angleCorrection;
-							
-							if (noiseImmissionPlusOneHGV < 0.) {
-								noiseImmissionPlusOneHGV = 0.;
-							}
-						}
-
-					}
-			 		
-			 		if (noiseImmissionPlusOneCar < noiseImmission || noiseImmissionPlusOneHGV < noiseImmission) {
-						throw new RuntimeException("noise immission: " + noiseImmission + " - noise immission plus one car: " + noiseImmissionPlusOneCar + " - noise immission plus one hgv: " + noiseImmissionPlusOneHGV + ". This should not happen. Aborting..."); 
-					}
-			 		
-			 		immision.setLinkId2IsolatedImmission(linkId, noiseImmission);
-					linkId2isolatedImmissionPlusOneCar.put(linkId, noiseImmissionPlusOneCar);
-					linkId2isolatedImmissionPlusOneHGV.put(linkId, noiseImmissionPlusOneHGV);
-			 	}
-			}
-			
-			double finalNoiseImmission = 0.;
-			Map<Id<Link>, Double> linkId2isolatedImmission = immision.getLinkId2IsolatedImmission();
-			if (linkId2isolatedImmission != null && !linkId2isolatedImmission.isEmpty()) {
-				finalNoiseImmission = NoiseEquations.calculateResultingNoiseImmission(linkId2isolatedImmission.values());
-			}
-			
-			rp.setFinalImmission(finalNoiseImmission);
-			immision.setLinkId2IsolatedImmissionPlusOneCar(linkId2isolatedImmissionPlusOneCar);
-			immision.setLinkId2IsolatedImmissionPlusOneHGV(linkId2isolatedImmissionPlusOneHGV);
-			return immision;
-//		}
-	}
-	
 	/*
 	 * Emission
 	 */
@@ -939,6 +720,7 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 
 	public void setNoiseContext(NoiseContext noiseContext) {
 		this.noiseContext = noiseContext;
+		this.receiverPointCalculator = null;
 	}
 
 	public void setEvents(EventsManager events) {
@@ -0,0 +1,275 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NoiseReceiverPointCalculatorTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.noise.handler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.contrib.noise.NoiseConfigGroup;
+import org.matsim.contrib.noise.data.NoiseContext;
+import org.matsim.contrib.noise.data.NoiseLink;
+import org.matsim.contrib.noise.data.NoiseReceiverPoint;
+import org.matsim.contrib.noise.data.PersonActivityInfo;
+import org.matsim.contrib.noise.data.ReceiverPoint;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+/**
+ * Compares the results of the {@link NoiseReceiverPointCalculator} with a straightforward sequential
+ * computation per receiver point, as it was done before the calculator was introduced.
+ */
+public class NoiseReceiverPointCalculatorTest {
+
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void testSequentialAndParallelResultsAreEqual() {
+		NoiseContext sequentialContext = createNoiseContext();
+		new NoiseReceiverPointCalculator(sequentialContext, 1).computeReceiverPoints();
+
+		NoiseContext parallelContext = createNoiseContext();
+		new NoiseReceiverPointCalculator(parallelContext, 4).computeReceiverPoints();
+
+		Assert.assertFalse(sequentialContext.getReceiverPoints().isEmpty());
+		for (NoiseReceiverPoint rp : sequentialContext.getReceiverPoints().values()) {
+			NoiseReceiverPoint parallelRp = parallelContext.getReceiverPoints().get(rp.getId());
+			Assert.assertEquals(rp.getFinalImmission(), parallelRp.getFinalImmission(), 0.);
+			Assert.assertEquals(rp.getAffectedAgentUnits(), parallelRp.getAffectedAgentUnits(), 0.);
+			Assert.assertEquals(rp.getDamageCosts(), parallelRp.getDamageCosts(), 0.);
+		}
+		for (NoiseLink noiseLink : sequentialContext.getNoiseLinks().values()) {
+			NoiseLink parallelLink = parallelContext.getNoiseLinks().get(noiseLink.getId());
+			Assert.assertEquals(noiseLink.getDamageCost(), parallelLink.getDamageCost(), 0.);
+			Assert.assertEquals(noiseLink.getMarginalDamageCostPerCar(), parallelLink.getMarginalDamageCostPerCar(), 0.);
+			Assert.assertEquals(noiseLink.getMarginalDamageCostPerHgv(), parallelLink.getMarginalDamageCostPerHgv(), 0.);
+		}
+	}
+
+	@Test
+	public void testResultsEqualReferenceComputation() {
+		NoiseContext noiseContext = createNoiseContext();
+		NoiseReceiverPointCalculator calculator = new NoiseReceiverPointCalculator(noiseContext, 4);
+		calculator.computeReceiverPoints();
+		assertEqualsReference(noiseContext);
+
+		// unchanged emissions: the immissions of the previous time interval are re-used
+		for (NoiseLink noiseLink : noiseContext.getNoiseLinks().values()) {
+			noiseLink.setDamageCost(0.);
+			noiseLink.setMarginalDamageCostPerCar(0.);
+			noiseLink.setMarginalDamageCostPerHgv(0.);
+		}
+		calculator.computeReceiverPoints();
+		assertEqualsReference(noiseContext);
+	}
+
+	@Test
+	public void testPartialRecomputationEqualsFullRecomputation() {
+		NoiseContext incrementalContext = createNoiseContext();
+		NoiseReceiverPointCalculator incrementalCalculator = new NoiseReceiverPointCalculator(incrementalContext, 4);
+		incrementalCalculator.computeReceiverPoints();
+		Map<Id<ReceiverPoint>, Double> previousImmissions = new HashMap<>();
+		for (NoiseReceiverPoint rp : incrementalContext.getReceiverPoints().values()) {
+			previousImmissions.put(rp.getId(), rp.getFinalImmission());
+		}
+
+		// only one link changes its emissions: only the receiver points close to it are recomputed
+		Id<Link> changedLinkId = getLinkWithFewestReceiverPoints(incrementalContext);
+		changeEmissions(incrementalContext, changedLinkId);
+		for (NoiseLink noiseLink : incrementalContext.getNoiseLinks().values()) {
+			noiseLink.setDamageCost(0.);
+			noiseLink.setMarginalDamageCostPerCar(0.);
+			noiseLink.setMarginalDamageCostPerHgv(0.);
+		}
+		incrementalCalculator.computeReceiverPoints();
+
+		NoiseContext fullContext = createNoiseContext();
+		changeEmissions(fullContext, changedLinkId);
+		new NoiseReceiverPointCalculator(fullContext, 4).computeReceiverPoints();
+
+		int changed = 0;
+		int unchanged = 0;
+		for (NoiseReceiverPoint rp : fullContext.getReceiverPoints().values()) {
+			NoiseReceiverPoint incrementalRp = incrementalContext.getReceiverPoints().get(rp.getId());
+			Assert.assertEquals(rp.getFinalImmission(), incrementalRp.getFinalImmission(), 0.);
+			Assert.assertEquals(rp.getAffectedAgentUnits(), incrementalRp.getAffectedAgentUnits(), 0.);
+			Assert.assertEquals(rp.getDamageCosts(), incrementalRp.getDamageCosts(), 0.);
+			if (rp.getFinalImmission() == previousImmissions.get(rp.getId())) {
+				unchanged++;
+			} else {
+				changed++;
+			}
+		}
+		Assert.assertTrue("no receiver point is affected by the changed emissions", changed > 0);
+		Assert.assertTrue("all receiver points are affected by the changed emissions", unchanged > 0);
+
+		for (NoiseLink noiseLink : fullContext.getNoiseLinks().values()) {
+			NoiseLink incrementalLink = incrementalContext.getNoiseLinks().get(noiseLink.getId());
+			Assert.assertEquals(noiseLink.getDamageCost(), incrementalLink.getDamageCost(), 0.);
+			Assert.assertEquals(noiseLink.getMarginalDamageCostPerCar(), incrementalLink.getMarginalDamageCostPerCar(), 0.);
+			Assert.assertEquals(noiseLink.getMarginalDamageCostPerHgv(), incrementalLink.getMarginalDamageCostPerHgv(), 0.);
+		}
+		assertEqualsReference(incrementalContext);
+	}
+
+	/**
+	 * @return the link with a non-zero emission which is relevant for the fewest (but at least one) receiver points
+	 */
+	private static Id<Link> getLinkWithFewestReceiverPoints(NoiseContext noiseContext) {
+		Map<Id<Link>, Integer> numberOfReceiverPoints = new TreeMap<>();
+		for (NoiseReceiverPoint rp : noiseContext.getReceiverPoints().values()) {
+			for (Id<Link> linkId : rp.getLinkId2distanceCorrection().keySet()) {
+				numberOfReceiverPoints.merge(linkId, 1, Integer::sum);
+			}
+		}
+		Id<Link> result = null;
+		for (Map.Entry<Id<Link>, Integer> e : numberOfReceiverPoints.entrySet()) {
+			NoiseLink noiseLink = noiseContext.getNoiseLinks().get(e.getKey());
+			if (noiseLink == null || noiseLink.getEmission() == 0.) continue;
+			if (result == null || e.getValue() < numberOfReceiverPoints.get(result)) {
+				result = e.getKey();
+			}
+		}
+		Assert.assertNotNull(result);
+		return result;
+	}
+
+	private static void changeEmissions(NoiseContext noiseContext, Id<Link> linkId) {
+		NoiseLink noiseLink = noiseContext.getNoiseLinks().get(linkId);
+		double emission = noiseLink.getEmission() + 3.;
+		noiseLink.setEmission(emission);
+		noiseLink.setEmissionPlusOneCar(emission + 0.3);
+		noiseLink.setEmissionPlusOneHGV(emission + 1.1);
+	}
+
+	private NoiseContext createNoiseContext() {
+		String configFile = "test/input/org/matsim/contrib/noise/NoiseTest/config1.xml";
+		Scenario scenario = ScenarioUtils.loadScenario(ConfigUtils.loadConfig(configFile, new NoiseConfigGroup()));
+
+		NoiseConfigGroup noiseParameters = (NoiseConfigGroup) scenario.getConfig().getModule("noise");
+		noiseParameters.setReceiverPointGap(250.);
+		noiseParameters.setScaleFactor(1.);
+		noiseParameters.setConsideredActivitiesForDamageCalculationArray(new String[] {"home", "work"});
+
+		NoiseContext noiseContext = new NoiseContext(scenario);
+		noiseContext.setCurrentTimeBinEndTime(8 * 3600.);
+
+		int i = 0;
+		for (Id<Link> linkId : new TreeMap<>(scenario.getNetwork().getLinks()).keySet()) {
+			NoiseLink noiseLink = new NoiseLink(linkId);
+			double emission = i % 4 == 3 ? 0. : 40. + 5. * (i % 5);
+			noiseLink.setEmission(emission);
+			noiseLink.setEmissionPlusOneCar(emission == 0. ? 30. : emission + 0.3);
+			noiseLink.setEmissionPlusOneHGV(emission == 0. ? 35. : emission + 1.1);
+			noiseContext.getNoiseLinks().put(linkId, noiseLink);
+			i++;
+		}
+
+		i = 0;
+		for (Id<ReceiverPoint> rpId : new TreeMap<>(noiseContext.getReceiverPoints()).keySet()) {
+			if (i % 3 == 0) {
+				PersonActivityInfo actInfo = new PersonActivityInfo();
+				actInfo.setActivityType("home");
+				actInfo.setStartTime(0.);
+				actInfo.setEndTime(7.5 * 3600.);
+				noiseContext.getReceiverPoints().get(rpId).addPersonActInfo(Id.create("p" + i, Person.class), actInfo);
+			}
+			i++;
+		}
+		return noiseContext;
+	}
+
+	private static void assertEqualsReference(NoiseContext noiseContext) {
+		NoiseConfigGroup noiseParams = noiseContext.getNoiseParams();
+		double timeBinEnd = noiseContext.getCurrentTimeBinEndTime();
+		double timeBinSize = noiseParams.getTimeBinSizeNoiseComputation();
+
+		Map<Id<Link>, double[]> linkCosts = new HashMap<>();
+		for (NoiseReceiverPoint rp : noiseContext.getReceiverPoints().values()) {
+			Map<Id<Link>, double[]> isolatedImmissions = new HashMap<>();
+			List<Double> immissions = new ArrayList<>();
+			for (Id<Link> linkId : rp.getLinkId2distanceCorrection().keySet()) {
+				double correction = rp.getLinkId2distanceCorrection().get(linkId) + rp.getLinkId2angleCorrection().get(linkId);
+				double[] isolated = new double[3];
+				NoiseLink noiseLink = noiseContext.getNoiseLinks().get(linkId);
+				if (!noiseParams.getTunnelLinkIDsSet().contains(linkId) && noiseLink != null) {
+					isolated[0] = isolatedImmission(noiseLink.getEmission(), correction);
+					isolated[1] = isolatedImmission(noiseLink.getEmissionPlusOneCar(), correction);
+					isolated[2] = isolatedImmission(noiseLink.getEmissionPlusOneHGV(), correction);
+				}
+				isolatedImmissions.put(linkId, isolated);
+				immissions.add(isolated[0]);
+			}
+			double finalImmission = immissions.isEmpty() ? 0. : NoiseEquations.calculateResultingNoiseImmission(immissions);
+
+			double units = 0.;
+			for (List<PersonActivityInfo> actInfos : rp.getPersonId2actInfos().values()) {
+				for (PersonActivityInfo actInfo : actInfos) {
+					units += actInfo.getDurationWithinInterval(timeBinEnd, timeBinSize) / timeBinSize * noiseParams.getScaleFactor();
+				}
+			}
+			double damageCosts = NoiseEquations.calculateDamageCosts(finalImmission, units, timeBinEnd, noiseParams.getAnnualCostRate(), timeBinSize);
+
+			Assert.assertEquals("final immission of " + rp.getId(), finalImmission, rp.getFinalImmission(), DELTA);
+			Assert.assertEquals("agent units of " + rp.getId(), units, rp.getAffectedAgentUnits(), DELTA);
+			Assert.assertEquals("damage costs of " + rp.getId(), damageCosts, rp.getDamageCosts(), DELTA);
+
+			for (Map.Entry<Id<Link>, double[]> e : isolatedImmissions.entrySet()) {
+				double[] isolated = e.getValue();
+				double[] costs = linkCosts.computeIfAbsent(e.getKey(), k -> new double[3]);
+				if (damageCosts != 0. && isolated[0] != 0.) {
+					costs[0] += NoiseEquations.calculateShareOfResultingNoiseImmission(isolated[0], finalImmission) * damageCosts;
+				}
+				if (units != 0.) {
+					costs[1] += marginalDamageCost(finalImmission, isolated[0], isolated[1], units, damageCosts, timeBinEnd, noiseParams);
+					costs[2] += marginalDamageCost(finalImmission, isolated[0], isolated[2], units, damageCosts, timeBinEnd, noiseParams);
+				}
+			}
+		}
+
+		for (Map.Entry<Id<Link>, double[]> e : linkCosts.entrySet()) {
+			NoiseLink noiseLink = noiseContext.getNoiseLinks().get(e.getKey());
+			Assert.assertEquals("damage cost of " + e.getKey(), e.getValue()[0], noiseLink.getDamageCost(), DELTA);
+			Assert.assertEquals("marginal car cost of " + e.getKey(), e.getValue()[1], noiseLink.getMarginalDamageCostPerCar(), DELTA);
+			Assert.assertEquals("marginal hgv cost of " + e.getKey(), e.getValue()[2], noiseLink.getMarginalDamageCostPerHgv(), DELTA);
+		}
+	}
+
+	private static double isolatedImmission(double emission, double correction) {
+		return emission == 0. ? 0. : Math.max(0., emission + correction);
+	}
+
+	private static double marginalDamageCost(double finalImmission, double isolated, double isolatedPlusOne, double units,
+			double damageCosts, double timeBinEnd, NoiseConfigGroup noiseParams) {
+		double immissionPlusOne = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(finalImmission, isolated, isolatedPlusOne);
+		double damageCostsPlusOne = NoiseEquations.calculateDamageCosts(immissionPlusOne, units, timeBinEnd, noiseParams.getAnnualCostRate(), noiseParams.getTimeBinSizeNoiseComputation());
+		return Math.max(0., (damageCostsPlusOne - damageCosts) / noiseParams.getScaleFactor());
+	}
+
+}
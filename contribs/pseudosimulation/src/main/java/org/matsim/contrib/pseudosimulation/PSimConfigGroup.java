@@ -1,5 +1,7 @@
 package org.matsim.contrib.pseudosimulation;
 
+import java.util.Map;
+
 import org.matsim.core.config.ReflectiveConfigGroup;
 
 public class PSimConfigGroup extends ReflectiveConfigGroup {
@@ -9,6 +11,8 @@ public class PSimConfigGroup extends ReflectiveConfigGroup {
 	private int iterationsPerCycle = 5;
 	public static final String FULL_TRANSIT_PERFORMANCE_TRANSMISSION = "fullTransitPerformanceTransmission";
 	private boolean fullTransitPerformanceTransmission = true;
+	public static final String TIME_SORTED_EVENTS = "timeSortedEvents";
+	private boolean timeSortedEvents = false;
 
 	public PSimConfigGroup() {
 		super(GROUP_NAME);
@@ -35,6 +39,23 @@ public class PSimConfigGroup extends ReflectiveConfigGroup {
 		this.fullTransitPerformanceTransmission = fullTransitPerformanceTransmission;
 	}
 
+	@StringGetter(TIME_SORTED_EVENTS)
+	public boolean isTimeSortedEvents() {
+		return timeSortedEvents;
+	}
 
+	@StringSetter(TIME_SORTED_EVENTS)
+	public void setTimeSortedEvents(boolean timeSortedEvents) {
+		this.timeSortedEvents = timeSortedEvents;
+	}
+
+	@Override
+	public Map<String, String> getComments() {
+		Map<String, String> map = super.getComments();
+		map.put(TIME_SORTED_EVENTS, "If true, the PSim threads buffer their events, which are then passed to the events manager "
+				+ "in time order by a single thread. Handlers see the events as they would from the QSim, without lock contention, "
+				+ "at the cost of keeping all events of an iteration in memory. Default: false, i.e. events are passed on plan by plan.");
+		return map;
+	}
 
 }
@@ -352,7 +352,8 @@ public class MasterControler implements AfterMobsimListener, ShutdownListener, S
             for (Person person : matsimControler.getScenario().getPopulation().getPersons().values()) {
 //                person.removePlan(person.getSelectedPlan());
                 Plan plan = newPlans.get(person.getId().toString());
-                person.addPlan(plan);
+                if (!person.getPlans().contains(plan))
+                    person.addPlan(plan);
                 person.setSelectedPlan(plan);
             }
             if (slaveHandlerTreeMap.size() > 1 || slavesHaveRequestedShutdown() || hydra.hydraSlaves.size() > 0)
@@ -734,6 +735,10 @@ public class MasterControler implements AfterMobsimListener, ShutdownListener, S
     private class SlaveHandler implements Runnable {
         final Logger slaveLogger = Logger.getLogger(this.getClass());
         final Map<String, Plan> plans = new HashMap<>();
+        /**
+         * travel times last sent to the slave; subsequent transmissions only contain the cells that changed
+         */
+        SerializableLinkTravelTimes sentLinkTravelTimes;
         ObjectInputStream reader;
         ObjectOutputStream writer;
         double totalIterationTime;
@@ -757,17 +762,14 @@ public class MasterControler implements AfterMobsimListener, ShutdownListener, S
         }
 
         public void transmitPlans() throws IOException, ClassNotFoundException {
-            plans.clear();
             slaveLogger.warn("Waiting to receive plans from slave number " + myNumber);
             int slaveIteration = reader.readInt();
             int timesIteration = reader.readInt();
             slaveLogger.warn(String.format("Plan signature: M%03dP%03dT%03d ", currentIteration + 1, slaveIteration, timesIteration));
             slaveLogger.warn("(M = iteration for execution on master,P = PSim iteration when plan came from on slave, T = travel time iteration from master used to generate plan on slave)");
-            Map<String, PlanSerializable> serialPlans = (Map<String, PlanSerializable>) reader.readObject();
-            slaveLogger.warn("RECEIVED " + serialPlans.size() + " plans from slave number " + myNumber);
-            for (Entry<String, PlanSerializable> entry : serialPlans.entrySet()) {
-                plans.put(entry.getKey(), entry.getValue().getPlan(matsimControler.getScenario().getPopulation()));
-            }
+            // plans holds the plans of the previous transmission; only the changes are sent
+            int numberOfChangedPlans = PlanDeltaWriter.read(reader, plans, matsimControler.getScenario().getPopulation());
+            slaveLogger.warn("RECEIVED " + plans.size() + " plans (" + numberOfChangedPlans + " changed) from slave number " + myNumber);
             this.currentPopulationSize = plans.size();
         }
 
@@ -780,7 +782,8 @@ public class MasterControler implements AfterMobsimListener, ShutdownListener, S
         public void transmitTravelTimes() throws IOException {
             slaveLogger.warn("About to send travel times to slave number " + myNumber);
             writer.writeInt(currentIteration);
-            writer.writeObject(linkTravelTimes);
+            linkTravelTimes.write(writer, sentLinkTravelTimes);
+            sentLinkTravelTimes = linkTravelTimes;
             if (config.transit().isUseTransit()) {
                 writer.writeObject(stopStopTimeCalculator.getStopStopTimes());
                 writer.writeObject(waitTimeCalculator.getWaitTimes());
@@ -791,25 +794,25 @@ public class MasterControler implements AfterMobsimListener, ShutdownListener, S
             slaveLogger.warn("SENT travel times to slave number " + myNumber);
         }
 
-        public void poolPersons() throws IOException, ClassNotFoundException {
+        public void poolPersons() throws IOException {
             slaveLogger.warn("Trying to receive persons from slave " + myNumber);
             slaveLogger.warn("Currently has " + currentPopulationSize + " persons, target is " + targetPopulationSize);
             slavePersonPool = new ArrayList<>();
             writer.writeInt(currentPopulationSize - targetPopulationSize);
             writer.flush();
-            slavePersonPool = (List<PersonSerializable>) reader.readObject();
+            slavePersonPool = PersonSerializable.readList(reader);
         }
 
         public void distributePersons() throws IOException, InterruptedException {
             slaveLogger.warn("Distributing persons to slave" + myNumber);
             writer.writeInt(currentIteration);
-            writer.writeObject(getPersonsFromPool(currentPopulationSize - targetPopulationSize));
+            PersonSerializable.writeList(writer, getPersonsFromPool(currentPopulationSize - targetPopulationSize));
             writer.flush();
         }
 
         public void transmitInitialPlans() throws IOException {
             writer.writeInt(currentIteration);
-            writer.writeObject(slavePersonPool);
+            PersonSerializable.writeList(writer, slavePersonPool);
             writer.flush();
             this.currentPopulationSize = slavePersonPool.size();
         }
@@ -1,6 +1,9 @@
 
 package org.matsim.contrib.pseudosimulation.distributed;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -27,6 +30,43 @@ public class PersonSerializable implements Serializable {
         }
     }
 
+    /**
+     * Reads a person written by {@link #write(DataOutput)}.
+     */
+    PersonSerializable(DataInput in) throws IOException {
+        this.id = in.readUTF();
+        int numberOfPlans = in.readInt();
+        int selectedPlanIndex = in.readInt();
+        for (int i = 0; i < numberOfPlans; i++) {
+            PlanSerializable planSerializable = new PlanSerializable(in);
+            plans.add(planSerializable);
+            if (i == selectedPlanIndex)
+                this.selectedPlan = planSerializable;
+        }
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeUTF(id);
+        out.writeInt(plans.size());
+        out.writeInt(plans.indexOf(selectedPlan));
+        for (PlanSerializable plan : plans)
+            plan.write(out);
+    }
+
+    static void writeList(DataOutput out, List<PersonSerializable> persons) throws IOException {
+        out.writeInt(persons.size());
+        for (PersonSerializable person : persons)
+            person.write(out);
+    }
+
+    static List<PersonSerializable> readList(DataInput in) throws IOException {
+        int numberOfPersons = in.readInt();
+        List<PersonSerializable> persons = new ArrayList<>(numberOfPersons);
+        for (int i = 0; i < numberOfPersons; i++)
+            persons.add(new PersonSerializable(in));
+        return persons;
+    }
+
     protected String id;
 
     PlanSerializable selectedPlan = null;
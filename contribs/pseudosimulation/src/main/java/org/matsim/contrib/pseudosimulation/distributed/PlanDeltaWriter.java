@@ -0,0 +1,139 @@
+package org.matsim.contrib.pseudosimulation.distributed;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.contrib.pseudosimulation.distributed.plans.PlanGenome;
+
+/**
+ * Writes the selected plans of a slave as changes against the plans that were last written to the same connection.
+ * A plan is only sent in full if its body (see {@link PlanSerializable#writeBody(java.io.DataOutput)}) changed; if only
+ * its scores changed, only the scores are sent. The receiving side applies the changes with
+ * {@link #read(DataInput, Map, Population)}.
+ */
+class PlanDeltaWriter {
+    /**
+     * binary form of the plan bodies and scores last sent, by person id
+     */
+    private final Map<String, byte[]> sentBodies = new HashMap<>();
+    private final Map<String, byte[]> sentScores = new HashMap<>();
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final DataOutputStream bufferWriter = new DataOutputStream(buffer);
+
+    private int numberOfChangedPlans;
+    private int numberOfChangedScores;
+
+    void write(DataOutput out, Collection<PlanSerializable> plans) throws IOException {
+        List<String> changedPlanIds = new ArrayList<>();
+        List<byte[]> changedPlanScores = new ArrayList<>();
+        List<byte[]> changedPlanBodies = new ArrayList<>();
+        List<String> changedScoreIds = new ArrayList<>();
+        List<byte[]> changedScores = new ArrayList<>();
+        Set<String> personIds = new HashSet<>();
+        for (PlanSerializable plan : plans) {
+            String personId = plan.getPersonId();
+            personIds.add(personId);
+            byte[] body = toBytes(plan, false);
+            byte[] scores = toBytes(plan, true);
+            if (!Arrays.equals(body, sentBodies.get(personId))) {
+                changedPlanIds.add(personId);
+                changedPlanScores.add(scores);
+                changedPlanBodies.add(body);
+                sentBodies.put(personId, body);
+                sentScores.put(personId, scores);
+            } else if (!Arrays.equals(scores, sentScores.get(personId))) {
+                changedScoreIds.add(personId);
+                changedScores.add(scores);
+                sentScores.put(personId, scores);
+            }
+        }
+
+        // same layout as PlanSerializable.write(DataOutput)
+        out.writeInt(changedPlanIds.size());
+        for (int i = 0; i < changedPlanIds.size(); i++) {
+            out.writeUTF(changedPlanIds.get(i));
+            out.write(changedPlanScores.get(i));
+            out.write(changedPlanBodies.get(i));
+        }
+        out.writeInt(changedScoreIds.size());
+        for (int i = 0; i < changedScoreIds.size(); i++) {
+            out.writeUTF(changedScoreIds.get(i));
+            out.write(changedScores.get(i));
+        }
+        List<String> removedPersonIds = new ArrayList<>();
+        for (Iterator<String> iterator = sentBodies.keySet().iterator(); iterator.hasNext(); ) {
+            String personId = iterator.next();
+            if (!personIds.contains(personId)) {
+                removedPersonIds.add(personId);
+                iterator.remove();
+                sentScores.remove(personId);
+            }
+        }
+        out.writeInt(removedPersonIds.size());
+        for (String personId : removedPersonIds)
+            out.writeUTF(personId);
+
+        numberOfChangedPlans = changedPlanIds.size();
+        numberOfChangedScores = changedScoreIds.size();
+    }
+
+    private byte[] toBytes(PlanSerializable plan, boolean scores) throws IOException {
+        buffer.reset();
+        if (scores)
+            plan.writeScores(bufferWriter);
+        else
+            plan.writeBody(bufferWriter);
+        bufferWriter.flush();
+        return buffer.toByteArray();
+    }
+
+    int getNumberOfChangedPlans() {
+        return numberOfChangedPlans;
+    }
+
+    int getNumberOfChangedScores() {
+        return numberOfChangedScores;
+    }
+
+    /**
+     * Applies changes written by {@link #write(DataOutput, Collection)} to <code>plans</code>, which has to hold the
+     * result of the preceding reads on the same connection. Only plans that changed are converted; if only the scores
+     * of a plan changed, they are set on the plan that is already there.
+     *
+     * @return the number of plans that were converted
+     */
+    static int read(DataInput in, Map<String, Plan> plans, Population population) throws IOException {
+        int numberOfChangedPlans = in.readInt();
+        for (int i = 0; i < numberOfChangedPlans; i++) {
+            PlanSerializable planSerializable = new PlanSerializable(in);
+            plans.put(planSerializable.getPersonId(), planSerializable.getPlan(population));
+        }
+        int numberOfChangedScores = in.readInt();
+        for (int i = 0; i < numberOfChangedScores; i++) {
+            String personId = in.readUTF();
+            Plan plan = plans.get(personId);
+            if (plan == null)
+                throw new IOException("Received scores for person " + personId + " without a preceding plan.");
+            PlanSerializable.readScores(in, (PlanGenome) plan);
+        }
+        int numberOfRemovedPlans = in.readInt();
+        for (int i = 0; i < numberOfRemovedPlans; i++)
+            plans.remove(in.readUTF());
+        return numberOfChangedPlans;
+    }
+}
@@ -1,5 +1,8 @@
 package org.matsim.contrib.pseudosimulation.distributed;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -17,6 +20,7 @@ import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.Route;
 import org.matsim.contrib.pseudosimulation.distributed.plans.PlanGenome;
 import org.matsim.contrib.pseudosimulation.distributed.scoring.PlanScoreComponent;
+import org.matsim.contrib.pseudosimulation.distributed.scoring.ScoreComponentType;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.NetworkRoute;
@@ -27,6 +31,9 @@ import org.matsim.vehicles.Vehicle;
 
 class PlanSerializable implements Serializable {
     public static boolean isUseTransit = false;
+    private static final byte ROUTE_NONE = 0;
+    private static final byte ROUTE_NETWORK = 1;
+    private static final byte ROUTE_GENERIC = 2;
 
     public void setScoreComponents(ArrayList<PlanScoreComponent> scoreComponents) {
         this.scoreComponents = scoreComponents;
@@ -59,6 +66,106 @@ class PlanSerializable implements Serializable {
         }
     }
 
+    /**
+     * Reads a plan written by {@link #write(DataOutput)}.
+     */
+    PlanSerializable(DataInput in) throws IOException {
+        personId = in.readUTF();
+        score = in.readBoolean() ? in.readDouble() : null;
+        pSimScore = in.readDouble();
+        scoreComponents = readScoreComponents(in);
+        type = readNullableString(in);
+        genome = readNullableString(in);
+        int numberOfPlanElements = in.readInt();
+        planElements = new ArrayList<>(numberOfPlanElements);
+        for (int i = 0; i < numberOfPlanElements; i++)
+            if (in.readBoolean())
+                planElements.add(new ActivitySerializable(in));
+            else
+                planElements.add(new LegSerializable(in));
+    }
+
+    /**
+     * Writes the plan in a compact binary form; the field order is the schema, see {@link #PlanSerializable(DataInput)}.
+     * It is the person id, followed by {@link #writeScores(DataOutput)} and {@link #writeBody(DataOutput)}.
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeUTF(personId);
+        writeScores(out);
+        writeBody(out);
+    }
+
+    /**
+     * Writes the score, the PSim score and the score components. These change in every iteration even if the plan
+     * itself does not, so they can be transmitted separately, see {@link #readScores(DataInput, PlanGenome)}.
+     */
+    void writeScores(DataOutput out) throws IOException {
+        out.writeBoolean(score != null);
+        if (score != null)
+            out.writeDouble(score);
+        out.writeDouble(pSimScore);
+        if (scoreComponents == null)
+            out.writeInt(-1);
+        else {
+            out.writeInt(scoreComponents.size());
+            for (PlanScoreComponent component : scoreComponents) {
+                out.writeByte(component.getType() == null ? -1 : component.getType().ordinal());
+                out.writeDouble(component.getScore());
+                writeNullableString(out, component.getDescription());
+            }
+        }
+    }
+
+    /**
+     * Writes everything but the person id and the scores, i.e. the part that identifies a changed plan.
+     */
+    void writeBody(DataOutput out) throws IOException {
+        writeNullableString(out, type);
+        writeNullableString(out, genome);
+        out.writeInt(planElements.size());
+        for (PlanElementSerializable planElement : planElements) {
+            out.writeBoolean(planElement instanceof ActivitySerializable);
+            planElement.write(out);
+        }
+    }
+
+    /**
+     * Applies scores written by {@link #writeScores(DataOutput)} to a plan obtained from {@link #getPlan(Population)}.
+     */
+    static void readScores(DataInput in, PlanGenome plan) throws IOException {
+        plan.setScore(in.readBoolean() ? in.readDouble() : null);
+        plan.setpSimScore(in.readDouble());
+        plan.setAltScoreComponents(readScoreComponents(in));
+    }
+
+    private static ArrayList<PlanScoreComponent> readScoreComponents(DataInput in) throws IOException {
+        int numberOfScoreComponents = in.readInt();
+        if (numberOfScoreComponents < 0)
+            return null;
+        ArrayList<PlanScoreComponent> scoreComponents = new ArrayList<>(numberOfScoreComponents);
+        for (int i = 0; i < numberOfScoreComponents; i++) {
+            int typeOrdinal = in.readByte();
+            double componentScore = in.readDouble();
+            String description = readNullableString(in);
+            scoreComponents.add(new PlanScoreComponent(typeOrdinal < 0 ? null : ScoreComponentType.values()[typeOrdinal], componentScore, description));
+        }
+        return scoreComponents;
+    }
+
+    static void writeNullableString(DataOutput out, String string) throws IOException {
+        out.writeBoolean(string != null);
+        if (string != null)
+            out.writeUTF(string);
+    }
+
+    static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    String getPersonId() {
+        return personId;
+    }
+
     public Double getScore() {
         return score;
     }
@@ -94,11 +201,13 @@ class PlanSerializable implements Serializable {
     }
 
     private interface PlanElementSerializable extends Serializable {
-
+        void write(DataOutput out) throws IOException;
     }
 
     interface RouteSerializable extends Serializable {
         Route getRoute(String mode);
+
+        void write(DataOutput out) throws IOException;
     }
 
     class ActivitySerializable implements PlanElementSerializable {
@@ -120,6 +229,28 @@ class PlanSerializable implements Serializable {
             type = act.getType();
         }
 
+        ActivitySerializable(DataInput in) throws IOException {
+            coord = new CoordSerializable(in.readDouble(), in.readDouble());
+            endTime = in.readDouble();
+            facIdString = readNullableString(in);
+            linkIdString = readNullableString(in);
+            maximumDuration = in.readDouble();
+            startTime = in.readDouble();
+            type = in.readUTF();
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            out.writeDouble(coord.x);
+            out.writeDouble(coord.y);
+            out.writeDouble(endTime);
+            writeNullableString(out, facIdString);
+            writeNullableString(out, linkIdString);
+            out.writeDouble(maximumDuration);
+            out.writeDouble(startTime);
+            out.writeUTF(type);
+        }
+
         public Activity getActivity() {
             Activity activity = PopulationUtils.createActivityFromCoordAndLinkId(type, coord.getCoord(), linkIdString == null ? null : Id.createLinkId(linkIdString));
             activity.setEndTime(endTime);
@@ -152,6 +283,35 @@ class PlanSerializable implements Serializable {
 
         }
 
+        LegSerializable(DataInput in) throws IOException {
+            departureTime = in.readDouble();
+            mode = in.readUTF();
+            travelTime = in.readDouble();
+            switch (in.readByte()) {
+                case ROUTE_NETWORK:
+                    route = new NetworkRouteSerializable(in);
+                    break;
+                case ROUTE_GENERIC:
+                    route = new GenericRouteSerializable(in);
+                    break;
+                default:
+                    route = null;
+            }
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            out.writeDouble(departureTime);
+            out.writeUTF(mode);
+            out.writeDouble(travelTime);
+            if (route == null)
+                out.writeByte(ROUTE_NONE);
+            else {
+                out.writeByte(route instanceof NetworkRouteSerializable ? ROUTE_NETWORK : ROUTE_GENERIC);
+                route.write(out);
+            }
+        }
+
         public Leg getLeg() {
             Leg leg = PopulationUtils.createLeg(mode);
             leg.setDepartureTime(departureTime);
@@ -170,6 +330,11 @@ class PlanSerializable implements Serializable {
             y = coord.getY();
         }
 
+        CoordSerializable(double x, double y) {
+            this.x = x;
+            this.y = y;
+        }
+
         public Coord getCoord() {
             return new Coord(x, y);
 
@@ -199,6 +364,32 @@ class PlanSerializable implements Serializable {
                 linkIdStrings.add(linkid.toString());
         }
 
+        NetworkRouteSerializable(DataInput in) throws IOException {
+            distance = in.readDouble();
+            endLinkIdString = in.readUTF();
+            startLinkIdString = in.readUTF();
+            travelCost = in.readDouble();
+            travelTime = in.readDouble();
+            vehicleIdString = readNullableString(in);
+            int numberOfLinks = in.readInt();
+            linkIdStrings = new ArrayList<>(numberOfLinks);
+            for (int i = 0; i < numberOfLinks; i++)
+                linkIdStrings.add(in.readUTF());
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            out.writeDouble(distance);
+            out.writeUTF(endLinkIdString);
+            out.writeUTF(startLinkIdString);
+            out.writeDouble(travelCost);
+            out.writeDouble(travelTime);
+            writeNullableString(out, vehicleIdString);
+            out.writeInt(linkIdStrings.size());
+            for (String linkIdString : linkIdStrings)
+                out.writeUTF(linkIdString);
+        }
+
         @Override
         public Route getRoute(String mode) {
             Id<Link> startLinkId = Id.createLinkId(startLinkIdString);
@@ -233,6 +424,23 @@ class PlanSerializable implements Serializable {
             travelTime = route.getTravelTime();
         }
 
+        GenericRouteSerializable(DataInput in) throws IOException {
+            distance = in.readDouble();
+            endLinkIdString = in.readUTF();
+            routeDescription = readNullableString(in);
+            startLinkIdString = in.readUTF();
+            travelTime = in.readDouble();
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            out.writeDouble(distance);
+            out.writeUTF(endLinkIdString);
+            writeNullableString(out, routeDescription);
+            out.writeUTF(startLinkIdString);
+            out.writeDouble(travelTime);
+        }
+
         @Override
         public Route getRoute(String mode) {
             Route route;
@@ -1,5 +1,8 @@
 package org.matsim.contrib.pseudosimulation.distributed;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.HashMap;
@@ -33,6 +36,79 @@ public class SerializableLinkTravelTimes implements Serializable, TravelTime {
 		}
 	}
 
+	private SerializableLinkTravelTimes(double[][] times, int travelTimeBinSize) {
+		this.times = times;
+		this.travelTimeBinSize = travelTimeBinSize;
+	}
+
+	/**
+	 * Writes the travel times in binary form. If <code>previous</code> is the instance that was last sent over the same
+	 * connection and has the same dimensions, only the cells that differ from it are written; otherwise the full table,
+	 * including the link ids, is written.
+	 */
+	void write(DataOutput out, SerializableLinkTravelTimes previous) throws IOException {
+		int numberOfBins = times.length == 0 ? 0 : times[0].length;
+		boolean full = previous == null || previous.travelTimeBinSize != travelTimeBinSize
+				|| previous.times.length != times.length
+				|| (times.length > 0 && previous.times[0].length != numberOfBins);
+		out.writeBoolean(full);
+		if (full) {
+			out.writeInt(travelTimeBinSize);
+			out.writeInt(times.length);
+			out.writeInt(numberOfBins);
+			String[] linkIds = new String[times.length];
+			for (Map.Entry<String, Integer> entry : indices.entrySet())
+				linkIds[entry.getValue()] = entry.getKey();
+			for (int i = 0; i < times.length; i++) {
+				out.writeUTF(linkIds[i]);
+				for (int j = 0; j < numberOfBins; j++)
+					out.writeDouble(times[i][j]);
+			}
+			return;
+		}
+		int changed = 0;
+		for (int i = 0; i < times.length; i++)
+			for (int j = 0; j < numberOfBins; j++)
+				if (Double.doubleToLongBits(times[i][j]) != Double.doubleToLongBits(previous.times[i][j]))
+					changed++;
+		out.writeInt(changed);
+		for (int i = 0; i < times.length; i++)
+			for (int j = 0; j < numberOfBins; j++)
+				if (Double.doubleToLongBits(times[i][j]) != Double.doubleToLongBits(previous.times[i][j])) {
+					out.writeInt(i * numberOfBins + j);
+					out.writeDouble(times[i][j]);
+				}
+	}
+
+	/**
+	 * Reads travel times written by {@link #write(DataOutput, SerializableLinkTravelTimes)}. A delta is applied in place
+	 * to <code>previous</code>, which has to be the result of the preceding read on the same connection.
+	 */
+	static SerializableLinkTravelTimes read(DataInput in, SerializableLinkTravelTimes previous) throws IOException {
+		boolean full = in.readBoolean();
+		if (full) {
+			int travelTimeBinSize = in.readInt();
+			int numberOfLinks = in.readInt();
+			int numberOfBins = in.readInt();
+			SerializableLinkTravelTimes result = new SerializableLinkTravelTimes(new double[numberOfLinks][numberOfBins], travelTimeBinSize);
+			for (int i = 0; i < numberOfLinks; i++) {
+				result.indices.put(in.readUTF(), i);
+				for (int j = 0; j < numberOfBins; j++)
+					result.times[i][j] = in.readDouble();
+			}
+			return result;
+		}
+		if (previous == null)
+			throw new IOException("Received travel time changes without a preceding full table.");
+		int changed = in.readInt();
+		int numberOfBins = previous.times.length == 0 ? 0 : previous.times[0].length;
+		for (int k = 0; k < changed; k++) {
+			int cell = in.readInt();
+			previous.times[cell / numberOfBins][cell % numberOfBins] = in.readDouble();
+		}
+		return previous;
+	}
+
 	@Override
 	public double getLinkTravelTime(Link link, double time, Person person,
 			Vehicle vehicle) {
@@ -64,6 +64,11 @@ public class SlaveControler implements IterationStartsListener, StartupListener,
     private double totalIterationTime;
     private Controler matsimControler;
     private TravelTime linkTravelTimes;
+    private SerializableLinkTravelTimes receivedLinkTravelTimes;
+    /**
+     * remembers the plans last sent to the master; only plans (or scores) that differ are sent again
+     */
+    private final PlanDeltaWriter planDeltaWriter = new PlanDeltaWriter();
     private WaitTime waitTimes;
     private StopStopTime stopStopTimes;
     private ObjectInputStream reader;
@@ -408,25 +413,26 @@ public class SlaveControler implements IterationStartsListener, StartupListener,
     }
 
     public void transmitPlans() throws IOException, ClassNotFoundException {
-        Map<String, PlanSerializable> tempPlansCopyForSending = new HashMap<>();
+        List<PlanSerializable> plansForSending = new ArrayList<>();
         for (Person person : matsimControler.getScenario().getPopulation().getPersons().values()) {
             PlanSerializable planSerializable = new PlanSerializable(person.getSelectedPlan());
             planSerializable.pSimScore = planSerializable.getScore() == null ? 0 : planSerializable.getScore();
-            tempPlansCopyForSending.put(person.getId().toString(), planSerializable);
+            plansForSending.add(planSerializable);
         }
-        Map<String, PlanSerializable> plansCopyForSending = tempPlansCopyForSending;
-        slaveLogger.warn("Sending " + plansCopyForSending.size() + " plans...");
+        slaveLogger.warn("Sending " + plansForSending.size() + " plans...");
         writer.writeInt(currentIteration);
         writer.writeInt(masterCurrentIteration);
-        writer.writeObject(plansCopyForSending);
-        slaveLogger.warn("Sending completed.");
+        planDeltaWriter.write(writer, plansForSending);
+        slaveLogger.warn("Sending completed (" + planDeltaWriter.getNumberOfChangedPlans() + " plans changed, "
+                + planDeltaWriter.getNumberOfChangedScores() + " only in their scores).");
 
     }
 
     public void transmitTravelTimes() throws IOException, ClassNotFoundException {
         slaveLogger.warn("RECEIVING travel times...");
         masterCurrentIteration = reader.readInt();
-        linkTravelTimes = (SerializableLinkTravelTimes) reader.readObject();
+        receivedLinkTravelTimes = SerializableLinkTravelTimes.read(reader, receivedLinkTravelTimes);
+        linkTravelTimes = receivedLinkTravelTimes;
         if (config.transit().isUseTransit()) {
             stopStopTimes = (StopStopTime) reader.readObject();
             waitTimes = (WaitTime) reader.readObject();
@@ -482,7 +488,7 @@ public class SlaveControler implements IterationStartsListener, StartupListener,
 
     public void distributePersons() throws IOException, ClassNotFoundException {
         int masterCurrentIteration = reader.readInt();
-        List<PersonSerializable> personSerializables = (List<PersonSerializable>) reader.readObject();
+        List<PersonSerializable> personSerializables = PersonSerializable.readList(reader);
         addPersons(personSerializables);
         iterationTimes = new ArrayList<>();
         executedPlanCount = 0;
@@ -497,7 +503,7 @@ public class SlaveControler implements IterationStartsListener, StartupListener,
         if (diff > 0) {
             personsToSend = getPersonsToSend(diff);
         }
-        writer.writeObject(personsToSend);
+        PersonSerializable.writeList(writer, personsToSend);
         slaveLogger.warn("Sent " + personsToSend.size() + " pax to master");
     }
 
@@ -3,11 +3,10 @@
  */
 package org.matsim.contrib.pseudosimulation.mobsim;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
@@ -25,10 +24,12 @@ import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.api.core.v01.population.Route;
 import org.matsim.contrib.eventsBasedPTRouter.stopStopTimes.StopStopTime;
 import org.matsim.contrib.eventsBasedPTRouter.waitTimes.WaitTime;
+import org.matsim.contrib.pseudosimulation.PSimConfigGroup;
 import org.matsim.contrib.pseudosimulation.distributed.listeners.events.transit.TransitPerformance;
 import org.matsim.contrib.pseudosimulation.util.CollectionUtils;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
 import org.matsim.core.mobsim.framework.Mobsim;
 import org.matsim.core.mobsim.qsim.pt.TransitVehicle;
@@ -82,11 +83,13 @@ public class PSim implements Mobsim {
     private Map<Id<TransitStopFacility>, TransitStopFacility> stopFacilities;
     private final Collection<Plan> plans;
     private final double endTime;
+    private final boolean timeSortedEvents;
 
     public PSim(Scenario sc, EventsManager eventsManager, Collection<Plan> plans, TravelTime carLinkTravelTimes) {
         Logger.getLogger(getClass()).warn("Constructing PSim");
         this.scenario = sc;
         this.endTime = sc.getConfig().qsim().getEndTime();
+        this.timeSortedEvents = ConfigUtils.addOrGetModule(sc.getConfig(), PSimConfigGroup.GROUP_NAME, PSimConfigGroup.class).isTimeSortedEvents();
         this.eventManager = eventsManager;
         int numThreads = Integer.parseInt(sc.getConfig().getParam("global", "numberOfThreads"));
         threads = new SimThread[numThreads];
@@ -128,9 +131,12 @@ public class PSim implements Mobsim {
 		/*
 		 * submit tasks
 		 */
-        numThreads = new AtomicInteger(threads.length);
+        numThreads = new AtomicInteger(segments.length);
+        PSimEventBuffer[] buffers = timeSortedEvents ? new PSimEventBuffer[segments.length] : null;
         for (int i = 0; i < segments.length; i++) {
-            threads[i].init(segments[i], network, eventManager);
+            if (timeSortedEvents)
+                buffers[i] = new PSimEventBuffer(segments[i].size() * 16);
+            threads[i].init(segments[i], network, eventManager, timeSortedEvents ? buffers[i] : null);
             new Thread(threads[i]).start();
         }
 		/*
@@ -143,6 +149,14 @@ public class PSim implements Mobsim {
                 e.printStackTrace();
             }
         }
+        if (timeSortedEvents) {
+            /*
+             * the buffers have been sorted by their threads; pass the events on in global time order
+             */
+            PSimEventBuffer.mergeInto(buffers, eventManager);
+            for (PSimEventBuffer buffer : buffers)
+                buffer.clear();
+        }
     }
 
     public class SimThread implements Runnable {
@@ -153,17 +167,36 @@ public class PSim implements Mobsim {
 
         private Network network;
 
+        private PSimEventBuffer eventBuffer;
+
         public void init(Collection<Plan> plans, Network network, EventsManager eventManager) {
+            init(plans, network, eventManager, null);
+        }
+
+        /**
+         * @param eventBuffer if not null, events are written to the buffer, which is sorted by time once all plans are
+         *                    executed, instead of being passed to the events manager directly.
+         */
+        void init(Collection<Plan> plans, Network network, EventsManager eventManager, PSimEventBuffer eventBuffer) {
             this.threadPlans = plans;
             this.network = network;
             this.eventManager = eventManager;
+            this.eventBuffer = eventBuffer;
+        }
+
+        private void processEvent(Event event) {
+            if (eventBuffer == null)
+                eventManager.processEvent(event);
+            else
+                eventBuffer.add(event);
         }
 
         @Override
         public void run() {
+            List<Event> eventQueue = new ArrayList<>();
             PLANS:
             for (Plan plan : threadPlans) {
-                Queue<Event> eventQueue = new LinkedList<>();
+                eventQueue.clear();
                 Id personId = plan.getPerson().getId();
                 List<PlanElement> elements = plan.getPlanElements();
 
@@ -279,12 +312,14 @@ public class PSim implements Mobsim {
                 }
                 for (Event event : eventQueue) {
                     if (event.getTime() > endTime) {
-                        eventManager.processEvent(new PersonStuckEvent(endTime, personId, null, null));
+                        processEvent(new PersonStuckEvent(endTime, personId, null, null));
                         break;
                     }
-                    eventManager.processEvent(event);
+                    processEvent(event);
                 }
             }
+            if (eventBuffer != null)
+                eventBuffer.sort();
 
             numThreads.decrementAndGet();
         }
@@ -336,7 +371,7 @@ public class PSim implements Mobsim {
             }
         }
 
-        private double calcRouteTravelTime(NetworkRoute route, double startTime, TravelTime travelTime, Network network, Queue<Event> eventQueue, Id agentId) {
+        private double calcRouteTravelTime(NetworkRoute route, double startTime, TravelTime travelTime, Network network, List<Event> eventQueue, Id agentId) {
 
             double tt = 0;
             if (route.getStartLinkId() != route.getEndLinkId()) {
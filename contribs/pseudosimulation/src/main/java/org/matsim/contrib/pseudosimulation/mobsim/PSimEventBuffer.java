@@ -0,0 +1,130 @@
+/**
+ *
+ */
+package org.matsim.contrib.pseudosimulation.mobsim;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+
+/**
+ * Thread-local event buffer for {@link PSim}, storing event times and events in two parallel arrays.
+ * Each simulation thread fills its own buffer and sorts it by time; the buffers of all threads are then
+ * merged by time into the events manager by a single thread.
+ */
+final class PSimEventBuffer {
+
+    private double[] times;
+    private Event[] events;
+    private int size = 0;
+
+    PSimEventBuffer(int initialCapacity) {
+        initialCapacity = Math.max(initialCapacity, 16);
+        this.times = new double[initialCapacity];
+        this.events = new Event[initialCapacity];
+    }
+
+    void add(Event event) {
+        if (size == events.length) {
+            int capacity = size * 2;
+            times = Arrays.copyOf(times, capacity);
+            events = Arrays.copyOf(events, capacity);
+        }
+        times[size] = event.getTime();
+        events[size] = event;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Stable sort by time, i.e. events with equal time keep the order in which they were added.
+     */
+    void sort() {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+        int[] buffer = new int[size];
+        // bottom-up merge sort; the plans of a thread produce long ascending runs
+        for (int width = 1; width < size; width *= 2) {
+            for (int lo = 0; lo < size - width; lo += 2 * width) {
+                int mid = lo + width;
+                int hi = Math.min(lo + 2 * width, size);
+                if (Double.compare(times[order[mid - 1]], times[order[mid]]) <= 0)
+                    continue;
+                System.arraycopy(order, lo, buffer, lo, hi - lo);
+                int i = lo, j = mid, k = lo;
+                while (i < mid && j < hi)
+                    order[k++] = Double.compare(times[buffer[j]], times[buffer[i]]) < 0 ? buffer[j++] : buffer[i++];
+                while (i < mid)
+                    order[k++] = buffer[i++];
+                while (j < hi)
+                    order[k++] = buffer[j++];
+            }
+        }
+        double[] sortedTimes = new double[times.length];
+        Event[] sortedEvents = new Event[events.length];
+        for (int i = 0; i < size; i++) {
+            sortedTimes[i] = times[order[i]];
+            sortedEvents[i] = events[order[i]];
+        }
+        times = sortedTimes;
+        events = sortedEvents;
+    }
+
+    void clear() {
+        Arrays.fill(events, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Passes the events of all (sorted) buffers to the events manager in time order. Events with equal time are passed on
+     * in the order of the buffers, so that the result does not depend on thread scheduling.
+     */
+    static void mergeInto(PSimEventBuffer[] buffers, EventsManager eventsManager) {
+        int[] position = new int[buffers.length];
+        // binary min-heap of buffer indices, keyed by the time of the next event and then by buffer index
+        int[] heap = new int[buffers.length];
+        int heapSize = 0;
+        for (int b = 0; b < buffers.length; b++) {
+            if (buffers[b] != null && buffers[b].size > 0)
+                heap[heapSize++] = b;
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--)
+            siftDown(heap, heapSize, i, buffers, position);
+        while (heapSize > 0) {
+            int b = heap[0];
+            PSimEventBuffer buffer = buffers[b];
+            eventsManager.processEvent(buffer.events[position[b]]);
+            if (++position[b] == buffer.size)
+                heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize, 0, buffers, position);
+        }
+    }
+
+    private static void siftDown(int[] heap, int heapSize, int i, PSimEventBuffer[] buffers, int[] position) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < heapSize && precedes(heap[left], heap[smallest], buffers, position))
+                smallest = left;
+            if (right < heapSize && precedes(heap[right], heap[smallest], buffers, position))
+                smallest = right;
+            if (smallest == i)
+                return;
+            int tmp = heap[i];
+            heap[i] = heap[smallest];
+            heap[smallest] = tmp;
+            i = smallest;
+        }
+    }
+
+    private static boolean precedes(int a, int b, PSimEventBuffer[] buffers, int[] position) {
+        int c = Double.compare(buffers[a].times[position[a]], buffers[b].times[position[b]]);
+        return c < 0 || (c == 0 && a < b);
+    }
+}
@@ -23,7 +23,9 @@ public class ReplacePlanFromSlave implements PlanStrategy {
 //		however, this doesn't have to be the case for all scenarios.
 //		person.removePlan(person.getSelectedPlan());
 		Plan plan = plans.get(person.getId().toString());
-		person.addPlan(plan);	
+		// unchanged plans are kept from one transmission to the next, so the person may already hold this one
+		if (!person.getPlans().contains(plan))
+			person.addPlan(plan);
 		person.setSelectedPlan(plan);
 
 	}
@@ -0,0 +1,67 @@
+package org.matsim.contrib.pseudosimulation.distributed;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.contrib.pseudosimulation.distributed.plans.PlanGenome;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class PersonSerializableTest {
+
+    @Test
+    public void testWriteReadList() throws IOException {
+        Population population = PlanSerializableTest.createPopulation();
+        Person person1 = population.getPersons().get(Id.createPersonId("1"));
+        person1.addPlan(PlanSerializableTest.createPlan(person1, 7 * 3600.));
+        PlanGenome selectedPlan = PlanSerializableTest.createPlan(person1, 8 * 3600.);
+        person1.addPlan(selectedPlan);
+        person1.setSelectedPlan(selectedPlan);
+        Person person2 = population.getPersons().get(Id.createPersonId("2"));
+        person2.addPlan(PlanSerializableTest.createPlan(person2, 9 * 3600.));
+        person2.setSelectedPlan(person2.getPlans().get(0));
+
+        List<PersonSerializable> persons = new ArrayList<>();
+        persons.add(new PersonSerializable(person1));
+        persons.add(new PersonSerializable(person2));
+        byte[] bytes = toBytes(persons);
+        List<PersonSerializable> read = PersonSerializable.readList(new DataInputStream(new ByteArrayInputStream(bytes)));
+        Assert.assertArrayEquals(bytes, toBytes(read));
+
+        Person readPerson1 = read.get(0).getPerson();
+        Assert.assertEquals(person1.getId(), readPerson1.getId());
+        Assert.assertEquals(2, readPerson1.getPlans().size());
+        Assert.assertSame(readPerson1.getPlans().get(1), readPerson1.getSelectedPlan());
+        Assert.assertSame(readPerson1, readPerson1.getSelectedPlan().getPerson());
+        Assert.assertEquals(8 * 3600., ((Activity) readPerson1.getSelectedPlan().getPlanElements().get(0)).getEndTime(), 0.0);
+
+        Person readPerson2 = read.get(1).getPerson();
+        Assert.assertEquals(person2.getId(), readPerson2.getId());
+        Assert.assertEquals(1, readPerson2.getPlans().size());
+        Assert.assertSame(readPerson2.getPlans().get(0), readPerson2.getSelectedPlan());
+    }
+
+    @Test
+    public void testEmptyList() throws IOException {
+        byte[] bytes = toBytes(Collections.<PersonSerializable>emptyList());
+        Assert.assertTrue(PersonSerializable.readList(new DataInputStream(new ByteArrayInputStream(bytes))).isEmpty());
+    }
+
+    private static byte[] toBytes(List<PersonSerializable> persons) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        PersonSerializable.writeList(out, persons);
+        out.flush();
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,180 @@
+package org.matsim.contrib.pseudosimulation.distributed;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.contrib.pseudosimulation.distributed.plans.PlanGenome;
+import org.matsim.contrib.pseudosimulation.distributed.scoring.PlanScoreComponent;
+import org.matsim.contrib.pseudosimulation.distributed.scoring.ScoreComponentType;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PlanSerializableTest {
+
+    @Test
+    public void testWriteRead() throws IOException {
+        Population population = createPopulation();
+        PlanGenome plan = createPlan(population.getPersons().get(Id.createPersonId("1")), 8 * 3600.);
+
+        byte[] bytes = toBytes(new PlanSerializable(plan));
+        PlanSerializable read = new PlanSerializable(new DataInputStream(new ByteArrayInputStream(bytes)));
+        Assert.assertArrayEquals(bytes, toBytes(read));
+
+        PlanGenome readPlan = (PlanGenome) read.getPlan(population);
+        Assert.assertSame(population.getPersons().get(Id.createPersonId("1")), readPlan.getPerson());
+        Assert.assertEquals(12.5, readPlan.getScore(), 0.0);
+        Assert.assertEquals(3.5, readPlan.getpSimScore(), 0.0);
+        Assert.assertEquals("genome", readPlan.getGenome());
+        Assert.assertEquals(1, readPlan.getAltScoreComponents().size());
+        Assert.assertEquals(ScoreComponentType.Leg, readPlan.getAltScoreComponents().get(0).getType());
+        Assert.assertEquals(plan.getPlanElements().size(), readPlan.getPlanElements().size());
+
+        Activity home = (Activity) readPlan.getPlanElements().get(0);
+        Assert.assertEquals("home", home.getType());
+        Assert.assertEquals(new Coord(0, 0), home.getCoord());
+        Assert.assertEquals(Id.createLinkId("1"), home.getLinkId());
+        Assert.assertEquals(8 * 3600., home.getEndTime(), 0.0);
+
+        Leg car = (Leg) readPlan.getPlanElements().get(1);
+        Assert.assertEquals(TransportMode.car, car.getMode());
+        Assert.assertEquals(Arrays.asList(Id.createLinkId("2"), Id.createLinkId("3")), ((NetworkRoute) car.getRoute()).getLinkIds());
+        Assert.assertEquals(Id.createLinkId("4"), car.getRoute().getEndLinkId());
+
+        Leg walk = (Leg) readPlan.getPlanElements().get(3);
+        Assert.assertEquals(TransportMode.walk, walk.getMode());
+        Assert.assertEquals(Id.createLinkId("1"), walk.getRoute().getEndLinkId());
+        Assert.assertEquals(350., walk.getRoute().getDistance(), 0.0);
+    }
+
+    @Test
+    public void testOnlyChangesAreTransmitted() throws IOException {
+        Population population = createPopulation();
+        Person person1 = population.getPersons().get(Id.createPersonId("1"));
+        Person person2 = population.getPersons().get(Id.createPersonId("2"));
+        PlanDeltaWriter writer = new PlanDeltaWriter();
+        Map<String, Plan> received = new HashMap<>();
+
+        // first transmission: everything is sent
+        PlanGenome plan1 = createPlan(person1, 8 * 3600.);
+        PlanGenome plan2 = createPlan(person2, 9 * 3600.);
+        Assert.assertEquals(2, transmit(writer, received, population, plan1, plan2));
+        Assert.assertEquals(2, received.size());
+        Plan received1 = received.get("1");
+        Plan received2 = received.get("2");
+
+        // nothing changed: only the three counts are sent, and the received plans are kept
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        writer.write(new DataOutputStream(buffer), Arrays.asList(new PlanSerializable(plan1), new PlanSerializable(plan2)));
+        Assert.assertEquals(0, writer.getNumberOfChangedPlans());
+        Assert.assertEquals(0, writer.getNumberOfChangedScores());
+        Assert.assertEquals(3 * 4, buffer.size());
+        Assert.assertEquals(0, PlanDeltaWriter.read(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())), received, population));
+        Assert.assertSame(received1, received.get("1"));
+        Assert.assertSame(received2, received.get("2"));
+
+        // only the score changed: the received plan is kept and gets the new scores
+        plan1.setScore(-4.0);
+        plan1.setpSimScore(-2.0);
+        Assert.assertEquals(0, transmit(writer, received, population, plan1, plan2));
+        Assert.assertEquals(1, writer.getNumberOfChangedScores());
+        Assert.assertSame(received1, received.get("1"));
+        Assert.assertEquals(-4.0, received1.getScore(), 0.0);
+        Assert.assertEquals(-2.0, ((PlanGenome) received1).getpSimScore(), 0.0);
+
+        // the plan changed: it is sent and converted again
+        PlanGenome changedPlan2 = createPlan(person2, 10 * 3600.);
+        Assert.assertEquals(1, transmit(writer, received, population, plan1, changedPlan2));
+        Assert.assertSame(received1, received.get("1"));
+        Assert.assertNotSame(received2, received.get("2"));
+        Assert.assertEquals(10 * 3600., ((Activity) received.get("2").getPlanElements().get(0)).getEndTime(), 0.0);
+
+        // a person left the slave
+        Assert.assertEquals(0, transmit(writer, received, population, changedPlan2));
+        Assert.assertEquals(1, received.size());
+        Assert.assertFalse(received.containsKey("1"));
+
+        // ... and came back: the plan has to be sent in full again
+        Assert.assertEquals(1, transmit(writer, received, population, plan1, changedPlan2));
+        Assert.assertEquals(-4.0, received.get("1").getScore(), 0.0);
+    }
+
+    private static int transmit(PlanDeltaWriter writer, Map<String, Plan> received, Population population, Plan... plans) throws IOException {
+        ArrayList<PlanSerializable> planSerializables = new ArrayList<>();
+        for (Plan plan : plans)
+            planSerializables.add(new PlanSerializable(plan));
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        writer.write(new DataOutputStream(buffer), planSerializables);
+        return PlanDeltaWriter.read(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())), received, population);
+    }
+
+    static byte[] toBytes(PlanSerializable plan) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        plan.write(out);
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    static Population createPopulation() {
+        Population population = ScenarioUtils.createScenario(ConfigUtils.createConfig()).getPopulation();
+        population.addPerson(population.getFactory().createPerson(Id.createPersonId("1")));
+        population.addPerson(population.getFactory().createPerson(Id.createPersonId("2")));
+        return population;
+    }
+
+    static PlanGenome createPlan(Person person, double homeEndTime) {
+        PlanGenome plan = new PlanGenome(person);
+        plan.setScore(12.5);
+        plan.setpSimScore(3.5);
+        plan.setGenome("genome");
+        ArrayList<PlanScoreComponent> scoreComponents = new ArrayList<>();
+        scoreComponents.add(new PlanScoreComponent(ScoreComponentType.Leg, -1.5, "car"));
+        plan.setScoreComponents(scoreComponents);
+
+        Activity home = PopulationUtils.createActivityFromCoordAndLinkId("home", new Coord(0, 0), Id.createLinkId("1"));
+        home.setEndTime(homeEndTime);
+        plan.addActivity(home);
+
+        Leg car = PopulationUtils.createLeg(TransportMode.car);
+        car.setDepartureTime(homeEndTime);
+        car.setTravelTime(600.);
+        NetworkRoute networkRoute = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId("1"), Id.createLinkId("4"));
+        networkRoute.setLinkIds(Id.createLinkId("1"), Arrays.<Id<Link>>asList(Id.createLinkId("2"), Id.createLinkId("3")), Id.createLinkId("4"));
+        networkRoute.setDistance(2000.);
+        car.setRoute(networkRoute);
+        plan.addLeg(car);
+
+        Activity work = PopulationUtils.createActivityFromCoordAndLinkId("work", new Coord(2000, 0), Id.createLinkId("4"));
+        work.setEndTime(17 * 3600.);
+        plan.addActivity(work);
+
+        Leg walk = PopulationUtils.createLeg(TransportMode.walk);
+        walk.setRoute(RouteUtils.createGenericRouteImpl(Id.createLinkId("4"), Id.createLinkId("1")));
+        walk.getRoute().setDistance(350.);
+        plan.addLeg(walk);
+
+        plan.addActivity(PopulationUtils.createActivityFromCoordAndLinkId("home", new Coord(0, 0), Id.createLinkId("1")));
+        return plan;
+    }
+}
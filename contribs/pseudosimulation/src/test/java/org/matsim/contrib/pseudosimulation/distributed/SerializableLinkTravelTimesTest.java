@@ -0,0 +1,105 @@
+package org.matsim.contrib.pseudosimulation.distributed;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.TravelTime;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+public class SerializableLinkTravelTimesTest {
+
+    private static final int BIN_SIZE = 900;
+    private static final double END_TIME = 4 * 3600.;
+
+    @Test
+    public void testFullAndChangedOnlyTransmission() throws IOException {
+        Network network = createNetwork();
+        SerializableLinkTravelTimes sent = createTravelTimes(network, null);
+
+        // first transmission: the full table
+        SerializableLinkTravelTimes received = transmit(sent, null, null);
+        assertEqualTravelTimes(network, sent, received);
+
+        // nothing changed: only the flag and the number of changed cells are sent, the received table is kept
+        SerializableLinkTravelTimes unchanged = createTravelTimes(network, null);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        unchanged.write(new DataOutputStream(buffer), sent);
+        Assert.assertEquals(1 + 4, buffer.size());
+        Assert.assertSame(received, SerializableLinkTravelTimes.read(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())), received));
+        assertEqualTravelTimes(network, unchanged, received);
+
+        // one cell changed: it is applied to the received table
+        Link link = network.getLinks().get(Id.createLinkId("2"));
+        SerializableLinkTravelTimes changed = createTravelTimes(network, link);
+        Assert.assertSame(received, transmit(changed, unchanged, received));
+        assertEqualTravelTimes(network, changed, received);
+        Assert.assertEquals(1000., received.getLinkTravelTime(link, 2 * BIN_SIZE + 1, null, null), 0.0);
+    }
+
+    @Test
+    public void testChangedDimensionsSendFullTable() throws IOException {
+        Network network = createNetwork();
+        SerializableLinkTravelTimes sent = createTravelTimes(network, null);
+        SerializableLinkTravelTimes received = transmit(sent, null, null);
+
+        SerializableLinkTravelTimes coarser = new SerializableLinkTravelTimes(sent, 2 * BIN_SIZE, END_TIME, network.getLinks().values());
+        SerializableLinkTravelTimes receivedCoarser = transmit(coarser, sent, received);
+        Assert.assertNotSame(received, receivedCoarser);
+        assertEqualTravelTimes(network, coarser, receivedCoarser);
+    }
+
+    @Test(expected = IOException.class)
+    public void testChangesWithoutFullTableFail() throws IOException {
+        Network network = createNetwork();
+        SerializableLinkTravelTimes sent = createTravelTimes(network, null);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        sent.write(new DataOutputStream(buffer), sent);
+        SerializableLinkTravelTimes.read(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())), null);
+    }
+
+    private static SerializableLinkTravelTimes transmit(SerializableLinkTravelTimes travelTimes, SerializableLinkTravelTimes previouslySent,
+                                                        SerializableLinkTravelTimes previouslyReceived) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        travelTimes.write(new DataOutputStream(buffer), previouslySent);
+        return SerializableLinkTravelTimes.read(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())), previouslyReceived);
+    }
+
+    private static void assertEqualTravelTimes(Network network, TravelTime expected, TravelTime actual) {
+        for (Link link : network.getLinks().values())
+            for (double time = 0; time < END_TIME; time += BIN_SIZE)
+                Assert.assertEquals(expected.getLinkTravelTime(link, time, null, null), actual.getLinkTravelTime(link, time, null, null), 0.0);
+    }
+
+    /**
+     * @param congestedLink if not null, the travel time of this link is increased in the third time bin
+     */
+    private static SerializableLinkTravelTimes createTravelTimes(Network network, final Link congestedLink) {
+        TravelTime travelTime = (link, time, person, vehicle) -> {
+            if (link == congestedLink && (int) (time / BIN_SIZE) == 2)
+                return 1000.;
+            return link.getLength() / link.getFreespeed() + time / 3600.;
+        };
+        return new SerializableLinkTravelTimes(travelTime, BIN_SIZE, END_TIME, network.getLinks().values());
+    }
+
+    private static Network createNetwork() {
+        Network network = NetworkUtils.createNetwork();
+        Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+        Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+        Node node3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(1000, 1000));
+        NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 1000, 10, 1000, 1);
+        NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), node2, node3, 1000, 15, 1000, 1);
+        NetworkUtils.createAndAddLink(network, Id.create("3", Link.class), node3, node1, 1500, 20, 1000, 1);
+        return network;
+    }
+}
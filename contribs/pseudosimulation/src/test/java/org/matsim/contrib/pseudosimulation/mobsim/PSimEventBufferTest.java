@@ -0,0 +1,153 @@
+package org.matsim.contrib.pseudosimulation.mobsim;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class PSimEventBufferTest {
+
+    @Test
+    public void testSortKeepsOrderOfEqualTimes() {
+        PSimEventBuffer buffer = new PSimEventBuffer(0);
+        double[] times = {5, 1, 5, 3, 1, 5, 0, 3};
+        List<Event> added = new ArrayList<>();
+        for (int i = 0; i < times.length; i++) {
+            Event event = new GenericEvent("e" + i, times[i]);
+            added.add(event);
+            buffer.add(event);
+        }
+        buffer.sort();
+
+        List<Event> expected = new ArrayList<>(added);
+        expected.sort(Comparator.comparingDouble(Event::getTime)); // stable
+        Assert.assertEquals(expected, mergeAll(buffer));
+    }
+
+    @Test
+    public void testSortGrowsAndMatchesStableSort() {
+        Random random = new Random(4711);
+        PSimEventBuffer buffer = new PSimEventBuffer(1);
+        List<Event> added = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            // few distinct times, and ascending runs as produced by the plans of a thread
+            Event event = new GenericEvent("e" + i, i % 50 < 40 ? i % 50 : random.nextInt(20));
+            added.add(event);
+            buffer.add(event);
+        }
+        Assert.assertEquals(1000, buffer.size());
+        buffer.sort();
+
+        List<Event> expected = new ArrayList<>(added);
+        expected.sort(Comparator.comparingDouble(Event::getTime));
+        Assert.assertEquals(expected, mergeAll(buffer));
+
+        buffer.clear();
+        Assert.assertEquals(0, buffer.size());
+        Event event = new GenericEvent("after clear", 1);
+        buffer.add(event);
+        buffer.sort();
+        Assert.assertEquals(Collections.singletonList(event), mergeAll(buffer));
+    }
+
+    @Test
+    public void testMergeOrdersEqualTimesByBuffer() {
+        PSimEventBuffer[] buffers = new PSimEventBuffer[4];
+        buffers[0] = new PSimEventBuffer(4);
+        buffers[1] = null; // a thread that did not produce a buffer
+        buffers[2] = new PSimEventBuffer(4); // a thread without events
+        buffers[3] = new PSimEventBuffer(4);
+
+        Event a1 = new GenericEvent("a1", 1);
+        Event a2 = new GenericEvent("a2", 2);
+        Event a3 = new GenericEvent("a3", 2);
+        Event b1 = new GenericEvent("b1", 0);
+        Event b2 = new GenericEvent("b2", 2);
+        Event b3 = new GenericEvent("b3", 3);
+        buffers[0].add(a1);
+        buffers[0].add(a2);
+        buffers[0].add(a3);
+        buffers[3].add(b1);
+        buffers[3].add(b2);
+        buffers[3].add(b3);
+
+        List<Event> expected = new ArrayList<>();
+        expected.add(b1);
+        expected.add(a1);
+        expected.add(a2);
+        expected.add(a3);
+        expected.add(b2);
+        expected.add(b3);
+        Assert.assertEquals(expected, merge(buffers));
+    }
+
+    @Test
+    public void testBuffersFilledAndSortedByDifferentThreads() throws Exception {
+        final int numberOfThreads = 4;
+        final PSimEventBuffer[] buffers = new PSimEventBuffer[numberOfThreads];
+        final List<List<Event>> added = new ArrayList<>();
+        for (int t = 0; t < numberOfThreads; t++)
+            added.add(new ArrayList<Event>());
+
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < numberOfThreads; t++) {
+                final int thread = t;
+                tasks.add(() -> {
+                    Random random = new Random(thread);
+                    PSimEventBuffer buffer = new PSimEventBuffer(16);
+                    for (int i = 0; i < 5000; i++) {
+                        Event event = new GenericEvent(thread + "_" + i, random.nextInt(600));
+                        added.get(thread).add(event);
+                        buffer.add(event);
+                    }
+                    buffer.sort();
+                    buffers[thread] = buffer;
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(tasks))
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        // by time, then by buffer, then by the order in which the events were added
+        List<Event> expected = new ArrayList<>();
+        for (List<Event> events : added)
+            expected.addAll(events);
+        expected.sort(Comparator.comparingDouble(Event::getTime));
+        Assert.assertEquals(expected, merge(buffers));
+    }
+
+    private static List<Event> mergeAll(PSimEventBuffer buffer) {
+        return merge(new PSimEventBuffer[]{buffer});
+    }
+
+    private static List<Event> merge(PSimEventBuffer[] buffers) {
+        final List<Event> processed = new ArrayList<>();
+        EventsManager eventsManager = EventsUtils.createEventsManager();
+        eventsManager.addHandler(new BasicEventHandler() {
+            @Override
+            public void handleEvent(Event event) {
+                processed.add(event);
+            }
+        });
+        PSimEventBuffer.mergeInto(buffers, eventsManager);
+        return processed;
+    }
+}
@@ -43,6 +43,11 @@ public class DatabasedSignalPlan implements SignalPlan {
 
 	private Map<Integer, List<Id<SignalGroup>>> secondInPlanDroppingsMap = new HashMap<>();
 	
+	/**
+	 * for each second in the cycle, the number of seconds to the next second with onsets or droppings, or 0 if there are none at all
+	 */
+	private int[] secondsToNextSwitch;
+	
 	public DatabasedSignalPlan(SignalPlanData planData) {
 		this.data = planData;
 		this.init();
@@ -86,6 +91,21 @@ public class DatabasedSignalPlan implements SignalPlan {
 				droppingSgIds.add(sgdata.getSignalGroupId());
 			}
 		}
+		
+		this.secondsToNextSwitch = new int[this.cycle];
+		if (!this.secondInPlanOnsetsMap.isEmpty() || !this.secondInPlanDroppingsMap.isEmpty()) {
+			// go backwards twice through the cycle, such that the seconds at the end of the cycle see the switches at its beginning
+			int nextSwitch = -1;
+			for (int second = 2 * this.cycle - 1; second >= 0; second--) {
+				int secondInCycle = second % this.cycle;
+				if (nextSwitch >= 0) {
+					this.secondsToNextSwitch[secondInCycle] = nextSwitch - second;
+				}
+				if (this.secondInPlanOnsetsMap.containsKey(secondInCycle) || this.secondInPlanDroppingsMap.containsKey(secondInCycle)) {
+					nextSwitch = second;
+				}
+			}
+		}
 	}
 
 	private int getPositiveModuloByCycleTime(int dividend) {
@@ -108,6 +128,22 @@ public class DatabasedSignalPlan implements SignalPlan {
 	}
 
 	
+	/**
+	 * @return the earliest time after <code>timeSeconds</code> for which {@link #getDroppings(double)} or {@link #getOnsets(double)}
+	 * may return signal groups, or <code>Double.POSITIVE_INFINITY</code> if they never do.
+	 */
+	public double getNextSwitchTime(double timeSeconds) {
+		if (this.secondInPlanOnsetsMap.isEmpty() && this.secondInPlanDroppingsMap.isEmpty()) {
+			return Double.POSITIVE_INFINITY;
+		}
+		int currentSecondInPlan = ((int) (timeSeconds % this.cycle));
+		if (this.secondInPlanOnsetsMap.containsKey(currentSecondInPlan) || this.secondInPlanDroppingsMap.containsKey(currentSecondInPlan)) {
+			// the rest of the current second (if the time step is shorter than a second) belongs to the switch as well
+			return Math.nextUp(timeSeconds);
+		}
+		return Math.floor(timeSeconds) + this.secondsToNextSwitch[currentSecondInPlan];
+	}
+
 	@Override
 	public double getEndTime() {
 		return this.data.getEndTime();
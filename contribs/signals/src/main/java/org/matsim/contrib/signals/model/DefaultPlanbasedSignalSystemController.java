@@ -35,7 +35,7 @@ import org.matsim.api.core.v01.Id;
  * @author dgrether, tthunig
  *
  */
-public class DefaultPlanbasedSignalSystemController extends AbstractSignalController implements SignalController {
+public class DefaultPlanbasedSignalSystemController extends AbstractSignalController implements ScheduledSignalController {
 	
 	private static final Logger log = Logger.getLogger(DefaultPlanbasedSignalSystemController.class);
 	
@@ -62,6 +62,20 @@ public class DefaultPlanbasedSignalSystemController extends AbstractSignalContro
 		}
 	}
 	
+	@Override
+	public double getNextUpdateTime(double timeSeconds) {
+		double nextUpdateTime = this.nextActivePlanCheckTime;
+		if (this.activePlan != null) {
+			if (this.activePlan instanceof DatabasedSignalPlan) {
+				nextUpdateTime = Math.min(nextUpdateTime, ((DatabasedSignalPlan) this.activePlan).getNextSwitchTime(timeSeconds));
+			} else {
+				// unknown plan implementation, ask it every time step
+				nextUpdateTime = Math.nextUp(timeSeconds);
+			}
+		}
+		return nextUpdateTime;
+	}
+	
 	private void processOnsetGroupIds(double timeSeconds, List<Id<SignalGroup>> onsetGroupIds) {
 		if (onsetGroupIds != null){
 			for (Id<SignalGroup> id : onsetGroupIds){
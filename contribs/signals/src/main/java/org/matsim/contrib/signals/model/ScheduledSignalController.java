@@ -0,0 +1,42 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ScheduledSignalController
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.signals.model;
+
+
+/**
+ * A {@link SignalController} that knows in advance when it changes the state of its signal groups next,
+ * e.g. a fixed-time control. The {@link SignalSystemsManagerImpl} only calls {@link #updateState(double)}
+ * of such a controller at these times instead of every time step.
+ * <p></p>
+ * Controllers that react to the traffic (e.g. sensor-based ones) must not implement this interface,
+ * they are still called every time step.
+ */
+public interface ScheduledSignalController extends SignalController {
+
+	/**
+	 * Is called after {@link #updateState(double)}.
+	 *
+	 * @return the earliest time after <code>timeSeconds</code> at which a call of updateState(...) may do anything,
+	 * i.e. all calls before that time may be skipped. <code>Double.POSITIVE_INFINITY</code> if there are no state
+	 * changes anymore.
+	 */
+	public double getNextUpdateTime(double timeSeconds);
+
+}
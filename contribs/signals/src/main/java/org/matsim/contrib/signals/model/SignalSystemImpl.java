@@ -68,6 +68,7 @@ public class SignalSystemImpl implements SignalSystem {
 //		log.debug("dropping  at time " + timeSeconds + " of  group " + signalGroupId);
 		Set<SignalGroupStateChangeRequest> rqs = this.signalManager.getAmberLogic().processDropping(timeSeconds, this.getId(), signalGroupId);
 		requests.addAll(rqs);
+		this.notifySignalManager(timeSeconds);
 	}
 	
 	@Override
@@ -75,6 +76,7 @@ public class SignalSystemImpl implements SignalSystem {
 //		log.debug("onset at time " + timeSeconds + " of  group " + signalGroupId);
 		Set<SignalGroupStateChangeRequest> rqs = this.signalManager.getAmberLogic().processOnsets(timeSeconds, this.getId(), signalGroupId);
 		requests.addAll(rqs);
+		this.notifySignalManager(timeSeconds);
 	}
 	
 	@Override
@@ -102,8 +104,32 @@ public class SignalSystemImpl implements SignalSystem {
 			req.add(new SignalGroupStateChangeRequestImpl(sgId, SignalGroupState.OFF, timeSeconds + SWITCH_OFF_SEQUENCE_LENGTH));
 		}
 		this.sortedRequests.addAll(req);
+		this.notifySignalManager(timeSeconds);
 	}
 
+	/**
+	 * @return the earliest time after <code>timeSeconds</code> at which {@link #updateState(double)} has to be called,
+	 * i.e. the next time the controller wants to be updated or a state change request is due. Only valid if the 
+	 * controller is a {@link ScheduledSignalController}.
+	 */
+	/*package*/ double getNextUpdateTime(double timeSeconds) {
+		double nextUpdateTime = ((ScheduledSignalController) this.signalController).getNextUpdateTime(timeSeconds);
+		SignalGroupStateChangeRequest request = this.sortedRequests.peek();
+		if (request != null) {
+			nextUpdateTime = Math.min(nextUpdateTime, request.getTimeOfDay());
+		}
+		for (SignalGroupStateChangeRequest r : this.requests) {
+			nextUpdateTime = Math.min(nextUpdateTime, r.getTimeOfDay());
+		}
+		return nextUpdateTime;
+	}
+	
+	private void notifySignalManager(double timeSeconds) {
+		// the manager skips systems with scheduled controllers until they have something to do
+		if (this.signalManager instanceof SignalSystemsManagerImpl) {
+			((SignalSystemsManagerImpl) this.signalManager).requestUpdate(this, timeSeconds);
+		}
+	}
 
 	@Override
 	public void simulationInitialized(double simStartTimeSeconds) {
@@ -148,6 +174,7 @@ public class SignalSystemImpl implements SignalSystem {
 			req.add(new SignalGroupStateChangeRequestImpl(sgId, SignalGroupState.START_PLAN, now));
 		}
 		this.sortedRequests.addAll(req);
+		this.notifySignalManager(now);
 	}
 
 }
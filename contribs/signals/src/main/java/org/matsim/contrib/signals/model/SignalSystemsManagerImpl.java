@@ -19,7 +19,12 @@
  * *********************************************************************** */
 package org.matsim.contrib.signals.model;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -28,6 +33,11 @@ import org.matsim.contrib.signals.data.SignalsData;
 import org.matsim.core.api.experimental.events.EventsManager;
 
 /**
+ * Systems with a {@link ScheduledSignalController} (e.g. fixed-time plans) are only updated at the times
+ * they have something to do, taken from a time-ordered queue. All other systems are updated every time step.
+ * Within a time step, the systems are still updated in the order of their ids, so the results do not differ
+ * from updating all systems every time step.
+ * 
  * @author dgrether
  */
 public class SignalSystemsManagerImpl implements SignalSystemsManager {
@@ -42,6 +52,21 @@ public class SignalSystemsManagerImpl implements SignalSystemsManager {
 
 	private IntergreensLogic intergreensLogic = null;
 	
+	/* update schedule, built at the first time step of a simulation */
+	private SignalSystem[] systemsInIdOrder = null;
+	private Map<Id<SignalSystem>, Integer> indexBySystemId;
+	private boolean[] isScheduled;
+	private int[] adaptiveSystemIndices;
+	private double[] nextUpdateTimes;
+	private final PriorityQueue<ScheduledUpdate> updateQueue = new PriorityQueue<>();
+	private double lastUpdateTime = Double.NEGATIVE_INFINITY;
+	
+	/* state of the time step in progress */
+	private final PriorityQueue<Integer> systemsToUpdateInStep = new PriorityQueue<>();
+	private boolean[] isInStep;
+	private double stepTime = Double.NaN;
+	private int currentSystemIndex = -1;
+	
 	public SignalSystemsManagerImpl(SignalsData signalData, EventsManager eventsManager) {
 //		this.signalData = (SignalsData) scenario.getScenarioElement(SignalsData.ELEMENT_NAME);
 		this.signalData = signalData;
@@ -55,8 +80,96 @@ public class SignalSystemsManagerImpl implements SignalSystemsManager {
 	
 	@Override
 	public void requestControlUpdate(double time_sec) {
-		for (SignalSystem system : this.signalSystems.values()){
+		if (this.systemsInIdOrder == null || time_sec < this.lastUpdateTime) {
+			// first time step of a simulation
+			this.initUpdateSchedule();
+		}
+		this.lastUpdateTime = time_sec;
+		this.stepTime = time_sec;
+		while (!this.updateQueue.isEmpty() && this.updateQueue.peek().time <= time_sec) {
+			ScheduledUpdate update = this.updateQueue.poll();
+			if (update.time == this.nextUpdateTimes[update.systemIndex]) { // otherwise outdated
+				this.addToStep(update.systemIndex);
+			}
+		}
+		for (int index : this.adaptiveSystemIndices) {
+			this.addToStep(index);
+		}
+		while (!this.systemsToUpdateInStep.isEmpty()) {
+			int index = this.systemsToUpdateInStep.poll();
+			this.isInStep[index] = false;
+			this.currentSystemIndex = index;
+			SignalSystem system = this.systemsInIdOrder[index];
 			system.updateState(time_sec);
+			if (this.isScheduled[index]) {
+				this.nextUpdateTimes[index] = Double.POSITIVE_INFINITY;
+				this.schedule(index, ((SignalSystemImpl) system).getNextUpdateTime(time_sec));
+			}
+		}
+		this.currentSystemIndex = -1;
+		this.stepTime = Double.NaN;
+	}
+	
+	/**
+	 * Is called by the signal systems when state changes are requested from outside their own update, 
+	 * e.g. by a controller of another system.
+	 */
+	/*package*/ void requestUpdate(SignalSystem system, double timeSeconds) {
+		if (this.systemsInIdOrder == null) {
+			return; // simulation not started yet, all systems are updated in the first time step
+		}
+		Integer index = this.indexBySystemId.get(system.getId());
+		if (index == null || !this.isScheduled[index] || index == this.currentSystemIndex) {
+			// updated every time step anyway or rescheduled after its current update
+			return;
+		}
+		if (timeSeconds <= this.stepTime && index > this.currentSystemIndex) {
+			// the system has not been updated in this time step yet, so it would have seen the request now
+			this.addToStep(index);
+		} else {
+			this.schedule(index, timeSeconds);
+		}
+	}
+	
+	private void initUpdateSchedule() {
+		int size = this.signalSystems.size();
+		this.systemsInIdOrder = this.signalSystems.values().toArray(new SignalSystem[size]);
+		this.indexBySystemId = new HashMap<>();
+		this.isScheduled = new boolean[size];
+		this.isInStep = new boolean[size];
+		this.nextUpdateTimes = new double[size];
+		Arrays.fill(this.nextUpdateTimes, Double.POSITIVE_INFINITY);
+		this.updateQueue.clear();
+		this.systemsToUpdateInStep.clear();
+		List<Integer> adaptiveIndices = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			SignalSystem system = this.systemsInIdOrder[i];
+			this.indexBySystemId.put(system.getId(), i);
+			this.isScheduled[i] = system instanceof SignalSystemImpl && system.getSignalController() instanceof ScheduledSignalController;
+			if (this.isScheduled[i]) {
+				this.schedule(i, Double.NEGATIVE_INFINITY);
+			} else {
+				adaptiveIndices.add(i);
+			}
+		}
+		this.adaptiveSystemIndices = new int[adaptiveIndices.size()];
+		for (int i = 0; i < this.adaptiveSystemIndices.length; i++) {
+			this.adaptiveSystemIndices[i] = adaptiveIndices.get(i);
+		}
+		this.lastUpdateTime = Double.NEGATIVE_INFINITY;
+	}
+	
+	private void schedule(int index, double time) {
+		if (time < this.nextUpdateTimes[index]) {
+			this.nextUpdateTimes[index] = time;
+			this.updateQueue.add(new ScheduledUpdate(time, index));
+		}
+	}
+	
+	private void addToStep(int index) {
+		if (!this.isInStep[index]) {
+			this.isInStep[index] = true;
+			this.systemsToUpdateInStep.add(index);
 		}
 	}
 
@@ -68,6 +181,7 @@ public class SignalSystemsManagerImpl implements SignalSystemsManager {
 	@Override
 	public void addSignalSystem(SignalSystem system) {
 		this.signalSystems.put(system.getId(), system);
+		this.systemsInIdOrder = null;
 	}
 
 	@Override
@@ -83,6 +197,7 @@ public class SignalSystemsManagerImpl implements SignalSystemsManager {
 				signal.getSignalizeableItems().clear();
 			}
 		}
+		this.systemsInIdOrder = null;
 	
 	}
 
@@ -105,5 +220,21 @@ public class SignalSystemsManagerImpl implements SignalSystemsManager {
 	public void setIntergreensLogic(IntergreensLogic logic) {
 		this.intergreensLogic = logic;
 	}
+	
+	private static final class ScheduledUpdate implements Comparable<ScheduledUpdate> {
+		private final double time;
+		private final int systemIndex;
+		
+		ScheduledUpdate(double time, int systemIndex) {
+			this.time = time;
+			this.systemIndex = systemIndex;
+		}
+
+		@Override
+		public int compareTo(ScheduledUpdate o) {
+			int cmp = Double.compare(this.time, o.time);
+			return cmp != 0 ? cmp : Integer.compare(this.systemIndex, o.systemIndex);
+		}
+	}
 
 }
@@ -0,0 +1,200 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SignalSystemsManagerImplTest
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.signals.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.contrib.signals.data.ambertimes.v10.AmberTimesDataImpl;
+import org.matsim.contrib.signals.data.signalcontrol.v20.SignalControlDataFactoryImpl;
+import org.matsim.contrib.signals.data.signalgroups.v20.SignalControlDataFactory;
+import org.matsim.contrib.signals.data.signalgroups.v20.SignalGroupSettingsData;
+import org.matsim.contrib.signals.data.signalgroups.v20.SignalPlanData;
+import org.matsim.contrib.signals.events.SignalGroupStateChangedEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+
+/**
+ * Tests that systems with a {@link ScheduledSignalController}, which the manager only updates at their switch
+ * times, produce the same events as if they were updated every time step.
+ */
+public class SignalSystemsManagerImplTest {
+
+	private static final double END_TIME = 3 * 3600.;
+
+	@Test
+	public void testScheduledUpdatesProduceSameEvents() {
+		assertSameEvents(1.0, false);
+	}
+
+	@Test
+	public void testScheduledUpdatesProduceSameEvents_withAmber() {
+		assertSameEvents(1.0, true);
+	}
+
+	@Test
+	public void testScheduledUpdatesProduceSameEvents_shortTimeSteps() {
+		assertSameEvents(0.5, true);
+	}
+
+	private static void assertSameEvents(double timeStepSize, boolean withAmber) {
+		List<CountingController> controllers = new ArrayList<>();
+		List<String> scheduledEvents = simulate(timeStepSize, withAmber, false, controllers);
+		List<String> everyStepEvents = simulate(timeStepSize, withAmber, true, new ArrayList<CountingController>());
+
+		Assert.assertFalse(everyStepEvents.isEmpty());
+		Assert.assertEquals(everyStepEvents, scheduledEvents);
+
+		int numberOfTimeSteps = (int) (END_TIME / timeStepSize) + 1;
+		for (CountingController controller : controllers) {
+			Assert.assertTrue("controller was updated every time step", controller.numberOfUpdates < numberOfTimeSteps / 2);
+		}
+	}
+
+	/**
+	 * Three systems: the first runs two plans one after the other and is switched off afterwards, the second runs one plan
+	 * for the whole day, the third starts after the simulation start and is switched off before its end. Some signal
+	 * groups are green across the end of the cycle, and all plans have an offset.
+	 */
+	private static List<String> simulate(double timeStepSize, boolean withAmber, boolean updateEveryStep, List<CountingController> controllers) {
+		EventsManager events = EventsUtils.createEventsManager();
+		final List<String> signalEvents = new ArrayList<>();
+		events.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				Assert.assertTrue(event instanceof SignalGroupStateChangedEvent);
+				signalEvents.add(event.getAttributes().toString());
+			}
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+		SignalSystemsManagerImpl manager = new SignalSystemsManagerImpl(null, events);
+		if (withAmber) {
+			AmberTimesDataImpl amberTimes = new AmberTimesDataImpl();
+			amberTimes.setDefaultAmber(3);
+			amberTimes.setDefaultRedAmber(1);
+			manager.setAmberLogic(new AmberLogicImpl(amberTimes));
+		}
+
+		SignalControlDataFactory factory = new SignalControlDataFactoryImpl();
+		addSystem(manager, "1", updateEveryStep, controllers,
+				createPlan(factory, "1a", 0., 3600., 60, 7, new int[][] {{0, 30}, {35, 55}}),
+				createPlan(factory, "1b", 3600., 7200., 90, 0, new int[][] {{10, 50}, {55, 85}}));
+		addSystem(manager, "2", updateEveryStep, controllers,
+				createPlan(factory, "2a", 0., 24 * 3600., 70, 50, new int[][] {{60, 15}, {20, 55}}));
+		addSystem(manager, "3", updateEveryStep, controllers,
+				createPlan(factory, "3a", 1800., 5400., 45, 13, new int[][] {{40, 5}, {10, 35}}));
+
+		for (SignalSystem system : manager.getSignalSystems().values()) {
+			system.simulationInitialized(0.);
+		}
+		for (double time = 0.; time <= END_TIME; time += timeStepSize) {
+			manager.requestControlUpdate(time);
+		}
+		return signalEvents;
+	}
+
+	private static SignalPlanData createPlan(SignalControlDataFactory factory, String id, double startTime, double endTime,
+			int cycleTime, int offset, int[][] onsetsAndDroppings) {
+		SignalPlanData plan = factory.createSignalPlanData(Id.create(id, SignalPlan.class));
+		plan.setStartTime(startTime);
+		plan.setEndTime(endTime);
+		plan.setCycleTime(cycleTime);
+		plan.setOffset(offset);
+		for (int i = 0; i < onsetsAndDroppings.length; i++) {
+			SignalGroupSettingsData settings = factory.createSignalGroupSettingsData(Id.create(i, SignalGroup.class));
+			settings.setOnset(onsetsAndDroppings[i][0]);
+			settings.setDropping(onsetsAndDroppings[i][1]);
+			plan.addSignalGroupSettings(settings);
+		}
+		return plan;
+	}
+
+	private static void addSystem(SignalSystemsManagerImpl manager, String id, boolean updateEveryStep, List<CountingController> controllers,
+			SignalPlanData... plans) {
+		SignalSystem system = new SignalSystemImpl(Id.create(id, SignalSystem.class));
+		manager.addSignalSystem(system);
+		system.setSignalSystemsManager(manager);
+		for (Id<SignalGroup> groupId : plans[0].getSignalGroupSettingsDataByGroupId().keySet()) {
+			system.addSignalGroup(new SignalGroupImpl(groupId));
+		}
+		CountingController controller = new CountingController();
+		controllers.add(controller);
+		SignalController systemController = updateEveryStep ? new EveryStepController(controller) : controller;
+		systemController.setSignalSystem(system);
+		system.setSignalSystemController(systemController);
+		for (SignalPlanData plan : plans) {
+			systemController.addPlan(new DatabasedSignalPlan(plan));
+		}
+	}
+
+	private static final class CountingController extends DefaultPlanbasedSignalSystemController {
+		private int numberOfUpdates = 0;
+
+		@Override
+		public void updateState(double timeSeconds) {
+			this.numberOfUpdates++;
+			super.updateState(timeSeconds);
+		}
+	}
+
+	/**
+	 * Hides that the delegate is a {@link ScheduledSignalController}, so the manager updates it every time step.
+	 */
+	private static final class EveryStepController implements SignalController {
+		private final SignalController delegate;
+
+		EveryStepController(SignalController delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void updateState(double timeSeconds) {
+			this.delegate.updateState(timeSeconds);
+		}
+
+		@Override
+		public void addPlan(SignalPlan plan) {
+			this.delegate.addPlan(plan);
+		}
+
+		@Override
+		public void reset(Integer iterationNumber) {
+			this.delegate.reset(iterationNumber);
+		}
+
+		@Override
+		public void simulationInitialized(double simStartTimeSeconds) {
+			this.delegate.simulationInitialized(simStartTimeSeconds);
+		}
+
+		@Override
+		public void setSignalSystem(SignalSystem signalSystem) {
+			this.delegate.setSignalSystem(signalSystem);
+		}
+	}
+
+}
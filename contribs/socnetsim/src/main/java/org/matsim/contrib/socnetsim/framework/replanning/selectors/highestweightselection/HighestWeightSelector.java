@@ -19,7 +19,11 @@
  * *********************************************************************** */
 package org.matsim.contrib.socnetsim.framework.replanning.selectors.highestweightselection;
 
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -29,6 +33,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.population.Person;
@@ -49,6 +54,12 @@ import org.matsim.contrib.socnetsim.framework.replanning.selectors.WeightCalcula
  * <br>
  * To do so, it iteratively constructs the joint plan using a branch-and-bound
  * approach, which avoids exploring the full set of combinations.
+ * <br>
+ * The result is remembered per group, and re-used as long as the plans
+ * of the group, their joint plans, weights and incompatibility groups
+ * do not change. Only the persons of the groups, via weak references, and
+ * the indices of the selected plans are remembered, so that neither removed
+ * plans nor removed persons are kept in memory.
  * @author thibautd
  */
 public final class HighestWeightSelector implements GroupLevelPlanSelector {
@@ -57,6 +68,10 @@ public final class HighestWeightSelector implements GroupLevelPlanSelector {
 	private final WeightCalculator weightCalculator;
 	private final IncompatiblePlansIdentifierFactory incompFactory;
 
+	// key: first person of the group
+	private final Map<Person, CachedSelection> lastSelections =
+		Collections.synchronizedMap( new WeakHashMap<Person, CachedSelection>() );
+
 	public HighestWeightSelector(
 			final IncompatiblePlansIdentifierFactory incompFactory,
 			final WeightCalculator weightCalculator) {
@@ -90,6 +105,16 @@ public final class HighestWeightSelector implements GroupLevelPlanSelector {
 					incompatiblePlansIdentifier,
 					personRecords );
 
+		final Person groupKey = group.getPersons().isEmpty() ? null : group.getPersons().get( 0 );
+		final SelectionSignature signature = new SelectionSignature( personRecords.values() );
+		if ( groupKey != null ) {
+			final CachedSelection cached = lastSelections.get( groupKey );
+			if ( cached != null && cached.signature.equals( signature ) ) {
+				return cached.planIndices == null ? null :
+					toGroupPlans( personRecords.values() , cached.planIndices );
+			}
+		}
+
 		PersonRecordsPlansPruner.prunePlans(
 				incompatibleRecords,
 				personRecords );
@@ -101,7 +126,7 @@ public final class HighestWeightSelector implements GroupLevelPlanSelector {
 				SelectorUtils.toSortedList( incompatibleRecords , personRecords ),
 				personRecords,
 				forbidBlockingCombinations ? new PlanAllocation() : null,
-				incompatibleRecords.getAllIncompatibilityGroupIds(),
+				incompatibleRecords.getAllIncompatibilityGroups(),
 				Double.NEGATIVE_INFINITY).allocation;
 
 		assert allocation == null || allocation.getPlans().size() == group.getPersons().size() :
@@ -109,9 +134,52 @@ public final class HighestWeightSelector implements GroupLevelPlanSelector {
 
 		final GroupPlans plans = allocation == null ? null : SelectorUtils.toGroupPlans( allocation );
 
+		if ( groupKey != null ) {
+			lastSelections.put(
+					groupKey,
+					new CachedSelection(
+						signature,
+						toPlanIndices( personRecords.values() , allocation ) ) );
+		}
+
 		return plans;
 	}
 
+	/**
+	 * @return the index of the selected plan in {@link PersonRecord#plans}, for each person
+	 */
+	private static int[] toPlanIndices(
+			final Collection<PersonRecord> persons,
+			final PlanAllocation allocation ) {
+		if ( allocation == null ) return null;
+
+		final Set<Plan> selectedPlans = new HashSet<Plan>();
+		for ( PlanRecord p : allocation.getPlans() ) selectedPlans.add( p.plan );
+
+		final int[] indices = new int[ persons.size() ];
+		int i = 0;
+		for ( PersonRecord person : persons ) {
+			indices[ i ] = -1;
+			for ( int j = 0; j < person.plans.size(); j++ ) {
+				if ( selectedPlans.contains( person.plans.get( j ).plan ) ) indices[ i ] = j;
+			}
+			assert indices[ i ] >= 0 : "no plan selected for "+person;
+			i++;
+		}
+		return indices;
+	}
+
+	private static GroupPlans toGroupPlans(
+			final Collection<PersonRecord> persons,
+			final int[] planIndices ) {
+		final PlanAllocation allocation = new PlanAllocation();
+		int i = 0;
+		for ( PersonRecord person : persons ) {
+			allocation.add( person.plans.get( planIndices[ i++ ] ) );
+		}
+		return SelectorUtils.toGroupPlans( allocation );
+	}
+
 	// /////////////////////////////////////////////////////////////////////////
 	// "translation" to and from the internal data structures
 	// /////////////////////////////////////////////////////////////////////////
@@ -190,6 +258,8 @@ public final class HighestWeightSelector implements GroupLevelPlanSelector {
 	 * @param alreadyAllocatedPersons set of the ids of the already allocated persons,
 	 * used to determine which joint plans are stil possible
 	 * @param str the PlanString of the plan constructed until now
+	 * @param allowedIncompatibilityGroups the indices of the incompatibility groups
+	 * no selected plan pertains to
 	 */
 	private AllocationRecord buildPlanString(
 			final KnownStates knownStates,
@@ -199,11 +269,12 @@ public final class HighestWeightSelector implements GroupLevelPlanSelector {
 			final Map<Id, PersonRecord> allPersons,
 			// needed to check whether a leave is forbidden or not
 			final PlanAllocation currentAllocation,
-			final Set<Id> allowedIncompatibilityGroups,
+			final BitSet allowedIncompatibilityGroups,
 			final double minimalWeightToObtain) {
+		final BitSet personsKey = knownStates == null ? null : toBitSet( personsStillToAllocate );
 		if ( knownStates != null &&
 				knownStates.isUnfeasible(
-					personsStillToAllocate,
+					personsKey,
 					allowedIncompatibilityGroups,
 					minimalWeightToObtain) ) {
 			assert null ==
@@ -222,7 +293,7 @@ public final class HighestWeightSelector implements GroupLevelPlanSelector {
 		/*scope of cachedAlloc*/ {
 			final PlanAllocation cachedAlloc = knownStates == null ? null :
 				knownStates.getCached(
-					personsStillToAllocate,
+					personsKey,
 					allowedIncompatibilityGroups );
 
 			if ( cachedAlloc != null ) {
@@ -426,7 +497,7 @@ public final class HighestWeightSelector implements GroupLevelPlanSelector {
 
 		if ( knownStates != null && !resultsFromBlocking ) {
 			knownStates.cache(
-					personsStillToAllocate,
+					personsKey,
 					allowedIncompatibilityGroups,
 					constructedString ,
 					minimalWeightToObtain);
@@ -446,20 +517,30 @@ public final class HighestWeightSelector implements GroupLevelPlanSelector {
 				Double.NEGATIVE_INFINITY);
 	}
 
-	private static Set<Id> newIncompatibilityGroups(
+	private static BitSet newIncompatibilityGroups(
 			final IncompatiblePlanRecords incompatibleRecords,
-			final Set<Id> allowedIncompatibilityGroups,
+			final BitSet allowedIncompatibilityGroups,
 			final PlanRecord r ) {
-		final Set<Id> forbid = incompatibleRecords.getIncompatibilityGroups( r );
+		final BitSet forbid = incompatibleRecords.getIncompatibilityGroupBits( r );
 
-		if ( forbid.isEmpty() ) return allowedIncompatibilityGroups;
+		if ( !forbid.intersects( allowedIncompatibilityGroups ) ) return allowedIncompatibilityGroups;
 
-		final Set<Id> newSet = new HashSet<Id>( allowedIncompatibilityGroups );
-		newSet.removeAll( forbid );
+		// the sets are used as keys in the known states: never modify them
+		final BitSet newSet = (BitSet) allowedIncompatibilityGroups.clone();
+		newSet.andNot( forbid );
 
 		return newSet;
 	}
 
+	private static BitSet toBitSet( final List<PersonRecord> persons ) {
+		final BitSet bits = new BitSet();
+		for ( PersonRecord p : persons ) {
+			assert p.index >= 0;
+			bits.set( p.index );
+		}
+		return bits;
+	}
+
 	private static void weightPlanRecords(
 			final IncompatiblePlanRecords incompatibleRecords,
 			final Collection<PlanRecord> records,
@@ -543,6 +624,79 @@ public final class HighestWeightSelector implements GroupLevelPlanSelector {
 	}
 }
 
+/**
+ * Everything the result of the search depends on.
+ * The persons, plans and joint plans are only referenced weakly, and compared
+ * by identity: once one of them is collected, the signature does not equal
+ * any other one.
+ */
+final class SelectionSignature {
+	// null for plans without joint plan
+	private final List<Reference<Object>> references = new ArrayList<Reference<Object>>();
+	private final List<Set<Id>> incompatibilityGroups = new ArrayList<Set<Id>>();
+	private final double[] weights;
+
+	public SelectionSignature( final Collection<PersonRecord> persons ) {
+		int nPlans = 0;
+		for ( PersonRecord person : persons ) nPlans += person.plans.size();
+		this.weights = new double[ nPlans ];
+
+		int i = 0;
+		for ( PersonRecord person : persons ) {
+			addReference( person.person );
+			for ( PlanRecord plan : person.plans ) {
+				addReference( plan.plan );
+				addReference( plan.jointPlan );
+				incompatibilityGroups.add( plan.getIncompatibilityGroups() );
+				weights[ i++ ] = plan.avgJointPlanWeight;
+			}
+		}
+	}
+
+	private void addReference( final Object o ) {
+		references.add( o == null ? null : new WeakReference<Object>( o ) );
+	}
+
+	@Override
+	public boolean equals( final Object o ) {
+		if ( !( o instanceof SelectionSignature ) ) return false;
+		final SelectionSignature other = (SelectionSignature) o;
+		if ( !Arrays.equals( other.weights , weights ) ||
+				!other.incompatibilityGroups.equals( incompatibilityGroups ) ||
+				other.references.size() != references.size() ) return false;
+
+		for ( int i = 0; i < references.size(); i++ ) {
+			final Reference<Object> ref = references.get( i );
+			final Reference<Object> otherRef = other.references.get( i );
+			if ( ref == null || otherRef == null ) {
+				if ( ref != otherRef ) return false;
+				continue;
+			}
+			final Object referent = ref.get();
+			if ( referent == null || referent != otherRef.get() ) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode( weights );
+	}
+}
+
+class CachedSelection {
+	public final SelectionSignature signature;
+	// null if there was no feasible allocation
+	public final int[] planIndices;
+
+	public CachedSelection(
+			final SelectionSignature signature,
+			final int[] planIndices) {
+		this.signature = signature;
+		this.planIndices = planIndices;
+	}
+}
+
 class AllocationRecord {
 	public final PlanAllocation allocation;
 	public final boolean resultsFromBlocking;
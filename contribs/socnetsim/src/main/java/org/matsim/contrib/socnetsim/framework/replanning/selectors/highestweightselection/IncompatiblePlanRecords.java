@@ -19,40 +19,64 @@
  * *********************************************************************** */
 package org.matsim.contrib.socnetsim.framework.replanning.selectors.highestweightselection;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.matsim.api.core.v01.Id;
 
-import org.matsim.core.utils.collections.MapUtils;
 import org.matsim.contrib.socnetsim.framework.replanning.selectors.IncompatiblePlansIdentifier;
 
 /**
+ * Identifies the plans which cannot be selected together.
+ * <br>
+ * Persons, plans and incompatibility groups are indexed, so that sets of them
+ * can be represented as {@link BitSet}s: the incompatible plans of a plan
+ * are computed as the union of a few bit sets, and the search can use the
+ * (cheap to copy, hash and compare) bit sets as keys.
+ *
  * @author thibautd
  */
 final class IncompatiblePlanRecords {
-	private final Set<Id> allIncompatibilityGroupIds;
+	private final BitSet allIncompatibilityGroups = new BitSet();
 
-	private final Map<Id, Collection<PlanRecord>> plansPerGroup = new HashMap<Id, Collection<PlanRecord>>();
+	private final List<PlanRecord> plansByIndex = new ArrayList<PlanRecord>();
+	// plan indices per incompatibility group index
+	private final List<BitSet> plansPerGroup = new ArrayList<BitSet>();
 
 	public IncompatiblePlanRecords(
 			final IncompatiblePlansIdentifier identifier,
 			final Map<Id, PersonRecord> personRecords) {
-		final HashSet<Id> ids = new HashSet<Id>();
-		this.allIncompatibilityGroupIds = Collections.unmodifiableSet( ids );
+		final Map<Id, Integer> groupIndices = new HashMap<Id, Integer>();
+
+		int personIndex = 0;
 		for ( PersonRecord person : personRecords.values() ) {
+			person.index = personIndex++;
 			for ( PlanRecord plan : person.plans ) {
-				for ( Id group : identifyGroups( identifier , plan ) ) {
-					MapUtils.getCollection( group , plansPerGroup ).add( plan );
-					ids.add( group );
+				plan.index = plansByIndex.size();
+				plansByIndex.add( plan );
+
+				final Set<Id> groups = identifyGroups( identifier , plan );
+				final BitSet groupBits = new BitSet();
+				for ( Id group : groups ) {
+					Integer groupIndex = groupIndices.get( group );
+					if ( groupIndex == null ) {
+						groupIndex = groupIndices.size();
+						groupIndices.put( group , groupIndex );
+						plansPerGroup.add( new BitSet() );
+					}
+					plansPerGroup.get( groupIndex ).set( plan.index );
+					groupBits.set( groupIndex );
 				}
-				plan.setIncompatibilityGroups( identifyGroups( identifier , plan ) );
+				plan.setIncompatibilityGroups( groups );
+				plan.incompatibilityGroupBits = groupBits;
 			}
 		}
+		allIncompatibilityGroups.set( 0 , groupIndices.size() );
 	}
 
 	private static Set<Id> identifyGroups(
@@ -63,53 +87,58 @@ final class IncompatiblePlanRecords {
 			identifier.identifyIncompatibilityGroups( plan.jointPlan );
 	}
 
-	public Set<Id> getAllIncompatibilityGroupIds() {
-		return allIncompatibilityGroupIds;
+	/**
+	 * @return the indices of all incompatibility groups. Must not be modified.
+	 */
+	public BitSet getAllIncompatibilityGroups() {
+		return allIncompatibilityGroups;
 	}
 
 	public Collection<PlanRecord> getIncompatiblePlans( final PlanRecord record ) {
 		if ( record.getIncompatiblePlans() == null ) {
 			record.setIncompatiblePlans(
 					calcIncompatiblePlans(
-						plansPerGroup,
 						record));
 		}
 
 		return record.getIncompatiblePlans();
 	}
 
-	private static Collection<PlanRecord> calcIncompatiblePlans(
-			final Map<Id, Collection<PlanRecord>> plansPerGroup,
+	private Collection<PlanRecord> calcIncompatiblePlans(
 			final PlanRecord record) {
-		final Collection<PlanRecord> incompatible = new HashSet<PlanRecord>();
+		final BitSet incompatible = new BitSet( plansByIndex.size() );
 
 		addLinkedPlansOfOtherPlansOfPerson( incompatible , record );
 		addLinkedPlansOfPartners( incompatible , record );
-		addIncompatiblePlans( incompatible , plansPerGroup , record );
+		addIncompatiblePlans( incompatible , record );
 
-		return incompatible;
+		final List<PlanRecord> plans = new ArrayList<PlanRecord>( incompatible.cardinality() );
+		for ( int i = incompatible.nextSetBit( 0 ); i >= 0; i = incompatible.nextSetBit( i + 1 ) ) {
+			plans.add( plansByIndex.get( i ) );
+		}
+		return plans;
 	}
 
-	private static void addIncompatiblePlans(
-			final Collection<PlanRecord> incompatible,
-			final Map<Id, Collection<PlanRecord>> plansPerGroup,
+	private void addIncompatiblePlans(
+			final BitSet incompatible,
 			final PlanRecord record) {
-		for ( Id group : record.getIncompatibilityGroups()  ) {
-			incompatible.addAll( plansPerGroup.get( group ) );
+		final BitSet groups = record.incompatibilityGroupBits;
+		for ( int g = groups.nextSetBit( 0 ); g >= 0; g = groups.nextSetBit( g + 1 ) ) {
+			incompatible.or( plansPerGroup.get( g ) );
 		}
 	}
 
 	private static void addLinkedPlansOfOtherPlansOfPerson(
-			final Collection<PlanRecord> incompatible,
+			final BitSet incompatible,
 			final PlanRecord record ) {
 		for ( PlanRecord otherRecord : record.person.plans ) {
 			if ( record.equals( otherRecord ) ) continue;
-			incompatible.addAll( otherRecord.linkedPlans );
+			addAll( incompatible , otherRecord.linkedPlans );
 		}
 	}
 
 	private static void addLinkedPlansOfPartners(
-			final Collection<PlanRecord> incompatible,
+			final BitSet incompatible,
 			final PlanRecord record ) {
 		for ( PlanRecord linkedPlan : record.linkedPlans ) {
 			final PersonRecord cotrav = linkedPlan.person;
@@ -118,15 +147,29 @@ final class IncompatiblePlanRecords {
 	}
 
 	private static void addLinkedPlansOfPerson(
-			final Collection<PlanRecord> incompatible,
+			final BitSet incompatible,
 			final PersonRecord person ) {
 		for ( PlanRecord otherRecord : person.plans ) {
-			incompatible.addAll( otherRecord.linkedPlans );
+			addAll( incompatible , otherRecord.linkedPlans );
+		}
+	}
+
+	private static void addAll(
+			final BitSet incompatible,
+			final Collection<PlanRecord> plans ) {
+		for ( PlanRecord plan : plans ) {
+			incompatible.set( plan.index );
 		}
 	}
 
 	public Set<Id> getIncompatibilityGroups(final PlanRecord pr) {
 		return pr.getIncompatibilityGroups();
 	}
-}
 
+	/**
+	 * @return the indices of the incompatibility groups of the plan. Must not be modified.
+	 */
+	public BitSet getIncompatibilityGroupBits(final PlanRecord pr) {
+		return pr.incompatibilityGroupBits;
+	}
+}
@@ -19,27 +19,28 @@
  * *********************************************************************** */
 package org.matsim.contrib.socnetsim.framework.replanning.selectors.highestweightselection;
 
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
-
-import org.matsim.api.core.v01.Id;
 
 import org.matsim.core.utils.collections.MapUtils;
 
 /**
+ * Remembers the results of sub-problems, identified by the persons still to allocate
+ * and the allowed incompatibility groups, both as indices (see {@link IncompatiblePlanRecords}).
+ * The bit sets passed as keys must not be modified afterwards.
+ *
  * @author thibautd
  */
 final class KnownStates {
-	private final Map<List<PersonRecord>, Map<Set<Id>, PlanAllocation>> cache =
-			new HashMap<List<PersonRecord>, Map<Set<Id>, PlanAllocation>>();
-	private final Map<List<PersonRecord>, Map<Set<Id>, DecreasingDouble>> unfeasible =
-			new HashMap<List<PersonRecord>, Map<Set<Id>, DecreasingDouble>>();
+	private final Map<BitSet, Map<BitSet, PlanAllocation>> cache =
+			new HashMap<BitSet, Map<BitSet, PlanAllocation>>();
+	private final Map<BitSet, Map<BitSet, DecreasingDouble>> unfeasible =
+			new HashMap<BitSet, Map<BitSet, DecreasingDouble>>();
 
 	public void cache(
-			final List<PersonRecord> personsToAllocate,
-			final Set<Id> allowedIncompatibilityGroups,
+			final BitSet personsToAllocate,
+			final BitSet allowedIncompatibilityGroups,
 			final PlanAllocation allocation,
 			final double minimalWeight) {
 		if ( allocation == null ) {
@@ -57,10 +58,10 @@ final class KnownStates {
 	}
 
 	private void cacheUnfeasible(
-			final List<PersonRecord> personsToAllocate,
-			final Set<Id> allowedIncompatibilityGroups,
+			final BitSet personsToAllocate,
+			final BitSet allowedIncompatibilityGroups,
 			final double minimalWeight) {
-		final Map<Set<Id>, DecreasingDouble> map =
+		final Map<BitSet, DecreasingDouble> map =
 			MapUtils.getMap( personsToAllocate , unfeasible );
 		DecreasingDouble cachedWeight = map.get(
 					allowedIncompatibilityGroups );
@@ -74,12 +75,12 @@ final class KnownStates {
 	}
 
 	private void cacheFeasible(
-			final List<PersonRecord> personsToAllocate,
-			final Set<Id> allowedIncompatibilityGroups,
+			final BitSet personsToAllocate,
+			final BitSet allowedIncompatibilityGroups,
 			final PlanAllocation allocation) {
 		assert allocation != null;
-		assert personsToAllocate.size() == allocation.getPlans().size() :
-			personsToAllocate.size()+" != "+allocation.getPlans().size();
+		assert personsToAllocate.cardinality() == allocation.getPlans().size() :
+			personsToAllocate.cardinality()+" != "+allocation.getPlans().size();
 
 		MapUtils.getMap( personsToAllocate , cache ).put(
 				allowedIncompatibilityGroups,
@@ -87,24 +88,24 @@ final class KnownStates {
 	}
 
 	public PlanAllocation getCached(
-			final List<PersonRecord> personsToAllocate,
-			final Set<Id> allowedIncompatibilityGroups) {
+			final BitSet personsToAllocate,
+			final BitSet allowedIncompatibilityGroups) {
 		final PlanAllocation cached = 
 			MapUtils.getMap( personsToAllocate , cache ).get(
 				allowedIncompatibilityGroups );
 
 		if ( cached == null ) return null;
-		assert personsToAllocate.size() == cached.getPlans().size() :
-			personsToAllocate.size()+" != "+cached.getPlans().size();
+		assert personsToAllocate.cardinality() == cached.getPlans().size() :
+			personsToAllocate.cardinality()+" != "+cached.getPlans().size();
 
 		return SelectorUtils.copy( cached );
 	}
 
 	public boolean isUnfeasible(
-			final List<PersonRecord> personsToAllocate,
-			final Set<Id> allowedIncompatibilityGroups,
+			final BitSet personsToAllocate,
+			final BitSet allowedIncompatibilityGroups,
 			final double minWeightToObtain) {
-		final Map<Set<Id>, DecreasingDouble> map =
+		final Map<BitSet, DecreasingDouble> map =
 			unfeasible.get( personsToAllocate );
 
 		if ( map == null ) return false;
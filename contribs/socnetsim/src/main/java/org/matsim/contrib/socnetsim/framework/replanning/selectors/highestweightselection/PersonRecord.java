@@ -31,6 +31,8 @@ final class PersonRecord {
 	final Person person;
 	final List<PlanRecord> plans;
 	final List<PlanRecord> prunedPlans;
+	// set by IncompatiblePlanRecords
+	int index = -1;
 
 	public PersonRecord(
 			final Person person,
@@ -19,6 +19,7 @@
 
 package org.matsim.contrib.socnetsim.framework.replanning.selectors.highestweightselection;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
@@ -44,6 +45,9 @@ final class PlanRecord {
 	double cachedMaximumWeight = Double.NaN;
 	// true if all partners are still unallocated
 	boolean isStillFeasible = true;
+	// set by IncompatiblePlanRecords
+	int index = -1;
+	BitSet incompatibilityGroupBits = null;
 
 	private Collection<PlanRecord> incompatiblePlans = null;
 	private Set<Id> incompatibilityGroups = null;
@@ -1246,6 +1246,89 @@ public class HighestWeightSelectorTest {
 		testSelectedPlans( true , false );
 	}
 
+	/**
+	 * Check that a result remembered from a previous call with the same plans
+	 * is the same as the one of a new search, and cannot be modified by the caller.
+	 */
+	@Test
+	public void testSelectedPlansTwice() throws Exception {
+		for ( boolean blocking : new boolean[]{ false , true } ) {
+			final HighestScoreSumSelector selector =
+					new HighestScoreSumSelector(
+						new EmptyIncompatiblePlansIdentifierFactory(),
+						blocking );
+			final GroupPlans expected =
+					blocking ?
+						fixture.expectedSelectedPlansWhenBlocking :
+						fixture.expectedSelectedPlans;
+
+			final GroupPlans first = selector.selectPlans( fixture.jointPlans , fixture.group );
+			final GroupPlans second = selector.selectPlans( fixture.jointPlans , fixture.group );
+
+			Assert.assertEquals(
+					"unexpected selected plan in test instance <<"+fixture.name+">> ",
+					expected,
+					first);
+			Assert.assertEquals(
+					"unexpected selected plan at second call in test instance <<"+fixture.name+">> ",
+					expected,
+					second);
+			if ( first != null ) {
+				Assert.assertNotSame( first , second );
+			}
+		}
+	}
+
+	/**
+	 * Check that a remembered result is not re-used once one of its plans
+	 * was removed from the person.
+	 */
+	@Test
+	public void testSelectedPlansAfterPlanRemoval() throws Exception {
+		final HighestScoreSumSelector selector =
+				new HighestScoreSumSelector(
+					new EmptyIncompatiblePlansIdentifierFactory(),
+					false );
+		final GroupPlans first = selector.selectPlans( fixture.jointPlans , fixture.group );
+		if ( first == null ) return;
+
+		Plan toRemove = null;
+		Person owner = null;
+		for ( Plan plan : first.getIndividualPlans() ) {
+			if ( plan.getPerson().getPlans().size() > 1 ) {
+				toRemove = plan;
+				owner = plan.getPerson();
+				break;
+			}
+		}
+		if ( toRemove == null ) return;
+
+		// the fixtures are shared by all tests: restore the plans in their order afterwards
+		final List<Plan> plans = new ArrayList<Plan>( owner.getPlans() );
+		final Plan selectedPlan = owner.getSelectedPlan();
+		owner.removePlan( toRemove );
+		try {
+			final GroupPlans expected =
+					new HighestScoreSumSelector(
+						new EmptyIncompatiblePlansIdentifierFactory(),
+						false ).selectPlans( fixture.jointPlans , fixture.group );
+			final GroupPlans second = selector.selectPlans( fixture.jointPlans , fixture.group );
+
+			Assert.assertEquals(
+					"unexpected selected plan after plan removal in test instance <<"+fixture.name+">> ",
+					expected,
+					second);
+			Assert.assertFalse(
+					"removed plan selected in test instance <<"+fixture.name+">> ",
+					second != null && second.getAllIndividualPlans().contains( toRemove ) );
+		}
+		finally {
+			for ( Plan plan : new ArrayList<Plan>( owner.getPlans() ) ) owner.removePlan( plan );
+			for ( Plan plan : plans ) owner.addPlan( plan );
+			owner.setSelectedPlan( selectedPlan );
+		}
+	}
+
 	/**
 	 * Check that plans are not removed from the plans DB in the selection process,
 	 * particularly when pruning unplausible plans.
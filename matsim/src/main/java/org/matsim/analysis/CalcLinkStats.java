@@ -23,8 +23,11 @@ package org.matsim.analysis;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -38,6 +41,10 @@ import javax.inject.Inject;
 
 /**
  * Calculates the average link volumes and travel times over any number of iterations.
+ * <p>
+ * The statistics are kept column-wise in flat arrays (one per statistic), indexed by the position
+ * of the link in the id-sorted link list and by the hour. Adding the data of another iteration
+ * updates these arrays in place.
  *
  * @author mrieser
  */
@@ -45,20 +52,14 @@ public class CalcLinkStats {
 
 	private final static Logger log = Logger.getLogger(CalcLinkStats.class);
 
-	private static class LinkData {
-		public final double[][] volumes;
-		public final double[][] ttimes;
-
-		public LinkData(final double[][] linksVolumes, final double[][] linksTTimes) {
-			this.volumes = linksVolumes.clone();
-			this.ttimes = linksTTimes.clone();
-		}
-	}
-
 	private double volScaleFactor = 1.0;
 
 	private int count = 0;
-	private final Map<Id<Link>, LinkData> linkData;
+	private final List<Id<Link>> linkIds = new ArrayList<>(); // sorted by id
+	private final Map<Id<Link>, Integer> linkIndices = new HashMap<>();
+	private double[][] volumes; // [stat][linkIndex * (nofHours + 1) + hour], the last "hour" being the daily value
+	private double[][] ttimes; // [stat][linkIndex * nofHours + hour]
+	private final double[] volumesPerHour;
 	private final int nofHours;
 	private final Network network;
 
@@ -70,8 +71,8 @@ public class CalcLinkStats {
 	@Inject
 	public CalcLinkStats(final Network network) {
 		this.network = network;
-		this.linkData = new TreeMap<>();
 		this.nofHours = 24;
+		this.volumesPerHour = new double[this.nofHours];
 		reset();
 	}
 
@@ -91,16 +92,20 @@ public class CalcLinkStats {
 		// TODO verify ttimes has hourly timeBin-Settings
 
 		// go through all links
-		for (Id<Link> linkId : this.linkData.keySet()) {
+		for (int index = 0; index < this.linkIds.size(); index++) {
+			Id<Link> linkId = this.linkIds.get(index);
 			
 			// retrieve link from link ID
 			Link link = this.network.getLinks().get(linkId);
 			
-			// get the volumes for the link ID from the analyzier
-			double[] volumes = analyzer.getVolumesPerHourForLink(linkId);
+			// get the volumes for the link ID from the analyzer, re-using the same array for all links
+			double[] volumes = this.volumesPerHour;
+			Arrays.fill(volumes, 0.0);
+			analyzer.addVolumesPerHourForLink(linkId, volumes);
 			
-			// get the destination container for the data from link data (could have gotten this through iterator right away)
-			LinkData data = this.linkData.get(linkId);
+			// offsets of the link's data in the columns
+			int vo = index * (this.nofHours + 1);
+			int to = index * this.nofHours;
 			
 			// prepare the sum variables (for volumes);
 			long sumVolumes = 0; // daily (0-24) sum
@@ -117,46 +122,57 @@ public class CalcLinkStats {
 				// the following has something to do with the fact that we are doing this for multiple iterations.  So there are variations.
 				// this collects min and max.  There is, however, no good control over how many iterations this is collected.
 				if (this.count == 1) {
-					data.volumes[MIN][hour] = volumes[hour];
-					data.volumes[MAX][hour] = volumes[hour];
-					data.ttimes[MIN][hour] = ttime;
-					data.ttimes[MAX][hour] = ttime;
+					this.volumes[MIN][vo + hour] = volumes[hour];
+					this.volumes[MAX][vo + hour] = volumes[hour];
+					this.ttimes[MIN][to + hour] = ttime;
+					this.ttimes[MAX][to + hour] = ttime;
 				} else {
-					if (volumes[hour] < data.volumes[MIN][hour]) data.volumes[MIN][hour] = volumes[hour];
-					if (volumes[hour] > data.volumes[MAX][hour]) data.volumes[MAX][hour] = volumes[hour];
-					if (ttime < data.ttimes[MIN][hour]) data.ttimes[MIN][hour] = ttime;
-					if (ttime > data.ttimes[MAX][hour]) data.ttimes[MAX][hour] = ttime;
+					if (volumes[hour] < this.volumes[MIN][vo + hour]) this.volumes[MIN][vo + hour] = volumes[hour];
+					if (volumes[hour] > this.volumes[MAX][vo + hour]) this.volumes[MAX][vo + hour] = volumes[hour];
+					if (ttime < this.ttimes[MIN][to + hour]) this.ttimes[MIN][to + hour] = ttime;
+					if (ttime > this.ttimes[MAX][to + hour]) this.ttimes[MAX][to + hour] = ttime;
 				}
 				
 				// this is the regular summing up for each hour
-				data.volumes[SUM][hour] += volumes[hour];
-				data.ttimes[SUM][hour] += volumes[hour] * ttime;
+				this.volumes[SUM][vo + hour] += volumes[hour];
+				this.ttimes[SUM][to + hour] += volumes[hour] * ttime;
 			}
 			// dataVolumes[.][nofHours] are daily (0-24) values
 			if (this.count == 1) {
-				data.volumes[MIN][this.nofHours] = sumVolumes;
-				data.volumes[SUM][this.nofHours] = sumVolumes;
-				data.volumes[MAX][this.nofHours] = sumVolumes;
+				this.volumes[MIN][vo + this.nofHours] = sumVolumes;
+				this.volumes[SUM][vo + this.nofHours] = sumVolumes;
+				this.volumes[MAX][vo + this.nofHours] = sumVolumes;
 			} else {
-				if (sumVolumes < data.volumes[MIN][this.nofHours]) data.volumes[MIN][this.nofHours] = sumVolumes;
-				data.volumes[SUM][this.nofHours] += sumVolumes;
-				if (sumVolumes > data.volumes[MAX][this.nofHours]) data.volumes[MAX][this.nofHours] = sumVolumes;
+				if (sumVolumes < this.volumes[MIN][vo + this.nofHours]) this.volumes[MIN][vo + this.nofHours] = sumVolumes;
+				this.volumes[SUM][vo + this.nofHours] += sumVolumes;
+				if (sumVolumes > this.volumes[MAX][vo + this.nofHours]) this.volumes[MAX][vo + this.nofHours] = sumVolumes;
 			}
 		}
 	}
 
 	public void reset() {
-		this.linkData.clear();
 		this.count = 0;
 		log.info( " resetting `count' to zero.  This info is here since we want to check when this" +
 				" is happening during normal simulation runs.  kai, jan'11") ;
 
-		// initialize our data-table
-		for (Link link : this.network.getLinks().values()) {
-			LinkData data = new LinkData(new double[NOF_STATS][this.nofHours + 1], new double[NOF_STATS][this.nofHours]);
-			this.linkData.put(link.getId(), data);
+		// initialize our data-table; it is only re-allocated if the links have changed
+		if (this.volumes == null || this.linkIds.size() != this.network.getLinks().size() 
+				|| !this.linkIndices.keySet().containsAll(this.network.getLinks().keySet())) {
+			this.linkIds.clear();
+			this.linkIndices.clear();
+			this.linkIds.addAll(this.network.getLinks().keySet());
+			this.linkIds.sort(null);
+			for (int index = 0; index < this.linkIds.size(); index++) {
+				this.linkIndices.put(this.linkIds.get(index), index);
+			}
+			this.volumes = new double[NOF_STATS][this.linkIds.size() * (this.nofHours + 1)];
+			this.ttimes = new double[NOF_STATS][this.linkIds.size() * this.nofHours];
+		} else {
+			for (int stat = 0; stat < NOF_STATS; stat++) {
+				Arrays.fill(this.volumes[stat], 0.0);
+				Arrays.fill(this.ttimes[stat], 0.0);
+			}
 		}
-
 	}
 
 	public void writeFile(final String filename) {
@@ -182,9 +198,10 @@ public class CalcLinkStats {
 			out.write("\n");
 
 			// write data
-			for (Map.Entry<Id<Link>, LinkData> entry : this.linkData.entrySet()) {
-				Id<Link> linkId = entry.getKey();
-				LinkData data = entry.getValue();
+			for (int index = 0; index < this.linkIds.size(); index++) {
+				Id<Link> linkId = this.linkIds.get(index);
+				int vo = index * (this.nofHours + 1);
+				int to = index * this.nofHours;
 				Link link = this.network.getLinks().get(linkId);
 
 				out.write(linkId.toString());
@@ -198,41 +215,41 @@ public class CalcLinkStats {
 				// HRS0-1, HRS1-2, ... HRS23-24
 //				int[] sum = {0, 0, 0};
 				for (int i = 0; i < this.nofHours; i++) {
-					out.write("\t" + Double.toString(data.volumes[MIN][i]));
-//					sum[MIN] = sum[MIN] + data.volumes[MIN][i];
-					out.write("\t" + Double.toString((data.volumes[SUM][i]) / this.count));
-//					sum[SUM] = sum[SUM] + data.volumes[SUM][i];
-					out.write("\t" + Double.toString(data.volumes[MAX][i]));
-//					sum[MAX] = sum[MAX] + data.volumes[MAX][i];
+					out.write("\t" + Double.toString(this.volumes[MIN][vo + i]));
+//					sum[MIN] = sum[MIN] + this.volumes[MIN][vo + i];
+					out.write("\t" + Double.toString((this.volumes[SUM][vo + i]) / this.count));
+//					sum[SUM] = sum[SUM] + this.volumes[SUM][vo + i];
+					out.write("\t" + Double.toString(this.volumes[MAX][vo + i]));
+//					sum[MAX] = sum[MAX] + this.volumes[MAX][vo + i];
 				}
 
 				// HRS0-nofHours
-				out.write("\t" + Double.toString(data.volumes[MIN][this.nofHours]));
-				out.write("\t" + Double.toString((data.volumes[SUM][this.nofHours]) / this.count));
-				out.write("\t" + Double.toString(data.volumes[MAX][this.nofHours]));
+				out.write("\t" + Double.toString(this.volumes[MIN][vo + this.nofHours]));
+				out.write("\t" + Double.toString((this.volumes[SUM][vo + this.nofHours]) / this.count));
+				out.write("\t" + Double.toString(this.volumes[MAX][vo + this.nofHours]));
 
 				// TRAVELTIME0-1, TRAVELTIME1-2, ... TRAVELTIME23-24
 				for (int i = 0; i < this.nofHours; i++) {
-					String ttimesMin = Double.toString(data.ttimes[MIN][i]);
+					String ttimesMin = Double.toString(this.ttimes[MIN][to + i]);
 					out.write("\t" + ttimesMin);
-					if (data.volumes[SUM][i] == 0) {
+					if (this.volumes[SUM][vo + i] == 0) {
 						// nobody traveled along the link in this hour, so we cannot calculate an average
 						// use the value available or the minimum instead (min and max should be the same, =freespeed)
-						double ttsum = data.ttimes[SUM][i];
+						double ttsum = this.ttimes[SUM][to + i];
 						if (ttsum != 0.0) {
 							out.write("\t" + Double.toString(ttsum));
 						} else {
 							out.write("\t" + ttimesMin);
 						}
 					} else {
-						double ttsum = data.ttimes[SUM][i];
+						double ttsum = this.ttimes[SUM][to + i];
 						if (ttsum == 0) {
 							out.write("\t" + ttimesMin);
 						} else {
-							out.write("\t" + Double.toString(ttsum / data.volumes[SUM][i]));
+							out.write("\t" + Double.toString(ttsum / this.volumes[SUM][vo + i]));
 						}
 					}
-					out.write("\t" + Double.toString(data.ttimes[MAX][i]));
+					out.write("\t" + Double.toString(this.ttimes[MAX][to + i]));
 				}
 				out.write("\n");
 			}
@@ -274,64 +291,68 @@ public class CalcLinkStats {
 				String[] parts = StringUtils.explode(line, '\t');
 				if (parts.length == 154) {
 					Id<Link> linkId = Id.create(parts[0], Link.class);
-					LinkData data = this.linkData.get(linkId);
-					if (data == null) {
+					Integer index = this.linkIndices.get(linkId);
+					if (index == null) {
 						System.err.println("CalcLinkStats.readFile(); unknown link: " + linkId.toString());
 					} else {
+						int vo = index * (this.nofHours + 1);
+						int to = index * this.nofHours;
 						int baseTTimes;
 						for (int i = 0; i < this.nofHours; i++) {
-							data.volumes[MIN][i] = Double.parseDouble(parts[7 + i*3]);
-							data.volumes[MIN][i] *= this.volScaleFactor;
-							data.volumes[SUM][i] = Double.parseDouble(parts[8 + i*3]);
-							data.volumes[SUM][i] *= this.volScaleFactor;
-							data.volumes[MAX][i] = Double.parseDouble(parts[9 + i*3]);
-							data.volumes[MAX][i] *= this.volScaleFactor;
+							this.volumes[MIN][vo + i] = Double.parseDouble(parts[7 + i*3]);
+							this.volumes[MIN][vo + i] *= this.volScaleFactor;
+							this.volumes[SUM][vo + i] = Double.parseDouble(parts[8 + i*3]);
+							this.volumes[SUM][vo + i] *= this.volScaleFactor;
+							this.volumes[MAX][vo + i] = Double.parseDouble(parts[9 + i*3]);
+							this.volumes[MAX][vo + i] *= this.volScaleFactor;
 							baseTTimes = 7 + (this.nofHours+1)*3;
-							data.ttimes[MIN][i] = Double.parseDouble(parts[baseTTimes + i*3]);
-							if (data.volumes[SUM][i] == 0) {
-								data.ttimes[SUM][i] = Double.parseDouble(parts[baseTTimes + i*3 + 1]);
+							this.ttimes[MIN][to + i] = Double.parseDouble(parts[baseTTimes + i*3]);
+							if (this.volumes[SUM][vo + i] == 0) {
+								this.ttimes[SUM][to + i] = Double.parseDouble(parts[baseTTimes + i*3 + 1]);
 							} else {
-								data.ttimes[SUM][i] = Double.parseDouble(parts[baseTTimes + i*3 + 1]) * data.volumes[SUM][i];
+								this.ttimes[SUM][to + i] = Double.parseDouble(parts[baseTTimes + i*3 + 1]) * this.volumes[SUM][vo + i];
 							}
-							data.ttimes[MAX][i] = Double.parseDouble(parts[baseTTimes + i*3 + 2]);
+							this.ttimes[MAX][to + i] = Double.parseDouble(parts[baseTTimes + i*3 + 2]);
 						}
-						data.volumes[MIN][this.nofHours] = Double.parseDouble(parts[7 + this.nofHours*3]);
-						data.volumes[MIN][this.nofHours] *= this.volScaleFactor;
-						data.volumes[SUM][this.nofHours] = Double.parseDouble(parts[8 + this.nofHours*3]);
-						data.volumes[SUM][this.nofHours] *= this.volScaleFactor;
-						data.volumes[MAX][this.nofHours] = Double.parseDouble(parts[9 + this.nofHours*3]);
-						data.volumes[MAX][this.nofHours] *= this.volScaleFactor;
+						this.volumes[MIN][vo + this.nofHours] = Double.parseDouble(parts[7 + this.nofHours*3]);
+						this.volumes[MIN][vo + this.nofHours] *= this.volScaleFactor;
+						this.volumes[SUM][vo + this.nofHours] = Double.parseDouble(parts[8 + this.nofHours*3]);
+						this.volumes[SUM][vo + this.nofHours] *= this.volScaleFactor;
+						this.volumes[MAX][vo + this.nofHours] = Double.parseDouble(parts[9 + this.nofHours*3]);
+						this.volumes[MAX][vo + this.nofHours] *= this.volScaleFactor;
 					}
 				}
 				else if (parts.length == 153) {
 					String linkId = parts[0];
-					LinkData data = this.linkData.get(Id.create(linkId, Link.class));
-					if (data == null) {
+					Integer index = this.linkIndices.get(Id.create(linkId, Link.class));
+					if (index == null) {
 						System.err.println("CalcLinkStats.readFile(); unknown link: " + linkId);
 					} else {
+						int vo = index * (this.nofHours + 1);
+						int to = index * this.nofHours;
 						int baseTTimes;
 						for (int i = 0; i < this.nofHours; i++) {
-							data.volumes[MIN][i] = Double.parseDouble(parts[6 + i*3]);
-							data.volumes[MIN][i] *= this.volScaleFactor;
-							data.volumes[SUM][i] = Integer.parseInt(parts[7 + i*3]);
-							data.volumes[SUM][i] *= this.volScaleFactor;
-							data.volumes[MAX][i] = Double.parseDouble(parts[8 + i*3]);
-							data.volumes[MAX][i] *= this.volScaleFactor;
+							this.volumes[MIN][vo + i] = Double.parseDouble(parts[6 + i*3]);
+							this.volumes[MIN][vo + i] *= this.volScaleFactor;
+							this.volumes[SUM][vo + i] = Integer.parseInt(parts[7 + i*3]);
+							this.volumes[SUM][vo + i] *= this.volScaleFactor;
+							this.volumes[MAX][vo + i] = Double.parseDouble(parts[8 + i*3]);
+							this.volumes[MAX][vo + i] *= this.volScaleFactor;
 							baseTTimes = 6 + (this.nofHours+1)*3;
-							data.ttimes[MIN][i] = Double.parseDouble(parts[baseTTimes + i*3]);
-							if (data.volumes[SUM][i] == 0) {
-								data.ttimes[SUM][i] = Double.parseDouble(parts[baseTTimes + i*3 + 1]);
+							this.ttimes[MIN][to + i] = Double.parseDouble(parts[baseTTimes + i*3]);
+							if (this.volumes[SUM][vo + i] == 0) {
+								this.ttimes[SUM][to + i] = Double.parseDouble(parts[baseTTimes + i*3 + 1]);
 							} else {
-								data.ttimes[SUM][i] = Double.parseDouble(parts[baseTTimes + i*3 + 1]) * data.volumes[SUM][i];
+								this.ttimes[SUM][to + i] = Double.parseDouble(parts[baseTTimes + i*3 + 1]) * this.volumes[SUM][vo + i];
 							}
-							data.ttimes[MAX][i] = Double.parseDouble(parts[baseTTimes + i*3 + 2]);
+							this.ttimes[MAX][to + i] = Double.parseDouble(parts[baseTTimes + i*3 + 2]);
 						}
-						data.volumes[MIN][this.nofHours] = Double.parseDouble(parts[6 + this.nofHours*3]);
-						data.volumes[MIN][this.nofHours] *= this.volScaleFactor;
-						data.volumes[SUM][this.nofHours] = Double.parseDouble(parts[7 + this.nofHours*3]);
-						data.volumes[SUM][this.nofHours] *= this.volScaleFactor;
-						data.volumes[MAX][this.nofHours] = Double.parseDouble(parts[8 + this.nofHours*3]);
-						data.volumes[MAX][this.nofHours] *= this.volScaleFactor;
+						this.volumes[MIN][vo + this.nofHours] = Double.parseDouble(parts[6 + this.nofHours*3]);
+						this.volumes[MIN][vo + this.nofHours] *= this.volScaleFactor;
+						this.volumes[SUM][vo + this.nofHours] = Double.parseDouble(parts[7 + this.nofHours*3]);
+						this.volumes[SUM][vo + this.nofHours] *= this.volScaleFactor;
+						this.volumes[MAX][vo + this.nofHours] = Double.parseDouble(parts[8 + this.nofHours*3]);
+						this.volumes[MAX][vo + this.nofHours] *= this.volScaleFactor;
 					}
 				}
 				else {
@@ -358,16 +379,17 @@ public class CalcLinkStats {
 	 * @return if no data is available, an array with length 0 is returned.
 	 */
 	public double[] getAvgLinkVolumes(final Id<Link> linkId) {
-		LinkData data = this.linkData.get(linkId);
-		if (data == null) {
+		Integer index = this.linkIndices.get(linkId);
+		if (index == null) {
 			return new double[0];
 		}
 		if (this.count == 0) {
 			return new double[0];
 		}
+		int vo = index * (this.nofHours + 1);
 		double[] volumes = new double[this.nofHours];
 		for (int i = 0; i < this.nofHours; i++) {
-			volumes[i] = (data.volumes[SUM][i]) / (this.count);
+			volumes[i] = (this.volumes[SUM][vo + i]) / (this.count);
 		}
 		return volumes;
 	}
@@ -381,13 +403,15 @@ public class CalcLinkStats {
 	 */
 	@Deprecated
 	protected double[] getAvgTravelTimes(final Id<Link> linkId) {
-		LinkData data = this.linkData.get(linkId);
-		if (data == null) {
+		Integer index = this.linkIndices.get(linkId);
+		if (index == null) {
 			return new double[0];
 		}
 		if (this.count == 0) {
 			return new double[0];
 		}
+		int vo = index * (this.nofHours + 1);
+		int to = index * this.nofHours;
 		double[] ttimesMin = new double[this.nofHours];
 		double[] ttimesSum = new double[this.nofHours];
 		double[] volumes = new double[this.nofHours];
@@ -395,9 +419,9 @@ public class CalcLinkStats {
 		double[] avgTTimes = new double[this.nofHours];
 		
 		for (int i = 0; i < this.nofHours; i++) {
-			volumes[i] = (data.volumes[SUM][i]) / (this.count);
-			ttimesMin[i] = (data.ttimes[MIN][i]) / (this.count);
-			ttimesSum[i] = (data.ttimes[SUM][i]) / (this.count);
+			volumes[i] = (this.volumes[SUM][vo + i]) / (this.count);
+			ttimesMin[i] = (this.ttimes[MIN][to + i]) / (this.count);
+			ttimesSum[i] = (this.ttimes[SUM][to + i]) / (this.count);
 
 			if (volumes[i] == 0.) {
 				avgTTimes[i] = ttimesMin[i];
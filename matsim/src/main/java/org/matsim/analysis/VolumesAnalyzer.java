@@ -20,7 +20,11 @@
 
 package org.matsim.analysis;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -40,6 +44,13 @@ import javax.inject.Inject;
 
 /**
  * Counts the number of vehicles leaving a link, aggregated into time bins of a specified size.
+ * <p>
+ * The volumes are stored per link index: one table for all modes and one per mode. The array
+ * of time bins of a link is only allocated when a vehicle leaves the link for the first time, so
+ * that modes which use only a few links do not need memory for the whole network. The arrays are
+ * kept and cleared in place when the analyzer is reset, so that the events of later iterations can
+ * be processed without any allocations. Since the analyzer is bound as a singleton, all analysis
+ * listeners read from the same store.
  *
  * @author mrieser
  */
@@ -49,12 +60,20 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	private final int timeBinSize;
 	private final int maxTime;
 	private final int maxSlotIndex;
-	private final Map<Id<Link>, int[]> links;
+	private final int numSlots;
+	
+	private final Map<Id<Link>, Integer> linkIndices;
+	private final List<Id<Link>> linkIds;
+	private int[][] volumes; // [linkIndex][timeslot], null if the link was never observed
+	private boolean[] observedLinks;
 	
 	// for multi-modal support
 	private final boolean observeModes;
-	private final Map<Id<Vehicle>, String> enRouteModes;
-	private final Map<Id<Link>, Map<String, int[]>> linksPerMode;
+	private final Map<Id<Vehicle>, Integer> enRouteModes;
+	private final Map<String, Integer> modeIndices;
+	private final List<String> modes;
+	private final List<int[][]> modeVolumes; // [modeIndex][linkIndex][timeslot]
+	private final List<boolean[]> observedModeLinks;
 
 	@Inject
 	VolumesAnalyzer(Network network, EventsManager eventsManager) {
@@ -70,51 +89,99 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 		this.timeBinSize = timeBinSize;
 		this.maxTime = maxTime;
 		this.maxSlotIndex = (this.maxTime/this.timeBinSize) + 1;
-		this.links = new HashMap<>((int) (network.getLinks().size() * 1.1), 0.95f);
+		this.numSlots = this.maxSlotIndex + 1;
+		
+		int numLinks = Math.max(network.getLinks().size(), 1);
+		this.linkIndices = new HashMap<>((int) (numLinks * 1.1), 0.95f);
+		this.linkIds = new ArrayList<>(numLinks);
+		for (Id<Link> linkId : network.getLinks().keySet()) {
+			this.linkIndices.put(linkId, this.linkIds.size());
+			this.linkIds.add(linkId);
+		}
+		this.volumes = new int[numLinks][];
+		this.observedLinks = new boolean[numLinks];
 		
 		this.observeModes = observeModes;
 		if (this.observeModes) {
 			this.enRouteModes = new HashMap<>();
-			this.linksPerMode = new HashMap<>((int) (network.getLinks().size() * 1.1), 0.95f);
+			this.modeIndices = new HashMap<>();
+			this.modes = new ArrayList<>();
+			this.modeVolumes = new ArrayList<>();
+			this.observedModeLinks = new ArrayList<>();
 		} else {
 			this.enRouteModes = null;
-			this.linksPerMode = null;
+			this.modeIndices = null;
+			this.modes = null;
+			this.modeVolumes = null;
+			this.observedModeLinks = null;
 		}
 	}
 	
 	@Override
 	public void handleEvent(VehicleEntersTrafficEvent event) {
 		if (observeModes) {
-			enRouteModes.put(event.getVehicleId(), event.getNetworkMode());
+			enRouteModes.put(event.getVehicleId(), getModeIndex(event.getNetworkMode()));
 		}
 	}
 	
 	@Override
 	public void handleEvent(final LinkLeaveEvent event) {
-		int[] volumes = this.links.get(event.getLinkId());
-		if (volumes == null) {
-			volumes = new int[this.maxSlotIndex + 1]; // initialized to 0 by default, according to JVM specs
-			this.links.put(event.getLinkId(), volumes);
-		}
+		int linkIndex = getLinkIndex(event.getLinkId());
 		int timeslot = getTimeSlotIndex(event.getTime());
-		volumes[timeslot]++;
+		increment(this.volumes, linkIndex, timeslot);
+		this.observedLinks[linkIndex] = true;
 		
 		if (observeModes) {
-			Map<String, int[]> modeVolumes = this.linksPerMode.get(event.getLinkId());
-			if (modeVolumes == null) {
-				modeVolumes = new HashMap<>();
-				this.linksPerMode.put(event.getLinkId(), modeVolumes);
-			}
-			String mode = enRouteModes.get(event.getVehicleId());
-			volumes = modeVolumes.get(mode);
-			if (volumes == null) {
-				volumes = new int[this.maxSlotIndex + 1]; // initialized to 0 by default, according to JVM specs
-				modeVolumes.put(mode, volumes);
-			}
-			volumes[timeslot]++;
+			Integer modeIndex = enRouteModes.get(event.getVehicleId());
+			int m = modeIndex != null ? modeIndex : getModeIndex(null);
+			increment(this.modeVolumes.get(m), linkIndex, timeslot);
+			this.observedModeLinks.get(m)[linkIndex] = true;
+		}
+	}
+	
+	private void increment(final int[][] volumes, final int linkIndex, final int timeslot) {
+		int[] linkVolumes = volumes[linkIndex];
+		if (linkVolumes == null) {
+			linkVolumes = new int[this.numSlots];
+			volumes[linkIndex] = linkVolumes;
 		}
+		linkVolumes[timeslot]++;
 	}
 
+	private int getLinkIndex(final Id<Link> linkId) {
+		Integer linkIndex = this.linkIndices.get(linkId);
+		if (linkIndex != null) return linkIndex;
+		
+		// a link that is not part of the network, e.g. from a separate transit network
+		int newIndex = this.linkIds.size();
+		this.linkIndices.put(linkId, newIndex);
+		this.linkIds.add(linkId);
+		if (newIndex == this.observedLinks.length) {
+			int capacity = this.observedLinks.length * 2;
+			this.volumes = Arrays.copyOf(this.volumes, capacity);
+			this.observedLinks = Arrays.copyOf(this.observedLinks, capacity);
+			if (observeModes) {
+				for (int m = 0; m < this.modes.size(); m++) {
+					this.modeVolumes.set(m, Arrays.copyOf(this.modeVolumes.get(m), capacity));
+					this.observedModeLinks.set(m, Arrays.copyOf(this.observedModeLinks.get(m), capacity));
+				}
+			}
+		}
+		return newIndex;
+	}
+	
+	private int getModeIndex(final String mode) {
+		Integer modeIndex = this.modeIndices.get(mode);
+		if (modeIndex != null) return modeIndex;
+		
+		int newIndex = this.modes.size();
+		this.modeIndices.put(mode, newIndex);
+		this.modes.add(mode);
+		this.modeVolumes.add(new int[this.volumes.length][]);
+		this.observedModeLinks.add(new boolean[this.observedLinks.length]);
+		return newIndex;
+	}
+	
 	private int getTimeSlotIndex(final double time) {
 		if (time > this.maxTime) {
 			return this.maxSlotIndex;
@@ -125,22 +192,29 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	/**
 	 * @param linkId
 	 * @return Array containing the number of vehicles leaving the link <code>linkId</code> per time bin,
-	 * 		starting with time bin 0 from 0 seconds to (timeBinSize-1)seconds.
+	 * 		starting with time bin 0 from 0 seconds to (timeBinSize-1)seconds, or <code>null</code> if no
+	 * 		vehicle left the link. The array is a copy, so it is neither changed by later events nor by
+	 * 		{@link #reset(int)}. Use {@link #addVolumesPerHourForLink(Id, double[])} to avoid the copy.
 	 */
 	public int[] getVolumesForLink(final Id<Link> linkId) {
-		return this.links.get(linkId);
+		Integer linkIndex = this.linkIndices.get(linkId);
+		if (linkIndex == null || !this.observedLinks[linkIndex]) return null;
+		return this.volumes[linkIndex].clone();
 	}
 	
 	/**
 	 * @param linkId
 	 * @param mode
 	 * @return Array containing the number of vehicles using the specified mode leaving the link 
-	 *  	<code>linkId</code> per time bin, starting with time bin 0 from 0 seconds to (timeBinSize-1)seconds.
+	 *  	<code>linkId</code> per time bin, starting with time bin 0 from 0 seconds to (timeBinSize-1)seconds,
+	 *  	or <code>null</code> if no such vehicle left the link. As {@link #getVolumesForLink(Id)}, this returns a copy.
 	 */
 	public int[] getVolumesForLink(final Id<Link> linkId, String mode) {
 		if (observeModes) {
-			Map<String, int[]> modeVolumes = this.linksPerMode.get(linkId);
-			if (modeVolumes != null) return modeVolumes.get(mode);
+			Integer linkIndex = this.linkIndices.get(linkId);
+			Integer modeIndex = this.modeIndices.get(mode);
+			if (linkIndex == null || modeIndex == null || !this.observedModeLinks.get(modeIndex)[linkIndex]) return null;
+			return this.modeVolumes.get(modeIndex)[linkIndex].clone();
 		} 
 		return null;
 	}
@@ -175,57 +249,75 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	 * Thus, starting time = (hour = 0) * 3600.0
 	 */
 	public double[] getVolumesPerHourForLink(final Id<Link> linkId) {
-		if (3600.0 % this.timeBinSize != 0) log.error("Volumes per hour and per link probably not correct!");
-		
 		double[] volumes = new double[24];
-		
-		int[] volumesForLink = this.getVolumesForLink(linkId);
-		if (volumesForLink == null) return volumes;
-
-		int slotsPerHour = (int)(3600.0 / this.timeBinSize);
-		for (int hour = 0; hour < 24; hour++) {
-			double time = hour * 3600.0;
-			for (int i = 0; i < slotsPerHour; i++) {
-				volumes[hour] += volumesForLink[this.getTimeSlotIndex(time)];
-				time += this.timeBinSize;
-			}
-		}
+		addVolumesPerHourForLink(linkId, volumes);
 		return volumes;
 	}
 
 	public double[] getVolumesPerHourForLink(final Id<Link> linkId, String mode) {
 		if (observeModes) {
-			if (3600.0 % this.timeBinSize != 0) log.error("Volumes per hour and per link probably not correct!");
-			
 			double [] volumes = new double[24];
-			for (int hour = 0; hour < 24; hour++) {
-				volumes[hour] = 0.0;
-			}
-			
-			int[] volumesForLink = this.getVolumesForLink(linkId, mode);
-			if (volumesForLink == null) return volumes;
-	
-			int slotsPerHour = (int)(3600.0 / this.timeBinSize);
-			for (int hour = 0; hour < 24; hour++) {
-				double time = hour * 3600.0;
-				for (int i = 0; i < slotsPerHour; i++) {
-					volumes[hour] += volumesForLink[this.getTimeSlotIndex(time)];
-					time += this.timeBinSize;
-				}
-			}
+			addVolumesPerHourForLink(linkId, mode, volumes);
 			return volumes;
 		}
 		return null;
 	}
 	
+	/**
+	 * Adds the number of vehicles leaving the link per hour to the given array of length 24. In contrast to
+	 * {@link #getVolumesPerHourForLink(Id)}, no arrays are created, which allows to sum up volumes over
+	 * several links or iterations in place.
+	 */
+	public void addVolumesPerHourForLink(final Id<Link> linkId, final double[] volumesPerHour) {
+		if (3600.0 % this.timeBinSize != 0) log.error("Volumes per hour and per link probably not correct!");
+		
+		Integer linkIndex = this.linkIndices.get(linkId);
+		if (linkIndex == null || !this.observedLinks[linkIndex]) return;
+		addVolumesPerHour(this.volumes[linkIndex], volumesPerHour);
+	}
+	
+	/**
+	 * Adds the number of vehicles using the specified mode leaving the link per hour to the given array
+	 * of length 24.
+	 * 
+	 * @see #addVolumesPerHourForLink(Id, double[])
+	 */
+	public void addVolumesPerHourForLink(final Id<Link> linkId, final String mode, final double[] volumesPerHour) {
+		if (!observeModes) return;
+		if (3600.0 % this.timeBinSize != 0) log.error("Volumes per hour and per link probably not correct!");
+		
+		Integer linkIndex = this.linkIndices.get(linkId);
+		Integer modeIndex = this.modeIndices.get(mode);
+		if (linkIndex == null || modeIndex == null || !this.observedModeLinks.get(modeIndex)[linkIndex]) return;
+		addVolumesPerHour(this.modeVolumes.get(modeIndex)[linkIndex], volumesPerHour);
+	}
+	
+	private void addVolumesPerHour(final int[] linkVolumes, final double[] volumesPerHour) {
+		int slotsPerHour = (int)(3600.0 / this.timeBinSize);
+		for (int hour = 0; hour < 24; hour++) {
+			double time = hour * 3600.0;
+			for (int i = 0; i < slotsPerHour; i++) {
+				volumesPerHour[hour] += linkVolumes[this.getTimeSlotIndex(time)];
+				time += this.timeBinSize;
+			}
+		}
+	}
+	
 	/**
 	 * @return Set of Strings containing all modes for which counting-values are available.
 	 */
 	public Set<String> getModes() {
 		Set<String> modes = new TreeSet<>();
 		
-		for (Map<String, int[]> map : this.linksPerMode.values()) {
-			modes.addAll(map.keySet());
+		for (int m = 0; m < this.modes.size(); m++) {
+			String mode = this.modes.get(m);
+			if (mode == null) continue;
+			for (boolean observed : this.observedModeLinks.get(m)) {
+				if (observed) {
+					modes.add(mode);
+					break;
+				}
+			}
 		}
 		
 		return modes;
@@ -235,15 +327,29 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	 * @return Set of Strings containing all link ids for which counting-values are available.
 	 */
 	public Set<Id<Link>> getLinkIds() {
-		return this.links.keySet();
+		Set<Id<Link>> linkIds = new HashSet<>();
+		for (int i = 0; i < this.linkIds.size(); i++) {
+			if (this.observedLinks[i]) linkIds.add(this.linkIds.get(i));
+		}
+		return linkIds;
 	}
 
 	@Override
 	public void reset(final int iteration) {
-		this.links.clear();
+		clear(this.volumes);
+		Arrays.fill(this.observedLinks, false);
 		if (observeModes) {
-			this.linksPerMode.clear();
+			for (int m = 0; m < this.modes.size(); m++) {
+				clear(this.modeVolumes.get(m));
+				Arrays.fill(this.observedModeLinks.get(m), false);
+			}
 			this.enRouteModes.clear();
 		}
 	}
+	
+	private static void clear(final int[][] volumes) {
+		for (int[] linkVolumes : volumes) {
+			if (linkVolumes != null) Arrays.fill(linkVolumes, 0);
+		}
+	}
 }
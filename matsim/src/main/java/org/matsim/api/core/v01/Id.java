@@ -20,6 +20,7 @@
 
 package org.matsim.api.core.v01;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -42,6 +43,11 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 
 	private final static Map<Class<?>, Map<String, Id<?>>> cache = new ConcurrentHashMap<Class<?>, Map<String, Id<?>>>();
 	
+	// all ids ever created, of all types, at the position of their index
+	private final static Object indexLock = new Object();
+	private static volatile Id<?>[] ids = new Id<?>[1024];
+	private static int numberOfIds = 0;
+	
 	
 	public static <T> Id<T> create(final long key, final Class<T> type) {
 		return create(Long.toString(key), type);
@@ -58,21 +64,64 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	 * This method supports a cache where ids are stored and re-used per type.   
 	 */
 	public static <T> Id<T> create(final String key, final Class<T> type) {
-		Map<String, Id<?>> map = cache.get(type);
-		if (map == null) {
-			map = new ConcurrentHashMap<String, Id<?>>();
-			cache.put(type, map);
-		}
+		Map<String, Id<?>> map = cache.computeIfAbsent(type, k -> new ConcurrentHashMap<String, Id<?>>());
 		Gbl.assertNotNull(key);
 		Id<?> id = map.get(key);
 		if (id == null) {
-			id = new IdImpl<T>(key);
-			map.put(key, id);
+			synchronized (map) {
+				// check again, so the same id is never created twice with different indices
+				id = map.get(key);
+				if (id == null) {
+					id = register(key);
+					map.put(key, id);
+				}
+			}
 		}
 		
 		return (Id<T>) id;
 	}
 	
+	private static Id<?> register(final String key) {
+		synchronized (indexLock) {
+			int index = numberOfIds;
+			Id<?> id = new IdImpl<>(key, index);
+			Id<?>[] array = ids;
+			if (index == array.length) {
+				array = Arrays.copyOf(array, array.length * 2);
+			}
+			array[index] = id;
+			ids = array;
+			numberOfIds++;
+			return id;
+		}
+	}
+	
+	/**
+	 * Returns the id with the given index, i.e. the id for which {@link #index()} returns <code>index</code>.
+	 * This allows to store references to ids compactly as ints, e.g. in routes.
+	 */
+	public static Id<?> get(final int index) {
+		Id<?>[] array = ids;
+		if (index >= 0 && index < array.length) {
+			Id<?> id = array[index];
+			if (id != null) {
+				return id;
+			}
+		}
+		synchronized (indexLock) {
+			if (index < 0 || index >= numberOfIds) {
+				throw new IllegalArgumentException("There is no id with index " + index);
+			}
+			return ids[index];
+		}
+	}
+	
+	/**
+	 * @return a unique, non-negative number for this id. The numbers are assigned consecutively as the ids
+	 * are created, over all types of ids. 
+	 */
+	public abstract int index();
+	
 	/**
 	 * @return <code>0</code> when the two objects being compared are the same objects, other values according to their ids being compared to each other.
 	 * 
@@ -113,9 +162,16 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	private static class IdImpl<T> extends Id<T> {
 
 		private final String id; 
+		private final int index;
 		
-		/*package*/ IdImpl(final String id) {
+		/*package*/ IdImpl(final String id, final int index) {
 			this.id = id;
+			this.index = index;
+		}
+		
+		@Override
+		public int index() {
+			return this.index;
 		}
 
 		@Override
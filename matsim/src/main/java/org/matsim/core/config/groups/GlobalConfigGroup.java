@@ -38,10 +38,12 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	private static final String RANDOM_SEED = "randomSeed";
 	private static final String NUMBER_OF_THREADS = "numberOfThreads";
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
+	private static final String USING_KEYED_RANDOM_STREAMS = "usingKeyedRandomStreams";
 
 	private long randomSeed = 4711L;
 	private int numberOfThreads = 2;
 	private String coordinateSystem = "Atlantis";
+	private boolean usingKeyedRandomStreams = false;
 	
 	@Override
 	public Map<String, String> getComments() {
@@ -49,6 +51,9 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "\"global\" number of threads.  "
 				+ "This number is used, e.g., for replanning, but NOT in the mobsim.  "
 				+ "This can typically be set to as many cores as you have available, or possibly even slightly more.") ;
+		map.put(USING_KEYED_RANDOM_STREAMS, "If true, strategy selection and the multi-threaded replanning modules draw the random numbers "
+				+ "for each person from a stream keyed by the random seed, the iteration and the person, "
+				+ "so the results do not depend on the number of threads.  Changes the results compared to false.") ;
 		return map ;
 	}
 
@@ -82,6 +87,15 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.coordinateSystem = coordinateSystem;
 	}
 	
+	@StringGetter( USING_KEYED_RANDOM_STREAMS )
+	public boolean isUsingKeyedRandomStreams() {
+		return this.usingKeyedRandomStreams;
+	}
+	@StringSetter( USING_KEYED_RANDOM_STREAMS )
+	public void setUsingKeyedRandomStreams(final boolean usingKeyedRandomStreams) {
+		this.usingKeyedRandomStreams = usingKeyedRandomStreams;
+	}
+
 	private static final String INSITING_ON_DEPRECATED_CONFIG_VERSION = "insistingOnDeprecatedConfigVersion" ;
 	@StringGetter( INSITING_ON_DEPRECATED_CONFIG_VERSION )
 	public final boolean isInsistingOnDeprecatedConfigVersion() { return this.insistingOnDeprecatedConfigVersion ; }
@@ -122,6 +122,7 @@ import org.matsim.core.gbl.MatsimRandom;
         log.info(MARKER + "ITERATION " + iteration + " BEGINS");
         this.getControlerIO().createIterationDirectory(iteration);
         resetRandomNumbers(config.global().getRandomSeed(), iteration);
+        MatsimRandom.setKeyedStreams(config.global().isUsingKeyedRandomStreams());
 
         iterationStep("iterationStartsListeners", new Runnable() {
             @Override
@@ -52,7 +52,18 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates snapshots (agent positions) from events. The positions of the vehicles on the links are
+ * calculated in parallel if {@link QSimConfigGroup#getNumberOfThreads()} is larger than one: the links
+ * are split into fixed partitions whose positions are collected separately and then merged in the
+ * order of the partitions, so the snapshots do not depend on the number of threads.
+ */
 public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArrivalEventHandler, LinkEnterEventHandler,
 		LinkLeaveEventHandler, VehicleEntersTrafficEventHandler, PersonStuckEventHandler, VehicleLeavesTrafficEventHandler {
 
@@ -67,6 +78,9 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 	private final double capCorrectionFactor;
 	private final double storageCapFactor;
 	private final SnapshotStyle snapshotStyle;
+	private final int numberOfThreads;
+	private final List<List<EventLink>> linkPartitions = new ArrayList<>();
+	private ExecutorService executor = null;
 	private double skipUntil = 0.0;
 	private final SnapshotLinkWidthCalculator linkWidthCalculator = new SnapshotLinkWidthCalculator();
 	private final AgentSnapshotInfoFactory snapshotInfoFactory = new AgentSnapshotInfoFactory(linkWidthCalculator);
@@ -83,6 +97,7 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 		this.capCorrectionFactor = config.getFlowCapFactor() / network.getCapacityPeriod();
 		this.storageCapFactor = config.getStorageCapFactor();
 		this.snapshotStyle = config.getSnapshotStyle();
+		this.numberOfThreads = Math.max(1, config.getNumberOfThreads());
 		
 		if (! Double.isNaN( config.getLinkWidthForVis() )){
 			this.linkWidthCalculator.setLinkWidthForVis( config.getLinkWidthForVis() );
@@ -152,6 +167,16 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 		}
 		this.linkList.clear();
 		this.linkList.addAll(eventLinks.values());
+		this.linkPartitions.clear();
+		if (this.numberOfThreads > 1) {
+			// use more partitions than threads to balance the load between the threads
+			int numberOfPartitions = Math.min(this.linkList.size(), 4 * this.numberOfThreads);
+			for (int i = 0; i < numberOfPartitions; i++) {
+				int from = (int) ((long) this.linkList.size() * i / numberOfPartitions);
+				int to = (int) ((long) this.linkList.size() * (i + 1) / numberOfPartitions);
+				this.linkPartitions.add(this.linkList.subList(from, to));
+			}
+		}
 		this.eventAgents.clear();
 		this.lastSnapshotIndex = -1;
 		
@@ -196,25 +221,65 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 	}
 
 	private Collection<AgentSnapshotInfo> getVehiclePositions(final double time) {
+		if (this.snapshotStyle != SnapshotStyle.queue && this.snapshotStyle != SnapshotStyle.equiDist) {
+			// log statement to clarify: why only two snapshot styles. Amit Mar'17
+			log.warn("Cannot generate snapshots offline (e.g., from events) for "+this.snapshotStyle
+					+ ". This snapshot style is supported during simulation only.");
+			throw new RuntimeException("The snapshotStyle \"" + this.snapshotStyle + "\" is not supported.");
+		}
+		if (this.linkPartitions.size() > 1) {
+			return getVehiclePositionsParallel(time);
+		}
+		Collection<AgentSnapshotInfo> positions = new ArrayList<>();
+		addVehiclePositions(this.linkList, positions, time);
+		return positions;
+	}
+
+	private Collection<AgentSnapshotInfo> getVehiclePositionsParallel(final double time) {
+		if (this.executor == null) {
+			this.executor = Executors.newFixedThreadPool(this.numberOfThreads, runnable -> {
+				Thread thread = new Thread(runnable, "SnapshotGenerator");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		List<Callable<List<AgentSnapshotInfo>>> tasks = new ArrayList<>(this.linkPartitions.size());
+		for (List<EventLink> partition : this.linkPartitions) {
+			tasks.add(() -> {
+				List<AgentSnapshotInfo> partitionPositions = new ArrayList<>();
+				addVehiclePositions(partition, partitionPositions, time);
+				return partitionPositions;
+			});
+		}
 		Collection<AgentSnapshotInfo> positions = new ArrayList<>();
+		try {
+			// merge in the order of the partitions, independent of the order the tasks finished
+			for (Future<List<AgentSnapshotInfo>> future : this.executor.invokeAll(tasks)) {
+				positions.addAll(future.get());
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		}
+		return positions;
+	}
+
+	private void addVehiclePositions(final List<EventLink> links, final Collection<AgentSnapshotInfo> positions, final double time) {
 		if (this.snapshotStyle == SnapshotStyle.queue) {
-			for (EventLink link : this.linkList) {
+			for (EventLink link : links) {
 				link.getVehiclePositionsQueue(positions, time, this.snapshotInfoFactory);
 			}
-		} else if (this.snapshotStyle == SnapshotStyle.equiDist) {
-			for (EventLink link : this.linkList) {
+		} else {
+			for (EventLink link : links) {
 				link.getVehiclePositionsEquil(positions, time, this.snapshotInfoFactory);
 			}
-		} else {
-			// log statement to clarify: why only two snapshot styles. Amit Mar'17
-			log.warn("Cannot generate snapshots offline (e.g., from events) for "+this.snapshotStyle
-					+ ". This snapshot style is supported during simulation only.");
-			throw new RuntimeException("The snapshotStyle \"" + this.snapshotStyle + "\" is not supported.");
 		}
-		return positions;
 	}
 
 	public final void finish() {
+		if (this.executor != null) {
+			this.executor.shutdown();
+			this.executor = null;
+		}
 		for (SnapshotWriter writer : this.snapshotWriters) {
 			writer.finish();
 		}
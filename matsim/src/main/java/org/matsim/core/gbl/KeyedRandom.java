@@ -0,0 +1,98 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * KeyedRandom.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.gbl;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.Id;
+
+/**
+ * A {@link Random} that can be switched to the random stream of a key (iteration, person, purpose), see
+ * {@link MatsimRandom#getSeed(int, Id, String)}. After {@link #setKey(int, Id, String)}, the drawn numbers
+ * only depend on the key, not on what was drawn before, so a plan algorithm that is re-keyed for each person
+ * produces the same results no matter which thread handles which persons.
+ * <p></p>
+ * The numbers are generated with SplitMix64 on a plain field instead of the atomic seed of
+ * {@link Random}, and no method is synchronized. An instance must thus only be used by a single
+ * thread at a time.
+ */
+public final class KeyedRandom extends Random {
+
+	private static final long serialVersionUID = 1L;
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private long state;
+	private double nextNextGaussian;
+	private boolean haveNextNextGaussian = false;
+
+	public KeyedRandom(final long seed) {
+		super(seed);
+	}
+
+	public void setKey(final int iteration, final Id<?> id, final String purpose) {
+		setSeed(MatsimRandom.getSeed(iteration, id, purpose));
+	}
+
+	@Override
+	public void setSeed(final long seed) {
+		this.state = MatsimRandom.mix(seed);
+		this.haveNextNextGaussian = false;
+	}
+
+	@Override
+	protected int next(final int bits) {
+		return (int) (nextLong() >>> (64 - bits));
+	}
+
+	@Override
+	public long nextLong() {
+		this.state += GOLDEN_GAMMA;
+		long z = this.state;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	@Override
+	public double nextGaussian() {
+		// same polar method as Random.nextGaussian(), but with a cache that is reset by setSeed()
+		if (this.haveNextNextGaussian) {
+			this.haveNextNextGaussian = false;
+			return this.nextNextGaussian;
+		}
+		double v1, v2, s;
+		do {
+			v1 = 2 * nextDouble() - 1;
+			v2 = 2 * nextDouble() - 1;
+			s = v1 * v1 + v2 * v2;
+		} while (s >= 1 || s == 0);
+		double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+		this.nextNextGaussian = v2 * multiplier;
+		this.haveNextNextGaussian = true;
+		return v1 * multiplier;
+	}
+
+}
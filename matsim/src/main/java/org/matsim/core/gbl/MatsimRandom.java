@@ -20,15 +20,27 @@
 
 package org.matsim.core.gbl;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.function.Supplier;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 
 
 /**
  * An abstract class, providing random numbers for MATSim. Also provides
  * Random Number Generators (RNG) for use in threads, which should all
  * use their own RNGs for deterministic behavior.
+ * <p></p>
+ * The random numbers drawn by the local instances of a multi-threaded module still depend on
+ * how the persons are distributed to the threads, i.e. on the number of threads. For results that
+ * do not depend on the number of threads, random numbers can be drawn from streams keyed by the
+ * iteration, the person and the purpose of the random numbers, see {@link #getSeed(int, Id, String)}
+ * and {@link KeyedRandom}. If {@link #setKeyedStreams(boolean) keyed streams} are switched on,
+ * the replanning modules and the strategy manager use them, and a thread may replace the global
+ * instance returned by {@link #getRandom()} with its own one, see {@link #setThreadRandom(Random)}.
  *
  * @author mrieser
  */
@@ -53,6 +65,10 @@ public abstract class MatsimRandom {
 
 	private static long lastUsedSeed = DEFAULT_RANDOM_SEED;
 	private static int internalCounter = 0;
+	private static boolean keyedStreams = false;
+
+	private static final ThreadLocal<List<KeyedRandom>> collectedKeyedInstances = new ThreadLocal<>();
+	private static final ThreadLocal<Random> threadRandom = new ThreadLocal<>();
 
 	/** the global random number generator */
 	private static final Random random = new Random(DEFAULT_RANDOM_SEED);
@@ -70,13 +86,33 @@ public abstract class MatsimRandom {
 	public static void reset(final long seed) {
 		lastUsedSeed = seed;
 		internalCounter = 0;
-		getRandom().setSeed(seed);
+		random.setSeed(seed);
 //		prepareRNG(random);
 	}
 	public static Random getRandom() {
+		if (keyedStreams) {
+			Random r = threadRandom.get();
+			if (r != null) {
+				return r;
+			}
+		}
 		return random;
 	}
 
+	/**
+	 * Makes {@link #getRandom()} return the given instance instead of the global one in the current thread, as long
+	 * as keyed streams are switched on. <code>null</code> switches back to the global instance. With a {@link KeyedRandom}
+	 * that is re-keyed for each person, code that draws from getRandom(), e.g. the plan selectors, draws from the
+	 * stream of the person, no matter which thread handles the person.
+	 */
+	public static void setThreadRandom(final Random r) {
+		if (r == null) {
+			threadRandom.remove();
+		} else {
+			threadRandom.set(r);
+		}
+	}
+
 	/** Returns an instance of a random number generator, which can be used
 	 * locally, e.g. in threads.
 	 *
@@ -84,11 +120,89 @@ public abstract class MatsimRandom {
 	 */
 	public static Random getLocalInstance() {
 		internalCounter++;
+		List<KeyedRandom> keyedInstances = collectedKeyedInstances.get();
+		if (keyedInstances != null) {
+			KeyedRandom r = new KeyedRandom(lastUsedSeed + internalCounter*23l);
+			keyedInstances.add(r);
+			return r;
+		}
 		Random r = new Random(lastUsedSeed + internalCounter*23l);
 		prepareRNG(r);
 		return r;
 	}
 
+	/**
+	 * Switches keyed random streams on or off. When on, modules re-key the local instances they
+	 * use for each person, so the random numbers a person gets do not depend on the number of threads.
+	 */
+	public static void setKeyedStreams(final boolean keyed) {
+		keyedStreams = keyed;
+	}
+
+	public static boolean isKeyedStreams() {
+		return keyedStreams;
+	}
+
+	/**
+	 * Creates an object (typically a plan algorithm) with the factory. If {@link #isKeyedStreams() keyed streams}
+	 * are switched on, all local instances the factory requests in this thread are {@link KeyedRandom}s, and are
+	 * added to <code>keyedInstances</code>, so the caller can re-key them before each use of the created object.
+	 */
+	public static <T> T createWithKeyedInstances(final Supplier<T> factory, final List<KeyedRandom> keyedInstances) {
+		if (!keyedStreams) {
+			return factory.get();
+		}
+		List<KeyedRandom> previous = collectedKeyedInstances.get();
+		collectedKeyedInstances.set(new ArrayList<KeyedRandom>());
+		try {
+			T result = factory.get();
+			keyedInstances.addAll(collectedKeyedInstances.get());
+			return result;
+		} finally {
+			collectedKeyedInstances.set(previous);
+		}
+	}
+
+	/**
+	 * Returns the seed of the random stream for the given key. The seed only depends on the seed set in
+	 * {@link #reset(long)} and on the key, so it can be computed in any thread and in any order,
+	 * without any synchronization.
+	 *
+	 * @param iteration the iteration, or any other counter
+	 * @param id the id of the object (typically the person) the random numbers are drawn for
+	 * @param purpose distinguishes independent streams for the same object, e.g. the name of the module
+	 */
+	public static long getSeed(final int iteration, final Id<?> id, final String purpose) {
+		long h = mix(lastUsedSeed);
+		h = mix(h ^ iteration);
+		h = mix(h ^ hash(id.toString()));
+		return mix(h ^ hash(purpose));
+	}
+
+	/**
+	 * @return a single uniformly distributed random number in [0, 1) for the given key, see {@link #getSeed(int, Id, String)}
+	 */
+	public static double getUniform(final int iteration, final Id<?> id, final String purpose) {
+		return (getSeed(iteration, id, purpose) >>> 11) * 0x1.0p-53;
+	}
+
+	private static long hash(final String s) {
+		long h = 1125899906842597L;
+		for (int i = 0; i < s.length(); i++) {
+			h = 31 * h + s.charAt(i);
+		}
+		return h;
+	}
+
+	/**
+	 * The finalizer of MurmurHash3, a bijection with good avalanche behavior.
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return z ^ (z >>> 33);
+	}
+
 	/**
 	 * Draw some random numbers to better initialize the pseudo-random number generator.
 	 *
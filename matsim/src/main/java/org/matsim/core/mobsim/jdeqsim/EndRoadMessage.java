@@ -19,6 +19,9 @@
 
 package org.matsim.core.mobsim.jdeqsim;
 
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Plan;
+
 /**
  * The micro-simulation internal handler, when the end of a road is reached.
  *
@@ -48,6 +51,17 @@ public class EndRoadMessage extends EventMessage {
 		}
 	}
 
+	/**
+	 * @return the road, which the vehicle requests to enter when this message is handled
+	 */
+	public Road getNextRoad() {
+		if (vehicle.isCurrentLegFinished()) {
+			Plan plan = vehicle.getOwnerPerson().getSelectedPlan();
+			return Road.getRoad(((Activity) plan.getPlanElements().get(vehicle.getLegIndex() + 1)).getLinkId());
+		}
+		return Road.getRoad(vehicle.getCurrentLinkRoute()[vehicle.getLinkIndex() + 1]);
+	}
+
 	public EndRoadMessage(Scheduler scheduler, Vehicle vehicle) {
 		super(scheduler, vehicle);
 	}
@@ -80,6 +80,21 @@ public class MessageQueue {
 		return m;
 	}
 
+	/**
+	 * 
+	 * get the first message in the queue without removing it (dead messages
+	 * at the head of the queue are discarded)
+	 *
+	 * @return the first message or <code>null</code>, if the queue is empty
+	 */
+	public Message peekNextMessage() {
+		Message m;
+		while ((m = queue1.peek()) != null && !m.isAlive()) {
+			queue1.poll();
+		}
+		return m;
+	}
+
 	public boolean isEmpty() {
 		return queue1.size() == 0;
 	}
@@ -88,4 +103,4 @@ public class MessageQueue {
 		return queueSize;
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,380 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.gbl.Gbl;
+
+/**
+ * Scheduler, which runs the micro-simulation on several threads.
+ * <p></p>
+ * The nodes are partitioned into strips of equal size along the x axis, and each road belongs to the partition of
+ * the from node of its link. Every partition has its own message queue. The partitions process their messages in
+ * parallel within time windows; the length of a window (the lookahead) is the shortest free speed travel time and
+ * inverse flow capacity of the links leading from one partition into another, i.e. a vehicle entering such a link
+ * cannot reach the next partition before the end of the window. Messages for another partition are exchanged at the
+ * end of each window.
+ * <p></p>
+ * Some interactions have no lookahead (e.g. a vehicle leaving the previous road at the moment it is allowed to enter
+ * the next one, or a teleported leg of zero duration). Such messages are processed by the sending partition at their
+ * time as far as the events are concerned, and handled by the receiving partition at the beginning of the next
+ * window. This is why the results match the single-threaded simulation only statistically.
+ * <p></p>
+ * The events of a window are collected per partition and passed on to the events manager in time order by a single
+ * thread at the end of the window.
+ */
+public class ParallelScheduler extends Scheduler {
+
+	private static final Logger log = Logger.getLogger(ParallelScheduler.class);
+
+	/**
+	 * lower bound for the window length, in seconds, guaranteeing progress for very short links
+	 */
+	private static final double MIN_LOOKAHEAD = 1.0;
+
+	/**
+	 * upper bound for the window length, in seconds, bounding the delay of interactions without lookahead
+	 */
+	private static final double MAX_LOOKAHEAD = 60.0;
+
+	private final Partition[] partitions;
+	private final Map<Id<Node>, Partition> nodePartitions;
+	private final double lookahead;
+	private final double simulationEndTime;
+	private final EventsManager events;
+	private final ThreadLocal<Partition> currentPartition = new ThreadLocal<>();
+
+	private double windowEnd = 0;
+	private double simTime = 0;
+	private double hourlyLogTime = 3600;
+	private final double simulationStartTime = System.currentTimeMillis();
+
+	/**
+	 * The queue of the super class is not used, every partition has its own queue.
+	 */
+	public ParallelScheduler(JDEQSimConfigGroup config, Network network, EventsManager events) {
+		super(new MessageQueue(), config.getSimulationEndTime());
+		this.simulationEndTime = config.getSimulationEndTime();
+		this.events = events;
+
+		int numberOfPartitions = config.getNumberOfThreads();
+		this.partitions = new Partition[numberOfPartitions];
+		for (int i = 0; i < numberOfPartitions; i++) {
+			this.partitions[i] = new Partition(i, numberOfPartitions);
+		}
+
+		// the sort is stable, i.e. nodes with the same x coordinate keep the (deterministic) order of the network
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		nodes.sort((n1, n2) -> Double.compare(n1.getCoord().getX(), n2.getCoord().getX()));
+		this.nodePartitions = new HashMap<>(nodes.size() * 2);
+		for (int i = 0; i < nodes.size(); i++) {
+			this.nodePartitions.put(nodes.get(i).getId(), this.partitions[(int) ((long) i * numberOfPartitions / nodes.size())]);
+		}
+
+		double minTime = MAX_LOOKAHEAD;
+		int numberOfCutLinks = 0;
+		for (Link link : network.getLinks().values()) {
+			if (this.nodePartitions.get(link.getFromNode().getId()) != this.nodePartitions.get(link.getToNode().getId())) {
+				minTime = Math.min(minTime, link.getLength() / link.getFreespeed());
+				minTime = Math.min(minTime, 1 / (link.getFlowCapacityPerSec() * config.getFlowCapacityFactor()));
+				numberOfCutLinks++;
+			}
+		}
+		this.lookahead = Math.max(MIN_LOOKAHEAD, minTime);
+		log.info("Simulating " + numberOfPartitions + " partitions in parallel; " + numberOfCutLinks
+				+ " links lead from one partition into another; time window: " + this.lookahead + "[s]");
+
+		// the message pools of the message factory are not thread safe; make sure they are empty
+		MessageFactory.GC_ALL_MESSAGES();
+	}
+
+	@Override
+	public void schedule(Message m) {
+		Partition partition = this.currentPartition.get();
+		Partition handlingPartition = getHandlingPartition(m);
+		if (partition == null) {
+			// initialization, before the simulation starts
+			handlingPartition.queue.putMessage(m);
+			return;
+		}
+		if (m.getMessageArrivalTime() < partition.simTime) {
+			// can only happen when a message from another partition has been handled late
+			m.setMessageArrivalTime(partition.simTime);
+		}
+		if (handlingPartition == partition || m.getMessageArrivalTime() < this.windowEnd) {
+			partition.queue.putMessage(m);
+		} else {
+			partition.outboxes[handlingPartition.index].add(m);
+		}
+	}
+
+	@Override
+	public void unschedule(Message m) {
+		Partition partition = this.currentPartition.get();
+		(partition == null ? getHandlingPartition(m) : partition).queue.removeMessage(m);
+	}
+
+	@Override
+	public double getSimTime() {
+		Partition partition = this.currentPartition.get();
+		return partition == null ? this.simTime : partition.simTime;
+	}
+
+	@Override
+	public void startSimulation() {
+		EventsManager partitionEvents = new PartitionEventsManager();
+		Message.setEventsManager(partitionEvents);
+		ExecutorService executor = Executors.newFixedThreadPool(this.partitions.length);
+		List<Callable<Object>> tasks = new ArrayList<>(this.partitions.length);
+		for (Partition partition : this.partitions) {
+			tasks.add(() -> {
+				this.currentPartition.set(partition);
+				try {
+					partition.processWindow();
+				} finally {
+					this.currentPartition.remove();
+				}
+				return null;
+			});
+		}
+		try {
+			while (true) {
+				// skip periods without any messages
+				double windowStart = Double.POSITIVE_INFINITY;
+				for (Partition partition : this.partitions) {
+					Message m = partition.queue.peekNextMessage();
+					if (m != null) {
+						windowStart = Math.min(windowStart, m.getMessageArrivalTime());
+					}
+				}
+				if (windowStart == Double.POSITIVE_INFINITY || windowStart >= this.simulationEndTime) {
+					break;
+				}
+				this.windowEnd = windowStart + this.lookahead;
+
+				for (Future<Object> future : executor.invokeAll(tasks)) {
+					future.get();
+				}
+
+				flushEvents();
+				deliverMessages();
+				this.simTime = this.windowEnd;
+				printLog();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdown();
+			Message.setEventsManager(this.events);
+		}
+	}
+
+	private Partition getHandlingPartition(Message m) {
+		SimUnit unit;
+		if (m instanceof ForwardedMessage) {
+			return ((ForwardedMessage) m).partition;
+		} else if (m instanceof EndRoadMessage) {
+			// the end of a road is handled by the road the vehicle enters next
+			unit = ((EndRoadMessage) m).getNextRoad();
+		} else {
+			unit = m.getReceivingUnit();
+		}
+		if (unit instanceof Road) {
+			return this.nodePartitions.get(((Road) unit).getLink().getFromNode().getId());
+		}
+		return this.partitions[0];
+	}
+
+	/**
+	 * passes the events of all partitions on in time order; events with the same time are passed on in the order of
+	 * the partitions
+	 */
+	private void flushEvents() {
+		int[] position = new int[this.partitions.length];
+		while (true) {
+			Partition next = null;
+			double nextTime = Double.POSITIVE_INFINITY;
+			for (Partition partition : this.partitions) {
+				if (position[partition.index] < partition.events.size()) {
+					double time = partition.events.get(position[partition.index]).getTime();
+					if (next == null || time < nextTime) {
+						next = partition;
+						nextTime = time;
+					}
+				}
+			}
+			if (next == null) {
+				break;
+			}
+			this.events.processEvent(next.events.get(position[next.index]++));
+		}
+		for (Partition partition : this.partitions) {
+			partition.events.clear();
+		}
+	}
+
+	private void deliverMessages() {
+		for (Partition partition : this.partitions) {
+			for (int i = 0; i < this.partitions.length; i++) {
+				for (Message m : partition.outboxes[i]) {
+					this.partitions[i].queue.putMessage(m);
+				}
+				partition.outboxes[i].clear();
+			}
+		}
+	}
+
+	private void printLog() {
+		// print output each hour
+		if (this.simTime / this.hourlyLogTime > 1) {
+			this.hourlyLogTime = this.simTime + 3600;
+			log.info("Simulation at " + this.simTime / 3600 + "[h]; s/r:" + this.simTime / (System.currentTimeMillis() - this.simulationStartTime) * 1000);
+			Gbl.printMemoryUsage();
+		}
+	}
+
+	private class Partition {
+
+		private final int index;
+		private final MessageQueue queue = new MessageQueue();
+		private final List<Message>[] outboxes;
+		private final List<Event> events = new ArrayList<>();
+		private double simTime = 0;
+
+		@SuppressWarnings("unchecked")
+		Partition(int index, int numberOfPartitions) {
+			this.index = index;
+			this.outboxes = new List[numberOfPartitions];
+			for (int i = 0; i < numberOfPartitions; i++) {
+				this.outboxes[i] = new ArrayList<>();
+			}
+		}
+
+		void processWindow() {
+			Message m;
+			while ((m = this.queue.peekNextMessage()) != null && m.getMessageArrivalTime() < windowEnd
+					&& m.getMessageArrivalTime() < simulationEndTime) {
+				this.queue.getNextMessage();
+				this.simTime = m.getMessageArrivalTime();
+				m.processEvent();
+				Partition handlingPartition = getHandlingPartition(m);
+				if (handlingPartition == this) {
+					m.handleMessage();
+				} else {
+					// the message should have been handled by the other partition already; do it at the beginning of the next window
+					this.outboxes[handlingPartition.index].add(new ForwardedMessage(m, handlingPartition, windowEnd));
+				}
+			}
+		}
+	}
+
+	/**
+	 * A message, whose event has been processed in one partition, but which has to be handled by another partition.
+	 * The handling uses the original time of the message.
+	 */
+	private static class ForwardedMessage extends Message {
+
+		private final Message message;
+		private final Partition partition;
+
+		ForwardedMessage(Message message, Partition partition, double messageArrivalTime) {
+			this.message = message;
+			this.partition = partition;
+			setMessageArrivalTime(messageArrivalTime);
+			setPriority(message.getPriority());
+			setReceivingUnit(message.getReceivingUnit());
+		}
+
+		@Override
+		public void processEvent() {
+			// the event has already been processed by the sending partition
+		}
+
+		@Override
+		public void handleMessage() {
+			this.message.handleMessage();
+		}
+	}
+
+	/**
+	 * Collects the events of the messages processed by a partition; other calls are passed on.
+	 */
+	private class PartitionEventsManager implements EventsManager {
+
+		@Override
+		public void processEvent(Event event) {
+			Partition partition = currentPartition.get();
+			if (partition == null) {
+				events.processEvent(event);
+			} else {
+				partition.events.add(event);
+			}
+		}
+
+		@Override
+		public void addHandler(EventHandler handler) {
+			events.addHandler(handler);
+		}
+
+		@Override
+		public void removeHandler(EventHandler handler) {
+			events.removeHandler(handler);
+		}
+
+		@Override
+		public void resetHandlers(int iteration) {
+			events.resetHandlers(iteration);
+		}
+
+		@Override
+		public void initProcessing() {
+			events.initProcessing();
+		}
+
+		@Override
+		public void afterSimStep(double time) {
+			events.afterSimStep(time);
+		}
+
+		@Override
+		public void finishProcessing() {
+			events.finishProcessing();
+		}
+	}
+}
@@ -103,6 +103,12 @@ public final class TransitAgentImpl implements PTPassengerAgent {
 		ExperimentalTransitRoute route = (ExperimentalTransitRoute) basicAgentDelegate.getCurrentLeg().getRoute();
 		return route.getEgressStopId();
 	}
+
+	@Override
+	public final Id<TransitLine> getDesiredLineId() {
+		ExperimentalTransitRoute route = (ExperimentalTransitRoute) basicAgentDelegate.getCurrentLeg().getRoute();
+		return route.getLineId();
+	}
 	@Override
 	public Id<Link> getCurrentLinkId() {
 		return basicAgentDelegate.getCurrentLinkId() ;
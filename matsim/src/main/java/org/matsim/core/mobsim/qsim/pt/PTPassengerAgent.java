@@ -67,6 +67,17 @@ public interface PTPassengerAgent extends PassengerAgent {
 	
 	public Id<TransitStopFacility> getDesiredDestinationStopId();
 
+	/**
+	 * Asks a passenger which is waiting at a stop about the line it wants to board. An agent returning a line must not want to
+	 * enter a route of another line (see {@link #getEnterTransitRoute(TransitLine, TransitRoute, List, TransitVehicle)}), as it is only
+	 * asked by vehicles of this line then.
+	 * 
+	 * @return The transit line id, or <code>null</code> if the agent may want to board any line.
+	 */
+	public default Id<TransitLine> getDesiredLineId() {
+		return null;
+	}
+
 	/**
 	 * @return a statistical weight, how many "real" agents this agent represents, e.g. "5.0" if you simulate a 20%-sample.
 	 */
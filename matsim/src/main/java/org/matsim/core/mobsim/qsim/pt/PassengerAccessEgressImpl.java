@@ -104,33 +104,32 @@ class PassengerAccessEgressImpl implements PassengerAccessEgress {
 	
 	
 	private List<PTPassengerAgent> findPassengersEntering(TransitRoute transitRoute, TransitLine transitLine, TransitVehicle vehicle, 
-			final TransitStopFacility stop, List<TransitRouteStop> stopsToCome, int freeCapacity, double now) {
+			final TransitStopFacility stop, List<TransitRouteStop> stopsToCome, final int freeCapacity, double now) {
 		ArrayList<PTPassengerAgent> passengersEntering = new ArrayList<>();
 		
 		if (this.isGeneratingDeniedBoardingEvents) {
 			
-			for (PTPassengerAgent agent : this.agentTracker.getAgentsAtFacility(stop.getId())) {
+			// all agents have to be asked, to know who is denied to board
+			this.agentTracker.visitAgentsAtStopForLine(stop.getId(), transitLine.getId(), agent -> {
 				if (agent.getEnterTransitRoute(transitLine, transitRoute, stopsToCome, vehicle)) {
-					if (freeCapacity >= 1) {
+					if (passengersEntering.size() < freeCapacity) {
 						passengersEntering.add(agent);
-						freeCapacity--;
 					} else {
 						this.agentsDeniedToBoard.add(agent);
 					}
 				}
-			}
+				return true;
+			});
 
-		} else {
+		} else if (freeCapacity > 0) {
 		
-			for (PTPassengerAgent agent : this.agentTracker.getAgentsAtFacility(stop.getId())) {
-				if (freeCapacity == 0) {
-					break;
-				}
+			// stop asking the waiting agents as soon as the vehicle is full
+			this.agentTracker.visitAgentsAtStopForLine(stop.getId(), transitLine.getId(), agent -> {
 				if (agent.getEnterTransitRoute(transitLine, transitRoute, stopsToCome, vehicle)) {
 					passengersEntering.add(agent);
-					freeCapacity--;
 				}
-			}
+				return passengersEntering.size() < freeCapacity;
+			});
 		
 		}
 		
@@ -20,11 +20,15 @@
 
 package org.matsim.core.mobsim.qsim.pt;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -32,9 +36,17 @@ import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.qsim.AgentTracker;
 import org.matsim.facilities.Facility;
+import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
 /**
+ * Keeps track of the agents waiting at transit stops.
+ * <p></p>
+ * The waiting agents of a stop are kept in one FIFO queue per desired line (see {@link PTPassengerAgent#getDesiredLineId()}),
+ * plus one queue for the agents that do not tell their desired line. A vehicle serving a line at a stop thus only has
+ * to ask the agents waiting for this line whether they want to board (see {@link #visitAgentsAtStopForLine(Id, Id, Predicate)}),
+ * instead of all agents waiting at the stop, and can stop asking once it is full.
+ *
  * @author mrieser
  */
 public class TransitStopAgentTracker implements AgentTracker {
@@ -42,7 +54,7 @@ public class TransitStopAgentTracker implements AgentTracker {
 	private final static Logger log = Logger.getLogger(TransitStopAgentTracker.class);
 	
 	private final EventsManager events;
-	private final Map<Id<TransitStopFacility>, List<PTPassengerAgent>> agentsAtStops = new ConcurrentHashMap<>();
+	private final Map<Id<TransitStopFacility>, StopQueues> agentsAtStops = new ConcurrentHashMap<>();
 
 	public TransitStopAgentTracker(final EventsManager events) {
 		this.events = events;
@@ -52,12 +64,8 @@ public class TransitStopAgentTracker implements AgentTracker {
 		if (stopId == null) {
 			throw new NullPointerException("stop must not be null.");
 		}
-		List<PTPassengerAgent> agents = this.agentsAtStops.get(stopId);
-		if (agents == null) {
-			agents = new CopyOnWriteArrayList<>();// TODO check again. this might turn out to be slow, but we likely need something thread safe here. marcel/oct2014 
-			this.agentsAtStops.put(stopId, agents);
-		}
-		if ( !agents.add(agent) ) {
+		StopQueues queues = this.agentsAtStops.computeIfAbsent(stopId, id -> new StopQueues());
+		if ( !queues.add(agent) ) {
 			log.error("did NOT add agent " + agent.getId() + " since it was already there.");
 		}
 		Id<TransitStopFacility> destinationStopId = agent.getDesiredDestinationStopId();
@@ -68,9 +76,9 @@ public class TransitStopAgentTracker implements AgentTracker {
 		if (stopId == null) {
 			throw new NullPointerException("stopId must not be null.");
 		}
-		List<PTPassengerAgent> agents = this.agentsAtStops.get(stopId);
-		if (agents != null) {
-			if (!agents.remove(agent)) {
+		StopQueues queues = this.agentsAtStops.get(stopId);
+		if (queues != null) {
+			if (!queues.remove(agent)) {
 				log.error("Agent " + agent.getId() + " could not be removed from waiting at stop " + stopId);
 			}
 		} else {
@@ -78,16 +86,137 @@ public class TransitStopAgentTracker implements AgentTracker {
 		}
 	}
 
+	/**
+	 * @return all agents waiting at the stop, in the order they arrived. The list is a copy, it does not reflect later changes.
+	 */
 	@Override
 	public List<PTPassengerAgent> getAgentsAtFacility(final Id<? extends Facility> stopId) {
-		List<PTPassengerAgent> agents = this.agentsAtStops.get(stopId);
-		if (agents == null) {
+		StopQueues queues = this.agentsAtStops.get(stopId);
+		if (queues == null) {
 			return Collections.emptyList();
 		}
-		return Collections.unmodifiableList(agents);
+		return Collections.unmodifiableList(queues.getAll());
+	}
+
+	/**
+	 * @return the agents waiting at the stop that may want to board a vehicle of the line, in the order they arrived,
+	 * i.e. the agents waiting for this line and the agents that do not tell their desired line. The list is a copy, it
+	 * does not reflect later changes.
+	 */
+	public List<PTPassengerAgent> getAgentsAtStopForLine(final Id<TransitStopFacility> stopId, final Id<TransitLine> lineId) {
+		StopQueues queues = this.agentsAtStops.get(stopId);
+		if (queues == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(queues.getForLine(lineId));
+	}
+
+	/**
+	 * Passes the agents waiting at the stop that may want to board a vehicle of the line to the visitor, in the
+	 * order they arrived, until the visitor returns <code>false</code>. Other than {@link #getAgentsAtStopForLine(Id, Id)},
+	 * this does not copy the waiting agents, so the cost only depends on the number of agents visited.
+	 * <p></p>
+	 * The stop is locked while the agents are visited, so the visitor must not add or remove agents at this stop.
+	 */
+	public void visitAgentsAtStopForLine(final Id<TransitStopFacility> stopId, final Id<TransitLine> lineId, final Predicate<PTPassengerAgent> visitor) {
+		StopQueues queues = this.agentsAtStops.get(stopId);
+		if (queues != null) {
+			queues.visitForLine(lineId, visitor);
+		}
 	}
 
+	/**
+	 * @return a snapshot of the agents waiting at each stop, see {@link #getAgentsAtFacility(Id)}
+	 */
 	public Map<Id<TransitStopFacility>, List<PTPassengerAgent>> getAgentsAtStop() {
-		return this.agentsAtStops;
+		Map<Id<TransitStopFacility>, List<PTPassengerAgent>> agents = new LinkedHashMap<>();
+		for (Map.Entry<Id<TransitStopFacility>, StopQueues> e : this.agentsAtStops.entrySet()) {
+			List<PTPassengerAgent> agentsAtStop = e.getValue().getAll();
+			if (!agentsAtStop.isEmpty()) {
+				agents.put(e.getKey(), agentsAtStop);
+			}
+		}
+		return agents;
+	}
+
+	/**
+	 * The queues of one stop. Vehicles of several lines may serve the stop from different threads,
+	 * so all methods are synchronized.
+	 */
+	private static final class StopQueues {
+		/** the sequence number of each waiting agent, in the order the agents arrived */
+		private final LinkedHashMap<PTPassengerAgent, Long> all = new LinkedHashMap<>();
+		private final Map<Id<TransitLine>, LinkedHashMap<PTPassengerAgent, Long>> byLine = new HashMap<>();
+		/** the agents that do not tell their desired line */
+		private final LinkedHashMap<PTPassengerAgent, Long> anyLine = new LinkedHashMap<>();
+		private final Map<PTPassengerAgent, Id<TransitLine>> lineOfAgent = new HashMap<>();
+		private long nextSequenceNumber = 0;
+
+		synchronized boolean add(final PTPassengerAgent agent) {
+			if (this.all.containsKey(agent)) {
+				return false;
+			}
+			Long sequenceNumber = this.nextSequenceNumber++;
+			this.all.put(agent, sequenceNumber);
+			Id<TransitLine> lineId = agent.getDesiredLineId();
+			if (lineId == null) {
+				this.anyLine.put(agent, sequenceNumber);
+			} else {
+				this.byLine.computeIfAbsent(lineId, id -> new LinkedHashMap<>()).put(agent, sequenceNumber);
+				this.lineOfAgent.put(agent, lineId);
+			}
+			return true;
+		}
+
+		synchronized boolean remove(final PTPassengerAgent agent) {
+			if (this.all.remove(agent) == null) {
+				return false;
+			}
+			// the desired line may not be known anymore, so use the one from adding the agent
+			Id<TransitLine> lineId = this.lineOfAgent.remove(agent);
+			if (lineId == null) {
+				this.anyLine.remove(agent);
+			} else {
+				LinkedHashMap<PTPassengerAgent, Long> lineQueue = this.byLine.get(lineId);
+				lineQueue.remove(agent);
+				if (lineQueue.isEmpty()) {
+					this.byLine.remove(lineId);
+				}
+			}
+			return true;
+		}
+
+		synchronized List<PTPassengerAgent> getAll() {
+			return new ArrayList<>(this.all.keySet());
+		}
+
+		synchronized List<PTPassengerAgent> getForLine(final Id<TransitLine> lineId) {
+			List<PTPassengerAgent> agents = new ArrayList<>();
+			this.visitForLine(lineId, agents::add);
+			return agents;
+		}
+
+		synchronized void visitForLine(final Id<TransitLine> lineId, final Predicate<PTPassengerAgent> visitor) {
+			LinkedHashMap<PTPassengerAgent, Long> lineQueue = this.byLine.get(lineId);
+			Iterator<Map.Entry<PTPassengerAgent, Long>> lineIter = lineQueue == null ?
+					Collections.<Map.Entry<PTPassengerAgent, Long>>emptyIterator() : lineQueue.entrySet().iterator();
+			Iterator<Map.Entry<PTPassengerAgent, Long>> anyIter = this.anyLine.entrySet().iterator();
+			Map.Entry<PTPassengerAgent, Long> lineEntry = lineIter.hasNext() ? lineIter.next() : null;
+			Map.Entry<PTPassengerAgent, Long> anyEntry = anyIter.hasNext() ? anyIter.next() : null;
+			// merge both queues by sequence number to keep the order of arrival
+			while (lineEntry != null || anyEntry != null) {
+				PTPassengerAgent agent;
+				if (anyEntry == null || (lineEntry != null && lineEntry.getValue() < anyEntry.getValue())) {
+					agent = lineEntry.getKey();
+					lineEntry = lineIter.hasNext() ? lineIter.next() : null;
+				} else {
+					agent = anyEntry.getKey();
+					anyEntry = anyIter.hasNext() ? anyIter.next() : null;
+				}
+				if (!visitor.test(agent)) {
+					return;
+				}
+			}
+		}
 	}
 }
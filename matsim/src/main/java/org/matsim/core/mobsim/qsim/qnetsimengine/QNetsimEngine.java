@@ -41,6 +41,7 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
@@ -78,6 +79,16 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		void letVehicleArrive(QVehicle veh);
 	}
 
+	/**
+	 * Additional network elements (e.g. walk and bike links of a multi-modal simulation) that are moved by a runner of
+	 * this engine, right after it moved its own QNodes resp. QLinks. Thus, they do not need own threads and barriers, and
+	 * everything happening at a node is handled by the same runner. See {@link QNetsimEngine#addRunnerExtension(int, RunnerExtension)}.
+	 */
+	public interface RunnerExtension {
+		void moveNodes(double time);
+		void moveLinks(double time);
+	}
+
 	NetsimInternalInterface ii = new NetsimInternalInterface(){
 		@Override public QNetwork getNetsimNetwork() {
 			return network ;
@@ -112,6 +123,7 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	private Phaser endBarrier;
 
 	private final Set<QLinkI> linksToActivateInitially = new HashSet<>();
+	private final Map<Id<Node>, Integer> runnerIndexByNodeId = new HashMap<>();
 
 	private InternalInterface internalInterface = null;
 
@@ -375,6 +387,36 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 //	QSim getMobsim() {
 //		return this.qsim;
 //	}
+
+	/**
+	 * @return the number of runners moving the nodes and links, only available after {@link #onPrepareSim()}
+	 */
+	public int getNumberOfRunners() {
+		if (this.engines == null) {
+			throw new IllegalStateException("The runners are created in onPrepareSim().");
+		}
+		return this.engines.size();
+	}
+
+	/**
+	 * @return the index of the runner moving the node and its out-links, or -1 if the node is not simulated.
+	 * Only available after {@link #onPrepareSim()}.
+	 */
+	public int getRunnerIndex(Id<Node> nodeId) {
+		Integer index = this.runnerIndexByNodeId.get(nodeId);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Lets the runner with the given index move the extension in each time step. Has to be called after {@link #onPrepareSim()}
+	 * in each iteration, e.g. from the onPrepareSim() method of an engine that was added after this one. 
+	 */
+	public void addRunnerExtension(int runnerIndex, RunnerExtension extension) {
+		if (this.engines == null) {
+			throw new IllegalStateException("The runners are created in onPrepareSim().");
+		}
+		this.engines.get(runnerIndex).addExtension(extension);
+	}
 	// do not hand out back pointers! kai, mar'16
 
 	public NetsimNetwork getNetsimNetwork() {
@@ -468,8 +510,10 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		int links[] = new int[numOfRunners];
 
 		int roundRobin = 0;
+		this.runnerIndexByNodeId.clear();
 		for (QNodeI node : network.getNetsimNodes().values()) {
 			int i = roundRobin % this.numOfRunners;
+			this.runnerIndexByNodeId.put(node.getNode().getId(), i);
 			if ( node instanceof QNodeImpl ) {
 				((QNodeImpl) node).setNetElementActivationRegistry(this.engines.get(i));
 			}
@@ -75,6 +75,8 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	private boolean lockLinks = false;
 
 	private boolean movingNodes;
+	
+	private final List<QNetsimEngine.RunnerExtension> extensions = new ArrayList<>();
 
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
@@ -100,6 +102,10 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		time = t;
 	}
 
+	/*package*/ void addExtension(QNetsimEngine.RunnerExtension extension) {
+		this.extensions.add(extension);
+	}
+
 	public void afterSim() {
 		this.simulationRunning = false;
 	}
@@ -175,6 +181,10 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			if (!remainsActive) simNodes.remove();
 		}
 		this.lockNodes = false;
+		
+		for (QNetsimEngine.RunnerExtension extension : this.extensions) {
+			extension.moveNodes(time);
+		}
 	}
 	private void moveLinks() {
 		boolean remainsActive;
@@ -189,6 +199,10 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			if (!remainsActive) simLinks.remove();
 		}
 		lockLinks = false;
+		
+		for (QNetsimEngine.RunnerExtension extension : this.extensions) {
+			extension.moveLinks(time);
+		}
 	}
 
 	/*
@@ -40,6 +40,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Design thoughts:<ul>
@@ -98,6 +99,14 @@ import java.util.Queue;
 	private boolean locked = false ;
 	private final Attributes attributes = new Attributes();
 
+	// compiled lazily from the time-variant links, null while it is not available or outdated
+	private volatile TimeVariantLinkAttributes timeVariantLinkAttributes = null;
+	private long timeVariantLinkModifications = 0;
+	// counted by all threads that look up link attributes, e.g. the parallel routers
+	private final AtomicInteger lookupsSinceModification = new AtomicInteger();
+	private boolean compilingTimeVariantLinkAttributes = false;
+	private final Object timeVariantLinkLock = new Object();
+
 	NetworkImpl() {
 		this.factory = new NetworkFactoryImpl(this);
 	}
@@ -129,6 +138,7 @@ import java.util.Queue;
 		toNode.addInLink(link);
 
 		links.put(link.getId(), link);
+		invalidateTimeVariantLinkAttributes();
 
 		if (this.linkQuadTree != null) {
 			double linkMinX = Math.min(link.getFromNode().getCoord().getX(), link.getToNode().getCoord().getX());
@@ -256,6 +266,7 @@ import java.util.Queue;
 	public void setCapacityPeriod(final double capPeriod) {
 		testForLocked() ;
 		this.capacityPeriod = (int) capPeriod;
+		invalidateTimeVariantLinkAttributes();
 	}
 	@Override
 	public void setEffectiveCellSize(final double effectiveCellSize) {
@@ -325,6 +336,52 @@ import java.util.Queue;
 		}
 	}
 
+	/**
+	 * Returns the compiled attributes of the time-variant links. The table is only compiled once the
+	 * links were looked up more often than there are links since the last modification, so
+	 * alternating modifications and lookups fall back to the links' own (slower) lookups instead of
+	 * re-compiling the table each time.
+	 *
+	 * @return the compiled attributes, or null if they are currently not available
+	 */
+	/*package*/ TimeVariantLinkAttributes getTimeVariantLinkAttributes() {
+		TimeVariantLinkAttributes attributes = this.timeVariantLinkAttributes;
+		if (attributes != null || this.lookupsSinceModification.incrementAndGet() <= this.links.size()) {
+			return attributes;
+		}
+		long modifications;
+		synchronized (this.timeVariantLinkLock) {
+			if (this.compilingTimeVariantLinkAttributes) {
+				return null; // another thread is already compiling
+			}
+			this.compilingTimeVariantLinkAttributes = true;
+			modifications = this.timeVariantLinkModifications;
+		}
+		try {
+			// compile outside of the lock, the links synchronize on themselves while compiling
+			attributes = TimeVariantLinkAttributes.compile(this.links.values());
+		} finally {
+			synchronized (this.timeVariantLinkLock) {
+				this.compilingTimeVariantLinkAttributes = false;
+			}
+		}
+		synchronized (this.timeVariantLinkLock) {
+			if (modifications != this.timeVariantLinkModifications) {
+				return null; // modified in the meantime
+			}
+			this.timeVariantLinkAttributes = attributes;
+		}
+		return attributes;
+	}
+
+	/*package*/ void invalidateTimeVariantLinkAttributes() {
+		synchronized (this.timeVariantLinkLock) {
+			this.timeVariantLinkModifications++;
+			this.timeVariantLinkAttributes = null;
+			this.lookupsSinceModification.set(0);
+		}
+	}
+
 	@Override
 	public double getCapacityPeriod() {
 		return this.capacityPeriod;
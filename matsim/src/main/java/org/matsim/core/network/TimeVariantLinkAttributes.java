@@ -0,0 +1,183 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TimeVariantLinkAttributes.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * Network-wide, immutable table of the time-variant attributes (freespeed, flow capacity, lanes) of all
+ * {@link TimeVariantLinkImpl}s with variable-interval attributes.
+ * <p>
+ * The change points of all links are stored in compressed sparse row (CSR) layout: the change points of
+ * the link with index <code>i</code> are found at positions <code>offsets[i]</code> (the base values,
+ * valid from minus infinity) to <code>offsets[i+1]-1</code>. At each change point, the values of all three
+ * attributes are stored, so one lookup serves all of them.
+ * <p>
+ * To avoid a binary search per lookup, the time span between the first and the last change point of a link is
+ * divided into as many bins as the link has change points. For each bin, the index of the last change point
+ * before the bin is stored, so a lookup only has to step over the (usually zero or one) change points within
+ * the same bin. The memory used thus only depends on the number of change points.
+ */
+final class TimeVariantLinkAttributes {
+
+	private final TimeVariantLinkImpl[] links;
+
+	private final int[] offsets;
+	private final double[] times;
+	private final double[] freespeeds;
+	private final double[] flowCapacities;
+	private final double[] lanes;
+
+	private final double[] firstChangeTimes;
+	private final double[] inverseBinWidths;
+	private final int[] binOffsets;
+	private final int[] binStarts;
+
+	private TimeVariantLinkAttributes(TimeVariantLinkImpl[] links, int[] offsets, int numberOfChangePoints) {
+		this.links = links;
+		this.offsets = offsets;
+		this.times = new double[numberOfChangePoints];
+		this.freespeeds = new double[numberOfChangePoints];
+		this.flowCapacities = new double[numberOfChangePoints];
+		this.lanes = new double[numberOfChangePoints];
+		this.firstChangeTimes = new double[links.length];
+		this.inverseBinWidths = new double[links.length];
+		this.binOffsets = new int[links.length + 1];
+		// one bin per change point, without the base values
+		this.binStarts = new int[numberOfChangePoints - links.length];
+	}
+
+	/**
+	 * Compiles the attributes of all time-variant links with variable-interval attributes. Other links are
+	 * ignored, for them {@link #indexOf(TimeVariantLinkImpl)} returns -1.
+	 */
+	static TimeVariantLinkAttributes compile(final Collection<? extends Link> networkLinks) {
+		List<TimeVariantLinkImpl> compiledLinks = new ArrayList<>();
+		for (Link link : networkLinks) {
+			if (link instanceof TimeVariantLinkImpl && ((TimeVariantLinkImpl) link).hasVariableIntervalAttributes()) {
+				compiledLinks.add((TimeVariantLinkImpl) link);
+			}
+		}
+
+		TimeVariantLinkImpl[] links = compiledLinks.toArray(new TimeVariantLinkImpl[compiledLinks.size()]);
+		int[] offsets = new int[links.length + 1];
+		List<double[]> linkChangeTimes = new ArrayList<>(links.length);
+		for (int i = 0; i < links.length; i++) {
+			double[] changeTimes = links[i].getChangeTimes();
+			linkChangeTimes.add(changeTimes);
+			offsets[i + 1] = offsets[i] + 1 + changeTimes.length;
+		}
+
+		TimeVariantLinkAttributes attributes = new TimeVariantLinkAttributes(links, offsets, offsets[links.length]);
+		for (int i = 0; i < links.length; i++) {
+			attributes.compileLink(i, linkChangeTimes.get(i));
+			links[i].compiledIndex = i;
+		}
+		return attributes;
+	}
+
+	private void compileLink(final int index, final double[] changeTimes) {
+		TimeVariantLinkImpl link = this.links[index];
+		int start = this.offsets[index];
+
+		// the base values
+		this.times[start] = Double.NEGATIVE_INFINITY;
+		this.freespeeds[start] = link.getFreespeedUncompiled(Double.NEGATIVE_INFINITY);
+		this.flowCapacities[start] = link.getFlowCapacityPerSecUncompiled(Double.NEGATIVE_INFINITY);
+		this.lanes[start] = link.getNumberOfLanesUncompiled(Double.NEGATIVE_INFINITY);
+
+		for (int k = 0; k < changeTimes.length; k++) {
+			double time = changeTimes[k];
+			this.times[start + 1 + k] = time;
+			this.freespeeds[start + 1 + k] = link.getFreespeedUncompiled(time);
+			this.flowCapacities[start + 1 + k] = link.getFlowCapacityPerSecUncompiled(time);
+			this.lanes[start + 1 + k] = link.getNumberOfLanesUncompiled(time);
+		}
+
+		int numberOfBins = changeTimes.length;
+		this.binOffsets[index + 1] = this.binOffsets[index] + numberOfBins;
+		if (numberOfBins == 0) {
+			return;
+		}
+		double first = changeTimes[0];
+		double last = changeTimes[changeTimes.length - 1];
+		this.firstChangeTimes[index] = first;
+		this.inverseBinWidths[index] = last > first ? numberOfBins / (last - first) : 0.0;
+
+		int end = this.offsets[index + 1];
+		int k = start;
+		for (int bin = 0; bin < numberOfBins; bin++) {
+			while (k + 1 < end && getBin(index, this.times[k + 1]) < bin) k++;
+			this.binStarts[this.binOffsets[index] + bin] = k;
+		}
+	}
+
+	private int getBin(final int index, final double time) {
+		int bin = (int) ((time - this.firstChangeTimes[index]) * this.inverseBinWidths[index]);
+		int numberOfBins = this.binOffsets[index + 1] - this.binOffsets[index];
+		return bin < numberOfBins ? bin : numberOfBins - 1;
+	}
+
+	/**
+	 * @return the index of the last change point at or before the given time, same as a binary search
+	 */
+	private int getChangePoint(final int index, final double time) {
+		int start = this.offsets[index];
+		int end = this.offsets[index + 1];
+		if (end - start == 1 || time < this.times[start + 1]) {
+			return start;
+		}
+		if (!(time < this.times[end - 1])) { // also catches NaN, which the binary search sorts last as well
+			return end - 1;
+		}
+		int k = this.binStarts[this.binOffsets[index] + getBin(index, time)];
+		while (this.times[k + 1] <= time) k++;
+		return k;
+	}
+
+	/**
+	 * @return the index of the link in this table, or -1 if the link is not part of this table
+	 */
+	int indexOf(final TimeVariantLinkImpl link) {
+		int index = link.compiledIndex;
+		if (index >= 0 && index < this.links.length && this.links[index] == link) {
+			return index;
+		}
+		return -1;
+	}
+
+	double getFreespeed(final int index, final double time) {
+		return this.freespeeds[getChangePoint(index, time)];
+	}
+
+	double getFlowCapacityPerSec(final int index, final double time) {
+		return this.flowCapacities[getChangePoint(index, time)];
+	}
+
+	double getNumberOfLanes(final int index, final double time) {
+		return this.lanes[getChangePoint(index, time)];
+	}
+
+}
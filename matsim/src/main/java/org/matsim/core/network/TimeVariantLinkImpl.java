@@ -42,6 +42,9 @@ import org.matsim.api.core.v01.network.*;
 	private final TimeVariantAttribute variableFlowCapacity;
 	private final TimeVariantAttribute variableLanes;
 
+	private final Network network;
+	/*package*/ int compiledIndex = -1; // index in the network's TimeVariantLinkAttributes
+
 	//////////////////////////////////////////////////////////////////////
 	// constructor
 	//////////////////////////////////////////////////////////////////////
@@ -72,6 +75,7 @@ import org.matsim.api.core.v01.network.*;
 			TimeVariantAttribute variableFreespeed, TimeVariantAttribute variableFlowCapacity,
 			TimeVariantAttribute variableLanes) {
 		super(id, from, to, network, length, freespeed, capacity, lanes);
+		this.network = network;
 		this.variableFreespeed = variableFreespeed;
 		this.variableFlowCapacity = variableFlowCapacity;
 		this.variableLanes = variableLanes;
@@ -98,6 +102,7 @@ import org.matsim.api.core.v01.network.*;
 		if (event.getLanesChange() != null) {
 			this.variableLanes.incChangeEvents();
 		}
+		invalidateCompiledAttributes();
 	}
 
 
@@ -113,6 +118,41 @@ import org.matsim.api.core.v01.network.*;
 		variableFreespeed.clearEvents();
 		variableFlowCapacity.clearEvents();
 		variableLanes.clearEvents();
+		invalidateCompiledAttributes();
+	}
+
+	/*package*/ boolean hasVariableIntervalAttributes() {
+		return this.variableFreespeed instanceof VariableIntervalTimeVariantAttribute
+				&& this.variableFlowCapacity instanceof VariableIntervalTimeVariantAttribute
+				&& this.variableLanes instanceof VariableIntervalTimeVariantAttribute;
+	}
+
+	/*package*/ synchronized double[] getChangeTimes() {
+		if (this.changeEvents == null) {
+			return new double[0];
+		}
+		double[] times = new double[this.changeEvents.size()];
+		int i = 0;
+		for (Double time : this.changeEvents.keySet()) {
+			times[i++] = time;
+		}
+		return times;
+	}
+
+	/**
+	 * @return the network-wide table of compiled attributes if it is available and contains this link, null otherwise
+	 */
+	private TimeVariantLinkAttributes getCompiledAttributes() {
+		if (this.network instanceof NetworkImpl) {
+			return ((NetworkImpl) this.network).getTimeVariantLinkAttributes();
+		}
+		return null;
+	}
+
+	private void invalidateCompiledAttributes() {
+		if (this.network instanceof NetworkImpl) {
+			((NetworkImpl) this.network).invalidateTimeVariantLinkAttributes();
+		}
 	}
 
 	/**
@@ -121,8 +161,16 @@ import org.matsim.api.core.v01.network.*;
 	 * @return the freespeed at time <tt>time</tt>.
 	 */
 	@Override
-	public synchronized double getFreespeed(final double time) {
+	public double getFreespeed(final double time) {
+		TimeVariantLinkAttributes compiled = getCompiledAttributes();
+		int index = compiled == null ? -1 : compiled.indexOf(this);
+		if (index >= 0) {
+			return compiled.getFreespeed(index, time);
+		}
+		return getFreespeedUncompiled(time);
+	}
 
+	/*package*/ synchronized double getFreespeedUncompiled(final double time) {
 		if (variableFreespeed.isRecalcRequired()) {
 			recalcFreespeed();
 		}
@@ -134,6 +182,7 @@ import org.matsim.api.core.v01.network.*;
 	public void setFreespeed(double freespeed) {
 		super.setFreespeed(freespeed);
 		this.recalcFreespeed();
+		invalidateCompiledAttributes();
 	}
 
 	// ---
@@ -147,8 +196,16 @@ import org.matsim.api.core.v01.network.*;
 	 * @return the flow capacity at time <tt>time</tt>.
 	 */
 	@Override
-	public synchronized double getFlowCapacityPerSec(final double time) {
+	public double getFlowCapacityPerSec(final double time) {
+		TimeVariantLinkAttributes compiled = getCompiledAttributes();
+		int index = compiled == null ? -1 : compiled.indexOf(this);
+		if (index >= 0) {
+			return compiled.getFlowCapacityPerSec(index, time);
+		}
+		return getFlowCapacityPerSecUncompiled(time);
+	}
 
+	/*package*/ synchronized double getFlowCapacityPerSecUncompiled(final double time) {
 		if (variableFlowCapacity.isRecalcRequired()) {
 			recalcFlowCapacity();
 		}
@@ -160,6 +217,7 @@ import org.matsim.api.core.v01.network.*;
 	public final void setCapacity(double capacityPerNetworkCapcityPeriod){
 		super.setCapacity(capacityPerNetworkCapcityPeriod);
 		this.recalcFlowCapacity();
+		invalidateCompiledAttributes();
 	}
 
 
@@ -171,7 +229,7 @@ import org.matsim.api.core.v01.network.*;
 	 * @return the capacity per network's capperiod timestep
 	 */
 	@Override
-	public synchronized double getCapacity(final double time) {
+	public double getCapacity(final double time) {
 		return getFlowCapacityPerSec(time) * getCapacityPeriod();
 	}
 
@@ -193,7 +251,16 @@ import org.matsim.api.core.v01.network.*;
 	 * encode the (min) width of the link to calculate the flow capacity - [GL] 13may08
 	 */
 	@Override
-	public synchronized double getNumberOfLanes(final double time) {
+	public double getNumberOfLanes(final double time) {
+		TimeVariantLinkAttributes compiled = getCompiledAttributes();
+		int index = compiled == null ? -1 : compiled.indexOf(this);
+		if (index >= 0) {
+			return compiled.getNumberOfLanes(index, time);
+		}
+		return getNumberOfLanesUncompiled(time);
+	}
+
+	/*package*/ synchronized double getNumberOfLanesUncompiled(final double time) {
 		if (variableLanes.isRecalcRequired()) {
 			recalcLanes();
 		}
@@ -205,6 +272,7 @@ import org.matsim.api.core.v01.network.*;
 	public void setNumberOfLanes(double lanes) {
 		super.setNumberOfLanes(lanes);
 		this.recalcLanes();
+		invalidateCompiledAttributes();
 	}
 
 
@@ -20,9 +20,9 @@
 
 package org.matsim.core.population.routes;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
@@ -31,6 +31,12 @@ import org.matsim.vehicles.Vehicle;
 
 /**
  * Implementation of {@link NetworkRoute} which internally stores the route as a series of {@link Link}s.
+ * <p></p>
+ * The links are stored as a packed array of their id's {@link Id#index() indices}, which is much more compact
+ * than a list of references. The array is never modified, but replaced as a whole, so clones of a route share it.
+ * {@link #getLinkIds()} returns a read-only {@link RandomAccess} view on the array. Accessing it by index does not
+ * allocate, while iterating over it (e.g. in a for-each loop) still creates an iterator, so frequently called code
+ * should loop over the indices.
  *
  * @author mrieser
  */
@@ -38,8 +44,11 @@ final class LinkNetworkRouteImpl extends AbstractRoute implements NetworkRoute {
 
 	/*package*/ final static String ROUTE_TYPE = "links";
 	
-	private ArrayList<Id<Link>> route = new ArrayList<>();
-	private List<Id<Link>> safeRoute = Collections.unmodifiableList(this.route);
+	private static final int[] EMPTY_ROUTE = new int[0];
+	private static final int NULL_ID = -1;
+
+	private int[] route = EMPTY_ROUTE;
+	private LinkIdsView safeRoute = null; // created lazily
 	private double travelCost = Double.NaN;
 	private Id<Vehicle> vehicleId = null;
 
@@ -54,24 +63,57 @@ final class LinkNetworkRouteImpl extends AbstractRoute implements NetworkRoute {
 	
 	LinkNetworkRouteImpl(final Id<Link> startLinkId, final Id<Link>[] linkIds, final Id<Link> endLinkId) {
 		super(startLinkId, endLinkId);
-        Collections.addAll(this.route, linkIds);
-		this.route.trimToSize();
+		this.route = toIndices(linkIds);
 	}
 
 	@Override
 	public LinkNetworkRouteImpl clone() {
 		LinkNetworkRouteImpl cloned = (LinkNetworkRouteImpl) super.clone();
-		ArrayList<Id<Link>> tmp = cloned.route;
-		cloned.route = new ArrayList<>(tmp); // deep copy of route
-		cloned.safeRoute = Collections.unmodifiableList(cloned.route);
+		// the array is never modified, so it can be shared; but the view must refer to the cloned route
+		cloned.safeRoute = null;
 		return cloned;
 	}
 
 	@Override
 	public List<Id<Link>> getLinkIds() {
+		if (this.safeRoute == null) {
+			this.safeRoute = new LinkIdsView();
+		}
 		return this.safeRoute;
 	}
 
+	private static int[] toIndices(final Id<Link>[] linkIds) {
+		if (linkIds.length == 0) {
+			return EMPTY_ROUTE;
+		}
+		int[] indices = new int[linkIds.length];
+		for (int i = 0; i < linkIds.length; i++) {
+			Id<Link> linkId = linkIds[i];
+			indices[i] = linkId == null ? NULL_ID : linkId.index();
+		}
+		return indices;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Id<Link> toId(final int index) {
+		return index == NULL_ID ? null : (Id<Link>) Id.get(index);
+	}
+
+	/**
+	 * Read-only view on the current link ids of the route.
+	 */
+	private final class LinkIdsView extends AbstractList<Id<Link>> implements RandomAccess {
+		@Override
+		public Id<Link> get(final int index) {
+			return toId(LinkNetworkRouteImpl.this.route[index]);
+		}
+
+		@Override
+		public int size() {
+			return LinkNetworkRouteImpl.this.route.length;
+		}
+	}
+
 	@Override
 	public NetworkRoute getSubRoute(Id<Link> fromLinkId, Id<Link> toLinkId) {
 		/**
@@ -88,13 +130,13 @@ final class LinkNetworkRouteImpl extends AbstractRoute implements NetworkRoute {
 		if (fromLinkId.equals(this.getStartLinkId())) {
 			fromIndex = 0;
 		} else {
-			for (int i = 0, n = this.route.size(); (i < n) && (fromIndex < 0); i++) {
-				if (fromLinkId.equals(this.route.get(i))) {
+			for (int i = 0, n = this.route.length; (i < n) && (fromIndex < 0); i++) {
+				if (fromLinkId.equals(toId(this.route[i]))) {
 					fromIndex = i+1;
 				}
 			}
 			if (fromIndex < 0 && fromLinkId.equals(this.getEndLinkId())) {
-				fromIndex = this.route.size();
+				fromIndex = this.route.length;
 			}
 			if (fromIndex < 0) {
 				throw new IllegalArgumentException("Cannot create subroute because fromLinkId is not part of the route.");
@@ -104,16 +146,16 @@ final class LinkNetworkRouteImpl extends AbstractRoute implements NetworkRoute {
 		if (fromLinkId.equals(toLinkId)) {
 			toIndex = fromIndex - 1;
 		} else {
-			for (int i = fromIndex, n = this.route.size(); (i < n) && (toIndex < 0); i++) {
-				if (fromLinkId.equals(this.route.get(i))) {
+			for (int i = fromIndex, n = this.route.length; (i < n) && (toIndex < 0); i++) {
+				if (fromLinkId.equals(toId(this.route[i]))) {
 					fromIndex = i+1; // in case of a loop, cut it short
 				}
-				if (toLinkId.equals(this.route.get(i))) {
+				if (toLinkId.equals(toId(this.route[i]))) {
 					toIndex = i;
 				}
 			}
 			if (toIndex < 0 && toLinkId.equals(this.getEndLinkId())) {
-				toIndex = this.route.size();
+				toIndex = this.route.length;
 			}
 			if (toIndex < 0) {
 				throw new IllegalArgumentException("Cannot create subroute because toLinkId is not part of the route.");
@@ -121,7 +163,7 @@ final class LinkNetworkRouteImpl extends AbstractRoute implements NetworkRoute {
 		}
 		NetworkRoute ret = RouteUtils.createLinkNetworkRouteImpl(fromLinkId, toLinkId);
 		if (toIndex > fromIndex) {
-			ret.setLinkIds(fromLinkId, this.route.subList(fromIndex, toIndex), toLinkId);
+			ret.setLinkIds(fromLinkId, getLinkIds().subList(fromIndex, toIndex), toLinkId);
 		} else {
 			ret.setLinkIds(fromLinkId, null, toLinkId);
 		}
@@ -140,13 +182,25 @@ final class LinkNetworkRouteImpl extends AbstractRoute implements NetworkRoute {
 
 	@Override
 	public void setLinkIds(final Id<Link> startLinkId, final List<Id<Link>> srcRoute, final Id<Link> endLinkId) {
-		this.route.clear();
 		setStartLinkId(startLinkId);
 		setEndLinkId(endLinkId);
-		if (srcRoute != null) {
-			this.route.addAll(srcRoute);
+		int[] indices = EMPTY_ROUTE;
+		if (srcRoute != null && !srcRoute.isEmpty()) {
+			// do not iterate over this.route while replacing it, srcRoute may be a view on it (e.g. a sub list)
+			indices = new int[srcRoute.size()];
+			if (srcRoute instanceof RandomAccess) {
+				for (int i = 0; i < indices.length; i++) {
+					Id<Link> linkId = srcRoute.get(i);
+					indices[i] = linkId == null ? NULL_ID : linkId.index();
+				}
+			} else {
+				int i = 0;
+				for (Id<Link> linkId : srcRoute) {
+					indices[i++] = linkId == null ? NULL_ID : linkId.index();
+				}
+			}
 		}
-		this.route.trimToSize();
+		this.route = indices;
 	}
 
 	@Override
@@ -163,12 +217,12 @@ final class LinkNetworkRouteImpl extends AbstractRoute implements NetworkRoute {
 	public String getRouteDescription() {
 		StringBuilder desc = new StringBuilder(100);
 		desc.append(this.getStartLinkId().toString());
-		for (Id<Link> linkId : this.getLinkIds()) {
+		for (int i = 0; i < this.route.length; i++) {
 			desc.append(" ");
-			desc.append(linkId.toString());
+			desc.append(toId(this.route[i]).toString());
 		}
 		// If the start links equals the end link additionally check if its is a round trip. 
-		if (!this.getEndLinkId().equals(this.getStartLinkId()) || this.getLinkIds().size() > 0) {
+		if (!this.getEndLinkId().equals(this.getStartLinkId()) || this.route.length > 0) {
 			desc.append(" ");
 			desc.append(this.getEndLinkId().toString());
 		}
@@ -21,6 +21,7 @@ package org.matsim.core.population.routes;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.RandomAccess;
 
 import org.apache.log4j.Logger;
 import org.jfree.util.Log;
@@ -142,8 +143,16 @@ public class RouteUtils {
 	 */
 	public static double calcDistanceExcludingStartEndLink(final NetworkRoute route, final Network network) {
 		double dist = 0;
-		for (Id<Link> linkId : route.getLinkIds()) {
-			dist += network.getLinks().get(linkId).getLength();
+		List<Id<Link>> linkIds = route.getLinkIds();
+		if (linkIds instanceof RandomAccess) {
+			// loop over the indices, iterating would create an iterator for every route
+			for (int i = 0, n = linkIds.size(); i < n; i++) {
+				dist += network.getLinks().get(linkIds.get(i)).getLength();
+			}
+		} else {
+			for (Id<Link> linkId : linkIds) {
+				dist += network.getLinks().get(linkId).getLength();
+			}
 		}
 		return dist;
 	}
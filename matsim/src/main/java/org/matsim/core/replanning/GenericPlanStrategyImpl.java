@@ -66,8 +66,16 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 	
 	@Override
 	public void run(final HasPlansAndId<T, I> person) {
-		this.counter++;
-		
+		handleNewPlan(selectPlan(person));
+	}
+
+	/**
+	 * Selects a plan of the person and, if there is a module, makes a copy of it the selected plan. As this only
+	 * changes the person, it may be called for different persons in parallel, see {@link GenericStrategyManager}.
+	 *
+	 * @return the copy to be handled by the modules in {@link #handleNewPlan(BasicPlan)}, or <code>null</code> if there is no module
+	 */
+	/*package*/ final T selectPlan(final HasPlansAndId<T, I> person) {
 		// if there is at least one unscored plan, find that one:
 		T plan = new RandomUnscoredPlanSelector<T, I>().selectPlan(person) ;
 		
@@ -88,7 +96,19 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 		if (this.firstModule != null) {
 			
 			// set the working plan to a copy of the selected plan:
-			plan = person.createCopyOfSelectedPlanAndMakeSelected();
+			return person.createCopyOfSelectedPlanAndMakeSelected();
+		}
+		return null;
+	}
+
+	/**
+	 * Counts the person and passes the new plan from {@link #selectPlan(HasPlansAndId)} to the modules.
+	 * Must be called in the order of the persons, from one thread.
+	 */
+	/*package*/ final void handleNewPlan(final T plan) {
+		this.counter++;
+
+		if (this.firstModule != null) {
 			
 			// add new plan to container that contains the plans that are handled by this PlanStrategy:
 			this.plans.add(plan);
@@ -96,7 +116,6 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 			// start working on this new plan:
 			this.firstModule.handlePlan(plan);
 		}
-
 	}
 
 	@Override
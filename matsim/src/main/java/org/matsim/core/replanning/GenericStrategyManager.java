@@ -22,16 +22,24 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.BasicPlan;
 import org.matsim.api.core.v01.population.HasPlansAndId;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.internal.MatsimManager;
+import org.matsim.core.gbl.KeyedRandom;
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.replanning.selectors.PlanSelector;
 import org.matsim.core.replanning.selectors.GenericWorstPlanForRemovalSelector;
@@ -56,6 +64,10 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 	private static final Logger log =
 			Logger.getLogger(GenericStrategyManager.class);
 
+	// the purposes of the random streams of a person, see MatsimRandom.getSeed(...)
+	private static final String REMOVAL_STREAM = GenericStrategyManager.class.getName() + ".removal";
+	private static final String SELECTION_STREAM = GenericStrategyManager.class.getName() + ".selection";
+
 
 	static class StrategyWeights<T extends BasicPlan, I> {
 		final List<GenericPlanStrategy<T, I>> strategies = new ArrayList<>();
@@ -64,6 +76,51 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 		final List<Double> unmodifiableWeights = Collections.unmodifiableList(weights);
 		double totalWeights = 0.0;
 		final Map<Integer, Map<GenericPlanStrategy<T, I>, Double>> changeRequests = new TreeMap<>();
+
+		// the running sums of the weights, summed up in the same order as the linear search did before, so the
+		// binary search over them returns the same strategy.  Only valid if no weight is negative.
+		double[] cumulativeWeights = new double[0];
+		boolean hasNegativeWeights = false;
+
+		void updateCumulativeWeights() {
+			double[] cumulative = new double[this.weights.size()];
+			boolean negative = false;
+			double sum = 0.0;
+			for (int i = 0; i < cumulative.length; i++) {
+				double weight = this.weights.get(i);
+				negative |= weight < 0.0;
+				sum += weight;
+				cumulative[i] = sum;
+			}
+			this.cumulativeWeights = cumulative;
+			this.hasNegativeWeights = negative;
+		}
+
+		/**
+		 * @return the index of the first strategy whose cumulative weight is at least <code>rnd</code>, or -1
+		 */
+		int findStrategy(final double rnd) {
+			double[] cumulative = this.cumulativeWeights;
+			if (this.hasNegativeWeights) {
+				for (int i = 0; i < cumulative.length; i++) {
+					if (rnd <= cumulative[i]) {
+						return i;
+					}
+				}
+				return -1;
+			}
+			int low = 0;
+			int high = cumulative.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (cumulative[mid] < rnd) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low < cumulative.length ? low : -1;
+		}
 	}
 
 	private final Map<String, StrategyWeights<T, I>> weightsPerSubpopulation = new HashMap<>();
@@ -74,6 +131,12 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 
 	private String subpopulationAttributeName = null;
 
+	private int iteration = 0;
+
+	private int numberOfThreads = 1;
+
+	private ExecutorService executor = null;
+
 	/**
 	 * @param name the name of the subpopulation attribute
 	 * in the person's object attributes.
@@ -101,6 +164,21 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 		weights.strategies.add(strategy);
 		weights.weights.add(weight);
 		weights.totalWeights += weight;
+		weights.updateCumulativeWeights();
+	}
+
+	/**
+	 * Sets the number of threads used to remove plans, choose the strategies and select the plans of the persons.
+	 * This is only done in parallel if {@link MatsimRandom#isKeyedStreams() keyed random streams} are used, as the
+	 * results would otherwise depend on the order in which the persons are handled. The plan selectors (including
+	 * the one for removal) are then called from several threads at the same time, and must thus be thread-safe.
+	 */
+	public final void setNumberOfThreads(final int numberOfThreads) {
+		if (numberOfThreads != this.numberOfThreads && this.executor != null) {
+			this.executor.shutdown();
+			this.executor = null;
+		}
+		this.numberOfThreads = numberOfThreads;
 	}
 
 	/**
@@ -121,6 +199,7 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 			weights.strategies.remove(idx);
 			double weight = weights.weights.remove(idx);
 			weights.totalWeights -= weight;
+			weights.updateCumulativeWeights();
 			return true;
 		}
 		return false;
@@ -154,6 +233,7 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 		if (idx != -1) {
 			double oldWeight = weights.weights.set(idx, newWeight);
 			weights.totalWeights += (newWeight - oldWeight);
+			weights.updateCumulativeWeights();
 			Logger.getLogger(this.getClass()).info( strategy.toString() + ": oldWeight=" + oldWeight + " newWeight=" + newWeight );
 			return true;
 		}
@@ -186,32 +266,30 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 					ObjectAttributes subPopLookup,
 					final ReplanningContext replanningContext) {
 
+		this.iteration = replanningContext == null ? 0 : replanningContext.getIteration();
+
 		// initialize all strategies
 		for (GenericPlanStrategy<T, I> strategy : distinctStrategies()) {
 			strategy.init(replanningContext);
 		}
 
-		// then go through the population and ...
-		for (HasPlansAndId<T, I> person : persons ) {
+		if (MatsimRandom.isKeyedStreams()) {
+			runKeyed(persons, subPopLookup);
+		} else {
+			// then go through the population and ...
+			for (HasPlansAndId<T, I> person : persons ) {
 
-			// ... reduce the number of plans to the allowed maximum (in evol comp lang this is "selection")
-			if ((this.maxPlansPerAgent > 0) && (person.getPlans().size() > this.maxPlansPerAgent)) {
-				removePlans( person, this.maxPlansPerAgent);
-			}
+				// ... reduce the number of plans to the allowed maximum (in evol comp lang this is "selection")
+				if ((this.maxPlansPerAgent > 0) && (person.getPlans().size() > this.maxPlansPerAgent)) {
+					removePlans( person, this.maxPlansPerAgent);
+				}
 
-			// ... choose the strategy to be used for this person (in evol comp lang this would be the choice of the mutation operator)
-			String subpopName = null;
-			if (this.subpopulationAttributeName != null) {
-				subpopName = (String) subPopLookup.getAttribute(person.getId().toString(), this.subpopulationAttributeName);
-			}
-			GenericPlanStrategy<T, I> strategy = this.chooseStrategy(person, subpopName);
+				// ... choose the strategy to be used for this person (in evol comp lang this would be the choice of the mutation operator)
+				GenericPlanStrategy<T, I> strategy = this.chooseStrategy(person, getSubpopulation(person, subPopLookup));
 
-			if (strategy==null) {
-				throw new RuntimeException("No strategy found! Have you defined at least one replanning strategy per subpopulation?");
+				// ... and run the strategy:
+				runStrategy(strategy, person);
 			}
-			
-			// ... and run the strategy:
-			strategy.run(person);
 		}
 
 		// finally make sure all strategies have finished there work
@@ -221,6 +299,154 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 
 	}
 
+	private String getSubpopulation(final HasPlansAndId<T, I> person, final ObjectAttributes subPopLookup) {
+		if (this.subpopulationAttributeName == null) {
+			return null;
+		}
+		return (String) subPopLookup.getAttribute(person.getId().toString(), this.subpopulationAttributeName);
+	}
+
+	private void runStrategy(final GenericPlanStrategy<T, I> strategy, final HasPlansAndId<T, I> person) {
+		if (strategy==null) {
+			throw new RuntimeException("No strategy found! Have you defined at least one replanning strategy per subpopulation?");
+		}
+		strategy.run(person);
+	}
+
+	/**
+	 * With keyed random streams, the replanning of a person does not depend on the other persons: the strategy is
+	 * chosen with a random number keyed by the person, and plan removal and plan selection draw from random streams
+	 * keyed by the person (see {@link MatsimRandom#setThreadRandom(java.util.Random)}). So the persons are grouped by
+	 * subpopulation, and each group is split into contiguous chunks, in which plans are removed, strategies chosen and
+	 * plans selected in parallel. Afterwards, the new plans are passed to the strategy modules in the order of the
+	 * groups, so each module gets the persons of a chunk one after another. The results thus do not depend on the
+	 * number of threads.
+	 */
+	private void runKeyed(final Iterable<? extends HasPlansAndId<T, I>> persons, final ObjectAttributes subPopLookup) {
+		// group the persons by subpopulation, in the order the subpopulations first appear
+		Map<String, List<HasPlansAndId<T, I>>> groups = new LinkedHashMap<>();
+		for (HasPlansAndId<T, I> person : persons) {
+			groups.computeIfAbsent(getSubpopulation(person, subPopLookup), k -> new ArrayList<>()).add(person);
+		}
+
+		int numberOfChunksPerGroup = Math.max(1, this.numberOfThreads);
+		List<ReplanningChunk<T, I>> chunks = new ArrayList<>();
+		for (Map.Entry<String, List<HasPlansAndId<T, I>>> group : groups.entrySet()) {
+			List<HasPlansAndId<T, I>> groupPersons = group.getValue();
+			int chunkSize = (groupPersons.size() + numberOfChunksPerGroup - 1) / numberOfChunksPerGroup;
+			for (int start = 0; start < groupPersons.size(); start += chunkSize) {
+				chunks.add(new ReplanningChunk<>(group.getKey(), groupPersons.subList(start, Math.min(start + chunkSize, groupPersons.size()))));
+			}
+		}
+
+		if (this.numberOfThreads <= 1 || chunks.size() <= 1) {
+			for (ReplanningChunk<T, I> chunk : chunks) {
+				selectPlans(chunk);
+			}
+		} else {
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for (ReplanningChunk<T, I> chunk : chunks) {
+				tasks.add(() -> {
+					selectPlans(chunk);
+					return null;
+				});
+			}
+			try {
+				for (Future<Void> future : getExecutor().invokeAll(tasks)) {
+					future.get();
+				}
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new RuntimeException(e.getCause());
+			}
+		}
+
+		// the modules are not thread-safe, and expect the plans in a defined order
+		for (ReplanningChunk<T, I> chunk : chunks) {
+			for (int i = 0; i < chunk.persons.size(); i++) {
+				GenericPlanStrategy<T, I> strategy = chunk.strategies.get(i);
+				if (selectsInParallel(strategy)) {
+					((GenericPlanStrategyImpl<T, I>) strategy).handleNewPlan(chunk.newPlans.get(i));
+				} else {
+					strategy.run(chunk.persons.get(i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes plans, chooses the strategy and, if possible, selects the plan of each person of the chunk.
+	 * Only changes the persons of the chunk, so different chunks can be handled in parallel.
+	 */
+	private void selectPlans(final ReplanningChunk<T, I> chunk) {
+		KeyedRandom random = new KeyedRandom(0);
+		MatsimRandom.setThreadRandom(random);
+		try {
+			for (HasPlansAndId<T, I> person : chunk.persons) {
+				if ((this.maxPlansPerAgent > 0) && (person.getPlans().size() > this.maxPlansPerAgent)) {
+					random.setKey(this.iteration, person.getId(), REMOVAL_STREAM);
+					removePlans( person, this.maxPlansPerAgent);
+				}
+				GenericPlanStrategy<T, I> strategy = this.chooseStrategy(person, chunk.subpopulation);
+				if (strategy==null) {
+					throw new RuntimeException("No strategy found! Have you defined at least one replanning strategy per subpopulation?");
+				}
+				chunk.strategies.add(strategy);
+				if (selectsInParallel(strategy)) {
+					random.setKey(this.iteration, person.getId(), SELECTION_STREAM);
+					chunk.newPlans.add(((GenericPlanStrategyImpl<T, I>) strategy).selectPlan(person));
+				} else {
+					chunk.newPlans.add(null);
+				}
+			}
+		} finally {
+			MatsimRandom.setThreadRandom(null);
+		}
+	}
+
+	/**
+	 * @return whether the strategy is known to only select a plan and pass a copy of it to its modules, so the
+	 * selection can be separated from the modules
+	 */
+	private static boolean selectsInParallel(final GenericPlanStrategy<?, ?> strategy) {
+		return strategy.getClass() == PlanStrategyImpl.class || strategy.getClass() == GenericPlanStrategyImpl.class;
+	}
+
+	private ExecutorService getExecutor() {
+		if (this.executor == null) {
+			final AtomicInteger threadCounter = new AtomicInteger(0);
+			// daemon threads, as there is no point in time at which the strategy manager is known to be no longer used
+			this.executor = Executors.newFixedThreadPool(this.numberOfThreads, runnable -> {
+				Thread thread = new Thread(runnable, "GenericStrategyManager." + threadCounter.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return this.executor;
+	}
+
+	/**
+	 * A contiguous chunk of the persons of one subpopulation, with the strategies chosen for them, and the new plans
+	 * to be handled by the modules of the strategies.
+	 */
+	private static final class ReplanningChunk<T extends BasicPlan, I> {
+		final String subpopulation;
+		final List<HasPlansAndId<T, I>> persons;
+		final List<GenericPlanStrategy<T, I>> strategies;
+		final List<T> newPlans;
+
+		ReplanningChunk(final String subpopulation, final List<HasPlansAndId<T, I>> persons) {
+			this.subpopulation = subpopulation;
+			this.persons = persons;
+			this.strategies = new ArrayList<>(persons.size());
+			this.newPlans = new ArrayList<>(persons.size());
+		}
+	}
+
 	private Collection<GenericPlanStrategy<T, I>> distinctStrategies() {
 		// Leaving out duplicate strategies in different subpopulations
 		Collection<GenericPlanStrategy<T, I>> strategies = new LinkedHashSet<>();
@@ -272,18 +498,19 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 	/* deliberately package */ GenericPlanStrategy<T, I> chooseStrategy(HasPlansAndId<T, I> person, final String subpopulation) {
 		// yyyyyy I can see that this would need to be replaceable, but need to find some other way than inheritance.  kai, mar'18
 		
-		final StrategyWeights<T, I> weights = getStrategyWeights(subpopulation);
+		// (does not create the weights of unknown subpopulations, as this may be called by several threads at the same time)
+		final StrategyWeights<T, I> weights = this.weightsPerSubpopulation.get(subpopulation);
+		if (weights == null) {
+			return null;
+		}
 
-		double rnd = MatsimRandom.getRandom().nextDouble() * weights.totalWeights;
+		// with keyed streams, the choice of a person does not depend on the choices of the persons before
+		double rnd = (MatsimRandom.isKeyedStreams()
+				? MatsimRandom.getUniform(this.iteration, person.getId(), GenericStrategyManager.class.getName())
+				: MatsimRandom.getRandom().nextDouble()) * weights.totalWeights;
 
-		double sum = 0.0;
-		for (int i = 0, max = weights.weights.size(); i < max; i++) {
-			sum += weights.weights.get(i);
-			if (rnd <= sum) {
-				return weights.strategies.get(i);
-			}
-		}
-		return null;
+		int index = weights.findStrategy(rnd);
+		return index < 0 ? null : weights.strategies.get(index);
 	}
 
 	/**
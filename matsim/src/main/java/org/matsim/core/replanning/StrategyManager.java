@@ -26,6 +26,7 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.internal.MatsimManager;
 import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.config.groups.StrategyConfigGroup;
 import org.matsim.core.replanning.selectors.PlanSelector;
@@ -50,9 +51,10 @@ public class StrategyManager implements MatsimManager {
 	private final GenericStrategyManager<Plan, Person> delegate;
 
 	@Inject
-	StrategyManager(StrategyConfigGroup strategyConfigGroup, PlansConfigGroup plansConfigGroup, ControlerConfigGroup controlerConfigGroup, Map<StrategyConfigGroup.StrategySettings, PlanStrategy> planStrategies) {
+	StrategyManager(StrategyConfigGroup strategyConfigGroup, PlansConfigGroup plansConfigGroup, ControlerConfigGroup controlerConfigGroup, GlobalConfigGroup globalConfigGroup, Map<StrategyConfigGroup.StrategySettings, PlanStrategy> planStrategies) {
 		this();
 		setMaxPlansPerAgent(strategyConfigGroup.getMaxAgentPlanMemorySize());
+		setNumberOfThreads(globalConfigGroup.getNumberOfThreads());
 
 		int globalInnovationDisableAfter = (int) ((controlerConfigGroup.getLastIteration() - controlerConfigGroup.getFirstIteration())
 				* strategyConfigGroup.getFractionOfIterationsToDisableInnovation() + controlerConfigGroup.getFirstIteration());
@@ -208,6 +210,14 @@ public class StrategyManager implements MatsimManager {
 		return strategy;
 	}
 
+	/**
+	 * Sets the number of threads used to replan the persons with keyed random streams, see
+	 * {@link GenericStrategyManager#setNumberOfThreads(int)}.
+	 */
+	public final void setNumberOfThreads(final int numberOfThreads) {
+		delegate.setNumberOfThreads(numberOfThreads);
+	}
+
 	/**
 	 * Sets the maximal number of plans an agent can memorize. Setting
 	 * maxPlansPerAgent to zero means unlimited memory (only limited by RAM).
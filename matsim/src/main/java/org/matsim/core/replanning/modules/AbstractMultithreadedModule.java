@@ -24,11 +24,14 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.gbl.KeyedRandom;
+import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
@@ -50,6 +53,12 @@ import java.util.concurrent.atomic.AtomicReference;
  * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
  * started after all to-be-handled plans are added, we can use unsynchronized data structures.
  * <p></p>
+ * The random numbers a person gets still depend on the number of threads, as each thread's plan algorithm
+ * draws from its own local instance. With {@link MatsimRandom#setKeyedStreams(boolean) keyed streams}, the local
+ * instances requested by <code>getPlanAlgoInstance()</code> are re-keyed with the iteration, the person and the
+ * module before each plan is handled, so the results do not depend on the number of threads. As the distribution
+ * of the plans to the threads then does not matter anymore, each thread gets a contiguous chunk of the plans.
+ * <p></p>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
@@ -63,6 +72,8 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	private PlanAlgoThread[] algothreads = null;
 	private Thread[] threads = null;
 	private PlanAlgorithm directAlgo = null;
+	private final List<KeyedRandom> directKeyedRandoms = new ArrayList<>();
+	private final List<Plan> plansForChunks = new ArrayList<>();
 	private String name = null;
 
 	private int count = 0;
@@ -104,7 +115,8 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		this.replanningContext = replanningContextTmp;
 		if (this.numOfThreads == 0) {
 			// it seems, no threads are desired :(
-			this.directAlgo = getPlanAlgoInstance();
+			this.directKeyedRandoms.clear();
+			this.directAlgo = MatsimRandom.createWithKeyedInstances(this::getPlanAlgoInstance, this.directKeyedRandoms);
 		} else {
 			initThreads();
 		}
@@ -118,9 +130,14 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void handlePlan(final Plan plan) {
 		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			if (MatsimRandom.isKeyedStreams()) {
+				this.plansForChunks.add(plan);
+			} else {
+				this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			}
 			this.count++;
 		} else {
+			setKeys(this.directKeyedRandoms, getIteration(), plan, getClass().getName());
 			this.directAlgo.run(plan);
 		}
 	}
@@ -138,6 +155,11 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		
 		if (this.directAlgo == null) {
 			// only try to start threads if we did not directly work on all the plans
+			int chunkSize = (this.plansForChunks.size() + this.numOfThreads - 1) / this.numOfThreads;
+			for (int i = 0; i < this.plansForChunks.size(); i++) {
+				this.algothreads[i / chunkSize].addPlanToThread(this.plansForChunks.get(i));
+			}
+			this.plansForChunks.clear();
 			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
 
 			// start threads
@@ -180,12 +202,13 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		Counter counter = null;
 		// setup threads
 		for (int i = 0; i < this.numOfThreads; i++) {
-			PlanAlgorithm algo = getPlanAlgoInstance();
+			List<KeyedRandom> keyedRandoms = new ArrayList<>();
+			PlanAlgorithm algo = MatsimRandom.createWithKeyedInstances(this::getPlanAlgoInstance, keyedRandoms);
 			if (i == 0) {
 				this.name = algo.getClass().getSimpleName();
 				counter = new Counter("[" + this.name + "] handled plan # ");
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
+			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter, keyedRandoms, getIteration(), getClass().getName());
 			Thread thread = new Thread(algothread, this.name + "." + i);
 			thread.setUncaughtExceptionHandler(this.exceptionHandler);
 			this.threads[i] = thread;
@@ -193,6 +216,19 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		}
 	}
 
+	private int getIteration() {
+		return this.replanningContext == null ? 0 : this.replanningContext.getIteration();
+	}
+
+	private static void setKeys(final List<KeyedRandom> keyedRandoms, final int iteration, final Plan plan, final String purpose) {
+		if (keyedRandoms.isEmpty() || plan.getPerson() == null) {
+			return;
+		}
+		for (int i = 0; i < keyedRandoms.size(); i++) {
+			keyedRandoms.get(i).setKey(iteration, plan.getPerson().getId(), purpose + "." + i);
+		}
+	}
+
 	/* package (for a test) */ final int getNumOfThreads() {
 		return numOfThreads;
 	}
@@ -218,10 +254,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		private final PlanAlgorithm planAlgo;
 		private final List<Plan> plans = new LinkedList<>();
 		private final Counter counter;
+		private final List<KeyedRandom> keyedRandoms;
+		private final int iteration;
+		private final String purpose;
 
-		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
+		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter, final List<KeyedRandom> keyedRandoms, final int iteration, final String purpose) {
 			this.planAlgo = algo;
 			this.counter = counter;
+			this.keyedRandoms = keyedRandoms;
+			this.iteration = iteration;
+			this.purpose = purpose;
 		}
 
 		public void addPlanToThread(final Plan plan) {
@@ -231,6 +273,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		@Override
 		public void run() {
 			for (Plan plan : this.plans) {
+				setKeys(this.keyedRandoms, this.iteration, plan, this.purpose);
 				this.planAlgo.run(plan);
 				this.counter.incCounter();
 			}
@@ -30,6 +30,7 @@ import org.matsim.core.population.algorithms.ChooseRandomLegModeForSubtour;
 import org.matsim.core.population.algorithms.PermissibleModesCalculator;
 import org.matsim.core.population.algorithms.PermissibleModesCalculatorImpl;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.router.ConcurrentTripRouter;
 import org.matsim.core.router.TripRouter;
 
 /**
@@ -52,7 +53,7 @@ import org.matsim.core.router.TripRouter;
  */
 public class SubtourModeChoice extends AbstractMultithreadedModule {
 
-	private final Provider<TripRouter> tripRouterProvider;
+	private final ConcurrentTripRouter tripRouter;
 
 	private PermissibleModesCalculator permissibleModesCalculator;
 	
@@ -60,10 +61,18 @@ public class SubtourModeChoice extends AbstractMultithreadedModule {
 	private final String[] modes;
 	
 	public SubtourModeChoice(Provider<TripRouter> tripRouterProvider, GlobalConfigGroup globalConfigGroup, SubtourModeChoiceConfigGroup subtourModeChoiceConfigGroup) {
+		this(new ConcurrentTripRouter(tripRouterProvider), globalConfigGroup, subtourModeChoiceConfigGroup);
+	}
+
+	/**
+	 * The trip router is only used for the stage activity types and the main mode identifier, so no trip router
+	 * has to be created per thread.
+	 */
+	public SubtourModeChoice(ConcurrentTripRouter tripRouter, GlobalConfigGroup globalConfigGroup, SubtourModeChoiceConfigGroup subtourModeChoiceConfigGroup) {
 		this(globalConfigGroup.getNumberOfThreads(),
 				subtourModeChoiceConfigGroup.getModes(),
 				subtourModeChoiceConfigGroup.getChainBasedModes(),
-				subtourModeChoiceConfigGroup.considerCarAvailability(), tripRouterProvider);
+				subtourModeChoiceConfigGroup.considerCarAvailability(), tripRouter);
 	}
 
 	public SubtourModeChoice(
@@ -71,8 +80,16 @@ public class SubtourModeChoice extends AbstractMultithreadedModule {
 			final String[] modes,
 			final String[] chainBasedModes,
 			final boolean considerCarAvailability, Provider<TripRouter> tripRouterProvider) {
+		this(numberOfThreads, modes, chainBasedModes, considerCarAvailability, new ConcurrentTripRouter(tripRouterProvider));
+	}
+
+	private SubtourModeChoice(
+			final int numberOfThreads,
+			final String[] modes,
+			final String[] chainBasedModes,
+			final boolean considerCarAvailability, ConcurrentTripRouter tripRouter) {
 		super(numberOfThreads);
-		this.tripRouterProvider = tripRouterProvider;
+		this.tripRouter = tripRouter;
 		this.modes = modes.clone();
 		this.chainBasedModes = chainBasedModes.clone();
 		this.permissibleModesCalculator =
@@ -87,11 +104,10 @@ public class SubtourModeChoice extends AbstractMultithreadedModule {
 
 	@Override
 	public PlanAlgorithm getPlanAlgoInstance() {
-		final TripRouter tripRouter = tripRouterProvider.get();
 		final ChooseRandomLegModeForSubtour chooseRandomLegMode =
 				new ChooseRandomLegModeForSubtour(
-						tripRouter.getStageActivityTypes(),
-						tripRouter.getMainModeIdentifier(),
+						this.tripRouter.getStageActivityTypes(),
+						this.tripRouter.getMainModeIdentifier(),
 						this.permissibleModesCalculator,
 						this.modes,
 						this.chainBasedModes,
@@ -39,6 +39,7 @@ import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.population.algorithms.PlanMutateTimeAllocationSimplified;
 import org.matsim.core.population.algorithms.TripPlanMutateTimeAllocation;
+import org.matsim.core.router.ConcurrentTripRouter;
 import org.matsim.core.router.TripRouter;
 import org.matsim.utils.objectattributes.ObjectAttributes;
 
@@ -54,7 +55,7 @@ public class TimeAllocationMutator extends AbstractMultithreadedModule {
 
 	private static final Logger log = Logger.getLogger(TimeAllocationMutator.class);
 	
-	private final Provider<TripRouter> tripRouterProvider;
+	private final ConcurrentTripRouter tripRouter;
 	private final double mutationRange;
 	private final boolean affectingDuration;
 	private final String subpopulationAttribute;
@@ -70,7 +71,7 @@ public class TimeAllocationMutator extends AbstractMultithreadedModule {
 	@Deprecated
 	public TimeAllocationMutator(Config config, Provider<TripRouter> tripRouterProvider, final double mutationRange, boolean affectingDuration) {
 		super(config.global());
-		this.tripRouterProvider = tripRouterProvider;
+		this.tripRouter = new ConcurrentTripRouter(tripRouterProvider);
 		this.affectingDuration = affectingDuration;
 		this.mutationRange = mutationRange;
 		this.activityDurationInterpretation = (config.plans().getActivityDurationInterpretation());
@@ -87,8 +88,16 @@ public class TimeAllocationMutator extends AbstractMultithreadedModule {
 	
 	public TimeAllocationMutator(Provider<TripRouter> tripRouterProvider, PlansConfigGroup plansConfigGroup, TimeAllocationMutatorConfigGroup timeAllocationMutatorConfigGroup, GlobalConfigGroup globalConfigGroup,
 			final Population population) {
+		this(new ConcurrentTripRouter(tripRouterProvider), plansConfigGroup, timeAllocationMutatorConfigGroup, globalConfigGroup, population);
+	}
+	
+	/**
+	 * The trip router is only used for the stage activity types, so no trip router has to be created per thread.
+	 */
+	public TimeAllocationMutator(ConcurrentTripRouter tripRouter, PlansConfigGroup plansConfigGroup, TimeAllocationMutatorConfigGroup timeAllocationMutatorConfigGroup, GlobalConfigGroup globalConfigGroup,
+			final Population population) {
 		super(globalConfigGroup);
-		this.tripRouterProvider = tripRouterProvider;
+		this.tripRouter = tripRouter;
 		this.activityDurationInterpretation = plansConfigGroup.getActivityDurationInterpretation();
 		this.mutationRange = timeAllocationMutatorConfigGroup.getMutationRange();
 		this.affectingDuration = timeAllocationMutatorConfigGroup.isAffectingDuration();
@@ -121,12 +130,12 @@ public class TimeAllocationMutator extends AbstractMultithreadedModule {
 		PlanAlgorithm pmta;
 		switch (this.activityDurationInterpretation) {
 		case minOfDurationAndEndTime:
-			pmta = new TripPlanMutateTimeAllocation(this.tripRouterProvider.get().getStageActivityTypes(), this.mutationRange, this.affectingDuration, MatsimRandom.getLocalInstance(),
+			pmta = new TripPlanMutateTimeAllocation(this.tripRouter.getStageActivityTypes(), this.mutationRange, this.affectingDuration, MatsimRandom.getLocalInstance(),
 					this.subpopulationAttribute, this.personAttributes, this.subpopulationMutationRanges, this.subpopulationAffectingDuration);
 			break;
 		default:
 			pmta = new PlanMutateTimeAllocationSimplified(
-					this.tripRouterProvider.get().getStageActivityTypes(), this.mutationRange, this.affectingDuration, MatsimRandom.getLocalInstance());
+					this.tripRouter.getStageActivityTypes(), this.mutationRange, this.affectingDuration, MatsimRandom.getLocalInstance());
 		}
 		return pmta;
 	}
@@ -27,6 +27,7 @@ import org.matsim.core.config.groups.PlansConfigGroup.ActivityDurationInterpreta
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.population.algorithms.TripPlanMutateTimeAllocation;
+import org.matsim.core.router.ConcurrentTripRouter;
 import org.matsim.core.router.TripRouter;
 
 import javax.inject.Provider;
@@ -39,7 +40,7 @@ import javax.inject.Provider;
  */
 public class TripTimeAllocationMutator extends AbstractMultithreadedModule {
 
-	private final Provider<TripRouter> tripRouterProvider;
+	private final ConcurrentTripRouter tripRouter;
 
 	public final static String CONFIG_GROUP = "TimeAllocationMutator";
 	public final static String CONFIG_MUTATION_RANGE = "mutationRange";
@@ -54,7 +55,7 @@ public class TripTimeAllocationMutator extends AbstractMultithreadedModule {
 	 */
 	public TripTimeAllocationMutator(Config config, Provider<TripRouter> tripRouterProvider) {
 		super(config.global());
-		this.tripRouterProvider = tripRouterProvider;
+		this.tripRouter = new ConcurrentTripRouter(tripRouterProvider);
 		this.mutationRange = config.timeAllocationMutator().getMutationRange() ;
 		this.affectingDuration = config.timeAllocationMutator().isAffectingDuration() ;
 		PlansConfigGroup.ActivityDurationInterpretation actDurInterpr = ( config.plans().getActivityDurationInterpretation() ) ;
@@ -71,7 +72,7 @@ public class TripTimeAllocationMutator extends AbstractMultithreadedModule {
 
 	public TripTimeAllocationMutator(Config config, Provider<TripRouter> tripRouterProvider, final double mutationRange, boolean affectingDuration) {
 		super(config.global());
-		this.tripRouterProvider = tripRouterProvider;
+		this.tripRouter = new ConcurrentTripRouter(tripRouterProvider);
 		this.mutationRange = mutationRange;
 		this.affectingDuration = affectingDuration;
 	}
@@ -80,7 +81,7 @@ public class TripTimeAllocationMutator extends AbstractMultithreadedModule {
 	public PlanAlgorithm getPlanAlgoInstance() {
 		TripPlanMutateTimeAllocation pmta =
 			new TripPlanMutateTimeAllocation(
-					tripRouterProvider.get().getStageActivityTypes(),
+					this.tripRouter.getStageActivityTypes(),
 					this.mutationRange,
 					affectingDuration, MatsimRandom.getLocalInstance());
 		pmta.setUseActivityDurations(this.useActivityDurations);
@@ -23,6 +23,7 @@ import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.population.algorithms.TripsToLegsAlgorithm;
 import org.matsim.core.router.CompositeStageActivityTypes;
+import org.matsim.core.router.ConcurrentTripRouter;
 import org.matsim.core.router.StageActivityTypes;
 import org.matsim.core.router.TripRouter;
 
@@ -38,7 +39,7 @@ import javax.inject.Provider;
 public class TripsToLegsModule extends AbstractMultithreadedModule {
 
 	private final StageActivityTypes additionalBlackList;
-	private final Provider<TripRouter> tripRouterProvider;
+	private final ConcurrentTripRouter tripRouter;
 
 	/**
 	 * Initializes an instance using the stage activity types from the controler
@@ -47,6 +48,14 @@ public class TripsToLegsModule extends AbstractMultithreadedModule {
 		this(null, tripRouterProvider, globalConfigGroup);
 	}
 
+	/**
+	 * Initializes an instance using the stage activity types of the given trip router.
+	 * No trip router has to be created per thread.
+	 */
+	public TripsToLegsModule(ConcurrentTripRouter tripRouter, GlobalConfigGroup globalConfigGroup) {
+		this(null, tripRouter, globalConfigGroup);
+	}
+
 	/**
 	 * Initializes an instance, allowing to specify additional activity types to
 	 * consider as stage activities.
@@ -55,15 +64,18 @@ public class TripsToLegsModule extends AbstractMultithreadedModule {
 	 * @param globalConfigGroup
 	 */
 	public TripsToLegsModule(final StageActivityTypes additionalBlackList, Provider<TripRouter> tripRouterProvider, GlobalConfigGroup globalConfigGroup) {
+		this(additionalBlackList, new ConcurrentTripRouter(tripRouterProvider), globalConfigGroup);
+	}
+
+	public TripsToLegsModule(final StageActivityTypes additionalBlackList, ConcurrentTripRouter tripRouter, GlobalConfigGroup globalConfigGroup) {
 		super(globalConfigGroup);
-		this.tripRouterProvider = tripRouterProvider;
+		this.tripRouter = tripRouter;
 		this.additionalBlackList = additionalBlackList;
 	}
 
 	@Override
 	public PlanAlgorithm getPlanAlgoInstance() {
-		TripRouter router = tripRouterProvider.get();
-		StageActivityTypes blackListToUse = router.getStageActivityTypes();
+		StageActivityTypes blackListToUse = this.tripRouter.getStageActivityTypes();
 
 		if (additionalBlackList != null) {
 			CompositeStageActivityTypes composite = new CompositeStageActivityTypes();
@@ -74,7 +86,7 @@ public class TripsToLegsModule extends AbstractMultithreadedModule {
 
 		return new TripsToLegsAlgorithm( 
 				blackListToUse,
-				router.getMainModeIdentifier() );
+				this.tripRouter.getMainModeIdentifier() );
 	}
 }
 
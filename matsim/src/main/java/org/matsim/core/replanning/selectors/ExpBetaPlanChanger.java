@@ -20,6 +20,8 @@
 
 package org.matsim.core.replanning.selectors;
 
+import java.util.List;
+
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.BasicPlan;
 import org.matsim.api.core.v01.population.HasPlansAndId;
@@ -47,15 +49,30 @@ public final class ExpBetaPlanChanger<T extends BasicPlan, I> implements PlanSel
 	 */
 	@Override
 	public T selectPlan(final HasPlansAndId<T, I> person) {
-		// current plan and random plan:
+		// current plan and random plan (drawn like the RandomPlanSelector does), with their scores from a flat array:
 		T currentPlan = person.getSelectedPlan();
-		T otherPlan = new RandomPlanSelector<T, I>().selectPlan(person);
+		List<? extends T> plans = person.getPlans();
+		int otherIndex = plans.isEmpty() ? -1 : (int) (MatsimRandom.getRandom().nextDouble() * plans.size());
 
 		if (currentPlan == null) {
 			// this case should only happen when the agent has no plans at all
 			return null;
 		}
+		T otherPlan = otherIndex < 0 ? null : plans.get(otherIndex);
+
+		double[] scores = ExpBetaPlanSelector.getScores(plans);
+		int currentIndex = -1;
+		for (int i = 0; i < plans.size() && currentIndex < 0; i++) {
+			if (plans.get(i) == currentPlan) currentIndex = i;
+		}
+		double currentScore = currentIndex < 0 ? getScore(currentPlan) : scores[currentIndex];
+		double otherScore = otherIndex < 0 ? Double.NaN : scores[otherIndex];
+
+		if (!Double.isNaN(currentScore) && !Double.isNaN(otherScore)) {
+			return changePlan(currentPlan, currentScore, otherPlan, otherScore);
+		}
 
+		// plans without score and plans with a score of NaN both have NaN in the array, so look at the plans again:
 		if ((currentPlan.getScore() == null) || (otherPlan.getScore() == null)) {
 			/* With the previous behavior, Double.NaN was returned if no score was available.
 			 * This resulted in weight=NaN below as well, and then ultimately in returning
@@ -75,13 +92,14 @@ public final class ExpBetaPlanChanger<T extends BasicPlan, I> implements PlanSel
 		if ( currentPlan.getScore().isNaN() ) {
 			return otherPlan ;
 		}
-		if ( otherPlan.getScore().isNaN() ) {
-			return currentPlan ;
-		}
-		
-		double currentScore = currentPlan.getScore().doubleValue();
-		double otherScore = otherPlan.getScore().doubleValue();
+		return currentPlan ;
+	}
+
+	private static double getScore(final BasicPlan plan) {
+		return plan.getScore() == null ? Double.NaN : plan.getScore();
+	}
 
+	private T changePlan(final T currentPlan, final double currentScore, final T otherPlan, final double otherScore) {
 		if ( betaWrnFlag ) {
 			log.warn("Would make sense to revise this once more.  See comments in code.  kai, nov08") ;
 			/*** Gunnar says, rightly I think, that what is below hits the "0.01*weight > 1" threshold fairly quickly.
@@ -21,6 +21,7 @@
 package org.matsim.core.replanning.selectors;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
@@ -54,20 +55,33 @@ public class ExpBetaPlanSelector<T extends BasicPlan, I> implements PlanSelector
 	@Override
 	public T selectPlan(final HasPlansAndId<T, I> person) {
 
-		// get the weights of all plans
-		Map<T, Double> weights = this.calcWeights(person);
-
+		// get the weights of all plans (in a flat array, in the order of the plans, instead of the map of calcWeights(...)),
+		// computed in place from the unboxed scores
+		List<? extends T> plans = person.getPlans();
+		double[] weights = getScores(plans);
+		double maxScore = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < weights.length; i++) {
+			if (Double.isNaN(weights[i])) {
+				if (plans.get(i).getScore() != null) {
+					Logger.getLogger(this.getClass()).error("encountering getScore().isNaN().  This class is not well behaved in this situation.  Continuing anyway ...") ;
+				}
+			} else if (weights[i] > maxScore) {
+				maxScore = weights[i];
+			}
+		}
 		double sumWeights = 0.0;
-		for (Double weight : weights.values()) {
-			sumWeights += weight;
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = this.calcWeight(weights[i], maxScore);
+			// see note in calcPlanWeight!
+			sumWeights += weights[i];
 		}
 
 		// choose a random number over interval [0, sumWeights[
 		double selnum = sumWeights * MatsimRandom.getRandom().nextDouble();
-		for (T plan : person.getPlans()) {
-			selnum -= weights.get(plan);
+		for (int i = 0; i < weights.length; i++) {
+			selnum -= weights[i];
 			if (selnum <= 0.0) {
-				return plan;
+				return plans.get(i);
 			}
 		}
 
@@ -93,11 +107,27 @@ public class ExpBetaPlanSelector<T extends BasicPlan, I> implements PlanSelector
 		if (plan.getScore() == null) {
 			return Double.NaN;
 		}
-		double weight = Math.exp(this.beta * (plan.getScore() - maxScore));
+		return calcWeight(plan.getScore(), maxScore);
+	}
+
+	private double calcWeight(final double score, final double maxScore) {
+		double weight = Math.exp(this.beta * (score - maxScore));
 		if (weight < MIN_WEIGHT) weight = MIN_WEIGHT;
 		return weight;
 	}
 
+	/**
+	 * @return the scores of the plans in a flat array, in the order of the plans, with <code>NaN</code> for plans without score
+	 */
+	static double[] getScores(final List<? extends BasicPlan> plans) {
+		double[] scores = new double[plans.size()];
+		for (int i = 0; i < scores.length; i++) {
+			Double score = plans.get(i).getScore();
+			scores[i] = score == null ? Double.NaN : score;
+		}
+		return scores;
+	}
+
 	/**
 	 * Builds the weights of all plans.
 	 *
@@ -106,15 +136,7 @@ public class ExpBetaPlanSelector<T extends BasicPlan, I> implements PlanSelector
 	Map<T, Double> calcWeights(final HasPlansAndId<T, ?> person) {
 
 		// - first find the max. score of all plans of this person
-		double maxScore = Double.NEGATIVE_INFINITY;
-		for (T plan1 : person.getPlans()) {
-			if ( (plan1.getScore() != null) && plan1.getScore().isNaN() ) {
-				Logger.getLogger(this.getClass()).error("encountering getScore().isNaN().  This class is not well behaved in this situation.  Continuing anyway ...") ;
-			}
-			if ((plan1.getScore() != null) && (plan1.getScore() > maxScore)) {
-				maxScore = plan1.getScore();
-			}
-		}
+		double maxScore = getMaxScore(person);
 
 		Map<T, Double> weights = new LinkedHashMap<T, Double>(person.getPlans().size());
 
@@ -126,6 +148,19 @@ public class ExpBetaPlanSelector<T extends BasicPlan, I> implements PlanSelector
 		return weights;
 	}
 
+	private double getMaxScore(final HasPlansAndId<T, ?> person) {
+		double maxScore = Double.NEGATIVE_INFINITY;
+		for (T plan1 : person.getPlans()) {
+			if ( (plan1.getScore() != null) && plan1.getScore().isNaN() ) {
+				Logger.getLogger(this.getClass()).error("encountering getScore().isNaN().  This class is not well behaved in this situation.  Continuing anyway ...") ;
+			}
+			if ((plan1.getScore() != null) && (plan1.getScore() > maxScore)) {
+				maxScore = plan1.getScore();
+			}
+		}
+		return maxScore;
+	}
+
     /**
      * @return the probability that this expBetaPlanSelector will select this plan for this person.
      */
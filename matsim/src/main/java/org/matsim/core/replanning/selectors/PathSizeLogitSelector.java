@@ -20,7 +20,7 @@
 
 package org.matsim.core.replanning.selectors;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,7 +34,6 @@ import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.population.routes.NetworkRoute;
-import org.matsim.core.population.routes.RouteUtils;
 
 import javax.inject.Inject;
 
@@ -47,6 +46,14 @@ import javax.inject.Inject;
  */
 public final class PathSizeLogitSelector extends AbstractPlanSelector {
 
+	private static final String PLAN_ROUTES_ATTRIBUTE = PathSizeLogitSelector.class.getName() + ".planRoutes";
+
+	//TODO this is just for testing (those legs where the departure time differs more then 3600 seconds will not compared to each other) - need a
+	//little bit to brood on it - gl
+	// An alternative might be to use a kernal, e.g. a Gaussian.  Something like
+	// denominator += exp( (dbl-currentTime)^2 / sigma^2 ) .  kai, oct'12
+	private static final double TIME_WINDOW = 3600;
+
 	private final double pathSizeLogitExponent;
 	private final double logitScaleFactor;
 	private Network network;
@@ -70,79 +77,50 @@ public final class PathSizeLogitSelector extends AbstractPlanSelector {
 
 		double maxScore = Double.NEGATIVE_INFINITY;
 
-		HashMap<Id<Link>, ArrayList<Double>> linksInTime = new HashMap<>();
-		// (a data structure that memorizes possible leg start times for link utilization (??))
-		
-		HashMap<Integer,Double> planLength = new HashMap<Integer, Double>();
-		// (a data structure that memorizes the total travel distance of each plan)
-		// (yyyy is it obvious that no two plans can have the same hash code?  what happens if they do?  kai, oct'12)
-		// (why not just <Plan,Double>?????)
-		
 		//this gets the choice sets C_n
 		//TODO [GL] since the lack of information in Route(),
 		//the very first and the very last link of a path will be ignored - gl
 		//dg, 09-2013: as first and last link are equal for all routes between to activities this is no major issue
 
-		for (Plan plan : plans) {
+		// The routes of each plan are memorized at the plan, together with the path size of the plan in its
+		// choice set.  They are only re-read when a route or a departure time of the plan changed, and the path sizes are only
+		// re-computed when the choice set changed, i.e. when a plan was added, removed, or re-routed.
+		PlanRoutes[] choiceSet = new PlanRoutes[plans.size()];
+		boolean choiceSetChanged = false;
+		for (int i = 0; i < choiceSet.length; i++) {
+			Plan plan = plans.get(i);
 
 			if (plan.getScore() > maxScore) maxScore = plan.getScore();
 
-			double pathSize = 0;
-			double currentEndTime = 0.0;
-			for (PlanElement pe : plan.getPlanElements()) {
-				if (pe instanceof Leg) {
-					Leg leg = (Leg) pe;
-					currentEndTime = leg.getDepartureTime();
-
-					NetworkRoute r = (NetworkRoute) leg.getRoute();
-					// (yyyy this will fail when the route is not a network route.  kai, oct'12)
-
-					pathSize += RouteUtils.calcDistanceExcludingStartEndLink(r, network);
-					// (i.e. pathSize will be the sum over all routes of the plan)
-					
-					for (Id<Link> linkId : r.getLinkIds()){
-						ArrayList<Double> lit = linksInTime.get(linkId);
-						if (lit == null){
-							lit = new ArrayList<Double>();
-							linksInTime.put(linkId, lit);
-						}
-						lit.add(currentEndTime);
-					}
+			Object cached = plan.getCustomAttributes().get(PLAN_ROUTES_ATTRIBUTE);
+			PlanRoutes planRoutes = cached instanceof PlanRoutes ? (PlanRoutes) cached : null;
+			if (planRoutes == null || planRoutes.plan != plan || !planRoutes.isUpToDate()) {
+				planRoutes = new PlanRoutes(plan, this.network);
+				plan.getCustomAttributes().put(PLAN_ROUTES_ATTRIBUTE, planRoutes);
+				choiceSetChanged = true;
+			}
+			choiceSet[i] = planRoutes;
+		}
+		if (!choiceSetChanged) {
+			// all plans were evaluated together, and no plan was removed since then
+			for (PlanRoutes planRoutes : choiceSet) {
+				if (planRoutes.choiceSet == null || planRoutes.choiceSet != choiceSet[0].choiceSet
+						|| planRoutes.choiceSet.size != choiceSet.length) {
+					choiceSetChanged = true;
+					break;
 				}
 			}
-			planLength.put(plan.hashCode(), pathSize);
+		}
+		if (choiceSetChanged) {
+			calcPathSizes(choiceSet);
 		}
 
-		for (Plan plan : plans) {
+		for (PlanRoutes planRoutes : choiceSet) {
+			Plan plan = planRoutes.plan;
 
-			double tmp = 0;
-			for (PlanElement pe : plan.getPlanElements()) {
-				if (pe instanceof Leg) {
-					Leg leg = (Leg) pe;
-					double currentTime = leg.getDepartureTime();
-					NetworkRoute route = (NetworkRoute) leg.getRoute();
-					for (Id<Link> linkId : route.getLinkIds()){
-						double denominator = 0;
-						for (double dbl : linksInTime.get(linkId)){
-							//TODO this is just for testing (those legs where the departure time differs more then 3600 seconds will not compared to each other) - need a
-							//little bit to brood on it - gl
-							// An alternative might be to use a kernal, e.g. a Gaussian.  Something like
-							// denominator += exp( (dbl-currentTime)^2 / sigma^2 ) .  kai, oct'12
-							if (Math.abs(dbl - currentTime) <= 3600)
-								denominator++;
-						}
-						// (the meaning seems to be: for each link that the plan uses, it checks how many other times the
-						// same link is used by a leg that has roughly the same departure time (*))
-
-						Link link = network.getLinks().get(linkId);
-						tmp += link.getLength() / denominator;
-						// (for a plan, the weight of a link is divided by the number of times it is used)
-					}
-				}
-			}
-			// tmp is now a number that contains the ``reduced'' travel distance of the plan.  Divide it by the full travel distance
+			// reducedLength is a number that contains the ``reduced'' travel distance of the plan.  Divide it by the full travel distance
 			// of the plan, and take to the power of this.beta:
-			double PSi = Math.pow(tmp/planLength.get(plan.hashCode()), this.pathSizeLogitExponent);
+			double PSi = Math.pow(planRoutes.reducedLength/planRoutes.length, this.pathSizeLogitExponent);
 			
 			double weight;
 			if (Double.isInfinite(maxScore)) {
@@ -171,4 +149,204 @@ public final class PathSizeLogitSelector extends AbstractPlanSelector {
 		return weights ;
 	}
 
+	/**
+	 * Computes the reduced length of all plans of the choice set.  For each link that a plan uses, it checks how many times the
+	 * same link is used by a leg of the choice set with roughly the same departure time, and divides the length of the link by this
+	 * number.
+	 * <p></p>
+	 * Instead of comparing each usage of a link with all other usages of the link, the usages are sorted by link and departure
+	 * time, so the usages within the time window can be counted in a single sweep.
+	 */
+	private static void calcPathSizes(final PlanRoutes[] choiceSet) {
+		int numberOfUsages = 0;
+		for (PlanRoutes planRoutes : choiceSet) {
+			numberOfUsages += planRoutes.linkIndices.length;
+		}
+
+		// sort the usages by link; the usage number in the lower bits keeps the sort stable
+		long[] usagesByLink = new long[numberOfUsages];
+		double[] times = new double[numberOfUsages];
+		int usage = 0;
+		for (PlanRoutes planRoutes : choiceSet) {
+			for (int k = 0; k < planRoutes.linkIndices.length; k++) {
+				usagesByLink[usage] = ((long) planRoutes.linkIndices[k] << 32) | usage;
+				times[usage] = planRoutes.times[k];
+				usage++;
+			}
+		}
+		Arrays.sort(usagesByLink);
+
+		int[] denominators = new int[numberOfUsages];
+		double[] sortedTimes = new double[numberOfUsages];
+		int[] sortedUsages = new int[numberOfUsages];
+		int groupStart = 0;
+		while (groupStart < numberOfUsages) {
+			int linkIndex = (int) (usagesByLink[groupStart] >> 32);
+			int groupEnd = groupStart;
+			while (groupEnd < numberOfUsages && (int) (usagesByLink[groupEnd] >> 32) == linkIndex) groupEnd++;
+			countUsagesInTimeWindow(usagesByLink, groupStart, groupEnd, times, sortedTimes, sortedUsages, denominators);
+			groupStart = groupEnd;
+		}
+
+		ChoiceSet evaluatedChoiceSet = new ChoiceSet(choiceSet.length);
+		usage = 0;
+		for (PlanRoutes planRoutes : choiceSet) {
+			double tmp = 0;
+			for (int k = 0; k < planRoutes.linkIndices.length; k++) {
+				tmp += planRoutes.linkLengths[k] / denominators[usage];
+				// (for a plan, the weight of a link is divided by the number of times it is used)
+				usage++;
+			}
+			planRoutes.reducedLength = tmp;
+			planRoutes.choiceSet = evaluatedChoiceSet;
+		}
+	}
+
+	/**
+	 * Sets, for each usage of a single link, the number of usages of the link where the departure times differ by at most
+	 * {@link #TIME_WINDOW} seconds.
+	 */
+	private static void countUsagesInTimeWindow(final long[] usagesByLink, final int groupStart, final int groupEnd,
+			final double[] times, final double[] sortedTimes, final int[] sortedUsages, final int[] denominators) {
+		// usages with undefined departure times are never within the time window of any usage, not even of their own
+		int n = 0;
+		for (int i = groupStart; i < groupEnd; i++) {
+			int usage = (int) usagesByLink[i];
+			if (Double.isInfinite(times[usage]) || Double.isNaN(times[usage])) {
+				denominators[usage] = 0;
+			} else {
+				sortedTimes[n] = times[usage];
+				sortedUsages[n] = usage;
+				n++;
+			}
+		}
+		sortByTime(sortedTimes, sortedUsages, n);
+
+		int lower = 0;
+		int upper = 0;
+		for (int i = 0; i < n; i++) {
+			double time = sortedTimes[i];
+			while (Math.abs(sortedTimes[lower] - time) > TIME_WINDOW) lower++;
+			while (upper < n && Math.abs(sortedTimes[upper] - time) <= TIME_WINDOW) upper++;
+			denominators[sortedUsages[i]] = upper - lower;
+		}
+	}
+
+	private static void sortByTime(final double[] times, final int[] usages, final int n) {
+		// insertion sort, a link is usually used by only a few legs of a choice set
+		for (int i = 1; i < n; i++) {
+			double time = times[i];
+			int usage = usages[i];
+			int j = i - 1;
+			while (j >= 0 && times[j] > time) {
+				times[j + 1] = times[j];
+				usages[j + 1] = usages[j];
+				j--;
+			}
+			times[j + 1] = time;
+			usages[j + 1] = usage;
+		}
+	}
+
+	/**
+	 * Identifies the plans that were evaluated together. It does not refer to the plans, so a plan that is removed from the
+	 * choice set is not kept alive by the cache of the remaining plans. Since each plan refers to the choice set it was last
+	 * evaluated in, the choice set is unchanged if all of its plans refer to the same instance, and there are as many of them
+	 * as were evaluated.
+	 */
+	private static final class ChoiceSet {
+		private final int size;
+
+		ChoiceSet(final int size) {
+			this.size = size;
+		}
+	}
+
+	/**
+	 * The links and departure times of all network routes of a plan, memorized at the plan.
+	 */
+	private static final class PlanRoutes {
+		private final Plan plan;
+		private final int[] legEnds;
+		private final double[] departureTimes;
+		private final int[] linkIndices;
+		private final double[] times;
+		private final double[] linkLengths;
+		private final double length;
+
+		// the choice set this plan was last evaluated in, and its reduced length in that choice set
+		private ChoiceSet choiceSet = null;
+		private double reducedLength = Double.NaN;
+
+		PlanRoutes(final Plan plan, final Network network) {
+			this.plan = plan;
+			int numberOfLegs = 0;
+			int numberOfLinks = 0;
+			for (PlanElement pe : plan.getPlanElements()) {
+				if (pe instanceof Leg) {
+					numberOfLegs++;
+					numberOfLinks += ((NetworkRoute) ((Leg) pe).getRoute()).getLinkIds().size();
+					// (yyyy this will fail when the route is not a network route.  kai, oct'12)
+				}
+			}
+			this.legEnds = new int[numberOfLegs];
+			this.departureTimes = new double[numberOfLegs];
+			this.linkIndices = new int[numberOfLinks];
+			this.times = new double[numberOfLinks];
+			this.linkLengths = new double[numberOfLinks];
+
+			double pathSize = 0;
+			int leg = 0;
+			int k = 0;
+			for (PlanElement pe : plan.getPlanElements()) {
+				if (pe instanceof Leg) {
+					double currentEndTime = ((Leg) pe).getDepartureTime();
+					double routeLength = 0;
+					for (Id<Link> linkId : ((NetworkRoute) ((Leg) pe).getRoute()).getLinkIds()) {
+						double linkLength = network.getLinks().get(linkId).getLength();
+						this.linkIndices[k] = linkId.index();
+						this.times[k] = currentEndTime;
+						this.linkLengths[k] = linkLength;
+						routeLength += linkLength;
+						k++;
+					}
+					pathSize += routeLength;
+					// (i.e. pathSize will be the sum over all routes of the plan)
+					this.departureTimes[leg] = currentEndTime;
+					this.legEnds[leg] = k;
+					leg++;
+				}
+			}
+			this.length = pathSize;
+		}
+
+		/**
+		 * @return whether the plan still has the same legs with the same departure times and links. Does not allocate
+		 * for {@link org.matsim.core.population.routes.LinkNetworkRouteImpl}s.
+		 */
+		boolean isUpToDate() {
+			int leg = 0;
+			int k = 0;
+			for (PlanElement pe : this.plan.getPlanElements()) {
+				if (pe instanceof Leg) {
+					if (leg == this.legEnds.length || Double.compare(((Leg) pe).getDepartureTime(), this.departureTimes[leg]) != 0) {
+						return false;
+					}
+					List<Id<Link>> linkIds = ((NetworkRoute) ((Leg) pe).getRoute()).getLinkIds();
+					if (linkIds.size() != this.legEnds[leg] - k) {
+						return false;
+					}
+					for (int i = 0; i < linkIds.size(); i++) {
+						if (linkIds.get(i).index() != this.linkIndices[k]) {
+							return false;
+						}
+						k++;
+					}
+					leg++;
+				}
+			}
+			return leg == this.legEnds.length;
+		}
+	}
+
 }
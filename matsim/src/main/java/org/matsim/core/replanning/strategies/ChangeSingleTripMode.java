@@ -27,6 +27,7 @@ import org.matsim.core.replanning.modules.ChangeSingleLegMode;
 import org.matsim.core.replanning.modules.ReRoute;
 import org.matsim.core.replanning.modules.TripsToLegsModule;
 import org.matsim.core.replanning.selectors.RandomPlanSelector;
+import org.matsim.core.router.ConcurrentTripRouter;
 import org.matsim.core.router.TripRouter;
 import org.matsim.facilities.ActivityFacilities;
 
@@ -38,20 +39,23 @@ public class ChangeSingleTripMode implements Provider<PlanStrategy> {
 	private final GlobalConfigGroup globalConfigGroup;
 	private final ChangeModeConfigGroup changeLegModeConfigGroup;
 	private Provider<TripRouter> tripRouterProvider;
+	private ConcurrentTripRouter tripRouter;
 	private ActivityFacilities activityFacilities;
 
 	@Inject
-	ChangeSingleTripMode(GlobalConfigGroup globalConfigGroup, ChangeModeConfigGroup changeLegModeConfigGroup, ActivityFacilities activityFacilities, Provider<TripRouter> tripRouterProvider) {
+	ChangeSingleTripMode(GlobalConfigGroup globalConfigGroup, ChangeModeConfigGroup changeLegModeConfigGroup, ActivityFacilities activityFacilities, Provider<TripRouter> tripRouterProvider,
+			ConcurrentTripRouter tripRouter) {
 		this.globalConfigGroup = globalConfigGroup;
 		this.changeLegModeConfigGroup = changeLegModeConfigGroup;
 		this.activityFacilities = activityFacilities;
 		this.tripRouterProvider = tripRouterProvider;
+		this.tripRouter = tripRouter;
 	}
 
     @Override
 	public PlanStrategy get() {
 		PlanStrategyImpl strategy = new PlanStrategyImpl(new RandomPlanSelector());
-		strategy.addStrategyModule(new TripsToLegsModule(tripRouterProvider, globalConfigGroup));
+		strategy.addStrategyModule(new TripsToLegsModule(tripRouter, globalConfigGroup));
 		strategy.addStrategyModule(new ChangeSingleLegMode(globalConfigGroup, changeLegModeConfigGroup));
 		strategy.addStrategyModule(new ReRoute(activityFacilities, tripRouterProvider, globalConfigGroup));
 		return strategy;
@@ -25,6 +25,7 @@ import org.matsim.core.replanning.PlanStrategy;
 import org.matsim.core.replanning.PlanStrategyImpl;
 import org.matsim.core.replanning.modules.ReRoute;
 import org.matsim.core.replanning.selectors.RandomPlanSelector;
+import org.matsim.core.router.ConcurrentTripRouter;
 import org.matsim.core.router.TripRouter;
 import org.matsim.facilities.ActivityFacilities;
 
@@ -34,6 +35,7 @@ import javax.inject.Provider;
 public class SubtourModeChoice implements Provider<PlanStrategy> {
 
 	@Inject private Provider<TripRouter> tripRouterProvider;
+	@Inject private ConcurrentTripRouter tripRouter;
 	@Inject private GlobalConfigGroup globalConfigGroup;
 	@Inject private SubtourModeChoiceConfigGroup subtourModeChoiceConfigGroup;
 	@Inject private ActivityFacilities facilities;
@@ -41,7 +43,7 @@ public class SubtourModeChoice implements Provider<PlanStrategy> {
     @Override
 	public PlanStrategy get() {
 		PlanStrategyImpl strategy = new PlanStrategyImpl(new RandomPlanSelector());
-		strategy.addStrategyModule(new org.matsim.core.replanning.modules.SubtourModeChoice(tripRouterProvider, globalConfigGroup, subtourModeChoiceConfigGroup));
+		strategy.addStrategyModule(new org.matsim.core.replanning.modules.SubtourModeChoice(tripRouter, globalConfigGroup, subtourModeChoiceConfigGroup));
 		strategy.addStrategyModule(new ReRoute(facilities, tripRouterProvider, globalConfigGroup));
 		return strategy;
 	}
@@ -0,0 +1,116 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ConcurrentTripRouter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.router;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.facilities.Facility;
+
+/**
+ * Thread-safe routing service on top of {@link TripRouter}. A single instance can be shared by
+ * any number of threads, e.g. in accessibility computations or location choice.
+ * <p></p>
+ * A {@link TripRouter} and its {@link RoutingModule}s are not thread-safe, since the least cost path
+ * calculators keep their search state. {@link TripRouter#calcRoute(String, Facility, Facility, double, Person)} is
+ * synchronized for this reason, which serializes all threads that share a trip router. This class
+ * instead keeps a pool of trip routers, and each call borrows one for its duration. Since the pooled
+ * trip routers are created by the same {@link Provider}, the expensive preprocessed data (e.g. the routing
+ * networks and the landmarks of the {@link FastAStarLandmarksFactory}) is shared between them, so each
+ * pooled router only adds the per-search state. The pool grows to the maximum number of concurrent
+ * calls and is never shrunk.
+ * <p></p>
+ * Which pooled router serves a call depends on the timing of the threads. Routing modules with own random
+ * state, e.g. with a randomizing travel disutility, thus do not give reproducible results; plan strategies
+ * that route should keep one trip router per thread. The stage activity types and the main mode identifier
+ * are the same for all trip routers of the provider and are only determined once.
+ */
+@Singleton
+public final class ConcurrentTripRouter {
+
+	private final Provider<TripRouter> tripRouterProvider;
+	private final Queue<TripRouter> idleTripRouters = new ConcurrentLinkedQueue<>();
+
+	private volatile StageActivityTypes stageActivityTypes = null;
+	private volatile MainModeIdentifier mainModeIdentifier = null;
+
+	@Inject
+	public ConcurrentTripRouter(final Provider<TripRouter> tripRouterProvider) {
+		this.tripRouterProvider = tripRouterProvider;
+	}
+
+	/**
+	 * Routes a trip, see {@link TripRouter#calcRoute(String, Facility, Facility, double, Person)}.
+	 * May be called concurrently.
+	 */
+	public List<? extends PlanElement> calcRoute(
+			final String mainMode,
+			final Facility<?> fromFacility,
+			final Facility<?> toFacility,
+			final double departureTime,
+			final Person person) {
+		return withTripRouter( tripRouter -> tripRouter.calcRoute( mainMode, fromFacility, toFacility, departureTime, person ) );
+	}
+
+	/**
+	 * Runs the given function with a trip router that is not used by any other thread
+	 * in the meantime, e.g. to route all trips of a plan with a {@link PlanRouter}. The
+	 * trip router must not be used anymore after the function returned.
+	 */
+	public <T> T withTripRouter(final Function<TripRouter, T> function) {
+		TripRouter tripRouter = this.idleTripRouters.poll();
+		if (tripRouter == null) {
+			tripRouter = this.tripRouterProvider.get();
+		}
+		try {
+			return function.apply( tripRouter );
+		} finally {
+			this.idleTripRouters.offer( tripRouter );
+		}
+	}
+
+	public StageActivityTypes getStageActivityTypes() {
+		StageActivityTypes types = this.stageActivityTypes;
+		if ( types == null ) {
+			// concurrent first calls may both look it up, which does no harm
+			types = withTripRouter( TripRouter::getStageActivityTypes );
+			this.stageActivityTypes = types;
+		}
+		return types;
+	}
+
+	public MainModeIdentifier getMainModeIdentifier() {
+		MainModeIdentifier identifier = this.mainModeIdentifier;
+		if ( identifier == null ) {
+			identifier = withTripRouter( TripRouter::getMainModeIdentifier );
+			this.mainModeIdentifier = identifier;
+		}
+		return identifier;
+	}
+
+}
@@ -206,6 +206,8 @@ public final class TripRouter implements MatsimExtensionPoint {
 			final Person person) {
 		// I need this "synchronized" since I want mobsim agents to be able to call this during the mobsim.  So when the
 		// mobsim is multi-threaded, multiple agents might call this here at the same time.  kai, nov'17
+		// (Code that routes from many threads at the same time should use the ConcurrentTripRouter instead, which
+		// does not serialize the threads.)
 		
 		Gbl.assertNotNull( fromFacility );
 		Gbl.assertNotNull( toFacility );
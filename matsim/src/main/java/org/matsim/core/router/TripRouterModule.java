@@ -41,6 +41,7 @@ public class TripRouterModule extends AbstractModule {
 	    // kai/mm, jan'17
 	    
         bind(TripRouter.class); // not thread-safe, not a singleton
+        bind(ConcurrentTripRouter.class); // thread-safe, a singleton pooling TripRouters
         bind(MainModeIdentifier.class).to(MainModeIdentifierImpl.class);
         install(new LeastCostPathCalculatorModule());
         install(new TransitRouterModule());
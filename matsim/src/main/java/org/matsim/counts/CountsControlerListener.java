@@ -190,28 +190,14 @@ class CountsControlerListener implements StartupListener, IterationEndsListener
 	private void addVolumes(final VolumesAnalyzer volumes) {
 		this.iterationsUsed++;
 		for (Map.Entry<Id<Link>, double[]> e : this.linkStats.entrySet()) {
-			Id<Link> linkId = e.getKey();
-			double[] volumesPerHour = e.getValue(); 
-			double[] newVolume = getVolumesPerHourForLink(volumes, linkId); 
-			for (int i = 0; i < 24; i++) {
-				volumesPerHour[i] += newVolume[i];
-			}
-		}
-	}
-	
-	private double[] getVolumesPerHourForLink(final VolumesAnalyzer volumes, final Id<Link> linkId) {
-		if (this.config.isFilterModes()) {
-			double[] newVolume = new double[24];
-			for (String mode : this.analyzedModes) {
-				double[] volumesForMode = volumes.getVolumesPerHourForLink(linkId, mode);
-				if (volumesForMode == null) continue;
-				for (int i = 0; i < 24; i++) {
-					newVolume[i] += volumesForMode[i];
+			// the volumes are added in place, no temporary arrays needed
+			if (this.config.isFilterModes()) {
+				for (String mode : this.analyzedModes) {
+					volumes.addVolumesPerHourForLink(e.getKey(), mode, e.getValue());
 				}
+			} else {
+				volumes.addVolumesPerHourForLink(e.getKey(), e.getValue());
 			}
-			return newVolume;
-		} else {
-			return volumes.getVolumesPerHourForLink(linkId);
 		}
 	}
 	
@@ -0,0 +1,548 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NumericMatrix.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.matrices;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A matrix of numbers between zones, where the zones are addressed by their index (0 ... number of zones - 1)
+ * instead of their id. In contrast to {@link Matrix}, no object is created per entry, and an entry is found
+ * in constant time.
+ * <p></p>
+ * There are two implementations: a dense one, which stores all entries in a single primitive array (or a
+ * memory-mapped file, see {@link #readFile(String)}), and a sparse one, which stores only the set entries in an
+ * open-addressing hash table. Entries that are not set are <code>Double.NaN</code>, which means that
+ * <code>NaN</code> cannot be used as a value on its own.
+ * <p></p>
+ * Matrices from the existing file formats are read into a {@link Matrix} first (e.g. with
+ * {@link MatsimMatricesReader} or {@link org.matsim.visum.VisumMatrixReader}) and then converted with
+ * {@link #createFromMatrix(Matrix, boolean)}.
+ * <p></p>
+ * A dense matrix needs 8 bytes per possible entry and is limited to about 46'000 zones, a sparse one needs between
+ * 32 and 64 bytes per set entry. {@link #create(String, Collection, long)} and {@link #optimizeStorage()} choose the
+ * smaller one.
+ */
+public abstract class NumericMatrix {
+
+	private static final int MAGIC = 0x4d544e4d; // "MTNM"
+	private static final int VERSION = 1;
+	/** the largest size in bytes that can be mapped at once */
+	private static final long MAX_MAPPED_BYTES = Integer.MAX_VALUE;
+
+	private final String id;
+	private final String[] zoneIds;
+	private final Map<String, Integer> zoneIndices;
+
+	NumericMatrix(final String id, final String[] zoneIds) {
+		if (id == null) {
+			throw new NullPointerException("id must not be null");
+		}
+		this.id = id;
+		this.zoneIds = zoneIds;
+		this.zoneIndices = new HashMap<>((int) (zoneIds.length / 0.75) + 1);
+		for (int i = 0; i < zoneIds.length; i++) {
+			if (this.zoneIndices.put(zoneIds[i], i) != null) {
+				throw new IllegalArgumentException("zone id " + zoneIds[i] + " is not unique.");
+			}
+		}
+	}
+
+	//////////////////////////////////////////////////////////////////////
+	// create methods
+	//////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a matrix storing all <code>zoneIds.size()^2</code> entries, with the zone indices in the iteration order of <code>zoneIds</code>.
+	 */
+	public static NumericMatrix createDense(final String id, final Collection<String> zoneIds) {
+		String[] ids = zoneIds.toArray(new String[zoneIds.size()]);
+		return new Dense(id, ids, DoubleBuffer.wrap(createNaNs(getDenseSize(ids.length))));
+	}
+
+	/**
+	 * Creates a matrix storing only the set entries, with the zone indices in the iteration order of <code>zoneIds</code>.
+	 */
+	public static NumericMatrix createSparse(final String id, final Collection<String> zoneIds) {
+		return new Sparse(id, zoneIds.toArray(new String[zoneIds.size()]));
+	}
+
+	/**
+	 * Creates a dense matrix if it needs less memory for the expected number of set entries than a sparse one and if
+	 * there are not too many zones for a dense matrix, otherwise a sparse one.
+	 */
+	public static NumericMatrix create(final String id, final Collection<String> zoneIds, final long expectedNumberOfEntries) {
+		return isDenseSmaller(zoneIds.size(), expectedNumberOfEntries) ? createDense(id, zoneIds) : createSparse(id, zoneIds);
+	}
+
+	/**
+	 * Converts a matrix, e.g. as read by one of the existing readers. The zones are all from- and to-locations
+	 * of the matrix in their natural order.
+	 */
+	public static NumericMatrix createFromMatrix(final Matrix matrix, final boolean dense) {
+		Set<String> zoneIds = new LinkedHashSet<>(matrix.getFromLocations().keySet());
+		zoneIds.addAll(matrix.getToLocations().keySet());
+		NumericMatrix numericMatrix = dense ? createDense(matrix.getId(), zoneIds) : createSparse(matrix.getId(), zoneIds);
+		for (List<Entry> entries : matrix.getFromLocations().values()) {
+			for (Entry entry : entries) {
+				numericMatrix.set(entry.getFromLocation(), entry.getToLocation(), entry.getValue());
+			}
+		}
+		return numericMatrix;
+	}
+
+	private static int getDenseSize(final int numberOfZones) {
+		long size = (long) numberOfZones * numberOfZones;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(numberOfZones + " zones are too many for a dense matrix, use a sparse one.");
+		}
+		return (int) size;
+	}
+
+	private static boolean isDenseSmaller(final int numberOfZones, final long numberOfEntries) {
+		long size = (long) numberOfZones * numberOfZones;
+		// a sparse matrix needs 16 bytes per slot and uses between 2 and 4 slots per entry
+		return size <= Integer.MAX_VALUE && 4 * numberOfEntries >= size;
+	}
+
+	private static double[] createNaNs(final int size) {
+		double[] values = new double[size];
+		Arrays.fill(values, Double.NaN);
+		return values;
+	}
+
+	//////////////////////////////////////////////////////////////////////
+	// zone methods
+	//////////////////////////////////////////////////////////////////////
+
+	public final String getId() {
+		return this.id;
+	}
+
+	public final int getNumberOfZones() {
+		return this.zoneIds.length;
+	}
+
+	/**
+	 * @return the index of the zone, or <code>-1</code> if the zone is not part of this matrix.
+	 */
+	public final int getZoneIndex(final String zoneId) {
+		Integer index = this.zoneIndices.get(zoneId);
+		return index == null ? -1 : index;
+	}
+
+	public final String getZoneId(final int index) {
+		return this.zoneIds[index];
+	}
+
+	//////////////////////////////////////////////////////////////////////
+	// get/set methods
+	//////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return the value of the entry, or <code>Double.NaN</code> if the entry is not set.
+	 */
+	public abstract double get(int fromIndex, int toIndex);
+
+	/**
+	 * Sets the value of an entry; <code>Double.NaN</code> removes it.
+	 */
+	public abstract void set(int fromIndex, int toIndex, double value);
+
+	/**
+	 * @return the value of the entry, or <code>Double.NaN</code> if the entry is not set or one of the zones is unknown.
+	 */
+	public final double get(final String fromZoneId, final String toZoneId) {
+		int fromIndex = getZoneIndex(fromZoneId);
+		int toIndex = getZoneIndex(toZoneId);
+		if (fromIndex < 0 || toIndex < 0) {
+			return Double.NaN;
+		}
+		return get(fromIndex, toIndex);
+	}
+
+	public final void set(final String fromZoneId, final String toZoneId, final double value) {
+		set(getExistingZoneIndex(fromZoneId), getExistingZoneIndex(toZoneId), value);
+	}
+
+	private int getExistingZoneIndex(final String zoneId) {
+		int index = getZoneIndex(zoneId);
+		if (index < 0) {
+			throw new IllegalArgumentException("zone " + zoneId + " is not part of matrix " + this.id);
+		}
+		return index;
+	}
+
+	final long getKey(final int fromIndex, final int toIndex) {
+		if (fromIndex < 0 || fromIndex >= this.zoneIds.length || toIndex < 0 || toIndex >= this.zoneIds.length) {
+			throw new IndexOutOfBoundsException("from=" + fromIndex + ", to=" + toIndex + ", number of zones=" + this.zoneIds.length);
+		}
+		return (long) fromIndex * this.zoneIds.length + toIndex;
+	}
+
+	/**
+	 * @return a dense copy of this matrix if this one is sparse and the copy needs less memory, otherwise this matrix
+	 */
+	public abstract NumericMatrix optimizeStorage();
+
+	/**
+	 * @return a {@link Matrix} with all set entries of this matrix
+	 */
+	public final Matrix toMatrix() {
+		Matrix matrix = new Matrix(this.id, null);
+		for (int from = 0; from < this.zoneIds.length; from++) {
+			for (int to = 0; to < this.zoneIds.length; to++) {
+				double value = get(from, to);
+				if (!Double.isNaN(value)) {
+					matrix.createAndAddEntry(this.zoneIds[from], this.zoneIds[to], value);
+				}
+			}
+		}
+		return matrix;
+	}
+
+	//////////////////////////////////////////////////////////////////////
+	// io methods
+	//////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Writes the matrix to a (binary) file, see {@link #readFile(String)}.
+	 */
+	public final void writeFile(final String filename) {
+		try (RandomAccessFile file = new RandomAccessFile(filename, "rw")) {
+			ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+			DataOutputStream header = new DataOutputStream(headerBytes);
+			header.writeInt(MAGIC);
+			header.writeInt(VERSION);
+			header.writeUTF(this.id);
+			header.writeBoolean(isDense());
+			header.writeInt(this.zoneIds.length);
+			for (String zoneId : this.zoneIds) header.writeUTF(zoneId);
+			header.close();
+
+			file.setLength(0);
+			file.write(headerBytes.toByteArray());
+			writeValues(file.getChannel(), headerBytes.size());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads a matrix written with {@link #writeFile(String)}. The values of a dense matrix are memory-mapped,
+	 * not loaded into the heap, if they fit into a single mapping (i.e. up to about 16'000 zones). Such a matrix
+	 * is read-only.
+	 */
+	public static NumericMatrix readFile(final String filename) {
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+			FileChannel channel = file.getChannel();
+			DataInputStream header = new DataInputStream(Channels.newInputStream(channel));
+			if (header.readInt() != MAGIC) throw new IllegalStateException(filename + " is not a numeric matrix file.");
+			int version = header.readInt();
+			if (version != VERSION) throw new IllegalStateException("unsupported version " + version + " of numeric matrix file " + filename);
+			String id = header.readUTF();
+			boolean dense = header.readBoolean();
+			String[] zoneIds = new String[header.readInt()];
+			for (int i = 0; i < zoneIds.length; i++) zoneIds[i] = header.readUTF();
+
+			// the stream reads unbuffered from the channel, so the position of the channel is the end of the header
+			long offset = channel.position();
+			if (dense) {
+				return Dense.read(id, zoneIds, channel, offset);
+			}
+			return Sparse.read(id, zoneIds, channel, offset);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	abstract boolean isDense();
+
+	abstract void writeValues(FileChannel channel, long offset) throws IOException;
+
+	@Override
+	public final String toString() {
+		return "[id=" + this.id + "]" +
+				"[dense=" + isDense() + "]" +
+				"[nof_zones=" + this.zoneIds.length + "]";
+	}
+
+	//////////////////////////////////////////////////////////////////////
+	// implementations
+	//////////////////////////////////////////////////////////////////////
+
+	static final class Dense extends NumericMatrix {
+		private final DoubleBuffer values;
+
+		Dense(final String id, final String[] zoneIds, final DoubleBuffer values) {
+			super(id, zoneIds);
+			this.values = values;
+		}
+
+		@Override
+		public double get(final int fromIndex, final int toIndex) {
+			return this.values.get((int) getKey(fromIndex, toIndex));
+		}
+
+		@Override
+		public void set(final int fromIndex, final int toIndex, final double value) {
+			this.values.put((int) getKey(fromIndex, toIndex), value);
+		}
+
+		@Override
+		public NumericMatrix optimizeStorage() {
+			return this;
+		}
+
+		@Override
+		boolean isDense() {
+			return true;
+		}
+
+		@Override
+		void writeValues(final FileChannel channel, final long offset) throws IOException {
+			int size = this.values.capacity();
+			int chunkSize = (int) (MAX_MAPPED_BYTES / 8);
+			for (int start = 0; start < size; start += chunkSize) {
+				int length = Math.min(chunkSize, size - start);
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset + 8L * start, 8L * length);
+				DoubleBuffer chunk = this.values.duplicate();
+				chunk.position(start);
+				chunk.limit(start + length);
+				buffer.asDoubleBuffer().put(chunk);
+				buffer.force();
+			}
+		}
+
+		static Dense read(final String id, final String[] zoneIds, final FileChannel channel, final long offset) throws IOException {
+			int size = getDenseSize(zoneIds.length);
+			if (8L * size <= MAX_MAPPED_BYTES) {
+				// the mapping stays valid after the channel is closed
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, 8L * size);
+				return new Dense(id, zoneIds, buffer.asDoubleBuffer());
+			}
+			double[] values = new double[size];
+			int chunkSize = (int) (MAX_MAPPED_BYTES / 8);
+			for (int start = 0; start < size; start += chunkSize) {
+				int length = Math.min(chunkSize, size - start);
+				channel.map(FileChannel.MapMode.READ_ONLY, offset + 8L * start, 8L * length).asDoubleBuffer().get(values, start, length);
+			}
+			return new Dense(id, zoneIds, DoubleBuffer.wrap(values));
+		}
+	}
+
+	/**
+	 * Stores the set entries in a hash table with linear probing, keyed by <code>from * numberOfZones + to</code>.
+	 * Removed entries are marked with <code>NaN</code> and re-used when the same entry is set again. They are dropped
+	 * when the table is rehashed, i.e. when it is full or when more than half of its used slots are removed entries.
+	 */
+	static final class Sparse extends NumericMatrix {
+		private static final long FREE = -1;
+		private static final int MIN_REMOVED_ENTRIES_TO_REHASH = 16;
+
+		private long[] keys;
+		private double[] values;
+		/** the number of used slots, including removed entries */
+		private int size = 0;
+		private int numberOfRemovedEntries = 0;
+
+		Sparse(final String id, final String[] zoneIds) {
+			super(id, zoneIds);
+			this.keys = new long[16];
+			Arrays.fill(this.keys, FREE);
+			this.values = new double[16];
+		}
+
+		@Override
+		public double get(final int fromIndex, final int toIndex) {
+			int slot = findSlot(getKey(fromIndex, toIndex));
+			return this.keys[slot] == FREE ? Double.NaN : this.values[slot];
+		}
+
+		@Override
+		public void set(final int fromIndex, final int toIndex, final double value) {
+			long key = getKey(fromIndex, toIndex);
+			int slot = findSlot(key);
+			if (this.keys[slot] == FREE) {
+				if (Double.isNaN(value)) {
+					return;
+				}
+				if (2 * (this.size + 1) > this.keys.length) {
+					rehash(getCapacity(getNumberOfEntries() + 1));
+					slot = findSlot(key);
+				}
+				this.keys[slot] = key;
+				this.values[slot] = value;
+				this.size++;
+				return;
+			}
+			boolean wasRemoved = Double.isNaN(this.values[slot]);
+			this.values[slot] = value;
+			if (!Double.isNaN(value)) {
+				if (wasRemoved) {
+					this.numberOfRemovedEntries--;
+				}
+			} else if (!wasRemoved) {
+				this.numberOfRemovedEntries++;
+				if (this.numberOfRemovedEntries > MIN_REMOVED_ENTRIES_TO_REHASH && 2 * this.numberOfRemovedEntries > this.size) {
+					rehash(getCapacity(getNumberOfEntries()));
+				}
+			}
+		}
+
+		int getNumberOfEntries() {
+			return this.size - this.numberOfRemovedEntries;
+		}
+
+		int getNumberOfSlots() {
+			return this.keys.length;
+		}
+
+		/**
+		 * @return a capacity that leaves room for as many entries again, so that growing the table takes amortized constant time
+		 */
+		private static int getCapacity(final int numberOfEntries) {
+			int capacity = 16;
+			while (capacity < 4L * numberOfEntries) {
+				if (capacity == 1 << 30) {
+					throw new IllegalStateException("too many entries for a sparse matrix: " + numberOfEntries);
+				}
+				capacity *= 2;
+			}
+			return capacity;
+		}
+
+		private int findSlot(final long key) {
+			int mask = this.keys.length - 1;
+			int slot = mix(key) & mask;
+			while (this.keys[slot] != FREE && this.keys[slot] != key) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		private static int mix(final long key) {
+			long h = key * 0x9e3779b97f4a7c15L;
+			return (int) (h ^ (h >>> 32));
+		}
+
+		private void rehash(final int capacity) {
+			long[] oldKeys = this.keys;
+			double[] oldValues = this.values;
+			this.keys = new long[capacity];
+			Arrays.fill(this.keys, FREE);
+			this.values = new double[capacity];
+			this.size = 0;
+			this.numberOfRemovedEntries = 0;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != FREE && !Double.isNaN(oldValues[i])) {
+					int slot = findSlot(oldKeys[i]);
+					this.keys[slot] = oldKeys[i];
+					this.values[slot] = oldValues[i];
+					this.size++;
+				}
+			}
+		}
+
+		@Override
+		public NumericMatrix optimizeStorage() {
+			int numberOfZones = getNumberOfZones();
+			if (!isDenseSmaller(numberOfZones, getNumberOfEntries())) {
+				return this;
+			}
+			String[] zoneIds = new String[numberOfZones];
+			for (int i = 0; i < numberOfZones; i++) {
+				zoneIds[i] = getZoneId(i);
+			}
+			DoubleBuffer denseValues = DoubleBuffer.wrap(createNaNs(getDenseSize(numberOfZones)));
+			for (int i = 0; i < this.keys.length; i++) {
+				if (this.keys[i] != FREE) {
+					// removed entries are NaN, as in the dense matrix
+					denseValues.put((int) this.keys[i], this.values[i]);
+				}
+			}
+			return new Dense(getId(), zoneIds, denseValues);
+		}
+
+		@Override
+		boolean isDense() {
+			return false;
+		}
+
+		@Override
+		void writeValues(final FileChannel channel, final long offset) throws IOException {
+			long[] setKeys = new long[this.size];
+			double[] setValues = new double[this.size];
+			int count = 0;
+			for (int i = 0; i < this.keys.length; i++) {
+				if (this.keys[i] != FREE && !Double.isNaN(this.values[i])) {
+					setKeys[count] = this.keys[i];
+					setValues[count] = this.values[i];
+					count++;
+				}
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, 4L + 16L * count);
+			buffer.putInt(count);
+			buffer.asLongBuffer().put(setKeys, 0, count);
+			buffer.position(4 + 8 * count);
+			buffer.asDoubleBuffer().put(setValues, 0, count);
+			buffer.force();
+		}
+
+		static Sparse read(final String id, final String[] zoneIds, final FileChannel channel, final long offset) throws IOException {
+			Sparse matrix = new Sparse(id, zoneIds);
+			int count = channel.map(FileChannel.MapMode.READ_ONLY, offset, 4L).getInt();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset + 4L, 16L * count);
+			LongBuffer keys = buffer.asLongBuffer();
+			buffer.position(8 * count);
+			DoubleBuffer values = buffer.asDoubleBuffer();
+			int capacity = 16;
+			while (capacity < 2 * count) {
+				capacity *= 2;
+			}
+			matrix.rehash(capacity);
+			int numberOfZones = zoneIds.length;
+			for (int i = 0; i < count; i++) {
+				long key = keys.get(i);
+				matrix.set((int) (key / numberOfZones), (int) (key % numberOfZones), values.get(i));
+			}
+			return matrix;
+		}
+	}
+
+}
@@ -38,6 +38,7 @@ import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
 import org.matsim.core.utils.misc.ArgumentParser;
+import org.matsim.vis.snapshotwriters.BinarySnapshotWriter;
 import org.matsim.vis.snapshotwriters.KmlSnapshotWriter;
 import org.matsim.vis.snapshotwriters.SnapshotWriter;
 import org.matsim.vis.snapshotwriters.TransimsSnapshotWriter;
@@ -211,6 +212,10 @@ public class Events2Snapshot {
 			String snapshotFile = outputDir + "T.veh";
 			this.visualizer.addSnapshotWriter(new TransimsSnapshotWriter(snapshotFile));
 		}
+		if (snapshotFormat.contains("binary")) {
+			String snapshotFile = outputDir + "snapshots.bin";
+			this.visualizer.addSnapshotWriter(new BinarySnapshotWriter(snapshotFile));
+		}
 		if (snapshotFormat.contains("googleearth")) {
 			String snapshotFile = outputDir + "googleearth.kmz";
 			String coordSystem = this.config.global().getCoordinateSystem();
@@ -63,6 +63,7 @@ public class LeastCostPathTree {
 	private final TravelTime ttFunction;
 	private final TravelDisutility tcFunction;
 	private HashMap<Id<Node>, NodeData> nodeData = null;
+	private double costCutoff = Double.POSITIVE_INFINITY;
 	
 	private final Vehicle VEHICLE = VehicleUtils.getFactory().createVehicle(Id.create("theVehicle", Vehicle.class), VehicleUtils.getDefaultVehicleType());
 	private final Person PERSON = PopulationUtils.getFactory().createPerson(Id.create("thePerson", Person.class));
@@ -91,10 +92,28 @@ public class LeastCostPathTree {
 		relaxNode(origin, pendingNodes);
 		while (!pendingNodes.isEmpty()) {
 			Node n = pendingNodes.poll();
+			if (this.nodeData.get(n.getId()).getCost() > this.costCutoff) {
+				// all remaining nodes are even more expensive
+				break;
+			}
 			relaxNode(n, pendingNodes);
 		}
 	}
 
+	/**
+	 * Stops the expansion of the tree at nodes whose cost exceeds the given value. Nodes which are not reached
+	 * are not contained in the tree; nodes which are reached, but not expanded, only contain an upper bound
+	 * of their cost, which is larger than the cutoff. The costs of all nodes with a cost up to the cutoff are exact,
+	 * so users should treat nodes with a larger cost like nodes that are not contained.  Default is {@link Double#POSITIVE_INFINITY}, i.e. the complete network is expanded.
+	 */
+	public final void setCostCutoff(final double costCutoff) {
+		this.costCutoff = costCutoff;
+	}
+
+	public final double getCostCutoff() {
+		return this.costCutoff;
+	}
+
 	// ////////////////////////////////////////////////////////////////////
 	// inner classes
 	// ////////////////////////////////////////////////////////////////////
@@ -0,0 +1,351 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AttributeColumn.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.utils.objectattributes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the values of one attribute for all objects of an {@link ObjectAttributes} container,
+ * indexed by the dense index of the objects. Values of type Double, Integer and Boolean are stored
+ * unboxed, Strings are dictionary-encoded. A column only holds values of a single type; as soon as
+ * a value of another type is stored, the container replaces the column by an {@link ObjectColumn}.
+ */
+abstract class AttributeColumn {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	final String name;
+	private final BitSet present = new BitSet();
+
+	AttributeColumn(final String name) {
+		this.name = name;
+	}
+
+	static AttributeColumn create(final String name, final Object value) {
+		if (value instanceof Double) return new DoubleColumn(name);
+		if (value instanceof Integer) return new IntColumn(name);
+		if (value instanceof Boolean) return new BooleanColumn(name);
+		if (value instanceof String) return new StringColumn(name);
+		return new ObjectColumn(name);
+	}
+
+	final boolean isPresent(final int index) {
+		return this.present.get(index);
+	}
+
+	final boolean isEmpty() {
+		return this.present.isEmpty();
+	}
+
+	/**
+	 * @return the previous value, or <code>null</code> if there was none
+	 */
+	final Object put(final int index, final Object value) {
+		Object previous = this.present.get(index) ? get(index) : null;
+		set(index, value);
+		this.present.set(index);
+		return previous;
+	}
+
+	/**
+	 * @return the removed value, or <code>null</code> if there was none
+	 */
+	final Object remove(final int index) {
+		if (!this.present.get(index)) {
+			return null;
+		}
+		Object previous = get(index);
+		this.present.clear(index);
+		clear(index);
+		return previous;
+	}
+
+	/**
+	 * @return an {@link ObjectColumn} with the same values as this column
+	 */
+	final AttributeColumn toObjectColumn() {
+		ObjectColumn column = new ObjectColumn(this.name);
+		for (int i = this.present.nextSetBit(0); i >= 0; i = this.present.nextSetBit(i + 1)) {
+			column.put(i, get(i));
+		}
+		return column;
+	}
+
+	/**
+	 * @param newIndices the new index of each object, -1 for removed objects
+	 * @return a column of the same type with the values moved to the new indices
+	 */
+	final AttributeColumn compact(final int[] newIndices) {
+		AttributeColumn column = createEmpty();
+		for (int i = this.present.nextSetBit(0); i >= 0; i = this.present.nextSetBit(i + 1)) {
+			column.put(newIndices[i], get(i));
+		}
+		return column;
+	}
+
+	abstract AttributeColumn createEmpty();
+
+	static int grow(final int capacity, final int index) {
+		return Math.max(Math.max(INITIAL_CAPACITY, capacity * 2), index + 1);
+	}
+
+	abstract boolean accepts(Object value);
+
+	/** Only valid if a value is present at the index. */
+	abstract Object get(int index);
+
+	abstract void set(int index, Object value);
+
+	void clear(final int index) {
+		// primitive values do not need to be cleared
+	}
+
+	/** Only valid if a value is present at the index. */
+	double getDouble(final int index) {
+		return ((Number) get(index)).doubleValue();
+	}
+
+	/** Only valid if a value is present at the index. */
+	int getInt(final int index) {
+		return (Integer) get(index);
+	}
+
+	/** Only valid if a value is present at the index. */
+	boolean getBoolean(final int index) {
+		return (Boolean) get(index);
+	}
+
+	/** Only valid if a value is present at the index. */
+	String getString(final int index) {
+		return (String) get(index);
+	}
+
+	static final class DoubleColumn extends AttributeColumn {
+		private double[] values = new double[0];
+
+		DoubleColumn(final String name) {
+			super(name);
+		}
+
+		@Override
+		AttributeColumn createEmpty() {
+			return new DoubleColumn(this.name);
+		}
+
+		@Override
+		boolean accepts(final Object value) {
+			return value instanceof Double;
+		}
+
+		@Override
+		Object get(final int index) {
+			return this.values[index];
+		}
+
+		@Override
+		void set(final int index, final Object value) {
+			setDouble(index, (Double) value);
+		}
+
+		void setDouble(final int index, final double value) {
+			if (index >= this.values.length) {
+				this.values = Arrays.copyOf(this.values, grow(this.values.length, index));
+			}
+			this.values[index] = value;
+		}
+
+		@Override
+		double getDouble(final int index) {
+			return this.values[index];
+		}
+	}
+
+	static final class IntColumn extends AttributeColumn {
+		private int[] values = new int[0];
+
+		IntColumn(final String name) {
+			super(name);
+		}
+
+		@Override
+		AttributeColumn createEmpty() {
+			return new IntColumn(this.name);
+		}
+
+		@Override
+		boolean accepts(final Object value) {
+			return value instanceof Integer;
+		}
+
+		@Override
+		Object get(final int index) {
+			return this.values[index];
+		}
+
+		@Override
+		void set(final int index, final Object value) {
+			setInt(index, (Integer) value);
+		}
+
+		void setInt(final int index, final int value) {
+			if (index >= this.values.length) {
+				this.values = Arrays.copyOf(this.values, grow(this.values.length, index));
+			}
+			this.values[index] = value;
+		}
+
+		@Override
+		double getDouble(final int index) {
+			return this.values[index];
+		}
+
+		@Override
+		int getInt(final int index) {
+			return this.values[index];
+		}
+	}
+
+	static final class BooleanColumn extends AttributeColumn {
+		private final BitSet values = new BitSet();
+
+		BooleanColumn(final String name) {
+			super(name);
+		}
+
+		@Override
+		AttributeColumn createEmpty() {
+			return new BooleanColumn(this.name);
+		}
+
+		@Override
+		boolean accepts(final Object value) {
+			return value instanceof Boolean;
+		}
+
+		@Override
+		Object get(final int index) {
+			return this.values.get(index);
+		}
+
+		@Override
+		void set(final int index, final Object value) {
+			this.values.set(index, (Boolean) value);
+		}
+
+		@Override
+		boolean getBoolean(final int index) {
+			return this.values.get(index);
+		}
+	}
+
+	/**
+	 * Stores the index of each value in a dictionary of all distinct values, as typically only a few
+	 * distinct values (e.g. "always", "sometimes", "never") are used by many objects.
+	 */
+	static final class StringColumn extends AttributeColumn {
+		private int[] codes = new int[0];
+		private final List<String> dictionary = new ArrayList<>();
+		private final Map<String, Integer> codesByValue = new HashMap<>();
+
+		StringColumn(final String name) {
+			super(name);
+		}
+
+		@Override
+		AttributeColumn createEmpty() {
+			return new StringColumn(this.name);
+		}
+
+		@Override
+		boolean accepts(final Object value) {
+			return value instanceof String;
+		}
+
+		@Override
+		Object get(final int index) {
+			return this.dictionary.get(this.codes[index]);
+		}
+
+		@Override
+		void set(final int index, final Object value) {
+			Integer code = this.codesByValue.get(value);
+			if (code == null) {
+				code = this.dictionary.size();
+				this.dictionary.add((String) value);
+				this.codesByValue.put((String) value, code);
+			}
+			if (index >= this.codes.length) {
+				this.codes = Arrays.copyOf(this.codes, grow(this.codes.length, index));
+			}
+			this.codes[index] = code;
+		}
+
+		@Override
+		String getString(final int index) {
+			return this.dictionary.get(this.codes[index]);
+		}
+	}
+
+	/**
+	 * Fallback for values of any other type, and for attributes with values of different types.
+	 */
+	static final class ObjectColumn extends AttributeColumn {
+		private Object[] values = new Object[0];
+
+		ObjectColumn(final String name) {
+			super(name);
+		}
+
+		@Override
+		AttributeColumn createEmpty() {
+			return new ObjectColumn(this.name);
+		}
+
+		@Override
+		boolean accepts(final Object value) {
+			return true;
+		}
+
+		@Override
+		Object get(final int index) {
+			return this.values[index];
+		}
+
+		@Override
+		void set(final int index, final Object value) {
+			if (index >= this.values.length) {
+				this.values = Arrays.copyOf(this.values, grow(this.values.length, index));
+			}
+			this.values[index] = value;
+		}
+
+		@Override
+		void clear(final int index) {
+			this.values[index] = null;
+		}
+	}
+
+}
@@ -19,18 +19,33 @@
 
 package org.matsim.utils.objectattributes;
 
-import java.util.IdentityHashMap;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.TreeMap;
 
 import org.matsim.core.api.internal.MatsimExtensionPoint;
 
 /**
  * A simple helper class to store arbitrary attributes (identified by Strings) for
- * arbitrary objects (identified by String-Ids). Note that this implementation uses
- * large amounts of memory for storing many attributes for many objects, it is not
- * heavily optimized.
+ * arbitrary objects (identified by String-Ids).
+ * <p></p>
+ * Each object gets a dense index when its first attribute is stored, and the values
+ * of each attribute are stored in a column indexed by the object index. Values of type
+ * Double, Integer and Boolean are stored unboxed, Strings are dictionary-encoded, so
+ * storing many attributes for many objects (e.g. persons) uses far less memory than
+ * one map per object. Code that reads attributes in a hot loop can look up the object
+ * and attribute indices once ({@link #getObjectIndex(String)}, {@link #getAttributeIndex(String)})
+ * and then use the typed getters like {@link #getDouble(int, int, double)}, which neither
+ * hash strings nor box values.
+ * <p></p>
+ * The index of an object does not change until {@link #removeAllAttributes(String)} or
+ * {@link #clear()} is called. Once more than half of the indices belong to removed objects,
+ * the remaining objects are re-numbered and the columns are compacted, so memory does not grow
+ * when objects are repeatedly added and removed. The objects keep the order in which they were
+ * first added.
  * <p></p>
  * <em>This class is not thread-safe.</em>
  * <p></p>
@@ -43,19 +58,31 @@ import org.matsim.core.api.internal.MatsimExtensionPoint;
  */
 public class ObjectAttributes implements MatsimExtensionPoint {
 
-	/*package*/ Map<String, Map<String, Object>> attributes = new LinkedHashMap<String, Map<String, Object>>(1000);
+	// do not compact small containers over and over again
+	private static final int MIN_REMOVED_OBJECTS_TO_COMPACT = 16;
+
+	private final Map<String, Integer> objectIndices = new HashMap<String, Integer>(1000);
+	private String[] objectIds = new String[0];
+	private int numberOfObjectIndices = 0;
+	private int numberOfRemovedObjects = 0;
+
+	private final Map<String, Integer> attributeIndices = new HashMap<String, Integer>();
+	private final List<AttributeColumn> columns = new ArrayList<AttributeColumn>();
 	
 	@Override
 	public String toString() {
 		StringBuilder stb = new StringBuilder() ;
-		for ( Entry<String, Map<String,Object>> entry : attributes.entrySet() ) {
-			String key = entry.getKey() ;
+		for ( int index = 0; index < this.numberOfObjectIndices; index++ ) {
+			String key = this.objectIds[index] ;
+			if ( key == null ) {
+				continue ;
+			}
 			stb.append("key=").append(key);
-			Map<String,Object> map = entry.getValue() ;
-			for ( Entry<String,Object> ee : map.entrySet() ) {
-				String subkey = ee.getKey();
-				stb.append("; subkey=").append(subkey);
-				stb.append("; object=").append(ee.getValue().toString());
+			for ( AttributeColumn column : this.columns ) {
+				if ( column.isPresent(index) ) {
+					stb.append("; subkey=").append(column.name);
+					stb.append("; object=").append(column.get(index).toString());
+				}
 			}
 			stb.append("\n") ;
 		}
@@ -63,39 +90,185 @@ public class ObjectAttributes implements MatsimExtensionPoint {
 	}
 
 	public Object putAttribute(final String objectId, final String attribute, final Object value) {
-		Map<String, Object> attMap = this.attributes.get(objectId);
-		if (attMap == null) {
-			attMap = new IdentityHashMap<String, Object>(5);
-			this.attributes.put(objectId, attMap);
+		int index = addObject(objectId);
+		Integer attributeIndex = this.attributeIndices.get(attribute);
+		AttributeColumn column;
+		if (attributeIndex == null) {
+			column = AttributeColumn.create(attribute, value);
+			this.attributeIndices.put(attribute, this.columns.size());
+			this.columns.add(column);
+		} else {
+			column = this.columns.get(attributeIndex);
+			if (!column.accepts(value)) {
+				column = column.toObjectColumn();
+				this.columns.set(attributeIndex, column);
+			}
 		}
-		return attMap.put(attribute.intern(), value);
+		return column.put(index, value);
 	}
 
 	public Object getAttribute(final String objectId, final String attribute) {
-		Map<String, Object> attMap = this.attributes.get(objectId);
-		if (attMap == null) {
+		Integer index = this.objectIndices.get(objectId);
+		AttributeColumn column = getColumn(attribute);
+		if (index == null || column == null || !column.isPresent(index)) {
 			return null;
 		}
-		return attMap.get(attribute.intern());
+		return column.get(index);
 	}
 
 	public Object removeAttribute(final String objectId, final String attribute) {
-		Map<String, Object> attMap = this.attributes.get(objectId);
-		if (attMap == null) {
+		Integer index = this.objectIndices.get(objectId);
+		AttributeColumn column = getColumn(attribute);
+		if (index == null || column == null) {
 			return null;
 		}
-		return attMap.remove(attribute.intern());
+		return column.remove(index);
 	}
 
 	public void removeAllAttributes(final String objectId) {
-		this.attributes.remove(objectId);
+		Integer index = this.objectIndices.remove(objectId);
+		if (index == null) {
+			return;
+		}
+		for (AttributeColumn column : this.columns) {
+			column.remove(index);
+		}
+		this.objectIds[index] = null;
+		this.numberOfRemovedObjects++;
+		if (this.numberOfRemovedObjects > MIN_REMOVED_OBJECTS_TO_COMPACT && 2 * this.numberOfRemovedObjects > this.numberOfObjectIndices) {
+			compact();
+		}
+	}
+
+	/**
+	 * Re-numbers the remaining objects in the order of their indices, and drops the unused indices from all columns.
+	 */
+	private void compact() {
+		int[] newIndices = new int[this.numberOfObjectIndices];
+		int numberOfObjects = 0;
+		for (int index = 0; index < this.numberOfObjectIndices; index++) {
+			String objectId = this.objectIds[index];
+			if (objectId == null) {
+				newIndices[index] = -1;
+			} else {
+				newIndices[index] = numberOfObjects;
+				this.objectIds[numberOfObjects] = objectId;
+				this.objectIndices.put(objectId, numberOfObjects);
+				numberOfObjects++;
+			}
+		}
+		this.objectIds = Arrays.copyOf(this.objectIds, numberOfObjects);
+		this.numberOfObjectIndices = numberOfObjects;
+		this.numberOfRemovedObjects = 0;
+		for (int i = 0; i < this.columns.size(); i++) {
+			this.columns.set(i, this.columns.get(i).compact(newIndices));
+		}
 	}
 
 	/**
 	 * Deletes all attributes of all objects, and all objects-ids.
 	 */
 	public void clear() {
-		this.attributes.clear();
+		this.objectIndices.clear();
+		this.objectIds = new String[0];
+		this.numberOfObjectIndices = 0;
+		this.numberOfRemovedObjects = 0;
+		this.attributeIndices.clear();
+		this.columns.clear();
+	}
+
+	/**
+	 * @return the index of the object, or -1 if no attributes were stored for the object
+	 */
+	public int getObjectIndex(final String objectId) {
+		Integer index = this.objectIndices.get(objectId);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return the index of the attribute, or -1 if the attribute was never stored for any object
+	 */
+	public int getAttributeIndex(final String attribute) {
+		Integer index = this.attributeIndices.get(attribute);
+		return index == null ? -1 : index;
+	}
+
+	public boolean hasAttribute(final int objectIndex, final int attributeIndex) {
+		return objectIndex >= 0 && attributeIndex >= 0 && this.columns.get(attributeIndex).isPresent(objectIndex);
+	}
+
+	/**
+	 * @return the value of a numeric attribute, or <code>defaultValue</code> if the object has no value for the attribute
+	 * @throws ClassCastException if the value is not a {@link Number}
+	 */
+	public double getDouble(final int objectIndex, final int attributeIndex, final double defaultValue) {
+		return hasAttribute(objectIndex, attributeIndex) ? this.columns.get(attributeIndex).getDouble(objectIndex) : defaultValue;
+	}
+
+	/**
+	 * @return the value of an Integer attribute, or <code>defaultValue</code> if the object has no value for the attribute
+	 * @throws ClassCastException if the value is not an {@link Integer}
+	 */
+	public int getInt(final int objectIndex, final int attributeIndex, final int defaultValue) {
+		return hasAttribute(objectIndex, attributeIndex) ? this.columns.get(attributeIndex).getInt(objectIndex) : defaultValue;
+	}
+
+	/**
+	 * @return the value of a Boolean attribute, or <code>defaultValue</code> if the object has no value for the attribute
+	 * @throws ClassCastException if the value is not a {@link Boolean}
+	 */
+	public boolean getBoolean(final int objectIndex, final int attributeIndex, final boolean defaultValue) {
+		return hasAttribute(objectIndex, attributeIndex) ? this.columns.get(attributeIndex).getBoolean(objectIndex) : defaultValue;
+	}
+
+	/**
+	 * @return the value of a String attribute, or <code>null</code> if the object has no value for the attribute
+	 * @throws ClassCastException if the value is not a {@link String}
+	 */
+	public String getString(final int objectIndex, final int attributeIndex) {
+		return hasAttribute(objectIndex, attributeIndex) ? this.columns.get(attributeIndex).getString(objectIndex) : null;
+	}
+
+	/*package*/ int addObject(final String objectId) {
+		Integer index = this.objectIndices.get(objectId);
+		if (index == null) {
+			index = this.numberOfObjectIndices++;
+			if (index == this.objectIds.length) {
+				this.objectIds = Arrays.copyOf(this.objectIds, AttributeColumn.grow(this.objectIds.length, index));
+			}
+			this.objectIds[index] = objectId;
+			this.objectIndices.put(objectId, index);
+		}
+		return index;
+	}
+
+	/*package*/ int getNumberOfObjectIndices() {
+		return this.numberOfObjectIndices;
+	}
+
+	/**
+	 * @return the id of the object with the given index, or <code>null</code> if the object was removed
+	 */
+	/*package*/ String getObjectId(final int objectIndex) {
+		return this.objectIds[objectIndex];
+	}
+
+	/**
+	 * @return all attributes of the object, sorted by name
+	 */
+	/*package*/ Map<String, Object> getAllAttributes(final int objectIndex) {
+		Map<String, Object> attributes = new TreeMap<String, Object>();
+		for (AttributeColumn column : this.columns) {
+			if (column.isPresent(objectIndex)) {
+				attributes.put(column.name, column.get(objectIndex));
+			}
+		}
+		return attributes;
+	}
+
+	private AttributeColumn getColumn(final String attribute) {
+		Integer attributeIndex = this.attributeIndices.get(attribute);
+		return attributeIndex == null ? null : this.columns.get(attributeIndex);
 	}
 
 }
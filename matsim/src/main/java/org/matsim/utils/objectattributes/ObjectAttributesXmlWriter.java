@@ -25,7 +25,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 
 import com.google.inject.Inject;
 import org.apache.log4j.Logger;
@@ -79,15 +78,16 @@ public class ObjectAttributesXmlWriter extends MatsimXmlWriter {
 		writeDoctype(TAG_OBJECT_ATTRIBUTES, "http://matsim.org/files/dtd/objectattributes_v1.dtd");
 		writeStartTag(TAG_OBJECT_ATTRIBUTES, null);
 		List<Tuple<String, String>> xmlAttributes = new LinkedList<Tuple<String, String>>();
-		for (Map.Entry<String, Map<String, Object>> entry : this.attributes.attributes.entrySet()) {
-			xmlAttributes.add(super.createTuple(ATTR_OBJECTID, entry.getKey()));
+		for (int index = 0; index < this.attributes.getNumberOfObjectIndices(); index++) {
+			String objectId = this.attributes.getObjectId(index);
+			if (objectId == null) {
+				continue;
+			}
+			xmlAttributes.add(super.createTuple(ATTR_OBJECTID, objectId));
 			writeStartTag(TAG_OBJECT, xmlAttributes);
 			xmlAttributes.clear();
-			// sort attributes by name
-			Map<String, Object> objAttributes = new TreeMap<String, Object>();
-			for (Map.Entry<String, Object> objAttribute : entry.getValue().entrySet()) {
-				objAttributes.put(objAttribute.getKey(), objAttribute.getValue());
-			}
+			// attributes are sorted by name
+			Map<String, Object> objAttributes = this.attributes.getAllAttributes(index);
 			// write attributes
 			for (Map.Entry<String, Object> objAttribute : objAttributes.entrySet()) {
 				Class<?> clazz = objAttribute.getValue().getClass();
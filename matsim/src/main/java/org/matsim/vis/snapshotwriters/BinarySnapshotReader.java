@@ -0,0 +1,149 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinarySnapshotReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+
+/**
+ * Reads snapshot files written by the {@link BinarySnapshotWriter}. Only the agent ids and the
+ * index of the snapshots are loaded when the file is opened, single snapshots are read on
+ * demand, so clients can seek to any time step without reading the snapshots before it.
+ */
+public class BinarySnapshotReader implements Closeable {
+
+	private final RandomAccessFile file;
+	private final Id<Person>[] agentIds;
+	private final double[] snapshotTimes;
+	private final long[] snapshotOffsets;
+	private final AgentSnapshotInfoFactory snapshotInfoFactory = new AgentSnapshotInfoFactory(new SnapshotLinkWidthCalculator());
+
+	@SuppressWarnings("unchecked")
+	public BinarySnapshotReader(final String filename) {
+		try {
+			this.file = new RandomAccessFile(filename, "r");
+			if (this.file.readInt() != BinarySnapshotWriter.MAGIC) {
+				throw new RuntimeException("File " + filename + " is not a binary snapshot file.");
+			}
+			int version = this.file.readInt();
+			if (version != BinarySnapshotWriter.VERSION) {
+				throw new RuntimeException("Unsupported version " + version + " of binary snapshot file " + filename);
+			}
+			this.file.seek(this.file.length() - BinarySnapshotWriter.TRAILER_SIZE);
+			long agentIdsOffset = this.file.readLong();
+			if (this.file.readInt() != BinarySnapshotWriter.MAGIC) {
+				throw new RuntimeException("Binary snapshot file " + filename + " is incomplete, probably the writer was not finished.");
+			}
+
+			this.file.seek(agentIdsOffset);
+			this.agentIds = new Id[this.file.readInt()];
+			for (int i = 0; i < this.agentIds.length; i++) {
+				this.agentIds[i] = Id.create(this.file.readUTF(), Person.class);
+			}
+			int numberOfSnapshots = this.file.readInt();
+			this.snapshotTimes = new double[numberOfSnapshots];
+			this.snapshotOffsets = new long[numberOfSnapshots];
+			for (int i = 0; i < numberOfSnapshots; i++) {
+				this.snapshotTimes[i] = this.file.readDouble();
+				this.snapshotOffsets[i] = this.file.readLong();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public int getNumberOfSnapshots() {
+		return this.snapshotTimes.length;
+	}
+
+	public double getSnapshotTime(final int index) {
+		return this.snapshotTimes[index];
+	}
+
+	/**
+	 * @return the index of the last snapshot at or before the given time, or -1 if all snapshots are later
+	 */
+	public int getSnapshotIndex(final double time) {
+		int index = Arrays.binarySearch(this.snapshotTimes, time);
+		if (index >= 0) {
+			// snapshot times are unique, but make sure to return the last one anyway
+			while (index + 1 < this.snapshotTimes.length && this.snapshotTimes[index + 1] == time) index++;
+			return index;
+		}
+		return -index - 2;
+	}
+
+	/**
+	 * Passes the snapshot with the given index to the writer, in the same way the
+	 * snapshot was originally passed to the {@link BinarySnapshotWriter}. {@link SnapshotWriter#finish()}
+	 * is not called.
+	 */
+	public void readSnapshot(final int index, final SnapshotWriter writer) {
+		ByteBuffer buffer;
+		double time;
+		int count;
+		try {
+			this.file.seek(this.snapshotOffsets[index]);
+			time = this.file.readDouble();
+			count = this.file.readInt();
+			byte[] data = new byte[count * BinarySnapshotWriter.RECORD_SIZE];
+			this.file.readFully(data);
+			buffer = ByteBuffer.wrap(data);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		AgentSnapshotInfo.AgentState[] agentStates = AgentSnapshotInfo.AgentState.values();
+		writer.beginSnapshot(time);
+		for (int i = 0; i < count; i++) {
+			Id<Person> agentId = this.agentIds[buffer.getInt()];
+			double easting = buffer.getDouble();
+			double northing = buffer.getDouble();
+			double azimuth = buffer.getFloat();
+			AgentSnapshotInfo position = this.snapshotInfoFactory.createAgentSnapshotInfo(agentId, easting, northing, 0.0, azimuth);
+			position.setColorValueBetweenZeroAndOne(buffer.getFloat());
+			byte state = buffer.get();
+			if (state >= 0) {
+				position.setAgentState(agentStates[state]);
+			}
+			position.setUserDefined(buffer.getInt());
+			writer.addAgent(position);
+		}
+		writer.endSnapshot();
+	}
+
+	@Override
+	public void close() {
+		try {
+			this.file.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
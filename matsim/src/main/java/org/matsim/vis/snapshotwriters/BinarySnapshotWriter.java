@@ -0,0 +1,157 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinarySnapshotWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+
+/**
+ * Writes the snapshots into a compact binary file that allows random access to every snapshot,
+ * see {@link BinarySnapshotReader}.
+ * <p>
+ * Layout of the file (all numbers big-endian):
+ * <ul>
+ * <li>header: <code>int</code> magic number, <code>int</code> version</li>
+ * <li>per snapshot: <code>double</code> time, <code>int</code> number of agents, followed by one record
+ * of {@link #RECORD_SIZE} bytes per agent: <code>int</code> agent index, <code>double</code> easting,
+ * <code>double</code> northing, <code>float</code> azimuth, <code>float</code> color value,
+ * <code>byte</code> agent state (-1 if none), <code>int</code> user defined value</li>
+ * <li>the agent ids in the order of their indices: <code>int</code> count, one UTF string per agent</li>
+ * <li>the snapshot index: <code>int</code> count, per snapshot <code>double</code> time and
+ * <code>long</code> file offset</li>
+ * <li>trailer: <code>long</code> file offset of the agent ids, <code>int</code> magic number</li>
+ * </ul>
+ * The agent ids and the index are only written in {@link #finish()}, so the file cannot be read
+ * before the writer is finished.
+ */
+public class BinarySnapshotWriter implements SnapshotWriter {
+
+	/*package*/ static final int MAGIC = 0x4D534E50; // "MSNP"
+	/*package*/ static final int VERSION = 1;
+	/*package*/ static final int RECORD_SIZE = 4 + 8 + 8 + 4 + 4 + 1 + 4;
+	/*package*/ static final int TRAILER_SIZE = 8 + 4;
+
+	private final DataOutputStream out;
+	private long offset = 0;
+
+	private final Map<Id<Person>, Integer> agentIndices = new HashMap<>();
+	private final List<Id<Person>> agentIds = new ArrayList<>();
+	private final List<Double> snapshotTimes = new ArrayList<>();
+	private final List<Long> snapshotOffsets = new ArrayList<>();
+
+	private double currentTime = -1;
+	private int currentCount = 0;
+	private ByteBuffer buffer = ByteBuffer.allocate(1024 * RECORD_SIZE);
+
+	public BinarySnapshotWriter(final String filename) {
+		try {
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16));
+			this.out.writeInt(MAGIC);
+			this.out.writeInt(VERSION);
+			this.offset = 8;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void beginSnapshot(final double time) {
+		this.currentTime = time;
+		this.currentCount = 0;
+		this.buffer.clear();
+	}
+
+	@Override
+	public void addAgent(final AgentSnapshotInfo position) {
+		if (this.buffer.remaining() < RECORD_SIZE) {
+			ByteBuffer larger = ByteBuffer.allocate(this.buffer.capacity() * 2);
+			this.buffer.flip();
+			larger.put(this.buffer);
+			this.buffer = larger;
+		}
+		this.buffer.putInt(getAgentIndex(position.getId()));
+		this.buffer.putDouble(position.getEasting());
+		this.buffer.putDouble(position.getNorthing());
+		this.buffer.putFloat((float) position.getAzimuth());
+		this.buffer.putFloat((float) position.getColorValueBetweenZeroAndOne());
+		this.buffer.put(position.getAgentState() == null ? -1 : (byte) position.getAgentState().ordinal());
+		this.buffer.putInt(position.getUserDefined());
+		this.currentCount++;
+	}
+
+	@Override
+	public void endSnapshot() {
+		try {
+			this.snapshotTimes.add(this.currentTime);
+			this.snapshotOffsets.add(this.offset);
+			this.out.writeDouble(this.currentTime);
+			this.out.writeInt(this.currentCount);
+			this.out.write(this.buffer.array(), 0, this.buffer.position());
+			this.offset += 8 + 4 + this.buffer.position();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.currentTime = -1;
+	}
+
+	@Override
+	public void finish() {
+		try {
+			long agentIdsOffset = this.offset;
+			this.out.writeInt(this.agentIds.size());
+			for (Id<Person> agentId : this.agentIds) {
+				this.out.writeUTF(agentId.toString());
+			}
+			this.out.writeInt(this.snapshotTimes.size());
+			for (int i = 0; i < this.snapshotTimes.size(); i++) {
+				this.out.writeDouble(this.snapshotTimes.get(i));
+				this.out.writeLong(this.snapshotOffsets.get(i));
+			}
+			this.out.writeLong(agentIdsOffset);
+			this.out.writeInt(MAGIC);
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private int getAgentIndex(final Id<Person> agentId) {
+		Integer index = this.agentIndices.get(agentId);
+		if (index == null) {
+			index = this.agentIds.size();
+			this.agentIndices.put(agentId, index);
+			this.agentIds.add(agentId);
+		}
+		return index;
+	}
+
+}
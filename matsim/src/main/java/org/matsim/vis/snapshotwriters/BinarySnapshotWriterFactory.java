@@ -1,10 +1,10 @@
 /* *********************************************************************** *
  * project: org.matsim.*
- * MapBasedDataContainerProvider.java
+ * BinarySnapshotWriterFactory.java
  *                                                                         *
  * *********************************************************************** *
  *                                                                         *
- * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
  *                   LICENSE and WARRANTY file.                            *
  * email           : info at matsim dot org                                *
  *                                                                         *
@@ -18,32 +18,30 @@
  *                                                                         *
  * *********************************************************************** */
 
-package org.matsim.withinday.trafficmonitoring;
+package org.matsim.vis.snapshotwriters;
 
-import java.util.Map;
+import com.google.inject.Inject;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.replanning.ReplanningContext;
 
-import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.network.Link;
-import org.matsim.withinday.trafficmonitoring.WithinDayTravelTime.TravelTimeInfo;
+import javax.inject.Provider;
 
-public class MapBasedTravelTimeInfoProvider implements TravelTimeInfoProvider {
+class BinarySnapshotWriterFactory implements Provider<SnapshotWriter> {
 
-	private final Map<Id<Link>, TravelTimeInfo> linkData;
-	
-	public MapBasedTravelTimeInfoProvider(Map<Id<Link>, TravelTimeInfo> linkData) {
-		this.linkData = linkData;
-	}
-	
-	@Override 
-	public TravelTimeInfo getTravelTimeInfo(final Id<Link> linkId) {
-		TravelTimeInfo data = this.linkData.get(linkId);
-		return data;
+	private OutputDirectoryHierarchy controlerIO;
+	private final int iteration;
+
+	@Inject
+	BinarySnapshotWriterFactory(OutputDirectoryHierarchy controlerIO, ReplanningContext replanningContext) {
+		this.iteration = replanningContext.getIteration();
+		this.controlerIO = controlerIO;
 	}
-		
+
 	@Override
-	public TravelTimeInfo getTravelTimeInfo(Link link) {
-		Id<Link> linkId = link.getId();
-		return this.getTravelTimeInfo(linkId);
+	public SnapshotWriter get() {
+		// not compressed, as the reader needs random access to the file
+		String fileName = controlerIO.getIterationFilename(iteration, "snapshots.bin");
+		return new BinarySnapshotWriter(fileName);
 	}
-	
-}
\ No newline at end of file
+
+}
@@ -34,6 +34,7 @@ import org.matsim.pt.router.TransitRouter;
 import org.matsim.withinday.mobsim.MobsimDataProvider;
 import org.matsim.withinday.mobsim.WithinDayEngine;
 import org.matsim.withinday.replanning.identifiers.tools.ActivityReplanningMap;
+import org.matsim.withinday.replanning.identifiers.tools.AgentIndex;
 import org.matsim.withinday.replanning.identifiers.tools.LinkReplanningMap;
 import org.matsim.withinday.trafficmonitoring.EarliestLinkExitTimeProvider;
 import org.matsim.withinday.trafficmonitoring.WithinDayTravelTime;
@@ -62,6 +63,7 @@ public class WithinDayControlerListener implements StartupListener {
 	@Inject private WithinDayTravelTime WithinDayTravelTime;
 	@Inject private ActivityReplanningMap activityReplanningMap;
 	@Inject private LinkReplanningMap linkReplanningMap;
+	@Inject private AgentIndex agentIndex;
 	@Inject private MobsimDataProvider mobsimDataProvider;
 	@Inject private EarliestLinkExitTimeProvider earliestLinkExitTimeProvider;
 
@@ -136,6 +138,7 @@ public class WithinDayControlerListener implements StartupListener {
 		this.createAndInitMobsimDataProvider();
 		this.createAndInitActivityReplanningMap();
 		this.createAndInitLinkReplanningMap();
+		this.createAndInitAgentIndex();
 	}
 
 	/*
@@ -163,5 +166,9 @@ public class WithinDayControlerListener implements StartupListener {
 	private void createAndInitLinkReplanningMap() {
 		this.fosl.addSimulationListener(linkReplanningMap);
 	}
+	
+	private void createAndInitAgentIndex() {
+		this.fosl.addSimulationListener(agentIndex);
+	}
 
 }
\ No newline at end of file
@@ -33,6 +33,7 @@ import org.matsim.withinday.mobsim.MobsimDataProvider;
 import org.matsim.withinday.mobsim.WithinDayEngine;
 import org.matsim.withinday.mobsim.WithinDayQSimFactory;
 import org.matsim.withinday.replanning.identifiers.tools.ActivityReplanningMap;
+import org.matsim.withinday.replanning.identifiers.tools.AgentIndex;
 import org.matsim.withinday.replanning.identifiers.tools.LinkReplanningMap;
 import org.matsim.withinday.trafficmonitoring.EarliestLinkExitTimeProvider;
 import org.matsim.withinday.trafficmonitoring.WithinDayTravelTimeModule;
@@ -53,6 +54,7 @@ public class WithinDayModule extends AbstractModule {
         bind(MobsimDataProvider.class).asEagerSingleton();
         bind(ActivityReplanningMap.class).asEagerSingleton();
         bind(LinkReplanningMap.class).asEagerSingleton();
+        bind(AgentIndex.class).asEagerSingleton();
         bind(EarliestLinkExitTimeProvider.class).asEagerSingleton();
     }
 
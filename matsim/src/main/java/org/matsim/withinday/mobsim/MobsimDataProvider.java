@@ -32,6 +32,7 @@ import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimLink;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
 import org.matsim.vehicles.Vehicle;
+import org.matsim.withinday.replanning.identifiers.tools.AgentIndex;
 
 import java.util.Collection;
 import java.util.HashMap;
@@ -81,6 +82,7 @@ public final class MobsimDataProvider implements MobsimInitializedListener {
 	*/
 	
 	private QSim qSim;
+	private AgentIndex agentIndex = null;
 
 	@Override
 	public final void notifyMobsimInitialized(MobsimInitializedEvent e) {
@@ -120,4 +122,15 @@ public final class MobsimDataProvider implements MobsimInitializedListener {
 		if (mobsimVehicle == null) return null;
 		else return mobsimVehicle.getDriver();
 	}
+	
+	/**
+	 * @return the AgentIndex that is updated for this mobsim, or <code>null</code> if there is none
+	 */
+	public final AgentIndex getAgentIndex() {
+		return this.agentIndex;
+	}
+	
+	public final void setAgentIndex(AgentIndex agentIndex) {
+		this.agentIndex = agentIndex;
+	}
 }
@@ -41,6 +41,7 @@ import javax.inject.Singleton;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This Class implements the MobsimEngine interface. If added to a
@@ -77,6 +78,9 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 	private Map<WithinDayDuringLegReplannerFactory, Tuple<Double, Double>> duringLegReplannerFactory;
 	
 	private InternalInterface internalInterface;
+	
+	private final int numOfThreads;
+	private ForkJoinPool pool = null;
 
 	@Inject
 	public WithinDayEngine(EventsManager eventsManager, GlobalConfigGroup globalConfigGroup) {
@@ -86,9 +90,10 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 		this.duringLegReplannerFactory = new LinkedHashMap<>();
 
 		log.info("Initialize Parallel Replanning Modules");
-		this.parallelInitialReplanner = new ParallelInitialReplanner(globalConfigGroup.getNumberOfThreads(), eventsManager);
-		this.parallelDuringActivityReplanner = new ParallelDuringActivityReplanner(globalConfigGroup.getNumberOfThreads(), eventsManager);
-		this.parallelDuringLegReplanner = new ParallelDuringLegReplanner(globalConfigGroup.getNumberOfThreads(), eventsManager);
+		this.numOfThreads = Math.max(globalConfigGroup.getNumberOfThreads(), 1);
+		this.parallelInitialReplanner = new ParallelInitialReplanner(numOfThreads, eventsManager);
+		this.parallelDuringActivityReplanner = new ParallelDuringActivityReplanner(numOfThreads, eventsManager);
+		this.parallelDuringLegReplanner = new ParallelDuringLegReplanner(numOfThreads, eventsManager);
 
 		log.info("Initialize Replanning Modules");
 		this.initialReplanningModule = new InitialReplanningModule(parallelInitialReplanner);
@@ -187,6 +192,14 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 
 	@Override
 	public void onPrepareSim() {
+		// the replanning modules are run one after another, therefore they can share their threads
+		if (this.numOfThreads > 1) {
+			this.pool = new ForkJoinPool(this.numOfThreads);
+		}
+		this.parallelInitialReplanner.setSharedPool(this.pool);
+		this.parallelDuringActivityReplanner.setSharedPool(this.pool);
+		this.parallelDuringLegReplanner.setSharedPool(this.pool);
+		
 		this.parallelInitialReplanner.onPrepareSim();
 		this.parallelDuringActivityReplanner.onPrepareSim();
 		this.parallelDuringLegReplanner.onPrepareSim();
@@ -204,6 +217,11 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 		this.parallelInitialReplanner.afterSim();
 		this.parallelDuringActivityReplanner.afterSim();
 		this.parallelDuringLegReplanner.afterSim();
+		
+		if (this.pool != null) {
+			this.pool.shutdown();
+			this.pool = null;
+		}
 	}
 
 	@Override
@@ -51,7 +51,7 @@ public class ActivityPerformingIdentifier extends DuringActivityAgentSelector {
 		 * Identify those activity performing agents that should be replanned.
 		 * Add them to a set of MobsimAgents.
 		 */
-		for (Id<Person> agentId : this.activityReplanningMap.getActivityPerformingAgents()) {
+		for (Id<Person> agentId : this.getFilterCandidates(this.activityReplanningMap.getActivityPerformingAgents(), time)) {
 			if (this.applyFilters(agentId, time)) agentsToReplan.add(mapping.get(agentId));
 		}
 				
@@ -51,7 +51,7 @@ public class LeaveLinkIdentifier extends DuringLegAgentSelector {
 		 * Identify those leg performing agents that should be replanned.
 		 * Add them to a set of MobsimAgents.
 		 */
-		for (Id<Person> agentId : this.linkReplanningMap.getReplanningAgents(time)) {
+		for (Id<Person> agentId : this.getFilterCandidates(this.linkReplanningMap.getReplanningAgents(time), time)) {
 			if (this.applyFilters(agentId, time)) agentsToReplan.add(mapping.get(agentId));
 		}
 		
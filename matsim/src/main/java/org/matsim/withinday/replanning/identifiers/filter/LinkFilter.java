@@ -20,6 +20,7 @@
 
 package org.matsim.withinday.replanning.identifiers.filter;
 
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -28,23 +29,41 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.mobsim.framework.MobsimAgent;
-import org.matsim.withinday.replanning.identifiers.interfaces.AgentFilter;
+import org.matsim.withinday.replanning.identifiers.interfaces.IndexedAgentFilter;
+import org.matsim.withinday.replanning.identifiers.tools.AgentIndex;
 
 /**
  * Filter that removes agents which are not located on a link included
- * in a predefined set.
+ * in a predefined set. If an AgentIndex is given, the agents located
+ * on the links can be looked up directly.
  * 
  * @author cdobler
  */
-public class LinkFilter implements AgentFilter {
+public class LinkFilter implements IndexedAgentFilter {
 
 	private final Map<Id<Person>, MobsimAgent> agents;
 	private final Set<Id<Link>> links;
+	private final AgentIndex agentIndex;
 	
 	// use the factory
 	/*package*/ LinkFilter(Map<Id<Person>, MobsimAgent> agents, Set<Id<Link>> links) {
+		this(agents, links, null);
+	}
+	
+	// use the factory
+	/*package*/ LinkFilter(Map<Id<Person>, MobsimAgent> agents, Set<Id<Link>> links, AgentIndex agentIndex) {
 		this.agents = agents;
 		this.links = links;
+		this.agentIndex = agentIndex;
+	}
+	
+	@Override
+	public Set<Id<Person>> getCandidates(double time) {
+		if (this.agentIndex == null) return null;
+		
+		Set<Id<Person>> candidates = new HashSet<>();
+		for (Id<Link> linkId : this.links) candidates.addAll(this.agentIndex.getAgentsOnLink(linkId));
+		return candidates;
 	}
 	
 	@Override
@@ -26,20 +26,29 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.withinday.mobsim.MobsimDataProvider;
 import org.matsim.withinday.replanning.identifiers.interfaces.AgentFilterFactory;
+import org.matsim.withinday.replanning.identifiers.tools.AgentIndex;
 
 public class LinkFilterFactory implements AgentFilterFactory {
 
 	private final Set<Id<Link>> links;
 	private final MobsimDataProvider mobsimDataProvider;
+	private final AgentIndex agentIndex;
 	
 	public LinkFilterFactory(Set<Id<Link >> links, MobsimDataProvider mobsimDataProvider) {
+		this(links, mobsimDataProvider, null);
+	}
+	
+	public LinkFilterFactory(Set<Id<Link >> links, MobsimDataProvider mobsimDataProvider, AgentIndex agentIndex) {
 		this.links = links;
 		this.mobsimDataProvider = mobsimDataProvider;
+		this.agentIndex = agentIndex;
 	}
 	
 	@Override
 	public LinkFilter createAgentFilter() {
-		return new LinkFilter(this.mobsimDataProvider.getAgents(), this.links);
+		// use the index of the mobsim (if there is one) unless another one was given
+		AgentIndex agentIndex = this.agentIndex != null ? this.agentIndex : this.mobsimDataProvider.getAgentIndex();
+		return new LinkFilter(this.mobsimDataProvider.getAgents(), this.links, agentIndex);
 	}
 
 }
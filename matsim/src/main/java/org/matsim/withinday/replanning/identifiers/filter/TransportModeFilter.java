@@ -20,6 +20,7 @@
 
 package org.matsim.withinday.replanning.identifiers.filter;
 
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -27,7 +28,8 @@ import java.util.Set;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.mobsim.framework.MobsimAgent;
-import org.matsim.withinday.replanning.identifiers.interfaces.AgentFilter;
+import org.matsim.withinday.replanning.identifiers.interfaces.IndexedAgentFilter;
+import org.matsim.withinday.replanning.identifiers.tools.AgentIndex;
 
 /**
  * Remove all agents from the set that...
@@ -35,18 +37,36 @@ import org.matsim.withinday.replanning.identifiers.interfaces.AgentFilter;
  * 	<li>do not perform a leg.</li>
  * 	<li>do not use one of the modes included in the given set of modes.</li>
  * </ul>
+ * If an AgentIndex is given, the agents performing a leg with one of the
+ * modes can be looked up directly.
  * 
  * @author cdobler
  */
-public class TransportModeFilter implements AgentFilter {
+public class TransportModeFilter implements IndexedAgentFilter {
 
 	private final Map<Id<Person>, MobsimAgent> agents;
 	private final Set<String> modes;
+	private final AgentIndex agentIndex;
 	
 	// use the factory
 	/*package*/ TransportModeFilter(Map<Id<Person>, MobsimAgent> agents, Set<String> modes) {
+		this(agents, modes, null);
+	}
+	
+	// use the factory
+	/*package*/ TransportModeFilter(Map<Id<Person>, MobsimAgent> agents, Set<String> modes, AgentIndex agentIndex) {
 		this.agents = agents;
 		this.modes = modes;
+		this.agentIndex = agentIndex;
+	}
+	
+	@Override
+	public Set<Id<Person>> getCandidates(double time) {
+		if (this.agentIndex == null) return null;
+		
+		Set<Id<Person>> candidates = new HashSet<>();
+		for (String mode : this.modes) candidates.addAll(this.agentIndex.getLegPerformingAgents(mode));
+		return candidates;
 	}
 	
 	@Override
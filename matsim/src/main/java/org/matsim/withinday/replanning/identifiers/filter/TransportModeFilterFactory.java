@@ -24,20 +24,29 @@ import java.util.Set;
 
 import org.matsim.withinday.mobsim.MobsimDataProvider;
 import org.matsim.withinday.replanning.identifiers.interfaces.AgentFilterFactory;
+import org.matsim.withinday.replanning.identifiers.tools.AgentIndex;
 
 public class TransportModeFilterFactory implements AgentFilterFactory {
 
 	private final Set<String> modes;
 	private final MobsimDataProvider mobsimDataProvider;
+	private final AgentIndex agentIndex;
 	
 	public TransportModeFilterFactory(Set<String> modes, MobsimDataProvider mobsimDataProvider) {
+		this(modes, mobsimDataProvider, null);
+	}
+	
+	public TransportModeFilterFactory(Set<String> modes, MobsimDataProvider mobsimDataProvider, AgentIndex agentIndex) {
 		this.modes = modes;
 		this.mobsimDataProvider = mobsimDataProvider;
+		this.agentIndex = agentIndex;
 	}
 	
 	@Override
 	public TransportModeFilter createAgentFilter() {
-		return new TransportModeFilter(this.mobsimDataProvider.getAgents(), this.modes);
+		// use the index of the mobsim (if there is one) unless another one was given
+		AgentIndex agentIndex = this.agentIndex != null ? this.agentIndex : this.mobsimDataProvider.getAgentIndex();
+		return new TransportModeFilter(this.mobsimDataProvider.getAgents(), this.modes, agentIndex);
 	}
 
 }
\ No newline at end of file
@@ -20,8 +20,12 @@
 
 package org.matsim.withinday.replanning.identifiers.interfaces;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.matsim.api.core.v01.Id;
@@ -66,6 +70,35 @@ public abstract class AgentSelector {
 		return true;
 	}
 	
+	/**
+	 * Returns the agents from the given set that might match the filters. If some of the
+	 * filters are {@link IndexedAgentFilter}s, the intersection of their candidates and the
+	 * given set is returned, otherwise the given set itself. The filters still have to be
+	 * applied to the returned agents.
+	 */
+	public final Collection<Id<Person>> getFilterCandidates(Set<Id<Person>> agents, double time) {
+		List<Set<Id<Person>>> candidateSets = new ArrayList<>();
+		for (AgentFilter agentFilter : agentFilters) {
+			if (agentFilter instanceof IndexedAgentFilter) {
+				Set<Id<Person>> candidates = ((IndexedAgentFilter) agentFilter).getCandidates(time);
+				if (candidates != null) candidateSets.add(candidates);
+			}
+		}
+		if (candidateSets.isEmpty()) return agents;
+		candidateSets.add(agents);
+		
+		// start with the smallest set, then each further set only has to answer contains() calls
+		Set<Id<Person>> smallest = candidateSets.get(0);
+		for (Set<Id<Person>> set : candidateSets) {
+			if (set.size() < smallest.size()) smallest = set;
+		}
+		Set<Id<Person>> intersection = new HashSet<>(smallest);
+		for (Set<Id<Person>> set : candidateSets) {
+			if (set != smallest) intersection.retainAll(set);
+		}
+		return intersection;
+	}
+	
 	public final void setAgentSelectorFactory(AgentSelectorFactory factory) {
 		this.identifierFactory = factory;
 	}
@@ -1,10 +1,10 @@
 /* *********************************************************************** *
  * project: org.matsim.*
- * TravelTimeInfoProvider.java
+ * IndexedAgentFilter.java
  *                                                                         *
  * *********************************************************************** *
  *                                                                         *
- * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
  *                   LICENSE and WARRANTY file.                            *
  * email           : info at matsim dot org                                *
  *                                                                         *
@@ -18,17 +18,28 @@
  *                                                                         *
  * *********************************************************************** */
 
-package org.matsim.withinday.trafficmonitoring;
+package org.matsim.withinday.replanning.identifiers.interfaces;
+
+import java.util.Set;
 
 import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.network.Link;
-import org.matsim.withinday.trafficmonitoring.WithinDayTravelTime.TravelTimeInfo;
+import org.matsim.api.core.v01.population.Person;
+
+/**
+ * An AgentFilter whose matching agents can be looked up in an index that is
+ * updated while events are processed. AgentSelectors intersect the candidates
+ * of all their indexed filters before the filters are applied to the single
+ * agents. Therefore, the costs per time step depend on the number of agents
+ * that match the filters and not on the number of all agents that are e.g.
+ * performing a leg.
+ */
+public interface IndexedAgentFilter extends AgentFilter {
 
-public interface TravelTimeInfoProvider {
-	
-	/*package*/ TravelTimeInfo getTravelTimeInfo(final Id<Link> linkId);
-	
-	/*package*/ TravelTimeInfo getTravelTimeInfo(final Link link);
-	// needs to be available separately since sometimes calling
-	// with the link argument is faster. kai, dec'17
+	/**
+	 * Returns a set that contains at least all agents that match the filter
+	 * criteria. It may contain further agents, which are then removed by
+	 * {@link #applyAgentFilter(Id, double)}. Returns null if the filter cannot
+	 * narrow down the agents.
+	 */
+	public Set<Id<Person>> getCandidates(double time);
 }
@@ -0,0 +1,201 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AgentIndex.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.withinday.replanning.identifiers.tools;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.events.handler.ActivityStartEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonStuckEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleLeavesTrafficEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimInitializedListener;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.withinday.mobsim.MobsimDataProvider;
+
+/**
+ * Keeps track of the link each agent is located on and of the mode of the
+ * leg each agent is performing. Both are updated incrementally while the
+ * events are processed. Used by the IndexedAgentFilters to look up the agents
+ * that might match their criteria instead of checking all agents.
+ * <p></p>
+ * The link is the one MobsimAgent.getCurrentLinkId() returns: drivers are
+ * moved with their vehicles, whereas passengers (e.g. pt riders) and teleported
+ * agents remain on their departure link until they arrive.
+ * <p></p>
+ * Note that the AgentIndex has to be registered as an EventHandler and a
+ * SimulationListener! It registers itself at the MobsimDataProvider, from where
+ * the filter factories pick it up.
+ * <p></p>
+ * All sets are concurrent, so events may be handled by several threads, and
+ * the sets returned by the getters may be iterated while events are handled
+ * without throwing a ConcurrentModificationException. Their contents are,
+ * however, only consistent between two sim steps, i.e. when no events are
+ * handled, which is when the identifiers use them.
+ */
+public class AgentIndex implements PersonDepartureEventHandler, PersonArrivalEventHandler, PersonStuckEventHandler,
+		ActivityStartEventHandler, LinkEnterEventHandler, VehicleEntersTrafficEventHandler, VehicleLeavesTrafficEventHandler,
+		MobsimInitializedListener {
+
+	private static final Logger log = Logger.getLogger(AgentIndex.class);
+
+	private final MobsimDataProvider mobsimDataProvider;
+
+	private final Map<Id<Person>, Id<Link>> agentLinks = new ConcurrentHashMap<>();
+	private final Map<Id<Link>, Set<Id<Person>>> agentsByLink = new ConcurrentHashMap<>();
+
+	private final Map<Id<Person>, String> agentModes = new ConcurrentHashMap<>();
+	private final Map<String, Set<Id<Person>>> legPerformingAgentsByMode = new ConcurrentHashMap<>();
+
+	// only the drivers are moved together with their vehicle
+	private final Map<Id<Vehicle>, Id<Person>> vehicleDrivers = new ConcurrentHashMap<>();
+
+	@Inject
+	public AgentIndex(MobsimDataProvider mobsimDataProvider, EventsManager eventsManager) {
+		eventsManager.addHandler(this);
+		log.info("Note that the AgentIndex has to be registered as an EventHandler and a SimulationListener!");
+
+		this.mobsimDataProvider = mobsimDataProvider;
+		this.mobsimDataProvider.setAgentIndex(this);
+	}
+
+	/**
+	 * @return an unmodifiable view of the agents that are currently located on the given link
+	 */
+	public Set<Id<Person>> getAgentsOnLink(Id<Link> linkId) {
+		Set<Id<Person>> set = this.agentsByLink.get(linkId);
+		if (set != null) return Collections.unmodifiableSet(set);
+		else return Collections.emptySet();
+	}
+
+	/**
+	 * @return an unmodifiable view of the agents that are currently performing a leg with the given mode
+	 */
+	public Set<Id<Person>> getLegPerformingAgents(String mode) {
+		Set<Id<Person>> set = this.legPerformingAgentsByMode.get(mode);
+		if (set != null) return Collections.unmodifiableSet(set);
+		else return Collections.emptySet();
+	}
+
+	/*
+	 * When the simulation starts the agents are all performing an activity
+	 * without having created an ActivityStartEvent.
+	 */
+	@Override
+	public void notifyMobsimInitialized(MobsimInitializedEvent e) {
+		this.reset(0);
+		for (MobsimAgent mobsimAgent : this.mobsimDataProvider.getAgents().values()) {
+			this.setLink(mobsimAgent.getId(), mobsimAgent.getCurrentLinkId());
+		}
+	}
+
+	@Override
+	public void reset(int iteration) {
+		this.agentLinks.clear();
+		this.agentsByLink.clear();
+		this.agentModes.clear();
+		this.legPerformingAgentsByMode.clear();
+		this.vehicleDrivers.clear();
+	}
+
+	@Override
+	public void handleEvent(ActivityStartEvent event) {
+		this.setLink(event.getPersonId(), event.getLinkId());
+	}
+
+	@Override
+	public void handleEvent(PersonDepartureEvent event) {
+		this.setLink(event.getPersonId(), event.getLinkId());
+
+		this.agentModes.put(event.getPersonId(), event.getLegMode());
+		this.legPerformingAgentsByMode.computeIfAbsent(event.getLegMode(), k -> ConcurrentHashMap.newKeySet()).add(event.getPersonId());
+	}
+
+	@Override
+	public void handleEvent(PersonArrivalEvent event) {
+		this.setLink(event.getPersonId(), event.getLinkId());
+		this.removeMode(event.getPersonId());
+	}
+
+	@Override
+	public void handleEvent(PersonStuckEvent event) {
+		// the agent is removed from the simulation
+		Id<Link> linkId = this.agentLinks.remove(event.getPersonId());
+		if (linkId != null) this.agentsByLink.get(linkId).remove(event.getPersonId());
+		this.removeMode(event.getPersonId());
+	}
+
+	/*
+	 * PersonEntersVehicleEvents are not used since they are also created for
+	 * passengers, whose current link is not updated while they travel.
+	 */
+	@Override
+	public void handleEvent(VehicleEntersTrafficEvent event) {
+		this.vehicleDrivers.put(event.getVehicleId(), event.getPersonId());
+	}
+
+	@Override
+	public void handleEvent(VehicleLeavesTrafficEvent event) {
+		this.vehicleDrivers.remove(event.getVehicleId());
+	}
+
+	@Override
+	public void handleEvent(LinkEnterEvent event) {
+		Id<Person> driverId = this.vehicleDrivers.get(event.getVehicleId());
+		if (driverId != null) this.setLink(driverId, event.getLinkId());
+	}
+
+	private void setLink(Id<Person> agentId, Id<Link> linkId) {
+		if (linkId == null) return;
+		
+		Id<Link> oldLinkId = this.agentLinks.put(agentId, linkId);
+		if (linkId.equals(oldLinkId)) return;
+
+		if (oldLinkId != null) this.agentsByLink.get(oldLinkId).remove(agentId);
+		this.agentsByLink.computeIfAbsent(linkId, k -> ConcurrentHashMap.newKeySet()).add(agentId);
+	}
+
+	private void removeMode(Id<Person> agentId) {
+		String mode = this.agentModes.remove(agentId);
+		if (mode != null) this.legPerformingAgentsByMode.get(mode).remove(agentId);
+	}
+}
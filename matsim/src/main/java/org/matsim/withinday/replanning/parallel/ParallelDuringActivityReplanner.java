@@ -36,4 +36,4 @@ public class ParallelDuringActivityReplanner extends ParallelReplanner<WithinDay
 		this.init("ParallelDuringActivityReplanner");
 	}
 	
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -36,4 +36,4 @@ public class ParallelDuringLegReplanner extends ParallelReplanner<WithinDayDurin
 		this.init("ParallelDuringLegReplanner");
 	}
 	
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -20,18 +20,23 @@
 
 package org.matsim.withinday.replanning.parallel;
 
-import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.CyclicBarrier;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.withinday.replanning.identifiers.interfaces.AgentSelector;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplanner;
@@ -42,23 +47,22 @@ import org.matsim.withinday.replanning.replanners.tools.ReplanningTask;
  * Abstract class that contains the basic elements that are needed
  * to do parallel replanning within the QSim.
  *
- * Features like the creation of parallel running threads and the
- * split up of the replanning actions have to be implemented in
- * the subclasses.
+ * The ReplanningTasks of a time step are collected per WithinDayReplanner.
+ * When run(...) is called, the replanners are processed one after another.
+ * The tasks of a replanner are split into small batches which are claimed
+ * by the ReplanningRunnables running on a work-stealing ForkJoinPool. The
+ * pool may be shared with other ParallelReplanners. The calling thread
+ * only waits until all runnables have finished.
  */
 public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? extends AgentSelector>> { 
 
 	private final static Logger log = Logger.getLogger(ParallelReplanner.class);
 
 	/*
-	 * All replanners from the same type can either share one queue that contains all 
-	 * ReplanningTasks or use a separate queue per replanner object. A shared queue
-	 * should result in a better load balancing but also might become a bottleneck when
-	 * many threads are accessing it at the same time. When using a shared queue, a 
-	 * LinkedBlockingQueue is used. Otherwise, each replanner uses a LinkedList.
-	 * Both approaches should produce the same simulation results.
+	 * Upper bound for the number of tasks that are claimed at once. Smaller batches
+	 * balance the load better, larger ones reduce the contention on the shared counter.
 	 */
-	private final boolean shareReplannerQueue = true;
+	private static final int MAX_BATCH_SIZE = 16;
 	
 	protected final EventsManager eventsManager;
 	protected int numOfThreads;
@@ -66,13 +70,16 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 	protected Set<T> replannerFactories = new LinkedHashSet<T>();
 	protected ReplanningRunnable[] replanningRunnables;
 	protected String replannerName;
-	protected int roundRobin = 0;
-	private int lastRoundRobin = 0;
-	protected AtomicBoolean hadException;
-	protected ExceptionHandler uncaughtExceptionHandler;
-	protected CyclicBarrier timeStepStartBarrier;
-	protected CyclicBarrier betweenReplannerBarrier;
-	protected CyclicBarrier timeStepEndBarrier;
+	
+	/*
+	 * One list of ReplanningTasks per WithinDayReplanner. Using a TreeMap ensures that
+	 * the replanners are always processed in the same order.
+	 */
+	protected Map<Id<WithinDayReplanner>, List<ReplanningTask>> replanningTasks = new TreeMap<>();
+	protected int numOfTasks = 0;
+	
+	private ForkJoinPool pool;
+	private ForkJoinPool sharedPool = null;
 	
 	protected boolean simIsRunning = false;
 	
@@ -81,22 +88,25 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 		this.eventsManager = eventsManager;
 	}
 	
+	/**
+	 * Lets the replanning of the next simulation run on a pool that is shared with other
+	 * ParallelReplanners. The pool belongs to the caller, who has to shut it down. If no 
+	 * pool is set, a pool with <code>numOfThreads</code> threads is created in onPrepareSim() 
+	 * and shut down in afterSim().
+	 */
+	public final void setSharedPool(ForkJoinPool sharedPool) {
+		this.sharedPool = sharedPool;
+	}
+	
 	public final void init(String replannerName) {
 		
 		this.replannerName = replannerName;
 		
 		replanningRunnables = new InternalReplanningRunnable[numOfThreads];
 
-		this.timeStepStartBarrier = new CyclicBarrier(numOfThreads + 1);
-		this.betweenReplannerBarrier = new CyclicBarrier(numOfThreads);
-		this.timeStepEndBarrier = new CyclicBarrier(numOfThreads + 1);
-
 		// Do initial Setup of the Runnables
 		for (int i = 0; i < numOfThreads; i++) {
 			ReplanningRunnable replanningRunnable = new InternalReplanningRunnable(replannerName + " Thread" + i + " replanned plans: ");
-			replanningRunnable.setCyclicTimeStepStartBarrier(this.timeStepStartBarrier);
-			replanningRunnable.setBetweenReplannerBarrier(betweenReplannerBarrier);
-			replanningRunnable.setCyclicTimeStepEndBarrier(this.timeStepEndBarrier);
 			replanningRunnable.setEventsManager(eventsManager);
 			
 			replanningRunnables[i] = replanningRunnable;
@@ -112,57 +122,24 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 		 * cdobler, jul'13
 		 */
 		for (T factory : this.replannerFactories) {
-			if (shareReplannerQueue) {
-				Queue<ReplanningTask> queue = new LinkedBlockingQueue<ReplanningTask>();
-				for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
-					WithinDayReplanner<? extends AgentSelector> newInstance = factory.createReplanner();
-					replanningRunnable.addWithinDayReplanner(newInstance, queue);
-				}
-			} else {
-				for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
-					WithinDayReplanner<? extends AgentSelector> newInstance = factory.createReplanner();
-					replanningRunnable.addWithinDayReplanner(newInstance, new LinkedList<ReplanningTask>());
-				}
-			}			
-		}
-		
-		this.hadException = new AtomicBoolean(false);
-		this.uncaughtExceptionHandler = new ExceptionHandler(this.hadException, this.timeStepStartBarrier, 
-				this.betweenReplannerBarrier, this.timeStepEndBarrier);
-		
-		Thread[] replanningThreads = new Thread[numOfThreads];
-		
-		// initialize threads
-		for (int i = 0; i < numOfThreads; i++) {
-			Thread replanningThread = new Thread(replanningRunnables[i]);
-			Thread.setDefaultUncaughtExceptionHandler(this.uncaughtExceptionHandler);
-			replanningThread.setName(replannerName + i);
-			replanningThreads[i] = replanningThread;
+			createReplanners(factory);
 		}
 		
-		// finalize thread setup and start them
-		for (int i = 0; i < numOfThreads; i++) {
-			replanningRunnables[i].beforeSim();
-			Thread replanningThread = replanningThreads[i];
-			replanningThread.setDaemon(true);
-			replanningThread.start();
+		if (this.sharedPool != null) {
+			this.pool = this.sharedPool;
+		} else if (this.numOfThreads > 1) {
+			this.pool = new ForkJoinPool(this.numOfThreads);
 		}
 
 		this.simIsRunning = true;
-		
-		/*
-		 * After initialization the threads are waiting at the
-		 * TimeStepEndBarrier. We trigger this Barrier once so
-		 * they wait at the TimeStepStartBarrier what has to be
-		 * their state if the run() method is called.
-		 */
-		try {
-			this.timeStepEndBarrier.await();
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
-		} catch (BrokenBarrierException e) {
-			throw new RuntimeException(e);
+	}
+	
+	private void createReplanners(T factory) {
+		for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
+			WithinDayReplanner<? extends AgentSelector> newInstance = factory.createReplanner();
+			replanningRunnable.addWithinDayReplanner(newInstance);
 		}
+		this.replanningTasks.put(factory.getId(), new ArrayList<ReplanningTask>());
 	}
 	
 	/*
@@ -171,32 +148,45 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 	 */
 	public final void run(double time) {
 		// no Agents to Replan
-		if (lastRoundRobin == roundRobin) return;
-		else lastRoundRobin = roundRobin;
-
-		/*
-		 * If an exception occurred, at least one of the events replanning threads
-		 * has crashed. Therefore the remaining threads would get stuck at the
-		 * CyclicBarrier.
-		 */
-		if (hadException.get()) {
-			return;
+		if (numOfTasks == 0) return;
+		numOfTasks = 0;
+		
+		for (ReplanningRunnable replanningRunnable : replanningRunnables) {
+			replanningRunnable.setTime(time);
 		}
 		
-		try {
-			// set current time
-			for (ReplanningRunnable replanningRunnable : replanningRunnables) {
-				replanningRunnable.setTime(time);
+		for (Entry<Id<WithinDayReplanner>, List<ReplanningTask>> entry : this.replanningTasks.entrySet()) {
+			List<ReplanningTask> tasks = entry.getValue();
+			if (tasks.isEmpty()) continue;
+			
+			int batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, tasks.size() / (4 * numOfThreads)));
+			int numOfBatches = (tasks.size() + batchSize - 1) / batchSize;
+			int numOfRunnables = Math.min(numOfThreads, numOfBatches);
+			
+			AtomicInteger nextTask = new AtomicInteger(0);
+			for (int i = 0; i < numOfRunnables; i++) {
+				replanningRunnables[i].setReplanningTasks(entry.getKey(), tasks, nextTask, batchSize);
 			}
-
-			this.timeStepStartBarrier.await();
-
-			this.timeStepEndBarrier.await();
-
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
-		} catch (BrokenBarrierException e) {
-	      	throw new RuntimeException(e);
+			
+			if (numOfRunnables == 1) {
+				// not worth handing the work over to another thread
+				replanningRunnables[0].run();
+			} else {
+				List<Callable<Object>> callables = new ArrayList<>(numOfRunnables);
+				for (int i = 0; i < numOfRunnables; i++) {
+					callables.add(Executors.callable(replanningRunnables[i]));
+				}
+				try {
+					for (Future<Object> future : this.pool.invokeAll(callables)) {
+						future.get();
+					}
+				} catch (InterruptedException | ExecutionException e) {
+					throw new RuntimeException("Exception while replanning. " +
+							"Cannot guarantee that all replanning operations have been fully processed.", e);
+				}
+			}
+			
+			tasks.clear();
 		}
 	}
 
@@ -204,22 +194,10 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 
 		this.simIsRunning = false;
 		
-		if (this.hadException.get()) {
-			throw new RuntimeException("Exception while replanning. " +
-					"Cannot guarantee that all replanning operations have been fully processed.");
-		}
-		
 		// reset counters
-		roundRobin = 0;
-		lastRoundRobin = 0;
+		numOfTasks = 0;
 		
-		/*
-		 * Calling the afterSim Method of the QSimEngineThreads
-		 * will set their simulationRunning flag to false.
-		 */
 		for (ReplanningRunnable runnable : this.replanningRunnables) {
-			runnable.afterSim();
-			
 			/*
 			 * Remove replanners from the runnables - now they are re-created from scratch
 			 * for each iteration.
@@ -229,19 +207,12 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 				runnable.removeWithinDayReplanner(factory.getId());
 			}
 		}
-
-		/*
-		 * Triggering the startBarrier of the QSimEngineThreads.
-		 * They will check whether the Simulation is still running.
-		 * It is not, so the Threads will stop running.
-		 */
-		try {
-			this.timeStepStartBarrier.await();
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
-		} catch (BrokenBarrierException e) {
-			throw new RuntimeException(e);
+		this.replanningTasks.clear();
+		
+		if (this.pool != null && this.pool != this.sharedPool) {
+			this.pool.shutdown();
 		}
+		this.pool = null;
 	}
 	
 	public final void addWithinDayReplannerFactory(T factory) {
@@ -249,23 +220,12 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 		
 		/*
 		 * This is necessary for timed within-day replanners. They are added while the
-		 * simulation is already running. Theirfore, now Queue<ReplanningTask> is created
-		 * in the onPrepare() method.
+		 * simulation is already running. Theirfore, their replanners are created here
+		 * and not in the onPrepare() method.
 		 * cdobler, dec'13
 		 */
 		if (simIsRunning) {
-			if (shareReplannerQueue) {
-				Queue<ReplanningTask> queue = new LinkedBlockingQueue<ReplanningTask>();
-				for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
-					WithinDayReplanner<? extends AgentSelector> newInstance = factory.createReplanner();
-					replanningRunnable.addWithinDayReplanner(newInstance, queue);
-				}
-			} else {
-				for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
-					WithinDayReplanner<? extends AgentSelector> newInstance = factory.createReplanner();
-					replanningRunnable.addWithinDayReplanner(newInstance, new LinkedList<ReplanningTask>());
-				}
-			}						
+			createReplanners(factory);
 		}
 	}
 
@@ -275,6 +235,8 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 		for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
 			replanningRunnable.removeWithinDayReplanner(factory.getId());
 		}
+		List<ReplanningTask> tasks = this.replanningTasks.remove(factory.getId());
+		if (tasks != null) numOfTasks -= tasks.size();
 	}
 	
 	public final void resetReplanners() {
@@ -288,8 +250,8 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 	}
 
 	public final void addReplanningTask(ReplanningTask replanningTask) {	
-		this.replanningRunnables[this.roundRobin % this.numOfThreads].addReplanningTask(replanningTask);
-		this.roundRobin++;
+		this.replanningTasks.get(replanningTask.getWithinDayReplannerId()).add(replanningTask);
+		this.numOfTasks++;
 	}
 
 	private final void setNumberOfThreads(int numberOfThreads) {
@@ -307,7 +269,7 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 	}
 		
 	/*
-	 * The thread class that really handles the replanning.
+	 * The runnable class that really handles the replanning.
 	 */
 	/*package*/ static final class InternalReplanningRunnable extends ReplanningRunnable {		
 		
@@ -316,38 +278,4 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 		}
 				
 	}	// InternalReplanningThread
-	
-	/**
-	 * @author mrieser
-	 */
-	private static class ExceptionHandler implements UncaughtExceptionHandler {
-
-		private final AtomicBoolean hadException;
-		private final CyclicBarrier timeStepStartBarrier;
-		private final CyclicBarrier betweenReplannerBarrier;
-		private final CyclicBarrier timeStepEndBarrier;
-
-		public ExceptionHandler(final AtomicBoolean hadException, CyclicBarrier timeStepStartBarrier,
-				CyclicBarrier betweenReplannerBarrier, CyclicBarrier timeStepEndBarrier) {
-			this.hadException = hadException;
-			this.timeStepStartBarrier = timeStepStartBarrier;
-			this.betweenReplannerBarrier = betweenReplannerBarrier;
-			this.timeStepEndBarrier = timeStepEndBarrier;
-		}
-
-		@Override
-		public void uncaughtException(Thread t, Throwable e) {
-			this.hadException.set(true);
-			log.error("Thread " + t.getName() + " died with exception while replanning.", e);
-
-			/*
-			 * By reseting the barriers, they will throw a BrokenBarrierException
-			 * which again will stop the events processing threads.
-			 */
-			this.timeStepStartBarrier.reset();
-			this.betweenReplannerBarrier.reset();
-			this.timeStepEndBarrier.reset();
-		}
-
-	}
 }
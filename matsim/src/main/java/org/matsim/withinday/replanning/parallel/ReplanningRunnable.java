@@ -23,7 +23,6 @@ package org.matsim.withinday.replanning.parallel;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.core.api.experimental.events.EventsManager;
-import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.utils.misc.Counter;
 import org.matsim.core.utils.misc.Time;
@@ -33,17 +32,19 @@ import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplanner;
 import org.matsim.withinday.replanning.replanners.tools.ReplanningTask;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Queue;
-import java.util.TreeMap;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /*
  * Typical Replanner Implementations should be able to use this 
  * Class method without any changes.
- * Override the doReplanning() method to implement the replanning functionality.
+ * 
+ * Each runnable owns one instance of every WithinDayReplanner (and therefore
+ * its own TripRouter, EditRoutes, ...), which is re-used over all time steps.
+ * When being run, it claims small batches of ReplanningTasks from the list
+ * that is shared by all runnables until the list is exhausted. Runnables which
+ * got cheap agents therefore simply claim more batches.
  */
 public abstract class ReplanningRunnable implements Runnable {
 
@@ -51,7 +52,6 @@ public abstract class ReplanningRunnable implements Runnable {
 	
 	private Counter counter;
 	private double time = 0.0;
-	private volatile boolean simulationRunning = false;
 	
 	/*
 	 *  The original WithinDayReplanners are initialized and assigned
@@ -62,18 +62,16 @@ public abstract class ReplanningRunnable implements Runnable {
 	protected Map<Id<WithinDayReplanner>, WithinDayReplanner<? extends AgentSelector>> withinDayReplanners = new HashMap<>();
 	
 	/*
-	 * Use one List of ReplanningTasks per WithinDayReplanner. By doing so
-	 * and by using a CyclicBarrier, it can be ensured that only instances
-	 * of the same WithinDayReplanner are run in parallel. Otherwise two
-	 * different Replanners on different Threads could try to replan the
-	 * same Agent.
+	 * The ReplanningTasks of the WithinDayReplanner that is currently processed.
+	 * Only instances of the same WithinDayReplanner are run in parallel. Otherwise
+	 * two different Replanners on different Threads could try to replan the same Agent.
 	 */
-	protected Map<Id<WithinDayReplanner>, Queue<ReplanningTask>> replanningTasks = new TreeMap<>();
-    protected EventsManager eventsManager;
+	private Id<WithinDayReplanner> withinDayReplannerId;
+	private List<ReplanningTask> replanningTasks;
+	private AtomicInteger nextTask;
+	private int batchSize;
 	
-	protected CyclicBarrier timeStepStartBarrier;
-	protected CyclicBarrier betweenReplannerBarrier;
-	protected CyclicBarrier timeStepEndBarrier;
+    protected EventsManager eventsManager;
 	
 	public ReplanningRunnable(String counterText) {
 		counter = new Counter(counterText);
@@ -86,32 +84,25 @@ public abstract class ReplanningRunnable implements Runnable {
 	public final void setTime(double time) {
 		this.time = time;
 	}
-		
-	public final void setCyclicTimeStepStartBarrier(CyclicBarrier barrier) {
-		this.timeStepStartBarrier = barrier;
-	}
-	
-	public final void setBetweenReplannerBarrier(CyclicBarrier barrier) {
-		this.betweenReplannerBarrier = barrier;
-	}
 	
-	public final void setCyclicTimeStepEndBarrier(CyclicBarrier barrier) {
-		this.timeStepEndBarrier = barrier;
-	}
-
-	public final void addReplanningTask(ReplanningTask replanningTask) {
-		Queue<ReplanningTask> queue = this.replanningTasks.get(replanningTask.getWithinDayReplannerId());
-		queue.add(replanningTask);
+	/*
+	 * Sets the tasks that are processed by the next call of run(). The list and the
+	 * counter of the next unclaimed task are shared by all runnables.
+	 */
+	public final void setReplanningTasks(Id<WithinDayReplanner> withinDayReplannerId, List<ReplanningTask> replanningTasks,
+			AtomicInteger nextTask, int batchSize) {
+		this.withinDayReplannerId = withinDayReplannerId;
+		this.replanningTasks = replanningTasks;
+		this.nextTask = nextTask;
+		this.batchSize = batchSize;
 	}
 	
-	public final void addWithinDayReplanner(WithinDayReplanner<? extends AgentSelector> withinDayReplanner, Queue<ReplanningTask> queue) {
+	public final void addWithinDayReplanner(WithinDayReplanner<? extends AgentSelector> withinDayReplanner) {
 		this.withinDayReplanners.put(withinDayReplanner.getId(), withinDayReplanner);
-		this.replanningTasks.put(withinDayReplanner.getId(), queue);
 	}
 	
 	public final void removeWithinDayReplanner(Id<WithinDayReplanner> replannerId) {
 		this.withinDayReplanners.remove(replannerId);
-		this.replanningTasks.remove(replannerId);
 	}
 	
 	public final void resetReplanners() {
@@ -121,46 +112,36 @@ public abstract class ReplanningRunnable implements Runnable {
 		}
 	}
 	
-	public final void beforeSim() {
-		this.simulationRunning = true;
-	}
-	
-	public final void afterSim() {
-		this.simulationRunning = false;
-	}
-	
 	/*
 	 * Typical Replanner Implementations should be able to use 
 	 * this method without any Changes.
 	 */
-	private void doReplanning() throws InterruptedException, BrokenBarrierException {
+	@Override
+	public final void run() {
+		
+		WithinDayReplanner<? extends AgentSelector> withinDayReplanner = this.withinDayReplanners.get(this.withinDayReplannerId);
+		
+		if (withinDayReplannerId == null) {
+			log.error("WithinDayReplanner Id is null!");
+			return;
+		} else if (withinDayReplanner == null) {
+			log.error("WithinDayReplanner is null!");
+			return;
+		}
 
-		for (Entry<Id<WithinDayReplanner>, Queue<ReplanningTask>> entry : this.replanningTasks.entrySet()) {
-			
-			Id<WithinDayReplanner> withinDayReplannerId = entry.getKey();
-			Queue<ReplanningTask> queue = entry.getValue();
-			
-			WithinDayReplanner<? extends AgentSelector> withinDayReplanner = this.withinDayReplanners.get(withinDayReplannerId);
+		// set time once per replanner and time step
+		withinDayReplanner.setTime(time);
+		
+		int size = this.replanningTasks.size();
+		while (true) {
+			int from = this.nextTask.getAndAdd(this.batchSize);
 			
-			if (withinDayReplannerId == null) {
-				log.error("WithinDayReplanner Id is null!");
-				continue;
-			} else if (withinDayReplanner == null) {
-				log.error("WithinDayReplanner is null!");
-				continue;
-			}
-
-			// set time once per replanner and time step
-			withinDayReplanner.setTime(time);
+			// if no more tasks are left, end while loop
+			if (from >= size) break;
 			
-			ReplanningTask replanningTask;
-			while (true) {
-				replanningTask = queue.poll();
-				
-				// if no more elements are left in the queue, end while loop
-				if (replanningTask == null) break;
-
-				MobsimAgent withinDayAgent = replanningTask.getAgentToReplan();
+			int to = Math.min(from + this.batchSize, size);
+			for (int i = from; i < to; i++) {
+				MobsimAgent withinDayAgent = this.replanningTasks.get(i).getAgentToReplan();
 								
 				if (withinDayAgent == null) {
 					log.error("WithinDayAgent is null!");
@@ -186,44 +167,7 @@ public abstract class ReplanningRunnable implements Runnable {
 					counter.incCounter();
 				}
 			}
-			
-			/*
-			 * Wait here until all Threads have ended the replanning for the
-			 * current WithinDayReplanner.
-			 */
-			this.betweenReplannerBarrier.await();
 		}
-	}
-	
-	@Override
-	public final void run() {
-		while (simulationRunning) {
-			try {
-				/*
-				 * The End of the Replanning is synchronized with 
-				 * the TimeStepEndBarrier. If all Threads reach this Barrier
-				 * the main run() Thread can go on.
-				 * 
-				 * The Threads wait now at the TimeStepStartBarrier until
-				 * they are triggered again in the next TimeStep by the main run()
-				 * method.
-				 */
-				timeStepEndBarrier.await();
-					
-				timeStepStartBarrier.await();
-
-				if (!simulationRunning) {
-					Gbl.printCurrentThreadCpuTime();
-					return;
-				}
-				
-				doReplanning();
-			} catch (InterruptedException | BrokenBarrierException e) {
-				throw new RuntimeException(e);
-			}
-
-        }	// while Simulation Running
-
 	}	// run()
 	
 }
@@ -28,7 +28,6 @@ import org.matsim.api.core.v01.events.handler.*;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Person;
-import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
@@ -49,13 +48,18 @@ import org.matsim.vehicles.Vehicle;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.*;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Collects link travel times over a given time span (storedTravelTimesBinSize)
  * and calculates an average travel time over this time span.
+ * <p>
+ * The recent traversals of each link are kept in a per-link ring buffer of
+ * leave times and trip times. Only the events handling and the mobsim thread
+ * write to these buffers; the resulting expected travel times are published
+ * once per time step in an array that is read without locking, so that
+ * replanners running in parallel do not contend with each other or with the
+ * mobsim.
  * 
  * TODO:
  * - make storedTravelTimesBinSize configurable (e.g. via config)
@@ -71,25 +75,44 @@ public class WithinDayTravelTime implements TravelTime,
 
 	private static final Logger log = Logger.getLogger(WithinDayTravelTime.class);
 
+	private static final int INITIAL_RING_CAPACITY = 4;
+
+	private static final Counter enlarge = new Counter("WithinDayTravelTime: enlarged time bin size: ");
+	private static final Counter shrink = new Counter("WithinDayTravelTime: shrunk time bin size: ");
+
 	private Network network;
 
 	// Trips with no Activity on the current Link
-	private Map<Id<Vehicle>, TripBin> regularActiveTrips; // VehicleId
-	private Map<Id<Link>, TravelTimeInfo> travelTimeInfos; // LinkId
-	
-	private TravelTimeInfoProvider travelTimeInfoProvider;
+	private Map<Id<Vehicle>, Double> regularActiveTrips; // VehicleId -> link enter time
+
+	/*
+	 * Link state, indexed by the position of the link in the network's link map.
+	 */
+	private Map<Id<Link>, Integer> linkIndices;
+	// ring buffers of the trips that are taken into account
+	private double[][] ringLeaveTimes;
+	private double[][] ringTripTimes;
+	private int[] ringStart;
+	private int[] ringSize;
+	private double[] addedTravelTimes; // added since the last update
+	private double[] sumTravelTimes; // We cache the sum of the TravelTimes
+	private double[] freeSpeedTravelTimes; // We cache the FreeSpeedTravelTimes
+	private double[] dynamicBinSizes; // size of the time window that is taken into account
+
+	// links whose travel time has to be updated in the next time step
+	private boolean[] isActive;
+	private int[] activeLinks;
+	private int activeLinksCount;
+
+	/*
+	 * Expected travel times as raw long bits of the doubles. Written by the mobsim
+	 * thread once per time step, read by arbitrary threads.
+	 */
+	private volatile AtomicLongArray travelTimes;
 
 	// Links that are changed by network change events
 	private TreeMap<Double, Map<Link,Double>> changedLinksByTime;
 	// yy better a priority queue.  kai, dec'17
-	
-	/*
-	 * For parallel Execution
-	 */
-	private CyclicBarrier startBarrier;
-	private CyclicBarrier endBarrier;
-	private UpdateMeanTravelTimesRunnable[] updateMeanTravelTimesRunnables;
-	private final int numOfThreads;
 
 	private final int infoTimeStep = 3600;
 	private int nextInfoTime = 0;
@@ -111,12 +134,7 @@ public class WithinDayTravelTime implements TravelTime,
 	public WithinDayTravelTime(Scenario scenario, Set<String> analyzedModes) {
 //		log.setLevel(Level.DEBUG);
 		
-		/*
-		 * The parallelization should scale almost linear, therefore we do use
-		 * the number of available threads according to the config file.
-		 */
 		this.network = scenario.getNetwork();
-		this.numOfThreads = scenario.getConfig().global().getNumberOfThreads();
 
 		if (analyzedModes == null || analyzedModes.size() == 0) {
 			this.filterModes = false;
@@ -131,23 +149,36 @@ public class WithinDayTravelTime implements TravelTime,
 
 	private void init() {
 		this.regularActiveTrips = new HashMap<>();
-		this.travelTimeInfos = new ConcurrentHashMap<>();
 		this.changedLinksByTime = new TreeMap<>();
 		this.vehiclesToFilter = new HashSet<>();
 		
-		// one TravelTimeInfo per link:
+		// one slot per link:
+		int numLinks = this.network.getLinks().size();
+		this.linkIndices = new HashMap<>(numLinks * 2);
+		int index = 0;
 		for (Link link : this.network.getLinks().values()) {
-			TravelTimeInfo travelTimeInfo = new TravelTimeInfo();
-			this.travelTimeInfos.put(link.getId(), travelTimeInfo);
+			this.linkIndices.put(link.getId(), index);
+			index++;
 		}
-		
-		/*
-		 * If no RoutingNetwork is used, ArrayBasedTravelTimeInfoProvider uses 
-		 * a MapBasedTravelTimeInfoProvider as fall back solution. This increases 
-		 * routing times of a AStarLandmarks router by ~5%.
-		 */
-//		this.travelTimeInfoProvider = new MapBasedTravelTimeInfoProvider(this.travelTimeInfos);
-		this.travelTimeInfoProvider = new ArrayBasedTravelTimeInfoProvider(this.travelTimeInfos, this.network);
+		this.ringLeaveTimes = new double[numLinks][];
+		this.ringTripTimes = new double[numLinks][];
+		this.ringStart = new int[numLinks];
+		this.ringSize = new int[numLinks];
+		this.addedTravelTimes = new double[numLinks];
+		this.sumTravelTimes = new double[numLinks];
+		this.freeSpeedTravelTimes = new double[numLinks];
+		Arrays.fill(this.freeSpeedTravelTimes, Double.MAX_VALUE);
+		this.dynamicBinSizes = new double[numLinks];
+		this.isActive = new boolean[numLinks];
+		this.activeLinks = new int[numLinks];
+		this.activeLinksCount = 0;
+
+		AtomicLongArray travelTimes = new AtomicLongArray(numLinks);
+		long undefined = Double.doubleToRawLongBits(Double.MAX_VALUE);
+		for (int i = 0; i < numLinks; i++) {
+			travelTimes.lazySet(i, undefined);
+		}
+		this.travelTimes = travelTimes;
 		
 		/*
 		 * If the network is time variant, we have to update the link parameters
@@ -210,8 +241,7 @@ public class WithinDayTravelTime implements TravelTime,
 
 	@Override
 	public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
-		final double travelTime = this.travelTimeInfoProvider.getTravelTimeInfo(link).travelTime;
-		return travelTime;
+		return Double.longBitsToDouble(this.travelTimes.get(this.linkIndices.get(link.getId())));
 	}
 	
 	@Override
@@ -237,10 +267,7 @@ public class WithinDayTravelTime implements TravelTime,
 		Id<Vehicle> vehicleId = event.getVehicleId();
 		double time = event.getTime();
 
-		TripBin tripBin = new TripBin();
-		tripBin.enterTime = time;
-
-		this.regularActiveTrips.put(vehicleId, tripBin);
+		this.regularActiveTrips.put(vehicleId, time);
 	}
 
 	@Override
@@ -249,19 +276,16 @@ public class WithinDayTravelTime implements TravelTime,
 		Id<Vehicle> vehicleId = event.getVehicleId();
 		double time = event.getTime();
 
-		TripBin tripBin = this.regularActiveTrips.remove(vehicleId);
-		if (tripBin != null) {
-			tripBin.leaveTime = time;
-
-			double tripTime = tripBin.leaveTime - tripBin.enterTime;
+		Double enterTime = this.regularActiveTrips.remove(vehicleId);
+		if (enterTime != null) {
+			double tripTime = time - enterTime;
 
-			TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeInfo(linkId);
-			travelTimeInfo.tripBins.add(tripBin);
-			travelTimeInfo.addedTravelTimes += tripTime;
-			travelTimeInfo.addedTrips++;
+			int index = this.linkIndices.get(linkId);
+			addTrip(index, time, tripTime);
+			this.addedTravelTimes[index] += tripTime;
 
-			travelTimeInfo.checkActiveState();
-			travelTimeInfo.checkBinSize(tripTime);
+			checkActiveState(index);
+			checkBinSize(index, tripTime);
 		}
 	}
 
@@ -320,16 +344,13 @@ public class WithinDayTravelTime implements TravelTime,
 		for (Link link : this.network.getLinks().values()) {
 			double freeSpeedTravelTime = link.getLength() / link.getFreespeed(Time.UNDEFINED_TIME);
 
-			TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeInfo(link);
-			travelTimeInfo.travelTime = freeSpeedTravelTime;
-			travelTimeInfo.init(freeSpeedTravelTime);
+			int index = this.linkIndices.get(link.getId());
+			initLink(index, freeSpeedTravelTime);
+			publishTravelTime(index, freeSpeedTravelTime);
 		}
-
-		// Now initialize the Parallel Update Threads
-		initParallelThreads();
 	}
 
-	// Update Link TravelTimeInfos if link attributes have changed
+	// Update link states if link attributes have changed
 	@Override
 	public void notifyMobsimAfterSimStep(MobsimAfterSimStepEvent e) {
 		problem = false ;
@@ -353,9 +374,9 @@ public class WithinDayTravelTime implements TravelTime,
 									  "; network change event for link=" + link.getId() +
 									  "; new ttime="+ freeSpeedTravelTime );
 				}
-				TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeInfo(link);
-				travelTimeInfo.init(freeSpeedTravelTime);
-				travelTimeInfo.checkActiveState();	// ensure that the estimated link travel time is updated
+				int index = this.linkIndices.get(link.getId());
+				initLink(index, freeSpeedTravelTime);
+				checkActiveState(index);	// ensure that the estimated link travel time is updated
 			}
 		}
 		
@@ -381,8 +402,7 @@ public class WithinDayTravelTime implements TravelTime,
 		
 		now = e.getSimulationTime() ;
 
-		// parallel Execution
-		this.run(e.getSimulationTime());
+		updateTravelTimes(e.getSimulationTime());
 
 		printInfo(e.getSimulationTime());
 	}
@@ -391,296 +411,146 @@ public class WithinDayTravelTime implements TravelTime,
 	@Override
 	public void notifyMobsimBeforeCleanup(MobsimBeforeCleanupEvent e) {
 		problem = false ;
-		
-		/*
-		 * Calling the afterSim Method of the Threads will set their 
-		 * simulationRunning flag to false.
-		 */
-		for (UpdateMeanTravelTimesRunnable runnable : this.updateMeanTravelTimesRunnables) {
-			runnable.afterSim();
-		}
-
-		/*
-		 * Triggering the startBarrier of the UpdateMeanTravelTimesRunnables.
-		 * They will check whether the Simulation is still running.
-		 * It is not, so the Threads will terminate.
-		 */
-		try {
-			this.startBarrier.await();
-		} catch (InterruptedException | BrokenBarrierException ex) {
-			throw new RuntimeException(ex);
-		}
 	}
 	
 	private void printInfo(double time) {
 		if (time >= this.nextInfoTime) {
-			int activeLinks = 0;
-			for (UpdateMeanTravelTimesRunnable runnable : this.updateMeanTravelTimesRunnables) {
-				activeLinks += runnable.getActiveLinksCount();
-			}
-
-			log.info("WithinDayTravelTime at " + Time.writeTime(time) + " #links=" + activeLinks);
+			log.info("WithinDayTravelTime at " + Time.writeTime(time) + " #links=" + this.activeLinksCount);
 
 			this.nextInfoTime += this.infoTimeStep;
 		}
 	}
 
-	private static class TripBin {
-		double enterTime;
-		double leaveTime;
-	}
-
-	/*package*/ static class TravelTimeInfo {
-
-		UpdateMeanTravelTimesRunnable runnable;
-		List<TripBin> tripBins = new ArrayList<>();
-
-		boolean isActive = false;
-		// int numActiveTrips = 0;
-		int addedTrips = 0;
-		double addedTravelTimes = 0.0;
-		double sumTravelTimes = 0.0; // We cache the sum of the TravelTimes
-
-		double freeSpeedTravelTime = Double.MAX_VALUE; // We cache the FreeSpeedTravelTimes
-		double travelTime = Double.MAX_VALUE; 
-
-		double dynamicBinSize = 0.0; // size of the time window that is taken into account
-
-		static Counter enlarge = new Counter("WithinDayTravelTime: enlarged time bin size: ");
-		static Counter shrink = new Counter("WithinDayTravelTime: shrunk time bin size: ");
+	/*
+	 * ----------------------------------------------------------------
+	 * Methods operating on the link state arrays
+	 * ----------------------------------------------------------------
+	 */
 
-		/*package*/ void init(double freeSpeedTravelTime) {
-			this.freeSpeedTravelTime = freeSpeedTravelTime;
-			this.dynamicBinSize = freeSpeedTravelTime * 2.5;
-		}
+	private void initLink(int index, double freeSpeedTravelTime) {
+		this.freeSpeedTravelTimes[index] = freeSpeedTravelTime;
+		this.dynamicBinSizes[index] = freeSpeedTravelTime * 2.5;
+	}
 
-		/*package*/ void checkActiveState() {
-			if (!isActive) {
-				this.isActive = true;
-				runnable.addTravelTimeInfo(this);
-			}
+	private void checkActiveState(int index) {
+		if (!this.isActive[index]) {
+			this.isActive[index] = true;
+			this.activeLinks[this.activeLinksCount++] = index;
 		}
+	}
 
-		/*package*/ void checkBinSize(double tripTime) {
-			if (tripTime > dynamicBinSize) {
-				dynamicBinSize = tripTime * 2;
-				enlarge.incCounter();
-			} else if (tripTime * 3 < dynamicBinSize) {
-				dynamicBinSize = tripTime * 3;
-				shrink.incCounter();
-			}
+	private void checkBinSize(int index, double tripTime) {
+		if (tripTime > this.dynamicBinSizes[index]) {
+			this.dynamicBinSizes[index] = tripTime * 2;
+			enlarge.incCounter();
+		} else if (tripTime * 3 < this.dynamicBinSizes[index]) {
+			this.dynamicBinSizes[index] = tripTime * 3;
+			shrink.incCounter();
 		}
 	}
 
 	/*
-	 * ----------------------------------------------------------------
-	 * Methods for parallel Execution
-	 * ----------------------------------------------------------------
+	 * Appends a trip to the ring buffer of the link. Trips arrive ordered by their
+	 * leave time, so the oldest trips are always found at the start of the ring.
 	 */
+	private void addTrip(int index, double leaveTime, double tripTime) {
+		double[] leaveTimes = this.ringLeaveTimes[index];
+		double[] tripTimes = this.ringTripTimes[index];
+		int size = this.ringSize[index];
+		if (leaveTimes == null) {
+			leaveTimes = new double[INITIAL_RING_CAPACITY];
+			tripTimes = new double[INITIAL_RING_CAPACITY];
+			this.ringLeaveTimes[index] = leaveTimes;
+			this.ringTripTimes[index] = tripTimes;
+		} else if (size == leaveTimes.length) {
+			// grow the ring and unroll it, so that it starts at position 0 again
+			int start = this.ringStart[index];
+			double[] newLeaveTimes = new double[size * 2];
+			double[] newTripTimes = new double[size * 2];
+			System.arraycopy(leaveTimes, start, newLeaveTimes, 0, size - start);
+			System.arraycopy(leaveTimes, 0, newLeaveTimes, size - start, start);
+			System.arraycopy(tripTimes, start, newTripTimes, 0, size - start);
+			System.arraycopy(tripTimes, 0, newTripTimes, size - start, start);
+			leaveTimes = newLeaveTimes;
+			tripTimes = newTripTimes;
+			this.ringLeaveTimes[index] = leaveTimes;
+			this.ringTripTimes[index] = tripTimes;
+			this.ringStart[index] = 0;
+		}
+		int position = (this.ringStart[index] + size) % leaveTimes.length;
+		leaveTimes[position] = leaveTime;
+		tripTimes[position] = tripTime;
+		this.ringSize[index] = size + 1;
+	}
+
+	private void publishTravelTime(int index, double travelTime) {
+		this.travelTimes.lazySet(index, Double.doubleToRawLongBits(travelTime));
+	}
 
 	/*
-	 * The Threads are waiting at the TimeStepStartBarrier. We trigger them by
-	 * reaching this Barrier. Now the Threads will start moving the Nodes. We
-	 * wait until all of them reach the TimeStepEndBarrier to move on. We should
-	 * not have any Problems with Race Conditions because even if the Threads
-	 * would be faster than this Thread, means they reach the TimeStepEndBarrier
-	 * before this Method does, it should work anyway.
+	 * Updates the expected travel times of all active links. Links without any
+	 * stored trips are deactivated and fall back to their free speed travel time.
 	 */
-	private void run(double time) {
-
-		try {
-			// set current Time
-			for (UpdateMeanTravelTimesRunnable updateMeanTravelTimesRunnable : updateMeanTravelTimesRunnables) {
-				updateMeanTravelTimesRunnable.setTime(time);
+	private void updateTravelTimes(double time) {
+		int count = 0;
+		for (int i = 0; i < this.activeLinksCount; i++) {
+			int index = this.activeLinks[i];
+			calcBinTravelTime(time, index);
+
+			if (this.ringSize[index] == 0) {
+				this.isActive[index] = false;
+				publishTravelTime(index, this.freeSpeedTravelTimes[index]);
+			} else {
+				this.activeLinks[count++] = index;
 			}
-
-			this.startBarrier.await();
-
-			this.endBarrier.await();
-		} catch (InterruptedException | BrokenBarrierException e) {
-			throw new RuntimeException(e);
 		}
+		this.activeLinksCount = count;
 	}
 
-	private void initParallelThreads() {
-
-		this.startBarrier = new CyclicBarrier(numOfThreads + 1);
-		this.endBarrier = new CyclicBarrier(numOfThreads + 1);
-
-		Thread[] threads = new Thread[numOfThreads];
-		this.updateMeanTravelTimesRunnables = new UpdateMeanTravelTimesRunnable[numOfThreads];
-
-		// setup threads
-		for (int i = 0; i < numOfThreads; i++) {
-			UpdateMeanTravelTimesRunnable updateMeanTravelTimesRunnable = new UpdateMeanTravelTimesRunnable();
-			updateMeanTravelTimesRunnable.setStartBarrier(this.startBarrier);
-			updateMeanTravelTimesRunnable.setEndBarrier(this.endBarrier);
-			updateMeanTravelTimesRunnables[i] = updateMeanTravelTimesRunnable;
-			
-			Thread thread = new Thread(updateMeanTravelTimesRunnable);
-			thread.setName("UpdateMeanTravelTimes" + i);
-			thread.setDaemon(true); // make the Thread demons so they will terminate automatically
-			threads[i] = thread;
-			
-			thread.start();
+	private void calcBinTravelTime(double time, int index) {
+		double removedTravelTimes = 0.0;
+
+		// first remove old TravelTimes
+		double[] leaveTimes = this.ringLeaveTimes[index];
+		double[] tripTimes = this.ringTripTimes[index];
+		int start = this.ringStart[index];
+		int size = this.ringSize[index];
+		double dynamicBinSize = this.dynamicBinSizes[index];
+		while (size > 0 && leaveTimes[start] + dynamicBinSize < time) {
+			removedTravelTimes += tripTimes[start];
+			start = (start + 1) % leaveTimes.length;
+			size--;
 		}
+		this.ringStart[index] = start;
+		this.ringSize[index] = size;
 
 		/*
-		 * Assign the TravelTimeInfos to the Threads
+		 * We don't need an update if no Trips have been added or removed
+		 * within the current SimStep. The initial FreeSpeedTravelTime has
+		 * to be set correctly via setTravelTime!
 		 */
-		int roundRobin = 0;
-		for (TravelTimeInfo travelTimeInfo : this.travelTimeInfos.values()) {
-			travelTimeInfo.runnable = updateMeanTravelTimesRunnables[roundRobin % numOfThreads];
-			roundRobin++;
-		}
+//		if (removedTravelTimes == 0.0 && addedTravelTimes == 0.0) return;
+		// yyyyyy does not work when a network change event comes in. If the old functionality was intentional, we need to talk:
+		// We are setting speed to zero in the bushfire, and if there is no car on the link already, no car will enter it
+		// (because of special within-day rerouting logic). kai, feb'18
+
+		this.sumTravelTimes[index] = this.sumTravelTimes[index] - removedTravelTimes + this.addedTravelTimes[index];
 
+		this.addedTravelTimes[index] = 0.0;
 		/*
-		 * After initialization the Threads are waiting at the endBarrier. We
-		 * trigger this Barrier once so they wait at the startBarrier what has
-		 * to be their state when the run() method is called.
+		 * Ensure that we don't allow TravelTimes shorter than the FreeSpeedTravelTime.
 		 */
-		try {
-			this.endBarrier.await();
-		} catch (InterruptedException | BrokenBarrierException e) {
-			throw new RuntimeException(e);
+		double freeSpeedTravelTime = this.freeSpeedTravelTimes[index];
+		double meanTravelTime = freeSpeedTravelTime;
+		if (size > 0) meanTravelTime = this.sumTravelTimes[index] / size;
+
+		if (meanTravelTime < freeSpeedTravelTime) {
+//			log.warn("Mean TravelTime too short?");
+			// can happen when network change event came in with lower speed. kai, feb'18
+			publishTravelTime(index, freeSpeedTravelTime);
+		} else {
+			publishTravelTime(index, meanTravelTime);
 		}
 	}
 
-	/*
-	 * The thread class that updates the mean travel times.
-	 */
-	private static class UpdateMeanTravelTimesRunnable implements Runnable {
-
-		private volatile boolean simulationRunning = true;
-		
-		private CyclicBarrier startBarrier = null;
-		private CyclicBarrier endBarrier = null;
-		
-		private double time = Time.UNDEFINED_TIME;
-		private Collection<TravelTimeInfo> activeTravelTimeInfos;
-
-		public UpdateMeanTravelTimesRunnable() {
-			activeTravelTimeInfos = new ArrayList<>();
-		}
-
-		public void setStartBarrier(CyclicBarrier cyclicBarrier) {
-			this.startBarrier = cyclicBarrier;
-		}
-
-		public void setEndBarrier(CyclicBarrier cyclicBarrier) {
-			this.endBarrier = cyclicBarrier;
-		}
-
-		public void setTime(final double t) {
-			time = t;
-		}
-
-		public void addTravelTimeInfo(TravelTimeInfo travelTimeInfo) {
-			this.activeTravelTimeInfos.add(travelTimeInfo);
-		}
-
-		public int getActiveLinksCount() {
-			return this.activeTravelTimeInfos.size();
-		}
-
-		public void afterSim() {
-			this.simulationRunning = false;
-		}
-		
-		@Override
-		public void run() {
-
-			while (true) {
-				try {
-					/*
-					 * The End of the Moving is synchronized with the
-					 * endBarrier. If all Threads reach this Barrier the main
-					 * run() Thread can go on.
-					 * 
-					 * The Threads wait now at the startBarrier until they are
-					 * triggered again in the next TimeStep by the main run()
-					 * method.
-					 */
-					endBarrier.await();
-
-					startBarrier.await();
-
-					/*
-					 * Check if Simulation is still running.
-					 * Otherwise print CPU usage and end Thread.
-					 */
-					if (!simulationRunning) {
-						Gbl.printCurrentThreadCpuTime();
-						return;
-					}
-					
-					Iterator<TravelTimeInfo> iter = activeTravelTimeInfos.iterator();
-					while (iter.hasNext()) {
-						TravelTimeInfo travelTimeInfo = iter.next();
-						calcBinTravelTime(this.time, travelTimeInfo);
-
-						/*
-						 * If no further trips are stored in the TravelTimeInfo,
-						 * we deactivate the link and ensure that its expected
-						 * travel time is its free speed travel time.
-						 */
-						if (travelTimeInfo.tripBins.size() == 0) {
-							travelTimeInfo.isActive = false;
-							travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
-							iter.remove();
-						}
-					}
-
-				} catch (InterruptedException | BrokenBarrierException e) {
-					throw new RuntimeException(e);
-				}
-			}
-		} // run()
-
-		private void calcBinTravelTime(double time, TravelTimeInfo travelTimeInfo) {
-			double removedTravelTimes = 0.0;
-
-			List<TripBin> tripBins = travelTimeInfo.tripBins;
-
-			// first remove old TravelTimes
-			Iterator<TripBin> iter = tripBins.iterator();
-			while (iter.hasNext()) {
-				TripBin tripBin = iter.next();
-				if (tripBin.leaveTime + travelTimeInfo.dynamicBinSize < time) {
-					double travelTime = tripBin.leaveTime - tripBin.enterTime;
-					removedTravelTimes += travelTime;
-					iter.remove();
-				} else break;
-			}
-
-			/*
-			 * We don't need an update if no Trips have been added or removed
-			 * within the current SimStep. The initial FreeSpeedTravelTime has
-			 * to be set correctly via setTravelTime!
-			 */
-//			if (removedTravelTimes == 0.0 && travelTimeInfo.addedTravelTimes == 0.0) return;
-			// yyyyyy does not work when a network change event comes in. If the old functionality was intentional, we need to talk:
-			// We are setting speed to zero in the bushfire, and if there is no car on the link already, no car will enter it
-			// (because of special within-day rerouting logic). kai, feb'18
-
-			travelTimeInfo.sumTravelTimes = travelTimeInfo.sumTravelTimes - removedTravelTimes + travelTimeInfo.addedTravelTimes;
-
-			travelTimeInfo.addedTravelTimes = 0.0;
-			/*
-			 * Ensure that we don't allow TravelTimes shorter than the FreeSpeedTravelTime.
-			 */
-			double meanTravelTime = travelTimeInfo.freeSpeedTravelTime;
-			if (!tripBins.isEmpty()) meanTravelTime = travelTimeInfo.sumTravelTimes / tripBins.size();
-
-			if (meanTravelTime < travelTimeInfo.freeSpeedTravelTime) {
-//				log.warn("Mean TravelTime too short?");
-				// can happen when network change event came in with lower speed. kai, feb'18
-				travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
-			} else {
-				travelTimeInfo.travelTime = meanTravelTime;
-			}
-		}
-
-	} // ReplannerRunnable
-
 }
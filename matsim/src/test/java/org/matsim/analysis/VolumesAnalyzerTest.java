@@ -0,0 +1,166 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VolumesAnalyzerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class VolumesAnalyzerTest {
+
+	private final Id<Link> link1 = Id.createLinkId("1");
+	private final Id<Link> link2 = Id.createLinkId("2");
+	private final Id<Vehicle> car = Id.createVehicleId("car");
+	private final Id<Vehicle> bike = Id.createVehicleId("bike");
+
+	@Test
+	public void testVolumesPerLinkAndMode() {
+		VolumesAnalyzer analyzer = new VolumesAnalyzer(900, 3600 - 1, createNetwork());
+		Assert.assertEquals(5, analyzer.getVolumesArraySize());
+
+		enterTraffic(analyzer, this.car, TransportMode.car);
+		enterTraffic(analyzer, this.bike, TransportMode.bike);
+		analyzer.handleEvent(new LinkLeaveEvent(100, this.car, this.link1));
+		analyzer.handleEvent(new LinkLeaveEvent(200, this.bike, this.link1));
+		analyzer.handleEvent(new LinkLeaveEvent(1000, this.car, this.link1));
+		analyzer.handleEvent(new LinkLeaveEvent(5000, this.car, this.link1));
+		analyzer.handleEvent(new LinkLeaveEvent(300, Id.createVehicleId("unknown"), this.link1));
+
+		Assert.assertArrayEquals(new int[] {3, 1, 0, 0, 1}, analyzer.getVolumesForLink(this.link1));
+		Assert.assertArrayEquals(new int[] {1, 1, 0, 0, 1}, analyzer.getVolumesForLink(this.link1, TransportMode.car));
+		Assert.assertArrayEquals(new int[] {1, 0, 0, 0, 0}, analyzer.getVolumesForLink(this.link1, TransportMode.bike));
+		Assert.assertNull(analyzer.getVolumesForLink(this.link2));
+		Assert.assertNull(analyzer.getVolumesForLink(this.link2, TransportMode.car));
+		Assert.assertNull(analyzer.getVolumesForLink(this.link1, TransportMode.walk));
+		Assert.assertEquals(new HashSet<>(Arrays.asList(TransportMode.car, TransportMode.bike)), analyzer.getModes());
+		Assert.assertEquals(new HashSet<>(Arrays.asList(this.link1)), analyzer.getLinkIds());
+
+		double[] perHour = analyzer.getVolumesPerHourForLink(this.link1);
+		Assert.assertEquals(4.0, perHour[0], 0.0);
+		analyzer.addVolumesPerHourForLink(this.link1, TransportMode.bike, perHour);
+		Assert.assertEquals(5.0, perHour[0], 0.0);
+	}
+
+	@Test
+	public void testReturnedVolumesAreCopies() {
+		VolumesAnalyzer analyzer = new VolumesAnalyzer(3600, 24 * 3600 - 1, createNetwork());
+		enterTraffic(analyzer, this.car, TransportMode.car);
+		analyzer.handleEvent(new LinkLeaveEvent(100, this.car, this.link1));
+
+		int[] volumes = analyzer.getVolumesForLink(this.link1);
+		int[] carVolumes = analyzer.getVolumesForLink(this.link1, TransportMode.car);
+		volumes[0] = 42;
+		carVolumes[0] = 42;
+		analyzer.handleEvent(new LinkLeaveEvent(200, this.car, this.link1));
+		Assert.assertEquals(42, volumes[0]);
+		Assert.assertEquals(2, analyzer.getVolumesForLink(this.link1)[0]);
+		Assert.assertEquals(2, analyzer.getVolumesForLink(this.link1, TransportMode.car)[0]);
+
+		analyzer.reset(1);
+		Assert.assertEquals(42, volumes[0]);
+		Assert.assertEquals(42, carVolumes[0]);
+	}
+
+	@Test
+	public void testReset() {
+		VolumesAnalyzer analyzer = new VolumesAnalyzer(3600, 24 * 3600 - 1, createNetwork());
+		enterTraffic(analyzer, this.car, TransportMode.car);
+		enterTraffic(analyzer, this.bike, TransportMode.bike);
+		analyzer.handleEvent(new LinkLeaveEvent(100, this.car, this.link1));
+		analyzer.handleEvent(new LinkLeaveEvent(100, this.bike, this.link2));
+
+		analyzer.reset(1);
+		Assert.assertTrue(analyzer.getLinkIds().isEmpty());
+		Assert.assertTrue(analyzer.getModes().isEmpty());
+		Assert.assertNull(analyzer.getVolumesForLink(this.link1));
+		Assert.assertNull(analyzer.getVolumesForLink(this.link2, TransportMode.bike));
+
+		// the vehicles have to enter traffic again to be counted per mode
+		enterTraffic(analyzer, this.car, TransportMode.car);
+		analyzer.handleEvent(new LinkLeaveEvent(7200, this.car, this.link2));
+		Assert.assertNull(analyzer.getVolumesForLink(this.link1));
+		Assert.assertEquals(1, analyzer.getVolumesForLink(this.link2)[2]);
+		Assert.assertEquals(0, analyzer.getVolumesForLink(this.link2)[0]);
+		Assert.assertEquals(1, analyzer.getVolumesForLink(this.link2, TransportMode.car)[2]);
+		Assert.assertNull(analyzer.getVolumesForLink(this.link2, TransportMode.bike));
+		Assert.assertEquals(new HashSet<>(Arrays.asList(TransportMode.car)), analyzer.getModes());
+	}
+
+	@Test
+	public void testLinksNotInNetwork() {
+		VolumesAnalyzer analyzer = new VolumesAnalyzer(3600, 24 * 3600 - 1, createNetwork());
+		enterTraffic(analyzer, this.car, TransportMode.car);
+		analyzer.handleEvent(new LinkLeaveEvent(100, this.car, this.link1));
+		// more links than in the network, so that the tables have to grow
+		for (int i = 0; i < 10; i++) {
+			for (int j = 0; j <= i; j++) {
+				analyzer.handleEvent(new LinkLeaveEvent(3600 * j, this.car, Id.createLinkId("pt" + i)));
+			}
+		}
+
+		Assert.assertEquals(11, analyzer.getLinkIds().size());
+		Assert.assertEquals(1, analyzer.getVolumesForLink(this.link1)[0]);
+		for (int i = 0; i < 10; i++) {
+			int[] volumes = analyzer.getVolumesForLink(Id.createLinkId("pt" + i), TransportMode.car);
+			for (int j = 0; j < volumes.length; j++) {
+				Assert.assertEquals(j <= i ? 1 : 0, volumes[j]);
+			}
+		}
+	}
+
+	@Test
+	public void testWithoutModes() {
+		VolumesAnalyzer analyzer = new VolumesAnalyzer(3600, 24 * 3600 - 1, createNetwork(), false);
+		enterTraffic(analyzer, this.car, TransportMode.car);
+		analyzer.handleEvent(new LinkLeaveEvent(100, this.car, this.link1));
+
+		Assert.assertEquals(1, analyzer.getVolumesForLink(this.link1)[0]);
+		Assert.assertNull(analyzer.getVolumesForLink(this.link1, TransportMode.car));
+		Assert.assertNull(analyzer.getVolumesPerHourForLink(this.link1, TransportMode.car));
+	}
+
+	private static void enterTraffic(VolumesAnalyzer analyzer, Id<Vehicle> vehicleId, String mode) {
+		analyzer.handleEvent(new VehicleEntersTrafficEvent(0, Id.createPersonId(vehicleId.toString()), Id.createLinkId("1"), vehicleId, mode, 1.0));
+	}
+
+	private Network createNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId("1"), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId("2"), new Coord(1000, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.createNodeId("3"), new Coord(2000, 0));
+		NetworkUtils.createAndAddLink(network, this.link1, node1, node2, 1000, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, this.link2, node2, node3, 1000, 10, 1000, 1);
+		return network;
+	}
+
+}
@@ -47,6 +47,19 @@ public class IdTest {
 		Assert.assertFalse((Id) linkId1 == (Id) nodeId1);
 	}
 	
+	@Test
+	public void testIndex() {
+		Id<TLink> linkId1 = Id.create("1", TLink.class);
+		Id<TLink> linkId2 = Id.create("2", TLink.class);
+		Id<TNode> nodeId1 = Id.create("1", TNode.class);
+		
+		Assert.assertTrue(linkId1.index() != linkId2.index());
+		Assert.assertTrue(linkId1.index() != nodeId1.index());
+		Assert.assertEquals(linkId1.index(), Id.create("1", TLink.class).index());
+		Assert.assertTrue(Id.get(linkId1.index()) == linkId1);
+		Assert.assertTrue(Id.get(nodeId1.index()) == nodeId1);
+	}
+	
 	@Test
 	public void testCompareTo() {
 		Id<TLink> linkId1 = Id.create("1", TLink.class);
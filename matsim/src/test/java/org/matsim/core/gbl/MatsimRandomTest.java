@@ -20,8 +20,12 @@
 
 package org.matsim.core.gbl;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.testcases.MatsimTestCase;
 
 /**
@@ -109,6 +113,61 @@ public class MatsimRandomTest extends MatsimTestCase {
 		assertTrue(Math.abs(value1 - value2b) > EPSILON);
 	}
 
+	/**
+	 * Tests that the numbers drawn from a keyed stream only depend on the key, not on the
+	 * numbers drawn before.
+	 */
+	public void testKeyedStreams() {
+		MatsimRandom.reset(123L);
+		Id<Person> person1 = Id.create(1, Person.class);
+		Id<Person> person2 = Id.create(2, Person.class);
+
+		KeyedRandom r1 = new KeyedRandom(1L);
+		KeyedRandom r2 = new KeyedRandom(2L);
+		r2.nextDouble();
+		r2.nextGaussian();
+		r1.setKey(3, person1, "test");
+		r2.setKey(3, person1, "test");
+		assertEqualRandomNumberGenerators(r1, r2);
+		assertEquals(r1.nextGaussian(), r2.nextGaussian(), EPSILON);
+
+		r1.setKey(3, person1, "test");
+		double value1 = r1.nextDouble();
+		r1.setKey(3, person2, "test");
+		double value2 = r1.nextDouble();
+		r1.setKey(4, person1, "test");
+		double value3 = r1.nextDouble();
+		r1.setKey(3, person1, "other");
+		double value4 = r1.nextDouble();
+		assertTrue(Math.abs(value1 - value2) > EPSILON);
+		assertTrue(Math.abs(value1 - value3) > EPSILON);
+		assertTrue(Math.abs(value1 - value4) > EPSILON);
+
+		double uniform = MatsimRandom.getUniform(3, person1, "test");
+		assertTrue(uniform >= 0.0 && uniform < 1.0);
+		assertEquals(uniform, MatsimRandom.getUniform(3, person1, "test"), 0.0);
+		MatsimRandom.reset(234L);
+		assertTrue(Math.abs(uniform - MatsimRandom.getUniform(3, person1, "test")) > EPSILON);
+	}
+
+	public void testCreateWithKeyedInstances() {
+		List<KeyedRandom> keyedInstances = new ArrayList<>();
+		Random random = MatsimRandom.createWithKeyedInstances(MatsimRandom::getLocalInstance, keyedInstances);
+		assertFalse(random instanceof KeyedRandom);
+		assertTrue(keyedInstances.isEmpty());
+
+		MatsimRandom.setKeyedStreams(true);
+		try {
+			random = MatsimRandom.createWithKeyedInstances(MatsimRandom::getLocalInstance, keyedInstances);
+			assertTrue(random instanceof KeyedRandom);
+			assertEquals(1, keyedInstances.size());
+			assertSame(random, keyedInstances.get(0));
+			assertFalse(MatsimRandom.getLocalInstance() instanceof KeyedRandom);
+		} finally {
+			MatsimRandom.setKeyedStreams(false);
+		}
+	}
+
 	/** Test that two (Pseudo)Random Number Generators are equil by
 	 * drawing a series of random numbers and comparing those.
 	 *
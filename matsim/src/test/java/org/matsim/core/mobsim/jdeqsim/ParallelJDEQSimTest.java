@@ -0,0 +1,48 @@
+package org.matsim.core.mobsim.jdeqsim;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class ParallelJDEQSimTest extends AbstractJDEQSimTest {
+
+	@Test
+	public void test_equilPlans100_parallel() throws Exception {
+		Config config = ConfigUtils.loadConfig("test/scenarios/equil/config.xml");
+		MatsimRandom.reset(config.global().getRandomSeed());
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		ScenarioUtils.loadScenario(scenario);
+
+		JDEQSimConfigGroup jdeqSimConfig = ConfigUtils.addOrGetModule(config, JDEQSimConfigGroup.NAME, JDEQSimConfigGroup.class);
+		this.runJDEQSim(scenario);
+		int numberOfEvents = this.allEvents.size();
+		double meanLastEventTime = getMeanLastEventTime();
+
+		setUp();
+		jdeqSimConfig.setNumberOfThreads(2);
+		this.runJDEQSim(scenario);
+
+		assertEquals(scenario.getPopulation().getPersons().size(), super.eventsByPerson.size());
+		super.checkAscendingTimeStamps();
+		super.checkEventsCorrespondToPlans(scenario.getPopulation());
+		assertEquals(numberOfEvents, this.allEvents.size());
+		// interactions across partitions may be delayed by at most one time window per link
+		assertEquals(meanLastEventTime, getMeanLastEventTime(), 60.0);
+	}
+
+	private double getMeanLastEventTime() {
+		double sum = 0;
+		for (List<Event> list : this.eventsByPerson.values()) {
+			sum += list.get(list.size() - 1).getTime();
+		}
+		return sum / this.eventsByPerson.size();
+	}
+}
@@ -20,6 +20,10 @@
 
 package org.matsim.core.mobsim.qsim.pt;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 import org.apache.log4j.Logger;
@@ -28,7 +32,9 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.pt.fakes.FakeAgent;
+import org.matsim.pt.fakes.FakePassengerAgent;
 import org.matsim.pt.transitSchedule.TransitScheduleFactoryImpl;
+import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
@@ -114,4 +120,85 @@ public class TransitStopAgentTrackerTest extends TestCase {
 			log.info("catched expected exception.", e);
 		}
 	}
+
+	public void testGetAgentsAtStopForLine() {
+		EventsManager events = EventsUtils.createEventsManager();
+		TransitStopAgentTracker tracker = new TransitStopAgentTracker(events);
+		TransitScheduleFactory builder = new TransitScheduleFactoryImpl();
+		Id<TransitLine> line1 = Id.create(1, TransitLine.class);
+		Id<TransitLine> line2 = Id.create(2, TransitLine.class);
+		PTPassengerAgent agent1 = new LineAgent(line1);
+		PTPassengerAgent agent2 = new LineAgent(line2);
+		PTPassengerAgent agent3 = new FakePassengerAgent(null); // any line
+		PTPassengerAgent agent4 = new LineAgent(line1);
+		TransitStopFacility stop1 = builder.createTransitStopFacility(Id.create(1, TransitStopFacility.class), new Coord((double) 2, (double) 3), false);
+
+		tracker.addAgentToStop(10, agent1, stop1.getId());
+		tracker.addAgentToStop(10, agent2, stop1.getId());
+		tracker.addAgentToStop(10, agent3, stop1.getId());
+		tracker.addAgentToStop(10, agent4, stop1.getId());
+
+		assertEquals(Arrays.asList(agent1, agent2, agent3, agent4), tracker.getAgentsAtFacility(stop1.getId()));
+		assertEquals(Arrays.asList(agent1, agent3, agent4), tracker.getAgentsAtStopForLine(stop1.getId(), line1));
+		assertEquals(Arrays.asList(agent2, agent3), tracker.getAgentsAtStopForLine(stop1.getId(), line2));
+		assertEquals(Arrays.asList(agent3), tracker.getAgentsAtStopForLine(stop1.getId(), Id.create(3, TransitLine.class)));
+
+		tracker.removeAgentFromStop(agent1, stop1.getId());
+		tracker.removeAgentFromStop(agent3, stop1.getId());
+		assertEquals(Arrays.asList(agent4), tracker.getAgentsAtStopForLine(stop1.getId(), line1));
+		assertEquals(Arrays.asList(agent2, agent4), tracker.getAgentsAtFacility(stop1.getId()));
+		assertTrue(tracker.getAgentsAtStopForLine(Id.create(2, TransitStopFacility.class), line1).isEmpty());
+	}
+
+	public void testVisitAgentsAtStopForLine() {
+		EventsManager events = EventsUtils.createEventsManager();
+		TransitStopAgentTracker tracker = new TransitStopAgentTracker(events);
+		TransitScheduleFactory builder = new TransitScheduleFactoryImpl();
+		Id<TransitLine> line1 = Id.create(1, TransitLine.class);
+		Id<TransitLine> line2 = Id.create(2, TransitLine.class);
+		PTPassengerAgent agent1 = new LineAgent(line1);
+		PTPassengerAgent agent2 = new LineAgent(line2);
+		PTPassengerAgent agent3 = new FakePassengerAgent(null); // any line
+		PTPassengerAgent agent4 = new LineAgent(line1);
+		PTPassengerAgent agent5 = new LineAgent(line1);
+		TransitStopFacility stop1 = builder.createTransitStopFacility(Id.create(1, TransitStopFacility.class), new Coord((double) 2, (double) 3), false);
+
+		tracker.addAgentToStop(10, agent1, stop1.getId());
+		tracker.addAgentToStop(10, agent2, stop1.getId());
+		tracker.addAgentToStop(10, agent3, stop1.getId());
+		tracker.addAgentToStop(10, agent4, stop1.getId());
+		tracker.addAgentToStop(10, agent5, stop1.getId());
+
+		List<PTPassengerAgent> visited = new ArrayList<>();
+		tracker.visitAgentsAtStopForLine(stop1.getId(), line1, agent -> visited.add(agent));
+		assertEquals(Arrays.asList(agent1, agent3, agent4, agent5), visited);
+		assertEquals(visited, tracker.getAgentsAtStopForLine(stop1.getId(), line1));
+
+		// the remaining agents are not visited once the visitor returns false
+		visited.clear();
+		tracker.visitAgentsAtStopForLine(stop1.getId(), line1, agent -> visited.add(agent) && visited.size() < 2);
+		assertEquals(Arrays.asList(agent1, agent3), visited);
+
+		visited.clear();
+		tracker.visitAgentsAtStopForLine(stop1.getId(), Id.create(3, TransitLine.class), agent -> visited.add(agent));
+		assertEquals(Arrays.asList(agent3), visited);
+
+		visited.clear();
+		tracker.visitAgentsAtStopForLine(Id.create(2, TransitStopFacility.class), line1, agent -> visited.add(agent));
+		assertTrue(visited.isEmpty());
+	}
+
+	private static class LineAgent extends FakePassengerAgent {
+		private final Id<TransitLine> lineId;
+
+		LineAgent(final Id<TransitLine> lineId) {
+			super(null);
+			this.lineId = lineId;
+		}
+
+		@Override
+		public Id<TransitLine> getDesiredLineId() {
+			return this.lineId;
+		}
+	}
 }
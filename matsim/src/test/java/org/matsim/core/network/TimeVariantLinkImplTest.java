@@ -352,6 +352,57 @@ public class TimeVariantLinkImplTest extends MatsimTestCase {
 	}
 
 
+	/**
+	 * Tests that the network-wide compiled attributes return the same values as the links' own lookups,
+	 * including queries exactly at, between, before and after the change points.
+	 */
+	public void testCompiledAttributes() {
+		final Network network = NetworkUtils.createNetwork();
+		NetworkFactory nf = network.getFactory();
+		nf.setLinkFactory(new VariableIntervalTimeVariantLinkFactory());
+		((NetworkImpl)network).setFactory(nf);
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord((double) 0, (double) 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord((double) 0, (double) 1000));
+		TimeVariantLinkImpl link1 = (TimeVariantLinkImpl) NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 1000, 10.0, 3600, 1);
+		TimeVariantLinkImpl link2 = (TimeVariantLinkImpl) NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), node2, node1, 1000, 20.0, 1800, 2);
+
+		// irregularly spaced change points on link1, none on link2
+		double[] changeTimes = {0.0, 10.0, 11.0, 12.0, 3600.0, 7200.0, 7201.0, 20000.0, 86400.0};
+		for (int i = 0; i < changeTimes.length; i++) {
+			NetworkChangeEvent event = new NetworkChangeEvent(changeTimes[i]);
+			event.addLink(link1);
+			event.setFreespeedChange(new ChangeValue(ChangeType.FACTOR, 0.9));
+			if (i % 2 == 0) {
+				event.setFlowCapacityChange(new ChangeValue(ChangeType.OFFSET_IN_SI_UNITS, 0.1));
+			}
+			if (i % 3 == 0) {
+				event.setLanesChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, 1.0 + i));
+			}
+			NetworkUtils.addNetworkChangeEvent(network, event);
+		}
+
+		double[] queryTimes = {Time.UNDEFINED_TIME, -1.0, 0.0, 5.0, 10.0, 10.5, 11.0, 12.0, 100.0, 3599.0, 3600.0,
+				7200.5, 7201.0, 19999.0, 20000.0, 50000.0, 86400.0, 100000.0, Double.POSITIVE_INFINITY};
+		// look the values up often enough so that the attributes get compiled
+		for (int run = 0; run < 3; run++) {
+			for (double time : queryTimes) {
+				assertEquals(link1.getFreespeedUncompiled(time), link1.getFreespeed(time), 0.0);
+				assertEquals(link1.getFlowCapacityPerSecUncompiled(time), link1.getFlowCapacityPerSec(time), 0.0);
+				assertEquals(link1.getNumberOfLanesUncompiled(time), link1.getNumberOfLanes(time), 0.0);
+				assertEquals(20.0, link2.getFreespeed(time), 0.0);
+				assertEquals(2.0, link2.getNumberOfLanes(time), 0.0);
+			}
+		}
+		TimeVariantLinkAttributes compiled = ((NetworkImpl) network).getTimeVariantLinkAttributes();
+		assertNotNull(compiled);
+		assertTrue(compiled.indexOf(link1) >= 0);
+
+		// a modification invalidates the compiled attributes
+		link2.setFreespeed(30.0);
+		assertNull(((NetworkImpl) network).getTimeVariantLinkAttributes());
+		assertEquals(30.0, link2.getFreespeed(0.0), 0.0);
+	}
+
     static LinkFactory[] linkFactories(int interval, int maxTime)
     {
         return new LinkFactory[] {
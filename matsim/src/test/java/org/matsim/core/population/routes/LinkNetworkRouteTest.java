@@ -21,6 +21,10 @@
 package org.matsim.core.population.routes;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.RandomAccess;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -67,4 +71,20 @@ public class LinkNetworkRouteTest extends AbstractNetworkRouteTest {
 		Assert.assertEquals(2, route2.getLinkIds().size());
 	}
 
+	@Test
+	public void testLinkIdsFromSequentialList() {
+		List<Id<Link>> linkIds = Arrays.asList(Id.createLinkId("b"), Id.createLinkId("c"), Id.createLinkId("d"));
+		NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId("a"), Id.createLinkId("e"));
+		route.setLinkIds(Id.createLinkId("a"), new LinkedList<>(linkIds), Id.createLinkId("e"));
+
+		// the view can be accessed by index without creating an iterator
+		Assert.assertTrue(route.getLinkIds() instanceof RandomAccess);
+		Assert.assertEquals(linkIds, route.getLinkIds());
+		Assert.assertEquals("a b c d e", route.getRouteDescription());
+
+		NetworkRoute copy = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId("a"), Id.createLinkId("e"));
+		copy.setLinkIds(Id.createLinkId("a"), route.getLinkIds(), Id.createLinkId("e"));
+		Assert.assertEquals(linkIds, copy.getLinkIds());
+	}
+
 }
@@ -34,11 +34,16 @@ import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.PersonUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.replanning.selectors.BestPlanSelector;
+import org.matsim.core.replanning.selectors.ExpBetaPlanChanger;
+import org.matsim.core.replanning.selectors.ExpBetaPlanSelector;
 import org.matsim.core.replanning.selectors.PlanSelector;
 import org.matsim.core.replanning.selectors.RandomPlanSelector;
 import org.matsim.core.scenario.ScenarioUtils;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -127,6 +132,133 @@ public class StrategyManagerTest {
 		assertEquals(498, strategy4.getCounter());
 	}
 
+	/**
+	 * Tests that with keyed random streams, the strategies chosen for the persons do
+	 * not depend on the number of threads.
+	 */
+	@Test
+	public void testKeyedStreams_numberOfThreads() {
+		Population population = ScenarioUtils.createScenario(ConfigUtils.createConfig()).getPopulation();
+		for (int i = 0; i < 1000; i++) {
+			Person p = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			population.addPerson(p);
+		}
+
+		MatsimRandom.setKeyedStreams(true);
+		try {
+			int[][] counters = new int[2][];
+			int[] numbersOfThreads = {1, 4};
+			for (int run = 0; run < 2; run++) {
+				MatsimRandom.reset(4711);
+				StrategyManager manager = new StrategyManager();
+				manager.setNumberOfThreads(numbersOfThreads[run]);
+				StrategyCounter strategy1 = new StrategyCounter(new RandomPlanSelector<Plan, Person>());
+				StrategyCounter strategy2 = new StrategyCounter(new RandomPlanSelector<Plan, Person>());
+				StrategyCounter strategy3 = new StrategyCounter(new RandomPlanSelector<Plan, Person>());
+				manager.addStrategyForDefaultSubpopulation(strategy1, 0.2);
+				manager.addStrategyForDefaultSubpopulation(strategy2, 0.3);
+				manager.addStrategyForDefaultSubpopulation(strategy3, 0.5);
+				manager.run(population, 1, null);
+				counters[run] = new int[] {strategy1.getCounter(), strategy2.getCounter(), strategy3.getCounter()};
+			}
+			Assert.assertArrayEquals(counters[0], counters[1]);
+			Assert.assertEquals(1000, counters[0][0] + counters[0][1] + counters[0][2]);
+			Assert.assertTrue(counters[0][0] < counters[0][2]);
+		} finally {
+			MatsimRandom.setKeyedStreams(false);
+		}
+	}
+
+	/**
+	 * Tests that with keyed random streams, the removed and selected plans, and the order in which
+	 * the modules get the new plans, do not depend on the number of threads, with several
+	 * subpopulations and random plan removal.
+	 */
+	@Test
+	public void testKeyedStreams_replanningDoesNotDependOnNumberOfThreads() {
+		MatsimRandom.setKeyedStreams(true);
+		try {
+			List<Map<Id<Person>, String>> results = new ArrayList<>();
+			List<List<Id<Person>>> handledPersons = new ArrayList<>();
+			for (int numberOfThreads : new int[] {1, 3}) {
+				MatsimRandom.reset(4711);
+				Population population = createScoredPopulation(600);
+
+				StrategyManager manager = new StrategyManager();
+				manager.setNumberOfThreads(numberOfThreads);
+				manager.setSubpopulationAttributeName("subpopulation");
+				manager.setMaxPlansPerAgent(3);
+				manager.setPlanSelectorForRemoval(new ExpBetaPlanSelector<Plan, Person>(-1.0));
+				PlanRecorder recorderA = new PlanRecorder();
+				PlanRecorder recorderB = new PlanRecorder();
+				manager.addStrategy(new PlanStrategyImpl.Builder(new ExpBetaPlanSelector<Plan, Person>(1.0)).build(), "a", 0.4);
+				manager.addStrategy(new PlanStrategyImpl.Builder(new ExpBetaPlanChanger<Plan, Person>(1.0)).build(), "a", 0.4);
+				manager.addStrategy(new PlanStrategyImpl.Builder(new RandomPlanSelector<Plan, Person>()).addStrategyModule(recorderA).build(), "a", 0.2);
+				manager.addStrategy(new PlanStrategyImpl.Builder(new ExpBetaPlanChanger<Plan, Person>(2.0)).build(), "b", 0.7);
+				manager.addStrategy(new PlanStrategyImpl.Builder(new ExpBetaPlanSelector<Plan, Person>(2.0)).addStrategyModule(recorderB).build(), "b", 0.3);
+				manager.run(population, 1, null);
+
+				Map<Id<Person>, String> result = new LinkedHashMap<>();
+				for (Person person : population.getPersons().values()) {
+					StringBuilder plans = new StringBuilder();
+					for (Plan plan : person.getPlans()) {
+						plans.append(plan == person.getSelectedPlan() ? '*' : ' ').append(plan.getScore());
+					}
+					result.put(person.getId(), plans.toString());
+				}
+				results.add(result);
+
+				// each module gets the plans of its subpopulation in the order of the persons
+				List<Id<Person>> personIds = new ArrayList<>(population.getPersons().keySet());
+				for (PlanRecorder recorder : new PlanRecorder[] {recorderA, recorderB}) {
+					Assert.assertFalse(recorder.personIds.isEmpty());
+					for (int i = 1; i < recorder.personIds.size(); i++) {
+						Assert.assertTrue(personIds.indexOf(recorder.personIds.get(i - 1)) < personIds.indexOf(recorder.personIds.get(i)));
+					}
+				}
+				List<Id<Person>> handled = new ArrayList<>(recorderA.personIds);
+				handled.addAll(recorderB.personIds);
+				handledPersons.add(handled);
+			}
+
+			Assert.assertEquals(results.get(0), results.get(1));
+			Assert.assertEquals(handledPersons.get(0), handledPersons.get(1));
+
+			// make sure that the removal and the selection were random at all
+			int personsWithChangedSelection = 0;
+			for (String plans : results.get(0).values()) {
+				// one plan is removed, and a copy is added for the strategies with a module
+				int numberOfPlans = plans.split("[ *]", -1).length - 1;
+				Assert.assertTrue(numberOfPlans == 3 || numberOfPlans == 4);
+				if (plans.charAt(0) != '*') personsWithChangedSelection++;
+			}
+			Assert.assertTrue(personsWithChangedSelection > 0);
+			Assert.assertTrue(personsWithChangedSelection < 600);
+		} finally {
+			MatsimRandom.setKeyedStreams(false);
+		}
+	}
+
+	/**
+	 * Creates persons with four scored plans each, the first one selected, alternating between
+	 * the subpopulations "a" and "b".
+	 */
+	private static Population createScoredPopulation(final int numberOfPersons) {
+		Population population = ScenarioUtils.createScenario(ConfigUtils.createConfig()).getPopulation();
+		for (int i = 0; i < numberOfPersons; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			for (int j = 0; j < 4; j++) {
+				Plan plan = PopulationUtils.createPlan(person);
+				plan.setScore((double) ((i * 7 + j * 5) % 11));
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(0));
+			population.addPerson(person);
+			population.getPersonAttributes().putAttribute(person.getId().toString(), "subpopulation", i % 2 == 0 ? "a" : "b");
+		}
+		return population;
+	}
+
 	@Test( expected=IllegalStateException.class )
 	public void testAddTwiceStrategy() {
 		final StrategyManager manager = new StrategyManager();
@@ -379,6 +511,23 @@ public class StrategyManagerTest {
 	 *
 	 * @author mrieser
 	 */
+	static private class PlanRecorder implements PlanStrategyModule {
+		final List<Id<Person>> personIds = new ArrayList<>();
+
+		@Override
+		public void prepareReplanning(final ReplanningContext replanningContext) {
+		}
+
+		@Override
+		public void handlePlan(final Plan plan) {
+			this.personIds.add(plan.getPerson().getId());
+		}
+
+		@Override
+		public void finishReplanning() {
+		}
+	}
+
 	static private class StrategyCounter implements PlanStrategy {
 		
 		private PlanStrategyImpl planStrategyDelegate = null ;
@@ -20,12 +20,23 @@
 
 package org.matsim.core.replanning.modules;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 
 /**
@@ -60,6 +71,58 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testKeyedStreamsDoNotDependOnNumberOfThreads() {
+		MatsimRandom.setKeyedStreams(true);
+		try {
+			Map<Id<Person>, List<Double>> expected = drawForPersons(0);
+			Assert.assertEquals(50, expected.size());
+			for (int numberOfThreads : new int[] {1, 2, 3, 7}) {
+				Assert.assertEquals("with " + numberOfThreads + " threads", expected, drawForPersons(numberOfThreads));
+			}
+		} finally {
+			MatsimRandom.setKeyedStreams(false);
+			MatsimRandom.reset();
+		}
+	}
+
+	private static Map<Id<Person>, List<Double>> drawForPersons(final int numberOfThreads) {
+		MatsimRandom.reset(4711L);
+		Map<Id<Person>, List<Double>> draws = new ConcurrentHashMap<>();
+		DrawingModule testee = new DrawingModule(numberOfThreads, draws);
+		testee.prepareReplanning(null);
+		for (int i = 0; i < 50; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			Plan plan = PopulationUtils.createPlan(person);
+			person.addPlan(plan);
+			testee.handlePlan(plan);
+		}
+		testee.finishReplanning();
+		return draws;
+	}
+
+	private static class DrawingModule extends AbstractMultithreadedModule {
+		private final Map<Id<Person>, List<Double>> draws;
+		public DrawingModule(final int nOfThreads, final Map<Id<Person>, List<Double>> draws) {
+			super(nOfThreads);
+			this.draws = draws;
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			// two local instances per algorithm, as e.g. a mutator that also re-routes would have
+			final Random random1 = MatsimRandom.getLocalInstance();
+			final Random random2 = MatsimRandom.getLocalInstance();
+			return new PlanAlgorithm() {
+				@Override
+				public void run(Plan plan) {
+					List<Double> values = new ArrayList<>(Arrays.asList(random1.nextDouble(), random1.nextGaussian(),
+							(double) random2.nextInt(1000), random2.nextDouble()));
+					draws.put(plan.getPerson().getId(), values);
+				}
+			};
+		}
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -308,6 +308,80 @@ public class PathSizeLogitSelectorTest extends AbstractPlanSelectorTest {
 		assertEquals(2132, cnt3);
 	}
 
+	public void testChangedRoutes() {
+		this.network = createNetwork();
+
+		Link l1 = network.getLinks().get(Id.create("1", Link.class));
+		Link l2 = network.getLinks().get(Id.create("2", Link.class));
+		Link l3 = network.getLinks().get(Id.create("3", Link.class));
+		Link l6 = network.getLinks().get(Id.create("6", Link.class));
+		Link l7 = network.getLinks().get(Id.create("7", Link.class));
+
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		ArrayList<Id<Link>> srcRoute1 = new ArrayList<Id<Link>>();
+		srcRoute1.add(l1.getId());
+		ArrayList<Id<Link>> srcRoute2 = new ArrayList<Id<Link>>();
+		srcRoute2.add(l2.getId());
+		srcRoute2.add(l3.getId());
+
+		Plan p1 = PopulationUtils.createPlan(person);
+		p1.addActivity(PopulationUtils.createActivityFromLinkId("h", l6.getId()));
+		Leg leg1 = PopulationUtils.createLeg(TransportMode.car);
+		leg1.setDepartureTime(0.0);
+		NetworkRoute r1 = RouteUtils.createLinkNetworkRouteImpl(l6.getId(), l7.getId());
+		r1.setLinkIds(l6.getId(), srcRoute1, l7.getId());
+		leg1.setRoute(r1);
+		p1.addLeg(leg1);
+		p1.addActivity(PopulationUtils.createActivityFromLinkId("w", l7.getId()));
+		p1.setScore(-10.0);
+		person.addPlan(p1);
+
+		Plan p2 = PopulationUtils.createPlan(person);
+		p2.addActivity(PopulationUtils.createActivityFromLinkId("h", l6.getId()));
+		Leg leg2 = PopulationUtils.createLeg(TransportMode.car);
+		leg2.setDepartureTime(0.0);
+		NetworkRoute r2 = RouteUtils.createLinkNetworkRouteImpl(l6.getId(), l7.getId());
+		r2.setLinkIds(l6.getId(), srcRoute2, l7.getId());
+		leg2.setRoute(r2);
+		p2.addLeg(leg2);
+		p2.addActivity(PopulationUtils.createActivityFromLinkId("w", l7.getId()));
+		p2.setScore(-10.0);
+		person.addPlan(p2);
+
+		PathSizeLogitSelector selector = new PathSizeLogitSelector(this.config.planCalcScore(), network);
+
+		// disjoint routes
+		assertEquals(1.0, selector.calcWeights(person.getPlans()).get(p2), EPSILON);
+
+		// re-routed to the same link, each plan gets half of the link: (0.5)^2
+		r2.setLinkIds(l6.getId(), srcRoute1, l7.getId());
+		assertEquals(0.25, selector.calcWeights(person.getPlans()).get(p1), EPSILON);
+		assertEquals(0.25, selector.calcWeights(person.getPlans()).get(p2), EPSILON);
+
+		// departure times too far apart to be compared
+		leg2.setDepartureTime(7200.0);
+		assertEquals(1.0, selector.calcWeights(person.getPlans()).get(p1), EPSILON);
+
+		// a plan is removed from the choice set
+		leg2.setDepartureTime(0.0);
+		assertEquals(0.25, selector.calcWeights(person.getPlans()).get(p1), EPSILON);
+		person.removePlan(p2);
+		assertEquals(1.0, selector.calcWeights(person.getPlans()).get(p1), EPSILON);
+
+		// ... and added again
+		person.addPlan(p2);
+		assertEquals(0.25, selector.calcWeights(person.getPlans()).get(p1), EPSILON);
+
+		// removed and replaced by another plan before the weights are calculated again
+		person.removePlan(p2);
+		Plan p3 = PopulationUtils.createPlan(person);
+		PopulationUtils.copyFromTo(p1, p3);
+		((NetworkRoute) ((Leg) p3.getPlanElements().get(1)).getRoute()).setLinkIds(l6.getId(), srcRoute2, l7.getId());
+		person.addPlan(p3);
+		assertEquals(1.0, selector.calcWeights(person.getPlans()).get(p1), EPSILON);
+		assertEquals(1.0, selector.calcWeights(person.getPlans()).get(p3), EPSILON);
+	}
+
 	private Network createNetwork() {
 		//we use a simple "red bus / blue bus paradox" network
 		// Sketch of the network
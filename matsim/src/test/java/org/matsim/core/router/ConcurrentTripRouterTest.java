@@ -0,0 +1,112 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ConcurrentTripRouterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.facilities.Facility;
+
+public class ConcurrentTripRouterTest {
+
+	@Test
+	public void testConcurrentCalls() throws Exception {
+		final AtomicInteger createdRouters = new AtomicInteger();
+		final AtomicBoolean sharedConcurrently = new AtomicBoolean(false);
+
+		ConcurrentTripRouter router = new ConcurrentTripRouter(() -> {
+			createdRouters.incrementAndGet();
+			TripRouter tripRouter = new TripRouter();
+			tripRouter.setRoutingModule("car", new RoutingModule() {
+				// a routing module is not thread-safe, so it must never be used by two threads at the same time
+				private final AtomicInteger activeCalls = new AtomicInteger();
+
+				@Override
+				public List<? extends PlanElement> calcRoute(Facility<?> fromFacility, Facility<?> toFacility, double departureTime, Person person) {
+					if (this.activeCalls.incrementAndGet() > 1) {
+						sharedConcurrently.set(true);
+					}
+					Thread.yield();
+					this.activeCalls.decrementAndGet();
+					return Collections.singletonList(PopulationUtils.createLeg("car"));
+				}
+
+				@Override
+				public StageActivityTypes getStageActivityTypes() {
+					return EmptyStageActivityTypes.INSTANCE;
+				}
+			});
+			return tripRouter;
+		});
+
+		final Facility<?> facility = new ActivityWrapperFacility(PopulationUtils.createActivityFromCoord("home", new Coord(0.0, 0.0)));
+		int numberOfThreads = 4;
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		List<Callable<Integer>> tasks = new ArrayList<>();
+		for (int t = 0; t < numberOfThreads; t++) {
+			tasks.add(() -> {
+				int legs = 0;
+				for (int i = 0; i < 1000; i++) {
+					legs += router.calcRoute("car", facility, facility, i, null).size();
+				}
+				return legs;
+			});
+		}
+		for (Future<Integer> future : executor.invokeAll(tasks)) {
+			Assert.assertEquals(1000, future.get().intValue());
+		}
+		executor.shutdown();
+
+		Assert.assertFalse("a trip router was used by two threads at the same time", sharedConcurrently.get());
+		Assert.assertTrue(createdRouters.get() >= 1);
+		Assert.assertTrue(createdRouters.get() <= numberOfThreads);
+	}
+
+	@Test
+	public void testStageActivityTypesAndMainModeIdentifierAreCached() {
+		final AtomicInteger createdRouters = new AtomicInteger();
+		ConcurrentTripRouter router = new ConcurrentTripRouter(() -> {
+			createdRouters.incrementAndGet();
+			return new TripRouter();
+		});
+
+		StageActivityTypes stageActivityTypes = router.getStageActivityTypes();
+		MainModeIdentifier mainModeIdentifier = router.getMainModeIdentifier();
+		for (int i = 0; i < 10; i++) {
+			Assert.assertSame(stageActivityTypes, router.getStageActivityTypes());
+			Assert.assertSame(mainModeIdentifier, router.getMainModeIdentifier());
+		}
+		Assert.assertEquals(1, createdRouters.get());
+	}
+
+}
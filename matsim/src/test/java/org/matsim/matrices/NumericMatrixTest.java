@@ -0,0 +1,171 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NumericMatrixTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.matrices;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class NumericMatrixTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static final List<String> ZONES = Arrays.asList("a", "b", "c");
+
+	@Test
+	public void testDense() {
+		NumericMatrix matrix = NumericMatrix.createDense("dense", ZONES);
+		fill(matrix);
+		assertFilled(matrix);
+
+		String filename = this.utils.getOutputDirectory() + "dense.bin";
+		matrix.writeFile(filename);
+		assertFilled(NumericMatrix.readFile(filename));
+	}
+
+	@Test
+	public void testSparse() {
+		NumericMatrix matrix = NumericMatrix.createSparse("sparse", ZONES);
+		for (int i = 0; i < 100; i++) {
+			// also forces the hash table to grow
+			matrix.set(i % 3, (i / 3) % 3, -1.0);
+			matrix.set(i % 3, (i / 3) % 3, Double.NaN);
+		}
+		fill(matrix);
+		assertFilled(matrix);
+
+		String filename = this.utils.getOutputDirectory() + "sparse.bin";
+		matrix.writeFile(filename);
+		assertFilled(NumericMatrix.readFile(filename));
+	}
+
+	@Test
+	public void testSparseReclaimsRemovedEntries() {
+		List<String> zones = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			zones.add(Integer.toString(i));
+		}
+		NumericMatrix.Sparse matrix = (NumericMatrix.Sparse) NumericMatrix.createSparse("sparse", zones);
+		for (int i = 0; i < 1000; i++) {
+			matrix.set(i / 100, i % 100, i);
+		}
+		Assert.assertEquals(1000, matrix.getNumberOfEntries());
+		int slotsWhenFull = matrix.getNumberOfSlots();
+
+		for (int i = 10; i < 1000; i++) {
+			matrix.set(i / 100, i % 100, Double.NaN);
+		}
+		Assert.assertEquals(10, matrix.getNumberOfEntries());
+		Assert.assertTrue(matrix.getNumberOfSlots() < slotsWhenFull / 10);
+		for (int i = 0; i < 1000; i++) {
+			if (i < 10) {
+				Assert.assertEquals(i, matrix.get(i / 100, i % 100), 0.0);
+			} else {
+				Assert.assertTrue(Double.isNaN(matrix.get(i / 100, i % 100)));
+			}
+		}
+
+		// setting and removing ever new entries must not grow the table
+		int slots = matrix.getNumberOfSlots();
+		for (int i = 1000; i < 10000; i++) {
+			matrix.set(i / 100, i % 100, i);
+			matrix.set(i / 100, i % 100, Double.NaN);
+		}
+		Assert.assertEquals(10, matrix.getNumberOfEntries());
+		Assert.assertEquals(slots, matrix.getNumberOfSlots());
+	}
+
+	@Test
+	public void testCreateChoosesSmallerStorage() {
+		Assert.assertTrue(NumericMatrix.create("full", ZONES, 9).isDense());
+		Assert.assertFalse(NumericMatrix.create("empty", ZONES, 1).isDense());
+
+		// too many zones for a dense matrix
+		List<String> manyZones = new ArrayList<>();
+		for (int i = 0; i < 50000; i++) {
+			manyZones.add(Integer.toString(i));
+		}
+		Assert.assertFalse(NumericMatrix.create("many", manyZones, (long) manyZones.size() * manyZones.size()).isDense());
+
+		NumericMatrix sparse = NumericMatrix.createSparse("sparse", ZONES);
+		sparse.set(0, 2, 1.5);
+		sparse.set(2, 1, 42.0);
+		sparse.set(0, 0, 5.0);
+		sparse.set(0, 0, Double.NaN);
+		Assert.assertSame(sparse, sparse.optimizeStorage());
+
+		sparse.set(1, 1, 7.0);
+		NumericMatrix optimized = sparse.optimizeStorage();
+		Assert.assertTrue(optimized.isDense());
+		Assert.assertEquals("sparse", optimized.getId());
+		Assert.assertEquals(2, optimized.getZoneIndex("c"));
+		Assert.assertEquals(1.5, optimized.get(0, 2), 0.0);
+		Assert.assertEquals(42.0, optimized.get(2, 1), 0.0);
+		Assert.assertEquals(7.0, optimized.get(1, 1), 0.0);
+		Assert.assertTrue(Double.isNaN(optimized.get(0, 0)));
+		Assert.assertTrue(Double.isNaN(optimized.get(1, 0)));
+	}
+
+	@Test
+	public void testCreateFromMatrix() {
+		Matrix matrix = new Matrix("m", null);
+		matrix.createAndAddEntry("a", "b", 1.0);
+		matrix.createAndAddEntry("b", "c", 2.0);
+		matrix.createAndAddEntry("c", "a", 3.0);
+
+		for (boolean dense : new boolean[] {true, false}) {
+			NumericMatrix numericMatrix = NumericMatrix.createFromMatrix(matrix, dense);
+			Assert.assertEquals(3, numericMatrix.getNumberOfZones());
+			Assert.assertEquals(1.0, numericMatrix.get("a", "b"), 0.0);
+			Assert.assertEquals(2.0, numericMatrix.get("b", "c"), 0.0);
+			Assert.assertEquals(3.0, numericMatrix.get("c", "a"), 0.0);
+			Assert.assertTrue(Double.isNaN(numericMatrix.get("a", "c")));
+			Assert.assertTrue(Double.isNaN(numericMatrix.get("a", "unknown")));
+			Assert.assertEquals(3, numericMatrix.toMatrix().getFromLocations().size());
+		}
+	}
+
+	private static void fill(NumericMatrix matrix) {
+		matrix.set("a", "a", 0.0);
+		matrix.set("a", "c", 1.5);
+		matrix.set("c", "b", 42.0);
+		matrix.set("b", "b", 7.0);
+		matrix.set("b", "b", Double.NaN);
+	}
+
+	private static void assertFilled(NumericMatrix matrix) {
+		Assert.assertEquals(3, matrix.getNumberOfZones());
+		Assert.assertEquals(2, matrix.getZoneIndex("c"));
+		Assert.assertEquals("b", matrix.getZoneId(1));
+		Assert.assertEquals(-1, matrix.getZoneIndex("d"));
+		Assert.assertEquals(0.0, matrix.get(0, 0), 0.0);
+		Assert.assertEquals(1.5, matrix.get(0, 2), 0.0);
+		Assert.assertEquals(42.0, matrix.get(2, 1), 0.0);
+		Assert.assertTrue(Double.isNaN(matrix.get(1, 1)));
+		Assert.assertTrue(Double.isNaN(matrix.get(1, 0)));
+	}
+
+}
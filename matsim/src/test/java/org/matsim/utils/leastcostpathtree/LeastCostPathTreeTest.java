@@ -0,0 +1,132 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LeastCostPathTreeTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.utils.leastcostpathtree;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.utils.leastcostpathtree.LeastCostPathTree.NodeData;
+import org.matsim.vehicles.Vehicle;
+
+public class LeastCostPathTreeTest {
+
+	@Test
+	public void testWithoutCostCutoff() {
+		Network network = createNetwork();
+		LeastCostPathTree tree = createTree();
+		tree.calculate(network, network.getNodes().get(Id.create(1, Node.class)), 8 * 3600.);
+
+		Assert.assertEquals(6, tree.getTree().size());
+		assertCost(tree, 1, 0.);
+		assertCost(tree, 2, 10.);
+		assertCost(tree, 3, 20.);
+		assertCost(tree, 4, 30.);
+		assertCost(tree, 5, 40.);
+		assertCost(tree, 6, 50.);
+		Assert.assertEquals(Id.create(5, Node.class), tree.getTree().get(Id.create(6, Node.class)).getPrevNodeId());
+	}
+
+	/**
+	 * Nodes up to the cutoff have their exact cost; nodes reached from them have an upper bound larger than the
+	 * cutoff, and all other nodes are not contained in the tree.
+	 */
+	@Test
+	public void testCostCutoff() {
+		Network network = createNetwork();
+		Node origin = network.getNodes().get(Id.create(1, Node.class));
+		LeastCostPathTree fullTree = createTree();
+		fullTree.calculate(network, origin, 8 * 3600.);
+
+		LeastCostPathTree tree = createTree();
+		tree.setCostCutoff(25.);
+		Assert.assertEquals(25., tree.getCostCutoff(), 0.);
+		tree.calculate(network, origin, 8 * 3600.);
+
+		assertCost(tree, 1, 0.);
+		assertCost(tree, 2, 10.);
+		assertCost(tree, 3, 20.);
+		// reached, but not expanded
+		assertCost(tree, 4, 30.);
+		// reached on a detour, the cheaper path via node 5 is beyond the cutoff
+		assertCost(tree, 6, 110.);
+		Assert.assertNull(tree.getTree().get(Id.create(5, Node.class)));
+
+		for (Map.Entry<Id<Node>, NodeData> e : tree.getTree().entrySet()) {
+			double fullCost = fullTree.getTree().get(e.getKey()).getCost();
+			if (e.getValue().getCost() <= tree.getCostCutoff()) {
+				Assert.assertEquals("cost of node " + e.getKey(), fullCost, e.getValue().getCost(), 0.);
+			} else {
+				Assert.assertTrue("cost of node " + e.getKey(), e.getValue().getCost() >= fullCost);
+			}
+		}
+	}
+
+	private static void assertCost(LeastCostPathTree tree, int nodeId, double expectedCost) {
+		NodeData nodeData = tree.getTree().get(Id.create(nodeId, Node.class));
+		Assert.assertNotNull("node " + nodeId + " is not in the tree", nodeData);
+		Assert.assertEquals("cost of node " + nodeId, expectedCost, nodeData.getCost(), 1e-9);
+	}
+
+	/**
+	 * The costs are the link lengths.
+	 */
+	private static LeastCostPathTree createTree() {
+		return new LeastCostPathTree(new FreeSpeedTravelTime(), new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return link.getLength();
+			}
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return link.getLength();
+			}
+		});
+	}
+
+	/**
+	 * A chain 1-2-3-4-5-6 of links with length 10, and an expensive link from 2 to 6.
+	 */
+	private static Network createNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		Node previous = null;
+		for (int i = 1; i <= 6; i++) {
+			Node node = NetworkUtils.createAndAddNode(network, Id.create(i, Node.class), new Coord(i * 10., 0.));
+			if (previous != null) {
+				NetworkUtils.createAndAddLink(network, Id.create(previous.getId() + "-" + i, Link.class), previous, node, 10., 10., 1000., 1.);
+			}
+			previous = node;
+		}
+		NetworkUtils.createAndAddLink(network, Id.create("2-6", Link.class), network.getNodes().get(Id.create(2, Node.class)),
+				network.getNodes().get(Id.create(6, Node.class)), 100., 10., 1000., 1.);
+		return network;
+	}
+
+}
@@ -19,6 +19,9 @@
 
 package org.matsim.utils.objectattributes;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -36,4 +39,84 @@ public class ObjectAttributesTest {
 		Assert.assertEquals("trunk", linkAttributes.putAttribute("1", "osm:roadtype", "motorway"));
 		Assert.assertEquals("motorway", linkAttributes.getAttribute("1", "osm:roadtype"));
 	}
+
+	@Test
+	public void testTypedGetters() {
+		ObjectAttributes personAttributes = new ObjectAttributes();
+		personAttributes.putAttribute("1", "income", 4200.0);
+		personAttributes.putAttribute("1", "age", 42);
+		personAttributes.putAttribute("1", "hasLicense", true);
+		personAttributes.putAttribute("1", "carAvail", "always");
+		personAttributes.putAttribute("2", "carAvail", "never");
+
+		int p1 = personAttributes.getObjectIndex("1");
+		int p2 = personAttributes.getObjectIndex("2");
+		Assert.assertEquals(-1, personAttributes.getObjectIndex("3"));
+		Assert.assertEquals(-1, personAttributes.getAttributeIndex("size"));
+
+		int income = personAttributes.getAttributeIndex("income");
+		Assert.assertEquals(4200.0, personAttributes.getDouble(p1, income, -1.0), 0.0);
+		Assert.assertEquals(-1.0, personAttributes.getDouble(p2, income, -1.0), 0.0);
+		Assert.assertEquals(42, personAttributes.getInt(p1, personAttributes.getAttributeIndex("age"), -1));
+		Assert.assertTrue(personAttributes.getBoolean(p1, personAttributes.getAttributeIndex("hasLicense"), false));
+		int carAvail = personAttributes.getAttributeIndex("carAvail");
+		Assert.assertEquals("always", personAttributes.getString(p1, carAvail));
+		Assert.assertEquals("never", personAttributes.getString(p2, carAvail));
+		Assert.assertEquals(Integer.valueOf(42), personAttributes.getAttribute("1", "age"));
+
+		Assert.assertEquals(Double.valueOf(4200.0), personAttributes.removeAttribute("1", "income"));
+		Assert.assertFalse(personAttributes.hasAttribute(p1, income));
+		Assert.assertNull(personAttributes.getAttribute("1", "income"));
+	}
+
+	@Test
+	public void testMixedTypes() {
+		ObjectAttributes linkAttributes = new ObjectAttributes();
+		linkAttributes.putAttribute("1", "lanes", 2);
+		linkAttributes.putAttribute("2", "lanes", 1.5);
+		linkAttributes.putAttribute("3", "lanes", "unknown");
+		Assert.assertEquals(Integer.valueOf(2), linkAttributes.getAttribute("1", "lanes"));
+		Assert.assertEquals(Double.valueOf(1.5), linkAttributes.getAttribute("2", "lanes"));
+		Assert.assertEquals("unknown", linkAttributes.getAttribute("3", "lanes"));
+		int lanes = linkAttributes.getAttributeIndex("lanes");
+		Assert.assertEquals(2.0, linkAttributes.getDouble(linkAttributes.getObjectIndex("1"), lanes, -1.0), 0.0);
+	}
+
+	@Test
+	public void testIndicesOfRemovedObjectsAreReclaimed() {
+		ObjectAttributes attributes = new ObjectAttributes();
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 100; i++) {
+				attributes.putAttribute(round + "_" + i, "income", 100.0 * i);
+				attributes.putAttribute(round + "_" + i, "carAvail", (i % 2 == 0) ? "always" : "never");
+			}
+			// keep every tenth object of each round
+			for (int i = 0; i < 100; i++) {
+				if (i % 10 != 0) {
+					attributes.removeAllAttributes(round + "_" + i);
+				}
+			}
+		}
+		Assert.assertTrue(attributes.getNumberOfObjectIndices() < 200);
+
+		// the remaining objects keep their values, and the order in which they were added
+		List<String> objectIds = new ArrayList<>();
+		for (int index = 0; index < attributes.getNumberOfObjectIndices(); index++) {
+			if (attributes.getObjectId(index) != null) {
+				objectIds.add(attributes.getObjectId(index));
+			}
+		}
+		List<String> expectedObjectIds = new ArrayList<>();
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 100; i += 10) {
+				String objectId = round + "_" + i;
+				expectedObjectIds.add(objectId);
+				Assert.assertEquals(Double.valueOf(100.0 * i), attributes.getAttribute(objectId, "income"));
+				Assert.assertEquals("always", attributes.getAttribute(objectId, "carAvail"));
+			}
+		}
+		Assert.assertEquals(expectedObjectIds, objectIds);
+		Assert.assertNull(attributes.getAttribute("0_1", "income"));
+	}
+
 }
@@ -0,0 +1,107 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinarySnapshotWriterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class BinarySnapshotWriterTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteRead_randomAccess() {
+		String filename = this.utils.getOutputDirectory() + "snapshots.bin";
+		AgentSnapshotInfoFactory factory = new AgentSnapshotInfoFactory(new SnapshotLinkWidthCalculator());
+
+		BinarySnapshotWriter writer = new BinarySnapshotWriter(filename);
+		for (int t = 0; t < 3; t++) {
+			writer.beginSnapshot(t * 10.0);
+			for (int a = 0; a <= t; a++) {
+				AgentSnapshotInfo position = factory.createAgentSnapshotInfo(Id.create(a, Person.class), 100.0 * t + a, 200.0 * t + a, 0.0, 90.0);
+				position.setColorValueBetweenZeroAndOne(0.5);
+				position.setAgentState(AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
+				position.setUserDefined(a);
+				writer.addAgent(position);
+			}
+			writer.endSnapshot();
+		}
+		writer.finish();
+
+		BinarySnapshotReader reader = new BinarySnapshotReader(filename);
+		Assert.assertEquals(3, reader.getNumberOfSnapshots());
+		Assert.assertEquals(1, reader.getSnapshotIndex(15.0));
+		Assert.assertEquals(2, reader.getSnapshotIndex(20.0));
+		Assert.assertEquals(-1, reader.getSnapshotIndex(-5.0));
+
+		// read the last snapshot first, then an earlier one
+		CollectingWriter collector = new CollectingWriter();
+		reader.readSnapshot(2, collector);
+		Assert.assertEquals(20.0, collector.time, 0.0);
+		Assert.assertEquals(3, collector.positions.size());
+		AgentSnapshotInfo position = collector.positions.get(2);
+		Assert.assertEquals(Id.create(2, Person.class), position.getId());
+		Assert.assertEquals(202.0, position.getEasting(), 0.0);
+		Assert.assertEquals(402.0, position.getNorthing(), 0.0);
+		Assert.assertEquals(90.0, position.getAzimuth(), 1e-6);
+		Assert.assertEquals(0.5, position.getColorValueBetweenZeroAndOne(), 1e-6);
+		Assert.assertEquals(AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR, position.getAgentState());
+		Assert.assertEquals(2, position.getUserDefined());
+
+		collector = new CollectingWriter();
+		reader.readSnapshot(0, collector);
+		Assert.assertEquals(0.0, collector.time, 0.0);
+		Assert.assertEquals(1, collector.positions.size());
+		Assert.assertEquals(Id.create(0, Person.class), collector.positions.get(0).getId());
+		reader.close();
+	}
+
+	private static class CollectingWriter implements SnapshotWriter {
+		double time = -1;
+		final List<AgentSnapshotInfo> positions = new ArrayList<>();
+
+		@Override
+		public void beginSnapshot(double time) {
+			this.time = time;
+		}
+
+		@Override
+		public void endSnapshot() {
+		}
+
+		@Override
+		public void addAgent(AgentSnapshotInfo position) {
+			this.positions.add(position);
+		}
+
+		@Override
+		public void finish() {
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IndexedAgentFilterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.withinday.replanning.identifiers.filter;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.handler.PersonEntersVehicleEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimInitializedListener;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.withinday.mobsim.MobsimDataProvider;
+import org.matsim.withinday.replanning.identifiers.interfaces.IndexedAgentFilter;
+import org.matsim.withinday.replanning.identifiers.tools.AgentIndex;
+
+/**
+ * Runs the pt tutorial scenario and compares, during the simulation, the agents selected
+ * by the indexed filters with the agents selected by checking every agent. The scenario
+ * contains pt riders, i.e. agents that are moved across the network as passengers.
+ */
+public class IndexedAgentFilterTest {
+
+	private static final double CHECK_INTERVAL = 300.;
+
+	@Test
+	public void testIndexedAndUnindexedSelectionAreEqual() {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("pt-tutorial"), "0.config.xml"));
+		final Scenario scenario = ScenarioUtils.loadScenario(config);
+		EventsManager events = EventsUtils.createEventsManager();
+
+		final MobsimDataProvider mobsimDataProvider = new MobsimDataProvider();
+		final AgentIndex agentIndex = new AgentIndex(mobsimDataProvider, events);
+		final Set<Id<Person>> ptRiders = new HashSet<>();
+		events.addHandler(new PersonEntersVehicleEventHandler() {
+			@Override
+			public void handleEvent(PersonEntersVehicleEvent event) {
+				if (scenario.getPopulation().getPersons().containsKey(event.getPersonId())) ptRiders.add(event.getPersonId());
+			}
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+
+		final int[] checks = new int[1];
+		QSim qsim = QSimUtils.createDefaultQSim(scenario, events);
+		qsim.addQueueSimulationListeners(new SelectionChecker() {
+			@Override
+			public void notifyMobsimInitialized(MobsimInitializedEvent e) {
+				mobsimDataProvider.notifyMobsimInitialized(e);
+				agentIndex.notifyMobsimInitialized(e);
+			}
+			@Override
+			public void notifyMobsimAfterSimStep(MobsimAfterSimStepEvent e) {
+				double time = e.getSimulationTime();
+				if (time % CHECK_INTERVAL != 0) return;
+				checks[0]++;
+
+				Set<Id<Person>> persons = new HashSet<>(scenario.getPopulation().getPersons().keySet());
+				for (Id<Link> linkId : scenario.getNetwork().getLinks().keySet()) {
+					Set<Id<Link>> links = Collections.singleton(linkId);
+					assertEqualSelection("link " + linkId + " at " + time, persons, time,
+							new LinkFilter(mobsimDataProvider.getAgents(), links),
+							new LinkFilterFactory(links, mobsimDataProvider).createAgentFilter());
+				}
+				Set<String> modes = Collections.singleton(TransportMode.pt);
+				assertEqualSelection("pt at " + time, persons, time,
+						new TransportModeFilter(mobsimDataProvider.getAgents(), modes),
+						new TransportModeFilterFactory(modes, mobsimDataProvider).createAgentFilter());
+			}
+		});
+		qsim.run();
+
+		Assert.assertSame(agentIndex, mobsimDataProvider.getAgentIndex());
+		Assert.assertTrue(checks[0] > 0);
+		Assert.assertFalse("no pt riders in the scenario", ptRiders.isEmpty());
+	}
+
+	private static void assertEqualSelection(String message, Set<Id<Person>> persons, double time,
+			IndexedAgentFilter unindexed, IndexedAgentFilter indexed) {
+		Set<Id<Person>> expected = new HashSet<>(persons);
+		unindexed.applyAgentFilter(expected, time);
+
+		Set<Id<Person>> candidates = indexed.getCandidates(time);
+		Assert.assertNotNull(message, candidates);
+		candidates.retainAll(persons);
+		indexed.applyAgentFilter(candidates, time);
+		Assert.assertEquals(message, expected, candidates);
+	}
+
+	private interface SelectionChecker extends MobsimInitializedListener, MobsimAfterSimStepListener {
+	}
+
+}
@@ -0,0 +1,233 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AgentIndexTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.withinday.replanning.identifiers.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.withinday.mobsim.MobsimDataProvider;
+
+public class AgentIndexTest {
+
+	@Test
+	public void testIndexUpdates() {
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		AgentIndex agentIndex = new AgentIndex(new MobsimDataProvider(), eventsManager);
+
+		Id<Person> driver = Id.createPersonId("driver");
+		Id<Person> passenger = Id.createPersonId("passenger");
+		Id<Vehicle> vehicle = Id.createVehicleId("vehicle");
+		Id<Link> link1 = Id.createLinkId("1");
+		Id<Link> link2 = Id.createLinkId("2");
+
+		eventsManager.processEvent(new PersonDepartureEvent(10.0, driver, link1, TransportMode.car));
+		eventsManager.processEvent(new PersonDepartureEvent(10.0, passenger, link1, TransportMode.ride));
+		Assert.assertEquals(2, agentIndex.getAgentsOnLink(link1).size());
+		Assert.assertTrue(agentIndex.getLegPerformingAgents(TransportMode.car).contains(driver));
+		Assert.assertTrue(agentIndex.getLegPerformingAgents(TransportMode.ride).contains(passenger));
+
+		// only the driver is moved together with the vehicle; like MobsimAgent.getCurrentLinkId(),
+		// the passenger remains on the departure link until arriving
+		eventsManager.processEvent(new PersonEntersVehicleEvent(11.0, driver, vehicle));
+		eventsManager.processEvent(new PersonEntersVehicleEvent(11.0, passenger, vehicle));
+		eventsManager.processEvent(new VehicleEntersTrafficEvent(11.0, driver, link1, vehicle, TransportMode.car, 1.0));
+		eventsManager.processEvent(new LinkEnterEvent(12.0, vehicle, link2));
+		Assert.assertTrue(agentIndex.getAgentsOnLink(link1).contains(passenger));
+		Assert.assertFalse(agentIndex.getAgentsOnLink(link1).contains(driver));
+		Assert.assertTrue(agentIndex.getAgentsOnLink(link2).contains(driver));
+
+		eventsManager.processEvent(new PersonLeavesVehicleEvent(20.0, passenger, vehicle));
+		eventsManager.processEvent(new PersonArrivalEvent(20.0, passenger, link2, TransportMode.ride));
+		eventsManager.processEvent(new ActivityStartEvent(20.0, passenger, link2, null, "work"));
+		Assert.assertTrue(agentIndex.getLegPerformingAgents(TransportMode.ride).isEmpty());
+		Assert.assertTrue(agentIndex.getAgentsOnLink(link1).isEmpty());
+		Assert.assertEquals(2, agentIndex.getAgentsOnLink(link2).size());
+
+		eventsManager.processEvent(new LinkEnterEvent(30.0, vehicle, link1));
+		Assert.assertTrue(agentIndex.getAgentsOnLink(link1).contains(driver));
+		Assert.assertTrue(agentIndex.getAgentsOnLink(link2).contains(passenger));
+		Assert.assertFalse(agentIndex.getAgentsOnLink(link2).contains(driver));
+
+		// after leaving traffic, the vehicle does not move the driver anymore
+		eventsManager.processEvent(new VehicleLeavesTrafficEvent(31.0, driver, link1, vehicle, TransportMode.car, 1.0));
+		eventsManager.processEvent(new LinkEnterEvent(32.0, vehicle, link2));
+		Assert.assertTrue(agentIndex.getAgentsOnLink(link1).contains(driver));
+
+		eventsManager.processEvent(new PersonStuckEvent(40.0, driver, link1, TransportMode.car));
+		Assert.assertTrue(agentIndex.getAgentsOnLink(link1).isEmpty());
+		Assert.assertTrue(agentIndex.getLegPerformingAgents(TransportMode.car).isEmpty());
+	}
+
+	/**
+	 * Replays several trips of drivers, a passenger and a teleported agent and compares the
+	 * whole index with the expected locations and modes after every single event.
+	 */
+	@Test
+	public void testIndexAfterEachEvent() {
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		IndexReplay replay = new IndexReplay(eventsManager, new AgentIndex(new MobsimDataProvider(), eventsManager));
+
+		Id<Person> driver1 = Id.createPersonId("driver1");
+		Id<Person> driver2 = Id.createPersonId("driver2");
+		Id<Person> passenger = Id.createPersonId("passenger");
+		Id<Person> walker = Id.createPersonId("walker");
+		Id<Vehicle> vehicle1 = Id.createVehicleId("vehicle1");
+		Id<Vehicle> vehicle2 = Id.createVehicleId("vehicle2");
+		List<Id<Link>> links = new ArrayList<>();
+		for (int i = 1; i <= 4; i++) links.add(Id.createLinkId(i));
+
+		double time = 0.0;
+		for (int trip = 0; trip < 3; trip++) {
+			List<Id<Link>> route = new ArrayList<>(links);
+			if (trip % 2 == 1) Collections.reverse(route);
+			Id<Link> from = route.get(0);
+			Id<Link> to = route.get(route.size() - 1);
+
+			time += 100.0;
+			replay.depart(time, driver1, from, TransportMode.car);
+			replay.depart(time, passenger, from, TransportMode.ride);
+			replay.depart(time, walker, from, TransportMode.walk);
+			replay.depart(time, driver2, from, TransportMode.car);
+			replay.process(new PersonEntersVehicleEvent(time, driver1, vehicle1));
+			replay.process(new PersonEntersVehicleEvent(time, passenger, vehicle1));
+			replay.process(new VehicleEntersTrafficEvent(time, driver1, from, vehicle1, TransportMode.car, 1.0));
+			replay.process(new PersonEntersVehicleEvent(time, driver2, vehicle2));
+			replay.process(new VehicleEntersTrafficEvent(time, driver2, from, vehicle2, TransportMode.car, 1.0));
+
+			for (Id<Link> link : route.subList(1, route.size())) {
+				time += 10.0;
+				replay.enterLink(time, vehicle1, link, driver1);
+				replay.enterLink(time, vehicle2, link, driver2);
+				if (link.equals(route.get(2))) replay.arrive(time, walker, to, TransportMode.walk);
+			}
+
+			time += 10.0;
+			replay.process(new VehicleLeavesTrafficEvent(time, driver1, to, vehicle1, TransportMode.car, 1.0));
+			replay.process(new PersonLeavesVehicleEvent(time, driver1, vehicle1));
+			replay.arrive(time, driver1, to, TransportMode.car);
+			replay.process(new PersonLeavesVehicleEvent(time, passenger, vehicle1));
+			replay.arrive(time, passenger, to, TransportMode.ride);
+
+			// the vehicle does not move its former driver anymore
+			replay.process(new VehicleLeavesTrafficEvent(time, driver2, to, vehicle2, TransportMode.car, 1.0));
+			replay.enterLink(time + 1.0, vehicle2, from, null);
+			replay.process(new PersonLeavesVehicleEvent(time + 1.0, driver2, vehicle2));
+			replay.arrive(time + 1.0, driver2, to, TransportMode.car);
+		}
+
+		time += 100.0;
+		replay.depart(time, driver2, links.get(0), TransportMode.car);
+		replay.process(new VehicleEntersTrafficEvent(time, driver2, links.get(0), vehicle2, TransportMode.car, 1.0));
+		replay.enterLink(time + 10.0, vehicle2, links.get(1), driver2);
+		replay.stuck(time + 20.0, driver2, links.get(1), TransportMode.car);
+
+		Assert.assertTrue(replay.processedEvents > 80);
+	}
+
+	/**
+	 * Keeps track of the expected location and leg mode of each agent, and after each processed
+	 * event compares them with the sets of the index for all links and modes seen so far.
+	 */
+	private static class IndexReplay {
+		private final EventsManager eventsManager;
+		private final AgentIndex agentIndex;
+		private final Map<Id<Person>, Id<Link>> expectedLinks = new HashMap<>();
+		private final Map<Id<Person>, String> expectedModes = new HashMap<>();
+		private final Set<Id<Link>> knownLinks = new HashSet<>();
+		private final Set<String> knownModes = new HashSet<>(Arrays.asList(TransportMode.car, TransportMode.ride, TransportMode.walk));
+		private int processedEvents = 0;
+
+		IndexReplay(EventsManager eventsManager, AgentIndex agentIndex) {
+			this.eventsManager = eventsManager;
+			this.agentIndex = agentIndex;
+		}
+
+		void depart(double time, Id<Person> personId, Id<Link> linkId, String mode) {
+			this.expectedLinks.put(personId, linkId);
+			this.expectedModes.put(personId, mode);
+			this.process(new PersonDepartureEvent(time, personId, linkId, mode));
+		}
+
+		void arrive(double time, Id<Person> personId, Id<Link> linkId, String mode) {
+			this.expectedLinks.put(personId, linkId);
+			this.expectedModes.remove(personId);
+			this.process(new PersonArrivalEvent(time, personId, linkId, mode));
+			this.process(new ActivityStartEvent(time, personId, linkId, null, "work"));
+		}
+
+		void enterLink(double time, Id<Vehicle> vehicleId, Id<Link> linkId, Id<Person> movedDriverId) {
+			if (movedDriverId != null) this.expectedLinks.put(movedDriverId, linkId);
+			this.process(new LinkEnterEvent(time, vehicleId, linkId));
+		}
+
+		void stuck(double time, Id<Person> personId, Id<Link> linkId, String mode) {
+			this.expectedLinks.remove(personId);
+			this.expectedModes.remove(personId);
+			this.process(new PersonStuckEvent(time, personId, linkId, mode));
+		}
+
+		void process(Event event) {
+			this.eventsManager.processEvent(event);
+			this.processedEvents++;
+			this.knownLinks.addAll(this.expectedLinks.values());
+
+			for (Id<Link> linkId : this.knownLinks) {
+				Set<Id<Person>> expected = new HashSet<>();
+				for (Map.Entry<Id<Person>, Id<Link>> entry : this.expectedLinks.entrySet()) {
+					if (entry.getValue().equals(linkId)) expected.add(entry.getKey());
+				}
+				Assert.assertEquals("agents on link " + linkId + " after " + event, expected, new HashSet<>(this.agentIndex.getAgentsOnLink(linkId)));
+			}
+			for (String mode : this.knownModes) {
+				Set<Id<Person>> expected = new HashSet<>();
+				for (Map.Entry<Id<Person>, String> entry : this.expectedModes.entrySet()) {
+					if (entry.getValue().equals(mode)) expected.add(entry.getKey());
+				}
+				Assert.assertEquals("agents performing a " + mode + " leg after " + event, expected, new HashSet<>(this.agentIndex.getLegPerformingAgents(mode)));
+			}
+		}
+	}
+}